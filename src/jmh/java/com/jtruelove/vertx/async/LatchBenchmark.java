@@ -0,0 +1,56 @@
+package com.jtruelove.vertx.async;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures counting a latch down, both with a fresh latch per use and a reset one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatchBenchmark {
+
+    @Param({"2", "16"})
+    public int count;
+
+    private int completions;
+    private Latch reused;
+
+    @Setup
+    public void setup() {
+        reused = new Latch(count, () -> completions++);
+    }
+
+    @Benchmark
+    public int newLatch() {
+        Latch latch = new Latch(count, () -> completions++);
+        for (int i = 0; i < count; i++) {
+            latch.complete();
+        }
+        return completions;
+    }
+
+    @Benchmark
+    public int resetLatch() {
+        reused.reset();
+        for (int i = 0; i < count; i++) {
+            reused.complete();
+        }
+        return completions;
+    }
+}
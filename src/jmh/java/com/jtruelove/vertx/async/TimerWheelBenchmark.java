@@ -0,0 +1,96 @@
+package com.jtruelove.vertx.async;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures registering and then cancelling a batch of timeouts on the event loop, the way promise and request
+ * timeouts are used, on the timer wheel against a vertx timer each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerWheelBenchmark {
+
+    private static final long DELAY = 5000L;
+
+    @Param({"1000"})
+    public int batch;
+
+    private Vertx vertx;
+    private Context context;
+    private TimerWheel.Timeout[] timeouts;
+    private long[] timerIds;
+    private Handler<Long> onTimer;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        timeouts = new TimerWheel.Timeout[batch];
+        for (int i = 0; i < batch; i++) {
+            timeouts[i] = new TimerWheel.Timeout() {
+                @Override
+                protected void expire() {
+                }
+            };
+        }
+        timerIds = new long[batch];
+        onTimer = timerId -> {};
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object wheel() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.current();
+            for (int i = 0; i < batch; i++) {
+                wheel.schedule(timeouts[i], DELAY);
+            }
+            for (int i = 0; i < batch; i++) {
+                wheel.cancel(timeouts[i]);
+            }
+            result.complete(wheel);
+        });
+        return result.get();
+    }
+
+    @Benchmark
+    public Object setTimer() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> {
+            for (int i = 0; i < batch; i++) {
+                timerIds[i] = vertx.setTimer(DELAY, onTimer);
+            }
+            for (int i = 0; i < batch; i++) {
+                vertx.cancelTimer(timerIds[i]);
+            }
+            result.complete(timerIds);
+        });
+        return result.get();
+    }
+}
@@ -0,0 +1,87 @@
+package com.jtruelove.vertx.async.promise;
+
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures evaluating promise chains on the event loop, from eval() until the done handler fires.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromiseBenchmark {
+
+    private static final PromiseAction STEP = (context, onResult) -> onResult.accept(true);
+    private static final TypedPromiseAction<Object[]> TYPED_STEP = (context, onResult) -> onResult.accept(true);
+
+    @Param({"1", "10"})
+    public int actions;
+
+    private Vertx vertx;
+    private PromiseFactory factory;
+    private PromiseAction[] fanOut;
+    private TypedPromiseAction<Object[]>[] typedFanOut;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        vertx = Vertx.vertx();
+        factory = new PromiseFactory(vertx);
+        fanOut = new PromiseAction[actions];
+        typedFanOut = (TypedPromiseAction<Object[]>[]) new TypedPromiseAction<?>[actions];
+        for (int i = 0; i < actions; i++) {
+            fanOut[i] = STEP;
+            typedFanOut[i] = TYPED_STEP;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object serialChain() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        factory.createSerial(fanOut).done(result::complete).except(result::complete).eval();
+        return result.get();
+    }
+
+    @Benchmark
+    public Object allFanOut() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        factory.createParallel(fanOut).done(result::complete).except(result::complete).eval();
+        return result.get();
+    }
+
+    @Benchmark
+    public Object typedSerialChain() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        factory.create(new Object[1]).allInOrder(typedFanOut).done(result::complete).except(result::complete).eval();
+        return result.get();
+    }
+
+    @Benchmark
+    public Object typedAllFanOut() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        factory.create(new Object[1]).all(typedFanOut).done(result::complete).except(result::complete).eval();
+        return result.get();
+    }
+}
@@ -0,0 +1,127 @@
+package com.jtruelove.vertx.client;
+
+import com.jtruelove.vertx.web.JsonUtil;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ServiceClient round trips against an in-process Vert.x HTTP server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceClientBenchmark {
+
+    private static final byte[] PAYLOAD = new JsonObject()
+            .put("id", "ord-4f1c2a9e")
+            .put("customerId", "cust-00912")
+            .put("expedited", true)
+            .encode()
+            .getBytes();
+
+    /**
+     * A typical request body, sent as Json.
+     */
+    public static class Order {
+        public String id = "ord-4f1c2a9e";
+        public String customerId = "cust-00912";
+        public boolean expedited = true;
+    }
+
+    private static final Order ORDER = new Order();
+
+    private Vertx vertx;
+    // requests are issued from the event loop, the same way a verticle would
+    private Context context;
+    private HttpServer server;
+    private ServiceClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        vertx.createHttpServer()
+                .requestHandler(request -> request.bodyHandler(body -> request.response().end(body)))
+                .listen(0, result -> {
+                    if (result.succeeded()) {
+                        listening.complete(result.result());
+                    } else {
+                        listening.completeExceptionally(result.cause());
+                    }
+                });
+        server = listening.get();
+
+        client = new ServiceClient.Builder(vertx)
+                .withHost("localhost")
+                .withPort(server.actualPort())
+                .withNumConnections(1)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object get() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> client.call(HttpMethod.GET, "/",
+                response -> response.bodyHandler(result::complete), result::completeExceptionally));
+        return result.get();
+    }
+
+    @Benchmark
+    public Object post() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> client.call(HttpMethod.POST, "/", PAYLOAD,
+                response -> response.bodyHandler(result::complete), result::completeExceptionally));
+        return result.get();
+    }
+
+    @Benchmark
+    public Object postJsonString() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> client.call(HttpMethod.POST, "/",
+                JsonUtil.getJsonForObject(ORDER).getBytes(StandardCharsets.UTF_8),
+                response -> response.bodyHandler(result::complete), result::completeExceptionally));
+        return result.get();
+    }
+
+    @Benchmark
+    public Object postJsonBuffer() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> {
+            ServiceRequest request = new ServiceRequest();
+            request.setJsonPayload(ORDER);
+            client.call(HttpMethod.POST, "/", request, response -> response.bodyHandler(result::complete),
+                    result::completeExceptionally);
+        });
+        return result.get();
+    }
+}
@@ -0,0 +1,113 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the transports of the ServiceClient with a fixed number of calls in flight against an in-process Vert.x
+ * HTTP server. Each operation is a batch of calls issued together. The connections counter is the number the server
+ * has open at the end of each iteration, JMH sums it over the measured iterations like any other events counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportBenchmark {
+
+    private static final int CONCURRENCY = 64;
+    private static final int NUM_CONNECTIONS = 8;
+
+    @Param({TransportOptions.DEFAULT, TransportOptions.PIPELINED, TransportOptions.MULTIPLEXED})
+    public String transport;
+
+    private Vertx vertx;
+    // requests are issued from the event loop, the same way a verticle would
+    private Context context;
+    private HttpServer server;
+    private ServiceClient client;
+    private final AtomicInteger open = new AtomicInteger();
+
+    /**
+     * The connections the server has open, reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Connections {
+        public int connections;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        vertx.createHttpServer()
+                .connectionHandler(connection -> {
+                    open.incrementAndGet();
+                    connection.closeHandler(aVoid -> open.decrementAndGet());
+                })
+                .requestHandler(request -> request.response().end("ok"))
+                .listen(0, result -> {
+                    if (result.succeeded()) {
+                        listening.complete(result.result());
+                    } else {
+                        listening.completeExceptionally(result.cause());
+                    }
+                });
+        server = listening.get();
+
+        client = new ServiceClient.Builder(vertx)
+                .withHost("localhost")
+                .withPort(server.actualPort())
+                .withNumConnections(NUM_CONNECTIONS)
+                .withTransport(TransportOptions.preset(transport))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+        vertx.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public Object get(Connections counters) throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> {
+            int[] remaining = {CONCURRENCY};
+            for (int i = 0; i < CONCURRENCY; i++) {
+                client.call(HttpMethod.GET, "/", response -> response.bodyHandler(body -> {
+                    if (--remaining[0] == 0) { result.complete(body); }
+                }), result::completeExceptionally);
+            }
+        });
+        Object body = result.get();
+        counters.connections = open.get();
+        return body;
+    }
+}
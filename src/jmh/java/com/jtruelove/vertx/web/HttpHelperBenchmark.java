@@ -0,0 +1,104 @@
+package com.jtruelove.vertx.web;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the HttpHelper.processResponse variants by serving them from an in-process server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpHelperBenchmark {
+
+    @Param({"empty", "json", "pojo", "bytes", "error"})
+    public String variant;
+
+    private Vertx vertx;
+    // requests are issued from the event loop, the same way a verticle would
+    private Context context;
+    private HttpServer server;
+    private HttpClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+
+        JsonObject json = new JsonObject().put("id", "ord-4f1c2a9e").put("count", 10).put("expedited", true);
+        JsonUtilBenchmark.Order pojo = JsonUtilBenchmark.sampleOrder(10);
+        byte[] bytes = JsonUtil.getJsonForObject(pojo).getBytes();
+
+        Handler<HttpServerRequest> handler;
+        switch (variant) {
+            case "json":
+                handler = request -> HttpHelper.processResponse(json, request.response());
+                break;
+            case "pojo":
+                handler = request -> HttpHelper.processResponse(pojo, request.response());
+                break;
+            case "bytes":
+                handler = request -> HttpHelper.processResponse(bytes, request.response());
+                break;
+            case "error":
+                handler = request -> HttpHelper.processErrorResponse("bad request", request.response(), 400);
+                break;
+            default:
+                handler = request -> HttpHelper.processResponse(request.response());
+        }
+
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        vertx.createHttpServer().requestHandler(handler).listen(0, result -> {
+            if (result.succeeded()) {
+                listening.complete(result.result());
+            } else {
+                listening.completeExceptionally(result.cause());
+            }
+        });
+        server = listening.get();
+        client = vertx.createHttpClient(new HttpClientOptions()
+                .setDefaultHost("localhost")
+                .setDefaultPort(server.actualPort())
+                .setKeepAlive(true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        server.close();
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object processResponse() throws Exception {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        context.runOnContext(aVoid -> client.get("/", response -> response.bodyHandler(result::complete))
+                .exceptionHandler(result::completeExceptionally)
+                .end());
+        return result.get();
+    }
+}
@@ -0,0 +1,145 @@
+package com.jtruelove.vertx.web;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JsonUtil parsing and serializing a representative service DTO, in its default and fast modes. The mapper
+ * benchmarks call JsonUtil.mapper directly, without Afterburner or a cached reader or writer, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonUtilBenchmark {
+
+    public static class LineItem {
+        @JsonProperty
+        public String sku;
+        @JsonProperty
+        public int quantity;
+        @JsonProperty
+        public double price;
+    }
+
+    public static class Order {
+        @JsonProperty
+        public String id;
+        @JsonProperty
+        public String customerId;
+        @JsonProperty
+        public long createdAt;
+        @JsonProperty
+        public boolean expedited;
+        @JsonProperty
+        public List<LineItem> items;
+    }
+
+    @Param({"false", "true"})
+    public boolean fast;
+
+    private Order order;
+    private String json;
+    private byte[] jsonBytes;
+    private Buffer jsonBuffer;
+
+    /**
+     * Builds the sample order used by the benchmarks.
+     *
+     * @param itemCount the number of line items to put on the order
+     * @return a populated order
+     */
+    public static Order sampleOrder(int itemCount) {
+        Order order = new Order();
+        order.id = "ord-4f1c2a9e";
+        order.customerId = "cust-00912";
+        order.createdAt = 1508198400000L;
+        order.expedited = true;
+        order.items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            LineItem item = new LineItem();
+            item.sku = "sku-" + i;
+            item.quantity = i + 1;
+            item.price = 9.99 * (i + 1);
+            order.items.add(item);
+        }
+        return order;
+    }
+
+    @Setup
+    public void setup() {
+        JsonUtil.setFastMode(fast);
+        order = sampleOrder(10);
+        json = JsonUtil.getJsonForObject(order);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        jsonBuffer = Buffer.buffer(jsonBytes);
+    }
+
+    @Benchmark
+    public Order parseString() {
+        return JsonUtil.parseJsonToObject(json, Order.class);
+    }
+
+    @Benchmark
+    public Order parseBytes() {
+        return JsonUtil.parseJsonToObject(jsonBytes, Order.class);
+    }
+
+    @Benchmark
+    public Order parseBuffer() {
+        return JsonUtil.parseJsonToObject(jsonBuffer, Order.class);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return JsonUtil.getJsonForObject(order);
+    }
+
+    @Benchmark
+    public Buffer serializeBuffer() {
+        return JsonUtil.getJsonBufferForObject(order);
+    }
+
+    /**
+     * The path HttpHelper used to take for an object, serialize to a String then encode it into a buffer.
+     */
+    @Benchmark
+    public Buffer serializeStringToBuffer() {
+        return Buffer.buffer(JsonUtil.getJsonForObject(order));
+    }
+
+    @Benchmark
+    public Order mapperParseBytes() throws IOException {
+        return JsonUtil.mapper.readValue(jsonBytes, Order.class);
+    }
+
+    @Benchmark
+    public String mapperSerialize() throws IOException {
+        return JsonUtil.mapper.writeValueAsString(order);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JsonUtil.setFastMode(false);
+    }
+}
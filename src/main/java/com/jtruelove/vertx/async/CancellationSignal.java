@@ -0,0 +1,131 @@
+package com.jtruelove.vertx.async;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * A signal that work in flight is no longer wanted.
+ *
+ * Work can poll {@link #isCancelled()}, which is a single volatile read, or register actions to run when the signal
+ * is cancelled, for example to reset an outstanding http request or unregister an event bus consumer. A signal is
+ * cancelled at most once, actions registered after that run immediately.
+ */
+public class CancellationSignal {
+    private final static Logger logger = LoggerFactory.getLogger(CancellationSignal.class);
+
+    /**
+     * A signal that is never cancelled, for running work that supports cancellation outside of anything that would
+     * cancel it.
+     */
+    public static final CancellationSignal NONE = new CancellationSignal(false);
+
+    private final boolean cancellable;
+    private volatile boolean cancelled;
+    private Action[] onCancel;
+    private int count;
+
+    public CancellationSignal() {
+        this(true);
+    }
+
+    private CancellationSignal(boolean cancellable) {
+        this.cancellable = cancellable;
+    }
+
+    /**
+     * Has the signal been cancelled?
+     *
+     * @return true if the work should stop, false otherwise
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Register an action to run when the signal is cancelled, it runs right away if the signal already is.
+     *
+     * @param action the action to take on cancellation
+     * @return the signal the action was registered on
+     */
+    public CancellationSignal onCancel(Action action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Cannot register a null action");
+        }
+
+        if (!cancellable) { return this; }
+
+        synchronized (this) {
+            if (!cancelled) {
+                if (onCancel == null) {
+                    onCancel = new Action[2];
+                } else if (count == onCancel.length) {
+                    onCancel = Arrays.copyOf(onCancel, count * 2);
+                }
+                onCancel[count++] = action;
+                return this;
+            }
+        }
+
+        action.callback();
+        return this;
+    }
+
+    /**
+     * Unregister an action, ie once the work it would have stopped has finished.
+     *
+     * @param action the action previously registered
+     * @return true if the action was registered and has been removed, false otherwise
+     */
+    public synchronized boolean remove(Action action) {
+        for (int i = 0; i < count; i++) {
+            if (onCancel[i] == action) {
+                System.arraycopy(onCancel, i + 1, onCancel, i, count - i - 1);
+                onCancel[--count] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a signal that is cancelled along with this one, but that can also be cancelled on its own.
+     *
+     * @return the new child signal
+     */
+    public CancellationSignal child() {
+        CancellationSignal child = new CancellationSignal();
+        onCancel(child::cancel);
+        return child;
+    }
+
+    /**
+     * Cancel the signal, running all the actions registered on it. Does nothing if it is already cancelled.
+     */
+    public void cancel() {
+        if (!cancellable) {
+            throw new IllegalStateException("The NONE signal cannot be cancelled");
+        }
+
+        Action[] actions;
+        int total;
+        synchronized (this) {
+            if (cancelled) { return; }
+
+            cancelled = true;
+            actions = onCancel;
+            total = count;
+            onCancel = null;
+            count = 0;
+        }
+
+        for (int i = 0; i < total; i++) {
+            try {
+                actions[i].callback();
+            } catch (Exception ex) {
+                logger.error("Error running cancellation action: ", ex);
+            }
+        }
+    }
+}
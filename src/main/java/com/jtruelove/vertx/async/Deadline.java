@@ -0,0 +1,110 @@
+package com.jtruelove.vertx.async;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A point in time by which a piece of work has to be finished, shared by everything done on behalf of one request.
+ *
+ * The deadline is kept as wall clock epoch milliseconds so it can be stored in a promise context and survive a trip
+ * over the event bus. Between services it travels as the remaining budget in milliseconds instead, that way it
+ * doesn't depend on the clocks of two hosts agreeing.
+ */
+public class Deadline {
+
+    /**
+     * The key a deadline is stored under in a promise or routing context.
+     */
+    public static final String CONTEXT_KEY = "deadline";
+
+    private final long epochMillis;
+
+    private Deadline(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Create a deadline a given amount of time from now.
+     *
+     * @param budget the time in milliseconds the work has to finish in
+     * @return the deadline
+     */
+    public static Deadline in(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("Invalid budget: " + budget);
+        }
+        return new Deadline(System.currentTimeMillis() + budget);
+    }
+
+    /**
+     * Create a deadline at a point in time.
+     *
+     * @param epochMillis the wall clock time in milliseconds since the epoch
+     * @return the deadline
+     */
+    public static Deadline at(long epochMillis) {
+        return new Deadline(epochMillis);
+    }
+
+    /**
+     * Get the deadline stored in a promise context.
+     *
+     * @param context the promise context
+     * @return the deadline or null if there isn't one
+     */
+    public static Deadline fromContext(JsonObject context) {
+        Long epochMillis = context.getLong(CONTEXT_KEY);
+        return epochMillis == null ? null : new Deadline(epochMillis);
+    }
+
+    /**
+     * Store the deadline in a promise context.
+     *
+     * @param context the promise context
+     */
+    public void toContext(JsonObject context) {
+        context.put(CONTEXT_KEY, epochMillis);
+    }
+
+    /**
+     * Get the point in time the work has to be finished by.
+     *
+     * @return the wall clock time in milliseconds since the epoch
+     */
+    public long epochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * Get how much time is left.
+     *
+     * @return the remaining time in milliseconds, 0 once the deadline has passed
+     */
+    public long remaining() {
+        return Math.max(0, epochMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * Has the deadline passed?
+     *
+     * @return true if there is no time left, false otherwise
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= epochMillis;
+    }
+
+    /**
+     * Cap a timeout at the time that is left.
+     *
+     * @param timeout a timeout in milliseconds, 0 or less meaning no timeout
+     * @return the smaller of the timeout and the remaining time
+     */
+    public long cap(long timeout) {
+        long remaining = remaining();
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{epochMillis=" + epochMillis + ", remaining=" + remaining() + "}";
+    }
+}
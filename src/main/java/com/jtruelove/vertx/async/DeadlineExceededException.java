@@ -0,0 +1,14 @@
+package com.jtruelove.vertx.async;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thrown or reported when work is abandoned because its deadline has already passed.
+ */
+public class DeadlineExceededException extends TimeoutException {
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,297 @@
+package com.jtruelove.vertx.async;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A coarse grained hashed timing wheel for tracking large numbers of deadlines that are mostly cancelled before
+ * they fire, like promise and request timeouts.
+ *
+ * Time is split into ticks and each tick maps to a slot on the wheel. A timeout is a node the caller owns and links
+ * into the slot for the tick it expires on, so scheduling and cancelling are O(1) and allocate nothing, and a single
+ * periodic vertx timer drives the whole wheel for as long as anything is scheduled on it. Timeouts fire up to a tick
+ * late, never early.
+ *
+ * A wheel belongs to an event loop context and must only be used from it, use {@link #current()} to get the one for
+ * the context you are on. Cancelling from another thread is allowed, it is handed over to the owning context.
+ *
+ * There is a wheel per context rather than one per event loop, though several contexts share a loop. That way a
+ * timeout fires on the context it was scheduled from, so its handler sees the same {@link Vertx#currentContext()} a
+ * vertx timer would give it, and the periodic timer belongs to that context and goes away when its verticle is
+ * undeployed. It costs one tick per context, and only while something is scheduled on it.
+ */
+public class TimerWheel {
+    private final static Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    public static final long DEFAULT_TICK = 10L;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final String CONTEXT_KEY = TimerWheel.class.getName();
+    private static final long NO_TIMER = -1L;
+
+    private final Vertx vertx;
+    private final Context context;
+    private final long tick;
+    private final long tickNanos;
+    private final long start = System.nanoTime();
+    private final Timeout[] slots;
+    private final int mask;
+    private long currentTick;
+    private int pending;
+    private long timerId = NO_TIMER;
+
+    private TimerWheel(Context context, long tick, int wheelSize) {
+        if (tick < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1ms, got: " + tick);
+        }
+
+        if (wheelSize < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two, got: " + wheelSize);
+        }
+
+        this.vertx = context.owner();
+        this.context = context;
+        this.tick = tick;
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        slots = new Timeout[wheelSize];
+        mask = wheelSize - 1;
+    }
+
+    /**
+     * Get the wheel for the event loop context we are running on, creating one with the default resolution if there
+     * isn't one yet.
+     *
+     * @return the wheel or null if we aren't on an event loop, callers should fall back to a vertx timer
+     */
+    public static TimerWheel current() {
+        Context context = Vertx.currentContext();
+        if (context == null || !context.isEventLoopContext()) { return null; }
+
+        TimerWheel wheel = context.get(CONTEXT_KEY);
+        if (wheel == null) {
+            wheel = new TimerWheel(context, DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+            context.put(CONTEXT_KEY, wheel);
+        }
+        return wheel;
+    }
+
+    /**
+     * Create the wheel for an event loop context with a given resolution, do this before anything on the context
+     * asks for the wheel.
+     *
+     * @param context the event loop context the wheel belongs to
+     * @param tick the resolution of the wheel in milliseconds
+     * @param wheelSize the number of slots on the wheel, a power of two. Timeouts further out than tick * wheelSize
+     *                  are visited once per rotation until they are due.
+     * @return the new wheel
+     */
+    public static TimerWheel install(Context context, long tick, int wheelSize) {
+        if (context == null || !context.isEventLoopContext()) {
+            throw new IllegalArgumentException("A timer wheel needs an event loop context");
+        }
+
+        if (context.get(CONTEXT_KEY) != null) {
+            throw new IllegalStateException("The context already has a timer wheel");
+        }
+
+        TimerWheel wheel = new TimerWheel(context, tick, wheelSize);
+        context.put(CONTEXT_KEY, wheel);
+        return wheel;
+    }
+
+    /**
+     * Get the resolution of the wheel.
+     *
+     * @return the tick in milliseconds
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Get the number of timeouts waiting to fire.
+     *
+     * @return the number of scheduled timeouts
+     */
+    public int size() {
+        return pending;
+    }
+
+    /**
+     * Schedule a timeout, if it is already scheduled it is moved to the new deadline.
+     *
+     * @param timeout the timeout to fire
+     * @param delay the delay in milliseconds
+     */
+    public void schedule(Timeout timeout, long delay) {
+        if (Vertx.currentContext() != context) {
+            throw new IllegalStateException("Timeouts must be scheduled from the context that owns the wheel");
+        }
+
+        if (delay < 0) {
+            throw new IllegalArgumentException("Invalid delay: " + delay);
+        }
+
+        if (timeout.wheel != null && timeout.wheel != this) {
+            throw new IllegalStateException("The timeout is already scheduled on another wheel");
+        }
+
+        if (timeout.state == Timeout.SCHEDULED) {
+            unlink(timeout);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (timerId == NO_TIMER) {
+            // nothing has been ticking, catch up to now and start again
+            currentTick = elapsed / tickNanos;
+            timerId = vertx.setPeriodic(tick, theTimerId -> advance());
+        }
+
+        // round up so nothing fires early
+        long deadline = (elapsed + TimeUnit.MILLISECONDS.toNanos(delay) + tickNanos - 1) / tickNanos;
+        timeout.deadline = Math.max(deadline, currentTick + 1);
+        timeout.state = Timeout.SCHEDULED;
+        timeout.wheel = this;
+
+        int slot = (int) (timeout.deadline & mask);
+        Timeout head = slots[slot];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) { head.prev = timeout; }
+        slots[slot] = timeout;
+        pending++;
+    }
+
+    /**
+     * Cancel a timeout so it doesn't fire.
+     *
+     * @param timeout the timeout to cancel
+     * @return true if the timeout was pending on this wheel, false otherwise
+     */
+    public boolean cancel(Timeout timeout) {
+        if (Vertx.currentContext() != context) {
+            if (timeout.wheel != this) { return false; }
+            context.runOnContext(aVoid -> cancel(timeout));
+            return true;
+        }
+
+        if (timeout.wheel != this) { return false; }
+
+        // an expiring timeout is already off the wheel, it just needs to be stopped from firing this tick
+        if (timeout.state == Timeout.SCHEDULED) {
+            unlink(timeout);
+        }
+        timeout.state = Timeout.IDLE;
+        timeout.wheel = null;
+        return true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev == null) {
+            slots[(int) (timeout.deadline & mask)] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+
+        timeout.prev = timeout.next = null;
+        pending--;
+    }
+
+    /**
+     * Move the wheel up to the current time, firing everything that is due on the way.
+     */
+    private void advance() {
+        long now = (System.nanoTime() - start) / tickNanos;
+        while (currentTick < now && pending > 0) {
+            currentTick++;
+            expire((int) (currentTick & mask));
+        }
+
+        if (pending == 0) {
+            // stop ticking while there is nothing to do, the next schedule starts it up again
+            vertx.cancelTimer(timerId);
+            timerId = NO_TIMER;
+        }
+    }
+
+    private void expire(int slot) {
+        // take everything that is due off the wheel first, the callbacks are free to schedule and cancel
+        Timeout due = null;
+        Timeout timeout = slots[slot];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadline <= currentTick) {
+                unlink(timeout);
+                timeout.state = Timeout.EXPIRING;
+                timeout.nextDue = due;
+                due = timeout;
+            }
+            timeout = next;
+        }
+
+        while (due != null) {
+            Timeout next = due.nextDue;
+            due.nextDue = null;
+            // cancelled or rescheduled by an earlier callback
+            if (due.state == Timeout.EXPIRING) {
+                due.state = Timeout.IDLE;
+                due.wheel = null;
+                try {
+                    due.expire();
+                } catch (Exception ex) {
+                    logger.error("Error running timeout: ", ex);
+                }
+            }
+            due = next;
+        }
+    }
+
+    /**
+     * A deadline tracked by a wheel. Callers allocate it once and can schedule it any number of times, it can only
+     * be on one wheel at a time.
+     */
+    public static abstract class Timeout {
+        private static final int IDLE = 0;
+        private static final int SCHEDULED = 1;
+        private static final int EXPIRING = 2;
+
+        private volatile TimerWheel wheel;
+        private Timeout prev;
+        private Timeout next;
+        private Timeout nextDue;
+        private long deadline;
+        private int state;
+
+        /**
+         * Called on the wheel's context when the timeout is due.
+         */
+        protected abstract void expire();
+
+        /**
+         * Cancel the timeout if it is scheduled.
+         *
+         * @return true if it was pending, false otherwise
+         */
+        public boolean cancel() {
+            TimerWheel current = wheel;
+            return current != null && current.cancel(this);
+        }
+
+        /**
+         * Is the timeout waiting to fire?
+         *
+         * @return true if it is scheduled on a wheel
+         */
+        public boolean isScheduled() {
+            return wheel != null;
+        }
+    }
+}
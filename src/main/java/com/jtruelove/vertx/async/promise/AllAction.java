@@ -0,0 +1,48 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+
+import java.util.function.Consumer;
+
+/**
+ * Runs a set of actions in parallel, a single instance collects the results from all of them. The first failure
+ * fails the whole set, the results of the actions still running at that point are ignored.
+ *
+ * Like the rest of the promise machinery it expects the results to be delivered on the event loop.
+ */
+class AllAction<T> implements CancellableAction<T>, Consumer<Boolean> {
+    private final TypedPromiseAction<T>[] actions;
+    private Consumer<Boolean> onResult;
+    private int remaining;
+
+    AllAction(TypedPromiseAction<T>[] actions) {
+        this.actions = actions;
+    }
+
+    @Override
+    public void execute(T context, Consumer<Boolean> onResult, CancellationSignal signal) {
+        this.onResult = onResult;
+        remaining = actions.length;
+        if (remaining == 0) {
+            onResult.accept(true);
+            return;
+        }
+
+        for (TypedPromiseAction<T> action : actions) {
+            if (remaining <= 0) { return; }
+            action.execute(context, this, signal);
+        }
+    }
+
+    @Override
+    public void accept(Boolean success) {
+        if (remaining <= 0) { return; }
+
+        if (!success) {
+            remaining = 0;
+            onResult.accept(false);
+        } else if (--remaining == 0) {
+            onResult.accept(true);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Runs actions in parallel keeping at most a fixed number of them in flight, the next action is pulled from the
+ * iterator as each one finishes. Actions are only created as the iterator is advanced so a large fan out never has
+ * to exist in memory all at once.
+ *
+ * A single instance collects the results of all the actions, like the rest of the promise machinery it expects the
+ * results to be delivered on the event loop.
+ */
+class BoundedAllAction<T> implements CancellableAction<T>, Consumer<Boolean> {
+    private final int maxConcurrency;
+    private final Iterator<? extends TypedPromiseAction<T>> actions;
+    private T context;
+    private Consumer<Boolean> onResult;
+    private CancellationSignal signal;
+    private int inFlight;
+    private boolean finished;
+    // the pump loop is on the stack, actions that complete synchronously are replaced by it
+    private boolean pumping;
+
+    BoundedAllAction(int maxConcurrency, Iterator<? extends TypedPromiseAction<T>> actions) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than 0");
+        }
+
+        if (actions == null) {
+            throw new IllegalArgumentException("Cannot fan out over null actions");
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        this.actions = actions;
+    }
+
+    @Override
+    public void execute(T context, Consumer<Boolean> onResult, CancellationSignal signal) {
+        this.context = context;
+        this.onResult = onResult;
+        this.signal = signal;
+        // an exception here is reported by the promise that is executing us
+        pump();
+    }
+
+    @Override
+    public void accept(Boolean success) {
+        if (finished) { return; }
+
+        inFlight--;
+        if (!success) {
+            finish(false);
+            return;
+        }
+
+        try {
+            pump();
+        } catch (RuntimeException ex) {
+            // we are on a callback from some other action, nobody is left to catch this
+            finish(false);
+        }
+    }
+
+    /**
+     * Start actions until the concurrency limit is hit or we run out of them.
+     */
+    private void pump() {
+        if (pumping) { return; }
+
+        pumping = true;
+        try {
+            // once cancelled don't bother starting anything else
+            while (!finished && !signal.isCancelled() && inFlight < maxConcurrency && actions.hasNext()) {
+                inFlight++;
+                actions.next().execute(context, this, signal);
+            }
+
+            if (!finished && inFlight == 0 && !actions.hasNext()) {
+                finish(true);
+            }
+        } finally {
+            pumping = false;
+        }
+    }
+
+    private void finish(boolean success) {
+        finished = true;
+        context = null;
+        signal = null;
+        onResult.accept(success);
+    }
+}
@@ -0,0 +1,23 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+
+import java.util.function.Consumer;
+
+/**
+ * An action for a TypedPromise that wants to know when its result is no longer needed, so it can stop work in
+ * flight and release what it's holding.
+ *
+ * @param <T> the type of the context object shared by the actions in a promise
+ */
+@FunctionalInterface
+public interface CancellableAction<T> extends TypedPromiseAction<T> {
+
+    @Override
+    void execute(T context, Consumer<Boolean> onResult, CancellationSignal signal);
+
+    @Override
+    default void execute(T context, Consumer<Boolean> onResult) {
+        execute(context, onResult, CancellationSignal.NONE);
+    }
+}
@@ -0,0 +1,22 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+import io.vertx.core.json.JsonObject;
+
+import java.util.function.Consumer;
+
+/**
+ * An action for a Promise that wants to know when its result is no longer needed, so it can stop work in flight
+ * and release what it's holding, ie reset an outstanding request when the promise times out.
+ */
+@FunctionalInterface
+public interface CancellablePromiseAction extends PromiseAction {
+
+    @Override
+    void execute(JsonObject context, Consumer<Boolean> onResult, CancellationSignal signal);
+
+    @Override
+    default void execute(JsonObject context, Consumer<Boolean> onResult) {
+        execute(context, onResult, CancellationSignal.NONE);
+    }
+}
@@ -0,0 +1,126 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+import io.vertx.core.Vertx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs an action and, if it hasn't finished after a delay, runs it a second time. The first attempt to succeed wins
+ * and the other one is cancelled, the hedge only fails once every attempt it made has failed.
+ *
+ * With a {@link HedgePolicy} the delay comes from the policy, and how long the hedged action took is recorded back
+ * into it. That is always timed from the start of the first attempt, so when the hedge wins what is recorded is how
+ * long the first attempt had been running when it lost. Timing the hedge from its own start would record the short
+ * latencies hedging produces, shrinking the delay until everything gets hedged.
+ */
+class HedgeAction<T> implements CancellableAction<T> {
+    private static final long NO_TIMER = -1L;
+
+    private final Vertx vertx;
+    private final TypedPromiseAction<T> action;
+    private final long fixedDelay;
+    private final HedgePolicy policy;
+    private T context;
+    private Consumer<Boolean> onResult;
+    private CancellationSignal attempts;
+    private int pending;
+    private boolean finished;
+    private long timerId = NO_TIMER;
+    private long start;
+
+    HedgeAction(Vertx vertx, long delay, TypedPromiseAction<T> action) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Invalid hedge delay: " + delay);
+        }
+
+        this.vertx = vertx;
+        this.action = action;
+        this.fixedDelay = delay;
+        this.policy = null;
+    }
+
+    HedgeAction(Vertx vertx, HedgePolicy policy, TypedPromiseAction<T> action) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Cannot hedge with a null policy");
+        }
+
+        this.vertx = vertx;
+        this.action = action;
+        this.fixedDelay = 0;
+        this.policy = policy;
+    }
+
+    @Override
+    public void execute(T context, Consumer<Boolean> onResult, CancellationSignal signal) {
+        this.context = context;
+        this.onResult = onResult;
+        // cancelled once either attempt wins, so the slower one lets go of whatever it holds
+        attempts = signal.child();
+        start = System.nanoTime();
+        timerId = vertx.setTimer(Math.max(1, policy != null ? policy.delay() : fixedDelay), theTimerId -> {
+            timerId = NO_TIMER;
+            if (!finished && !attempts.isCancelled()) {
+                Attempt hedge = new Attempt();
+                pending++;
+                try {
+                    action.execute(context, hedge, attempts);
+                } catch (RuntimeException ex) {
+                    // there is nobody on this stack to report it to, count it as a failed attempt
+                    hedge.accept(false);
+                }
+            }
+        });
+
+        pending++;
+        try {
+            action.execute(context, new Attempt(), attempts);
+        } catch (RuntimeException ex) {
+            // the promise reports the exception, just make sure the hedge never goes out
+            finished = true;
+            cancelTimer();
+            attempts.cancel();
+            throw ex;
+        }
+    }
+
+    private void finish(boolean success) {
+        finished = true;
+        context = null;
+        cancelTimer();
+        attempts.cancel();
+        onResult.accept(success);
+    }
+
+    private void cancelTimer() {
+        if (timerId != NO_TIMER) {
+            vertx.cancelTimer(timerId);
+            timerId = NO_TIMER;
+        }
+    }
+
+    /**
+     * Collects the result of one attempt.
+     */
+    private class Attempt implements Consumer<Boolean> {
+        private boolean reported;
+
+        @Override
+        public void accept(Boolean success) {
+            if (finished || reported) { return; }
+
+            reported = true;
+            pending--;
+            if (success) {
+                if (policy != null) {
+                    policy.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                finish(true);
+            } else if (pending == 0) {
+                // nothing else in flight, and a failed attempt doesn't wait around for the hedge
+                finish(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.metrics.LatencyHistogram;
+
+/**
+ * Decides how long a hedged action waits before sending a duplicate, based on the latencies it has observed.
+ *
+ * Promises hedging with a policy record how long their actions took to succeed, timed from the first attempt
+ * whichever attempt won, and the delay is the configured percentile of those latencies, ie at p95 roughly one in
+ * twenty actions gets a duplicate. The latencies are tracked in windows of a fixed number of samples so the delay
+ * follows the backend as it speeds up or slows down.
+ * Share one policy across all the promises hedging calls to the same backend.
+ */
+public class HedgePolicy {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1000;
+
+    private final double percentile;
+    private final int windowSize;
+    private final long minDelay;
+    private volatile LatencyHistogram window = new LatencyHistogram();
+    private volatile long delay;
+
+    /**
+     * Create a policy that hedges at the given percentile.
+     *
+     * @param percentile the percentile of observed latency to wait before hedging, ie 95.0
+     * @param initialDelay the delay in milliseconds to use until a full window has been observed
+     */
+    public HedgePolicy(double percentile, long initialDelay) {
+        this(percentile, initialDelay, 1L, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a policy that hedges at the given percentile.
+     *
+     * @param percentile the percentile of observed latency to wait before hedging, ie 95.0
+     * @param initialDelay the delay in milliseconds to use until a full window has been observed
+     * @param minDelay the delay in milliseconds never to hedge sooner than
+     * @param windowSize the number of latencies observed before the delay is recomputed
+     */
+    public HedgePolicy(double percentile, long initialDelay, long minDelay, int windowSize) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be greater than 0 and at most 100, got: " + percentile);
+        }
+
+        if (initialDelay < 0 || minDelay < 0) {
+            throw new IllegalArgumentException("Delays must not be negative");
+        }
+
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be greater than 0");
+        }
+
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.windowSize = windowSize;
+        delay = Math.max(initialDelay, minDelay);
+    }
+
+    /**
+     * Get how long to wait before sending a duplicate.
+     *
+     * @return the delay in milliseconds
+     */
+    public long delay() {
+        return delay;
+    }
+
+    /**
+     * Record how long an action took to succeed.
+     *
+     * @param latency the latency in milliseconds
+     */
+    public void record(long latency) {
+        LatencyHistogram current = window;
+        current.record(latency);
+        if (current.getCount() >= windowSize) {
+            rotate(current);
+        }
+    }
+
+    private synchronized void rotate(LatencyHistogram full) {
+        // someone else already rotated it
+        if (window != full) { return; }
+
+        window = new LatencyHistogram();
+        delay = Math.max(full.getValueAtPercentile(percentile), minDelay);
+    }
+}
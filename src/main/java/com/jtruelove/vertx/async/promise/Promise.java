@@ -1,9 +1,12 @@
 package com.jtruelove.vertx.async.promise;
 
+import com.jtruelove.vertx.async.Deadline;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 
+import java.util.Iterator;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Represents a set of one or more asynchronous actions.
@@ -22,6 +25,77 @@ public interface Promise {
      */
     Promise all(PromiseAction ... actions);
 
+    /**
+     * Executes all actions in parallel keeping at most maxConcurrency of them in flight at once, the next action
+     * starts as each one finishes.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    Promise all(int maxConcurrency, PromiseAction ... actions);
+
+    /**
+     * Executes all actions in parallel keeping at most maxConcurrency of them in flight at once. Actions are pulled
+     * from the iterator as they are needed so it can produce them lazily.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    Promise all(int maxConcurrency, Iterator<? extends PromiseAction> actions);
+
+    /**
+     * Executes all actions in parallel keeping at most maxConcurrency of them in flight at once. Actions are pulled
+     * from the stream as they are needed so it can produce them lazily.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    default Promise all(int maxConcurrency, Stream<? extends PromiseAction> actions) {
+        return all(maxConcurrency, actions.iterator());
+    }
+
+    /**
+     * Executes all actions in parallel and continues as soon as one of them succeeds, the results of the others are
+     * ignored. Fails only if every action fails.
+     *
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    Promise any(PromiseAction ... actions);
+
+    /**
+     * Executes all actions in parallel and continues as soon as required of them have succeeded, the results of the
+     * others are ignored. Fails as soon as too many have failed for that to happen.
+     *
+     * @param required the number of actions that need to succeed
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    Promise quorum(int required, PromiseAction ... actions);
+
+    /**
+     * Executes an action, and if it hasn't finished within delay executes it a second time. The first attempt to
+     * succeed wins, the hedge only fails when every attempt has failed.
+     *
+     * @param delay the time in milliseconds to wait before sending the duplicate
+     * @param action the action to execute
+     * @return the promise representing the actions
+     */
+    Promise hedge(long delay, PromiseAction action);
+
+    /**
+     * Executes an action, and if it hasn't finished within the delay given by the policy executes it a second time.
+     * The latency of the attempt that succeeds is recorded back into the policy.
+     *
+     * @param policy the policy that decides the delay from observed latencies
+     * @param action the action to execute
+     * @return the promise representing the actions
+     */
+    Promise hedge(HedgePolicy policy, PromiseAction action);
+
     /**
      * Executes all actions serially
      *
@@ -60,6 +134,16 @@ public interface Promise {
      */
     Promise timeout(long time);
 
+    /**
+     * A deadline to hold the promise to. The deadline is stored in the context under {@link Deadline#CONTEXT_KEY}
+     * so actions can hand it on to downstream calls, the promise times out when it passes, and no further action is
+     * started once it has passed.
+     *
+     * @param deadline the point in time the promise needs to complete by
+     * @return the promise representing the actions
+     */
+    Promise deadline(Deadline deadline);
+
     /**
      * Has the promise succeeded? Will return false while still executing.
      *
@@ -9,7 +9,7 @@ import java.util.function.Consumer;
  *
  * @author truelove@cyngn.com (Jeremy Truelove) 7/30/15
  */
-public interface  PromiseAction {
+public interface PromiseAction extends TypedPromiseAction<JsonObject> {
     /**
      * The action to execute.
      *
@@ -18,6 +18,7 @@ public interface  PromiseAction {
      * @param onResult the callback that collects the result of any given PromiseAction necessary for
      *                 continuing or completing the chain of actions in a promise.
      */
+    @Override
     void execute(JsonObject context, Consumer<Boolean> onResult);
 }
 
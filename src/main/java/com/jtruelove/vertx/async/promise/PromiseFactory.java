@@ -29,6 +29,17 @@ public class PromiseFactory {
         return Promise.newInstance(vertx);
     }
 
+    /**
+     * Create an empty typed promise around a context object of your own.
+     *
+     * @param context the object to hand to every action
+     * @param <T> the type of the context object
+     * @return a new empty typed promise
+     */
+    public <T> TypedPromise<T> create(T context) {
+        return TypedPromise.newInstance(vertx, context);
+    }
+
     /**
      * Create a promise with a list of actions to be executed serially.
      *
@@ -48,4 +59,16 @@ public class PromiseFactory {
     public Promise createParallel(PromiseAction ... actions) {
         return Promise.newInstance(vertx).all(actions);
     }
+
+    /**
+     * Create a promise with a list of actions to be executed in parallel, with at most maxConcurrency of them in
+     * flight at once.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    public Promise createParallel(int maxConcurrency, PromiseAction ... actions) {
+        return Promise.newInstance(vertx).all(maxConcurrency, actions);
+    }
 }
@@ -1,10 +1,15 @@
 package com.jtruelove.vertx.async.promise;
 
-import com.jtruelove.vertx.async.Latch;
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.TimerWheel;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
@@ -12,11 +17,14 @@ import java.util.function.Consumer;
 /**
  * Implementation of Promise interface.
  *
+ * Every action is handed the promise's cancellation signal, which is cancelled when the promise fails or times out.
+ *
  * @author truelove@cyngn.com (Jeremy Truelove) 7/30/15
  */
 public class PromiseImpl implements Promise {
 
-    private List<PromiseAction> actions;
+    // combinators are stored as is rather than wrapped, so the cancellation signal reaches the actions inside them
+    private List<TypedPromiseAction<JsonObject>> actions;
 
     private int pos;
     private boolean done;
@@ -26,7 +34,13 @@ public class PromiseImpl implements Promise {
     private Consumer<JsonObject> onComplete;
     private JsonObject context;
     private Long timerId;
+    // used instead of a vertx timer when the timeout is set on an event loop
+    private Expiry expiry;
+    private Deadline deadline;
     private AtomicBoolean evaluated;
+    // allocated once rather than a new method reference for every step
+    private final Handler<Void> next = this::internalEval;
+    private final CancellationSignal signal = new CancellationSignal();
 
     // scope to the package
     PromiseImpl(Vertx vertx) {
@@ -45,7 +59,7 @@ public class PromiseImpl implements Promise {
         }
 
         if(evaluated.compareAndSet(false, true)) {
-            vertx.runOnContext(this::internalEval);
+            vertx.runOnContext(next);
         } else {
             throw new IllegalStateException("You cannot eval a promise chain more than once");
         }
@@ -62,7 +76,14 @@ public class PromiseImpl implements Promise {
      */
     private void internalEval(Void aVoid) {
         if (!done && pos < actions.size() && !failed) {
-            PromiseAction action = actions.get(pos);
+            if (deadline != null && deadline.isExpired()) {
+                // don't start work the caller has already given up on
+                context.put(CONTEXT_FAILURE_KEY, "promise deadline exceeded");
+                fail();
+                return;
+            }
+
+            TypedPromiseAction<JsonObject> action = actions.get(pos);
             pos++;
             try {
                 action.execute(context, (success) -> {
@@ -76,7 +97,7 @@ public class PromiseImpl implements Promise {
 
                     // scheduled the next action
                     if (!done && !failed) {
-                        vertx.runOnContext(this::internalEval);
+                        vertx.runOnContext(next);
                     }
 
                     if (done && !failed) {
@@ -84,7 +105,7 @@ public class PromiseImpl implements Promise {
                         // ultimate success case
                         if(onComplete != null) { onComplete.accept(context); }
                     }
-                });
+                }, signal);
             } catch (Exception ex) {
                 context.put(CONTEXT_FAILURE_KEY, ex.toString());
                 fail();
@@ -99,6 +120,8 @@ public class PromiseImpl implements Promise {
         failed = true;
         done = true;
         cleanUp();
+        // let anything still in flight know its result is no longer wanted
+        signal.cancel();
         if(onFailure != null) {
             onFailure.accept(context);
         }
@@ -114,19 +137,38 @@ public class PromiseImpl implements Promise {
 
     @Override
     public Promise all(PromiseAction ... theActions) {
-        return then((context, onResult) -> {
-            // track the results, but execute them all in parallel vs serially
-            Latch latch = new Latch(theActions.length, () -> onResult.accept(true));
-            for(PromiseAction action : theActions) {
-                action.execute(context, (success) -> {
-                    if(!success) {
-                        onResult.accept(false);
-                    } else {
-                        latch.complete();
-                    }
-                });
-            }
-        });
+        // track the results, but execute them all in parallel vs serially
+        return add(new AllAction<>(theActions));
+    }
+
+    @Override
+    public Promise all(int maxConcurrency, PromiseAction ... theActions) {
+        return all(maxConcurrency, Arrays.asList(theActions).iterator());
+    }
+
+    @Override
+    public Promise all(int maxConcurrency, Iterator<? extends PromiseAction> theActions) {
+        return add(new BoundedAllAction<>(maxConcurrency, theActions));
+    }
+
+    @Override
+    public Promise any(PromiseAction ... theActions) {
+        return add(new QuorumAction<>(1, theActions));
+    }
+
+    @Override
+    public Promise quorum(int required, PromiseAction ... theActions) {
+        return add(new QuorumAction<>(required, theActions));
+    }
+
+    @Override
+    public Promise hedge(long delay, PromiseAction action) {
+        return add(new HedgeAction<>(vertx, delay, action));
+    }
+
+    @Override
+    public Promise hedge(HedgePolicy policy, PromiseAction action) {
+        return add(new HedgeAction<>(vertx, policy, action));
     }
 
     @Override
@@ -137,6 +179,10 @@ public class PromiseImpl implements Promise {
 
     @Override
     public Promise then(PromiseAction action) {
+        return add(action);
+    }
+
+    private Promise add(TypedPromiseAction<JsonObject> action) {
         if (done) { throw new IllegalArgumentException("can't add actions to a completed chain"); }
 
         actions.add(action);
@@ -153,6 +199,17 @@ public class PromiseImpl implements Promise {
     public Promise timeout(long time) {
         if(done) { throw new IllegalArgumentException("Can't set timer on a completed promise"); }
 
+        // on an event loop track the deadline on its timer wheel, far cheaper than a vertx timer per promise
+        TimerWheel wheel = TimerWheel.current();
+        if (wheel != null && timerId == null) {
+            if (expiry == null) { expiry = new Expiry(); }
+            // moves the deadline if it was already set
+            wheel.schedule(expiry, time);
+            return this;
+        }
+
+        if (expiry != null) { expiry.cancel(); }
+
         if(timerId != null) {
             // if you are able to cancel it schedule another
             if(vertx.cancelTimer(timerId)) {
@@ -165,6 +222,17 @@ public class PromiseImpl implements Promise {
         return this;
     }
 
+    @Override
+    public Promise deadline(Deadline deadline) {
+        if(done) { throw new IllegalArgumentException("Can't set a deadline on a completed promise"); }
+
+        this.deadline = deadline;
+        deadline.toContext(context);
+        long remaining = deadline.remaining();
+        // an expired deadline fails the promise before its next action, no timer needed
+        return remaining > 0 ? timeout(remaining) : this;
+    }
+
     /**
      * Get rid of a timer that has not been fired yet.
      */
@@ -172,6 +240,10 @@ public class PromiseImpl implements Promise {
         if(timerId != null) {
             vertx.cancelTimer(timerId);
         }
+
+        if(expiry != null) {
+            expiry.cancel();
+        }
     }
 
     /**
@@ -200,4 +272,14 @@ public class PromiseImpl implements Promise {
         this.onFailure = onFailure;
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * The promise timeout when it is tracked on the event loop's timer wheel.
+     */
+    private class Expiry extends TimerWheel.Timeout {
+        @Override
+        protected void expire() {
+            PromiseImpl.this.cancel();
+        }
+    }
+}
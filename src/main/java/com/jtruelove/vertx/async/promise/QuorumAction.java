@@ -0,0 +1,70 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+
+import java.util.function.Consumer;
+
+/**
+ * Runs actions in parallel and succeeds as soon as a given number of them have succeeded, or fails as soon as
+ * enough of them have failed that the quorum can no longer be reached. Results of the actions still running at that
+ * point are ignored and they are cancelled.
+ *
+ * A single instance collects the results of all the actions, like the rest of the promise machinery it expects the
+ * results to be delivered on the event loop.
+ */
+class QuorumAction<T> implements CancellableAction<T>, Consumer<Boolean> {
+    private final int required;
+    private final TypedPromiseAction<T>[] actions;
+    private Consumer<Boolean> onResult;
+    private CancellationSignal losers;
+    private int succeeded;
+    private int failed;
+    private boolean finished;
+
+    QuorumAction(int required, TypedPromiseAction<T>[] actions) {
+        if (actions.length < 1) {
+            throw new IllegalArgumentException("Need at least one action");
+        }
+
+        if (required < 1 || required > actions.length) {
+            throw new IllegalArgumentException("Quorum must be between 1 and " + actions.length + ", got: " + required);
+        }
+
+        this.required = required;
+        this.actions = actions;
+    }
+
+    @Override
+    public void execute(T context, Consumer<Boolean> onResult, CancellationSignal signal) {
+        this.onResult = onResult;
+        // the promise only cancels on failure, we also need to stop whatever is left once the quorum is decided
+        losers = signal.child();
+        for (TypedPromiseAction<T> action : actions) {
+            if (finished) { return; }
+            action.execute(context, this, losers);
+        }
+    }
+
+    @Override
+    public void accept(Boolean success) {
+        if (finished) { return; }
+
+        if (success) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+
+        if (succeeded == required) {
+            finish(true);
+        } else if (failed > actions.length - required) {
+            finish(false);
+        }
+    }
+
+    private void finish(boolean success) {
+        finished = true;
+        losers.cancel();
+        onResult.accept(success);
+    }
+}
@@ -0,0 +1,212 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.Deadline;
+import io.vertx.core.Vertx;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Represents a set of one or more asynchronous actions sharing a caller supplied context object.
+ *
+ * Unlike {@link Promise} there is no JsonObject context, and a typed promise is confined to the event loop it is
+ * evaluated on, so it keeps no atomics and steps that complete synchronously run the next step inline instead of
+ * scheduling it. The actions must call their result callback from that same event loop.
+ *
+ * @param <T> the type of the context object shared by the actions
+ */
+public interface TypedPromise<T> {
+
+    /**
+     * Executes all actions in parallel
+     *
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    @SuppressWarnings("unchecked")
+    TypedPromise<T> all(TypedPromiseAction<T> ... actions);
+
+    /**
+     * Executes all actions in parallel keeping at most maxConcurrency of them in flight at once, the next action
+     * starts as each one finishes.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    @SuppressWarnings("unchecked")
+    TypedPromise<T> all(int maxConcurrency, TypedPromiseAction<T> ... actions);
+
+    /**
+     * Executes all actions in parallel keeping at most maxConcurrency of them in flight at once. Actions are pulled
+     * from the iterator as they are needed so it can produce them lazily.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> all(int maxConcurrency, Iterator<? extends TypedPromiseAction<T>> actions);
+
+    /**
+     * Executes all actions in parallel keeping at most maxConcurrency of them in flight at once. Actions are pulled
+     * from the stream as they are needed so it can produce them lazily.
+     *
+     * @param maxConcurrency the most actions to have running at the same time
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    default TypedPromise<T> all(int maxConcurrency, Stream<? extends TypedPromiseAction<T>> actions) {
+        return all(maxConcurrency, actions.iterator());
+    }
+
+    /**
+     * Executes all actions in parallel and continues as soon as one of them succeeds, the results of the others are
+     * ignored. Fails only if every action fails.
+     *
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    @SuppressWarnings("unchecked")
+    TypedPromise<T> any(TypedPromiseAction<T> ... actions);
+
+    /**
+     * Executes all actions in parallel and continues as soon as required of them have succeeded, the results of the
+     * others are ignored. Fails as soon as too many have failed for that to happen.
+     *
+     * @param required the number of actions that need to succeed
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    @SuppressWarnings("unchecked")
+    TypedPromise<T> quorum(int required, TypedPromiseAction<T> ... actions);
+
+    /**
+     * Executes an action, and if it hasn't finished within delay executes it a second time. The first attempt to
+     * succeed wins, the hedge only fails when every attempt has failed.
+     *
+     * @param delay the time in milliseconds to wait before sending the duplicate
+     * @param action the action to execute
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> hedge(long delay, TypedPromiseAction<T> action);
+
+    /**
+     * Executes an action, and if it hasn't finished within the delay given by the policy executes it a second time.
+     * The latency of the attempt that succeeds is recorded back into the policy.
+     *
+     * @param policy the policy that decides the delay from observed latencies
+     * @param action the action to execute
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> hedge(HedgePolicy policy, TypedPromiseAction<T> action);
+
+    /**
+     * Executes all actions serially
+     *
+     * @param actions the actions to execute
+     * @return the promise representing the actions
+     */
+    @SuppressWarnings("unchecked")
+    TypedPromise<T> allInOrder(TypedPromiseAction<T> ... actions);
+
+    /**
+     * Add an action to execute in the chain.
+     *
+     * @param action the action to execute
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> then(TypedPromiseAction<T> action);
+
+    /**
+     * Add an exception handler to be called in the event something goes wrong.
+     *
+     * @param onFailure the callback to call on failure
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> except(Consumer<T> onFailure);
+
+    /**
+     * The callback to call when all promise actions are done. This will only be called if there are no failures.
+     * @param onComplete the callback to hit when the promise is complete
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> done(Consumer<T> onComplete);
+
+    /**
+     * A timeout to set on the promise. When set before eval() the time is measured from eval().
+     * @param time the delay in milliseconds that the promise needs to complete in
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> timeout(long time);
+
+    /**
+     * A deadline to hold the promise to. The promise times out when it passes, and no further action is started once
+     * it has passed. A {@link io.vertx.core.json.JsonObject} context also gets it stored under
+     * {@link Deadline#CONTEXT_KEY} so actions, like a ServiceClient action, can hand it on to downstream calls.
+     *
+     * @param deadline the point in time the promise needs to complete by
+     * @return the promise representing the actions
+     */
+    TypedPromise<T> deadline(Deadline deadline);
+
+    /**
+     * The deadline the promise is held to.
+     *
+     * @return the deadline or null if there isn't one
+     */
+    Deadline deadline();
+
+    /**
+     * Has the promise succeeded? Will return false while still executing.
+     *
+     * @return true if the promise has succeeded false otherwise
+     */
+    boolean succeeded();
+
+    /**
+     * Has the promise completed yet? Either by completing all tasks or failing to.
+     *
+     * @return true if all actions or done completing or the promise has failed.
+     */
+    boolean completed();
+
+    /**
+     * Called when you are ready to begin resolution of the promise chain.
+     *
+     * @return the promise you are evaluating
+     */
+    TypedPromise<T> eval();
+
+    /**
+     * If the promise has no actions in it
+     *
+     * @return true if the promise has no actions, false otherwise
+     */
+    boolean isEmpty();
+
+    /**
+     * The context object shared by the actions.
+     *
+     * @return the context supplied when the promise was created
+     */
+    T context();
+
+    /**
+     * What caused the promise to fail, if an action threw or the promise timed out.
+     *
+     * @return the failure cause or null if there is none
+     */
+    Throwable cause();
+
+    /**
+     * Create a new typed promise.
+     * @param vertx the vertx instance to run it on
+     * @param context the object to hand to every action
+     * @param <T> the type of the context object
+     * @return the newly created TypedPromise
+     */
+    static <T> TypedPromise<T> newInstance(Vertx vertx, T context) {
+        return new TypedPromiseImpl<>(vertx, context);
+    }
+}
@@ -0,0 +1,34 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+
+import java.util.function.Consumer;
+
+/**
+ * The contract of a discrete action to be executed in a TypedPromise
+ *
+ * @param <T> the type of the context object shared by the actions in a promise
+ */
+public interface TypedPromiseAction<T> {
+    /**
+     * The action to execute.
+     *
+     * @param context the object supplied when the promise was created, used to share data between actions or
+     *                for communicating the result
+     * @param onResult the callback that collects the result of any given action necessary for continuing or
+     *                 completing the chain of actions in a promise, it must be called exactly once.
+     */
+    void execute(T context, Consumer<Boolean> onResult);
+
+    /**
+     * The action to execute, with a signal that is cancelled when the result is no longer wanted, ie the promise
+     * has failed or timed out. This is what promises call, by default it ignores the signal.
+     *
+     * @param context the object supplied when the promise was created
+     * @param onResult the callback that collects the result of the action
+     * @param signal cancelled when the action should stop what it's doing
+     */
+    default void execute(T context, Consumer<Boolean> onResult, CancellationSignal signal) {
+        execute(context, onResult);
+    }
+}
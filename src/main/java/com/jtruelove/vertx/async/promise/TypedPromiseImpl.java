@@ -0,0 +1,347 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import com.jtruelove.vertx.async.TimerWheel;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of TypedPromise interface.
+ *
+ * All state is confined to the context the promise is evaluated on, a result or timeout that arrives on any other
+ * thread is handed over to it before anything is touched. The result callback is allocated once per promise, and a
+ * step that completes synchronously is followed inline by the next one rather than going back through the event
+ * loop.
+ *
+ * Every action is handed the promise's cancellation signal, which is cancelled when the promise fails or times out.
+ */
+public class TypedPromiseImpl<T> implements TypedPromise<T> {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long NO_TIMER = -1L;
+
+    private final Vertx vertx;
+    private final T context;
+    private final Consumer<Boolean> onResult = this::onResult;
+    private final CancellationSignal signal = new CancellationSignal();
+
+    private TypedPromiseAction<T>[] actions;
+    private int size;
+    private int pos;
+    private boolean done;
+    private boolean failed;
+    private boolean evaluated;
+    // an action has been executed and we are waiting on its result
+    private boolean awaiting;
+    // the drain loop is on the stack, results that arrive synchronously are picked up by it
+    private boolean running;
+    private Context evalContext;
+    private Consumer<T> onFailure;
+    private Consumer<T> onComplete;
+    private Throwable cause;
+    private long timeout;
+    private Deadline deadline;
+    private long timerId = NO_TIMER;
+    private Expiry expiry;
+
+    // scope to the package
+    @SuppressWarnings("unchecked")
+    TypedPromiseImpl(Vertx vertx, T context) {
+        this.vertx = vertx;
+        this.context = context;
+        actions = (TypedPromiseAction<T>[]) new TypedPromiseAction<?>[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public TypedPromise<T> eval() {
+        if (size < 1) {
+            throw new IllegalStateException("cannot eval an empty promise");
+        }
+
+        if (evaluated) {
+            throw new IllegalStateException("You cannot eval a promise chain more than once");
+        }
+
+        evaluated = true;
+        evalContext = vertx.getOrCreateContext();
+        evalContext.runOnContext(aVoid -> {
+            if (timeout > 0) {
+                startTimer();
+            }
+            drain();
+        });
+        return this;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Run actions until one of them goes asynchronous or the chain is finished.
+     */
+    private void drain() {
+        running = true;
+        try {
+            while (!done && !awaiting && pos < size) {
+                if (deadline != null && deadline.isExpired()) {
+                    // don't start work the caller has already given up on
+                    cause = new DeadlineExceededException("promise deadline exceeded");
+                    fail();
+                    return;
+                }
+
+                TypedPromiseAction<T> action = actions[pos];
+                pos++;
+                awaiting = true;
+                try {
+                    action.execute(context, onResult, signal);
+                } catch (Exception ex) {
+                    cause = ex;
+                    fail();
+                }
+            }
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Collects the result of the action currently executing.
+     */
+    private void onResult(Boolean success) {
+        if (Vertx.currentContext() != evalContext) {
+            // the timeout may be firing on our own context right now, only ever decide the outcome there
+            evalContext.runOnContext(aVoid -> onResult(success));
+            return;
+        }
+
+        if (done || !awaiting) { return; }
+
+        awaiting = false;
+        if (!success) {
+            fail();
+        } else if (pos == size) {
+            complete();
+        } else if (!running) {
+            // the action finished asynchronously, carry on from here
+            drain();
+        }
+    }
+
+    /**
+     * The ultimate success case.
+     */
+    private void complete() {
+        done = true;
+        cleanUp();
+        if (onComplete != null) { onComplete.accept(context); }
+    }
+
+    /**
+     * End the processing chain due to an error condition
+     */
+    private void fail() {
+        failed = true;
+        done = true;
+        cleanUp();
+        // let anything still in flight know its result is no longer wanted
+        signal.cancel();
+        if (onFailure != null) { onFailure.accept(context); }
+    }
+
+    /**
+     * Clear local objects no longer needed
+     */
+    private void cleanUp() {
+        cancelTimer();
+        Arrays.fill(actions, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final TypedPromise<T> all(TypedPromiseAction<T> ... theActions) {
+        return then(new AllAction<>(theActions));
+    }
+
+    @Override
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final TypedPromise<T> all(int maxConcurrency, TypedPromiseAction<T> ... theActions) {
+        return all(maxConcurrency, Arrays.asList(theActions).iterator());
+    }
+
+    @Override
+    public TypedPromise<T> all(int maxConcurrency, Iterator<? extends TypedPromiseAction<T>> theActions) {
+        return then(new BoundedAllAction<>(maxConcurrency, theActions));
+    }
+
+    @Override
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final TypedPromise<T> any(TypedPromiseAction<T> ... theActions) {
+        return then(new QuorumAction<>(1, theActions));
+    }
+
+    @Override
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final TypedPromise<T> quorum(int required, TypedPromiseAction<T> ... theActions) {
+        return then(new QuorumAction<>(required, theActions));
+    }
+
+    @Override
+    public TypedPromise<T> hedge(long delay, TypedPromiseAction<T> action) {
+        return then(new HedgeAction<>(vertx, delay, action));
+    }
+
+    @Override
+    public TypedPromise<T> hedge(HedgePolicy policy, TypedPromiseAction<T> action) {
+        return then(new HedgeAction<>(vertx, policy, action));
+    }
+
+    @Override
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final TypedPromise<T> allInOrder(TypedPromiseAction<T> ... theActions) {
+        for (TypedPromiseAction<T> action : theActions) { then(action); }
+        return this;
+    }
+
+    @Override
+    public TypedPromise<T> then(TypedPromiseAction<T> action) {
+        if (done) { throw new IllegalArgumentException("can't add actions to a completed chain"); }
+
+        if (size == actions.length) {
+            actions = Arrays.copyOf(actions, size * 2);
+        }
+        actions[size++] = action;
+        return this;
+    }
+
+    @Override
+    public TypedPromise<T> done(Consumer<T> action) {
+        onComplete = action;
+        return this;
+    }
+
+    @Override
+    public TypedPromise<T> except(Consumer<T> onFailure) {
+        this.onFailure = onFailure;
+        return this;
+    }
+
+    @Override
+    public TypedPromise<T> timeout(long time) {
+        if (done) { throw new IllegalArgumentException("Can't set timer on a completed promise"); }
+
+        timeout = time;
+        // before eval the timer is started on the context we evaluate on, so it can't race the actions
+        if (evaluated) {
+            cancelTimer();
+            startTimer();
+        }
+        return this;
+    }
+
+    @Override
+    public TypedPromise<T> deadline(Deadline deadline) {
+        if (done) { throw new IllegalArgumentException("Can't set a deadline on a completed promise"); }
+
+        this.deadline = deadline;
+        if (context instanceof JsonObject) {
+            deadline.toContext((JsonObject) context);
+        }
+        long remaining = deadline.remaining();
+        // an expired deadline fails the promise before its next action, no timer needed
+        return remaining > 0 ? timeout(remaining) : this;
+    }
+
+    @Override
+    public Deadline deadline() {
+        return deadline;
+    }
+
+    private void startTimer() {
+        // the timer wheel of our own event loop when we are on it, otherwise a vertx timer
+        TimerWheel wheel = Vertx.currentContext() == evalContext ? TimerWheel.current() : null;
+        if (wheel != null) {
+            if (expiry == null) { expiry = new Expiry(); }
+            wheel.schedule(expiry, timeout);
+            return;
+        }
+
+        timerId = vertx.setTimer(timeout, theTimerId -> {
+            timerId = NO_TIMER;
+            timedOut();
+        });
+    }
+
+    private void timedOut() {
+        if (Vertx.currentContext() != evalContext) {
+            // a vertx timer started off our context fires off it too
+            evalContext.runOnContext(aVoid -> timedOut());
+            return;
+        }
+
+        if (!done) {
+            cause = new TimeoutException("promise timed out");
+            fail();
+        }
+    }
+
+    /**
+     * Get rid of a timer that has not been fired yet.
+     */
+    private void cancelTimer() {
+        if (timerId != NO_TIMER) {
+            vertx.cancelTimer(timerId);
+            timerId = NO_TIMER;
+        }
+
+        if (expiry != null) {
+            expiry.cancel();
+        }
+    }
+
+    @Override
+    public boolean succeeded() {
+        return !failed;
+    }
+
+    @Override
+    public boolean completed() {
+        return done;
+    }
+
+    @Override
+    public T context() {
+        return context;
+    }
+
+    @Override
+    public Throwable cause() {
+        return cause;
+    }
+
+    /**
+     * The promise timeout when it is tracked on the event loop's timer wheel.
+     */
+    private class Expiry extends TimerWheel.Timeout {
+        @Override
+        protected void expire() {
+            timedOut();
+        }
+    }
+}
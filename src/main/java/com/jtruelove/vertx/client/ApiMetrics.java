@@ -0,0 +1,307 @@
+package com.jtruelove.vertx.client;
+
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import com.jtruelove.vertx.metrics.LatencyHistogram;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics recorded for the calls to one api of a {@link ServiceClient}.
+ *
+ * Latencies are in microseconds, from the call until the response headers arrive. Queue wait is the part of that
+ * spent waiting for a connection from the pool. Recording never locks or allocates.
+ */
+public class ApiMetrics {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    // indexed by the first digit of the status code, 1xx to 5xx, anything else lands in 0
+    private final LongAdder[] statuses = new LongAdder[6];
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder deadlinesExceeded = new LongAdder();
+    private final LongAdder cancellations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    ApiMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+    }
+
+    void sent(long bytes) {
+        requests.increment();
+        inFlight.increment();
+        bytesOut.add(bytes);
+    }
+
+    void wrote(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    void connected(long waitNanos) {
+        queueWait.record(TimeUnit.NANOSECONDS.toMicros(waitNanos));
+    }
+
+    void responded(int statusCode, long latencyNanos) {
+        inFlight.decrement();
+        latency.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        int statusClass = statusCode / 100;
+        statuses[statusClass > 0 && statusClass < statuses.length ? statusClass : 0].increment();
+    }
+
+    void received(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    void failed(Throwable cause) {
+        inFlight.decrement();
+        rejected(cause);
+    }
+
+    /**
+     * A call whose response body stopped arriving after the response was recorded.
+     */
+    void bodyTimedOut() {
+        timeouts.increment();
+    }
+
+    void retried() {
+        retries.increment();
+    }
+
+    void coalesced() {
+        coalesced.increment();
+    }
+
+    /**
+     * A call that failed without ever being sent.
+     */
+    void rejected(Throwable cause) {
+        if (cause instanceof DeadlineExceededException) {
+            deadlinesExceeded.increment();
+        } else if (cause instanceof TimeoutException) {
+            timeouts.increment();
+        } else if (cause instanceof CancellationException) {
+            cancellations.increment();
+        } else if (cause instanceof RejectedExecutionException) {
+            rejections.increment();
+        } else {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Get the name of the api.
+     *
+     * @return the api name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the latencies of the calls that got a response.
+     *
+     * @return the latency histogram in microseconds
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get how long calls waited for a connection.
+     *
+     * @return the queue wait histogram in microseconds
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * Get the number of calls sent and still waiting on a response.
+     *
+     * @return the in flight count
+     */
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * Get the number of calls sent.
+     *
+     * @return the request count
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Get the number of responses with a status code in a class.
+     *
+     * @param statusClass the first digit of the status code, ie 5 for 5xx
+     * @return the response count
+     */
+    public long getStatusCount(int statusClass) {
+        if (statusClass < 1 || statusClass >= statuses.length) {
+            throw new IllegalArgumentException("Invalid status class: " + statusClass);
+        }
+        return statuses[statusClass].sum();
+    }
+
+    /**
+     * Get the number of calls that timed out.
+     *
+     * @return the timeout count
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Get the number of calls rejected because their deadline had passed.
+     *
+     * @return the deadline exceeded count
+     */
+    public long getDeadlinesExceeded() {
+        return deadlinesExceeded.sum();
+    }
+
+    /**
+     * Get the number of calls cancelled.
+     *
+     * @return the cancellation count
+     */
+    public long getCancellations() {
+        return cancellations.sum();
+    }
+
+    /**
+     * Get the number of calls turned away by the circuit breaker or concurrency limiter.
+     *
+     * @return the rejection count
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Get the number of retries made, each retry is also counted as a request.
+     *
+     * @return the retry count
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Get the number of calls that joined an identical call already in flight instead of being sent, these aren't
+     * counted as requests.
+     *
+     * @return the coalesced call count
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get the number of calls that failed for any other reason, ie the connection was refused.
+     *
+     * @return the error count
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Get the bytes of request bodies sent.
+     *
+     * @return the bytes sent
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Get the bytes of response bodies received, counted as they arrive. A body is counted once it has been read or
+     * given up on.
+     *
+     * @return the bytes received
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * Clear out everything recorded so far, apart from the calls in flight.
+     */
+    public void reset() {
+        latency.reset();
+        queueWait.reset();
+        requests.reset();
+        bytesOut.reset();
+        bytesIn.reset();
+        for (LongAdder status : statuses) {
+            status.reset();
+        }
+        timeouts.reset();
+        deadlinesExceeded.reset();
+        cancellations.reset();
+        rejections.reset();
+        retries.reset();
+        coalesced.reset();
+        errors.reset();
+    }
+
+    /**
+     * Take a snapshot of the metrics.
+     *
+     * @return the metrics as json
+     */
+    public JsonObject toJson() {
+        JsonObject status = new JsonObject();
+        for (int i = 1; i < statuses.length; i++) {
+            status.put(i + "xx", statuses[i].sum());
+        }
+
+        return new JsonObject()
+                .put("requests", getRequests())
+                .put("in_flight", getInFlight())
+                .put("latency_us", toJson(latency))
+                .put("queue_wait_us", toJson(queueWait))
+                .put("bytes_out", getBytesOut())
+                .put("bytes_in", getBytesIn())
+                .put("status", status)
+                .put("timeouts", getTimeouts())
+                .put("deadlines_exceeded", getDeadlinesExceeded())
+                .put("cancellations", getCancellations())
+                .put("rejections", getRejections())
+                .put("retries", getRetries())
+                .put("coalesced", getCoalesced())
+                .put("errors", getErrors());
+    }
+
+    private static JsonObject toJson(LatencyHistogram histogram) {
+        return new JsonObject()
+                .put("count", histogram.getCount())
+                .put("mean", histogram.getMean())
+                .put("max", histogram.getMax())
+                .put("p50", histogram.getValueAtPercentile(50.0))
+                .put("p90", histogram.getValueAtPercentile(90.0))
+                .put("p99", histogram.getValueAtPercentile(99.0))
+                .put("p999", histogram.getValueAtPercentile(99.9));
+    }
+}
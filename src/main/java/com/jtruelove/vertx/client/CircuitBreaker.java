@@ -0,0 +1,181 @@
+package com.jtruelove.vertx.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker for the calls to one api of a {@link ServiceClient}.
+ *
+ * While closed every call goes through and the outcome of the last window of calls is kept. Once enough of them
+ * have failed, or have been slow, the breaker opens and rejects calls outright for a while rather than piling more
+ * work onto a service that is struggling. After that it goes half open and lets a few trial calls through, which
+ * close it again if they do well or open it for another round if they don't.
+ *
+ * Checking a closed breaker is a single volatile read, everything else synchronizes on the breaker.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final int failureRate;
+    private final int slowCallRate;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // the outcomes of the last window of calls while closed, a ring of FAILED and SLOW flags
+    private final byte[] window;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    // trial calls let through and the outcomes of those that have finished while half open
+    private int trials;
+    private int trialCalls;
+    private int trialFailures;
+    private int trialSlowCalls;
+
+    public CircuitBreaker(String name, CircuitBreakerOptions options) {
+        this.name = name;
+        failureRate = options.getFailureRate();
+        slowCallRate = options.getSlowCallRate();
+        slowCallNanos = TimeUnit.MILLISECONDS.toNanos(options.getSlowCallDuration());
+        minimumCalls = Math.min(options.getMinimumCalls(), options.getWindowSize());
+        openNanos = TimeUnit.MILLISECONDS.toNanos(options.getOpenDuration());
+        halfOpenCalls = options.getHalfOpenCalls();
+        window = new byte[options.getWindowSize()];
+    }
+
+    /**
+     * Get the name of the api the breaker guards.
+     *
+     * @return the api name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the state of the breaker. An open breaker only goes half open when a call asks to go through.
+     *
+     * @return the current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Ask to make a call. Every call allowed through must be followed by {@link #onSuccess(long)},
+     * {@link #onFailure(long)} or {@link #release()}.
+     *
+     * @return true if the call can go ahead, false if it should be rejected
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) { return true; }
+
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) { return false; }
+                halfOpen();
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (trials >= halfOpenCalls) { return false; }
+                trials++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Give back a call that was allowed through but whose outcome says nothing about the service, ie it was
+     * cancelled by the caller.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && trials > 0) {
+            trials--;
+        }
+    }
+
+    /**
+     * Record a call that succeeded.
+     *
+     * @param latencyNanos how long the call took
+     */
+    public void onSuccess(long latencyNanos) {
+        record(latencyNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    /**
+     * Record a call that failed.
+     *
+     * @param latencyNanos how long the call took
+     */
+    public void onFailure(long latencyNanos) {
+        record(latencyNanos >= slowCallNanos ? FAILED | SLOW : FAILED);
+    }
+
+    private synchronized void record(byte outcome) {
+        switch (state) {
+            case CLOSED:
+                if (calls == window.length) {
+                    // drop the oldest outcome to make room
+                    byte oldest = window[next];
+                    if ((oldest & FAILED) != 0) { failures--; }
+                    if ((oldest & SLOW) != 0) { slowCalls--; }
+                } else {
+                    calls++;
+                }
+                window[next] = outcome;
+                next = (next + 1) % window.length;
+                if ((outcome & FAILED) != 0) { failures++; }
+                if ((outcome & SLOW) != 0) { slowCalls++; }
+
+                if (calls >= minimumCalls && tripped(calls, failures, slowCalls)) {
+                    open();
+                }
+                break;
+            case HALF_OPEN:
+                trialCalls++;
+                if ((outcome & FAILED) != 0) { trialFailures++; }
+                if ((outcome & SLOW) != 0) { trialSlowCalls++; }
+
+                if (trialCalls >= halfOpenCalls) {
+                    if (tripped(trialCalls, trialFailures, trialSlowCalls)) {
+                        open();
+                    } else {
+                        close();
+                    }
+                }
+                break;
+            default:
+                // a call from before the breaker opened, it has already had its say
+        }
+    }
+
+    private boolean tripped(int total, int failed, int slow) {
+        return failed * 100 >= failureRate * total || slow * 100 >= slowCallRate * total;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void halfOpen() {
+        trials = trialCalls = trialFailures = trialSlowCalls = 0;
+        state = State.HALF_OPEN;
+    }
+
+    private void close() {
+        next = calls = failures = slowCalls = 0;
+        state = State.CLOSED;
+    }
+}
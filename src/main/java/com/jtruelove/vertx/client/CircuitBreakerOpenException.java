@@ -0,0 +1,14 @@
+package com.jtruelove.vertx.client;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A call was rejected without being sent because the circuit breaker of its api is open.
+ */
+public class CircuitBreakerOpenException extends RejectedExecutionException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
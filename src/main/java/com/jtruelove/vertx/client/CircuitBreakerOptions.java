@@ -0,0 +1,179 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The configuration of the {@link CircuitBreaker}s of a {@link ServiceClient}.
+ */
+public class CircuitBreakerOptions {
+
+    // configuration key constants
+    public static final String FAILURE_RATE = "failure_rate";
+    public static final String SLOW_CALL_RATE = "slow_call_rate";
+    public static final String SLOW_CALL_DURATION = "slow_call_duration";
+    public static final String WINDOW_SIZE = "window_size";
+    public static final String MINIMUM_CALLS = "minimum_calls";
+    public static final String OPEN_DURATION = "open_duration";
+    public static final String HALF_OPEN_CALLS = "half_open_calls";
+
+    public static final int DEFAULT_FAILURE_RATE = 50;
+    public static final int DEFAULT_SLOW_CALL_RATE = 100;
+    public static final long DEFAULT_SLOW_CALL_DURATION = 10000L;
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+    public static final long DEFAULT_OPEN_DURATION = 5000L;
+    public static final int DEFAULT_HALF_OPEN_CALLS = 5;
+
+    private int failureRate = DEFAULT_FAILURE_RATE;
+    private int slowCallRate = DEFAULT_SLOW_CALL_RATE;
+    private long slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+    private long openDuration = DEFAULT_OPEN_DURATION;
+    private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+
+    public CircuitBreakerOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public CircuitBreakerOptions(JsonObject config) {
+        setFailureRate(config.getInteger(FAILURE_RATE, DEFAULT_FAILURE_RATE));
+        setSlowCallRate(config.getInteger(SLOW_CALL_RATE, DEFAULT_SLOW_CALL_RATE));
+        setSlowCallDuration(config.getLong(SLOW_CALL_DURATION, DEFAULT_SLOW_CALL_DURATION));
+        setWindowSize(config.getInteger(WINDOW_SIZE, DEFAULT_WINDOW_SIZE));
+        setMinimumCalls(config.getInteger(MINIMUM_CALLS, DEFAULT_MINIMUM_CALLS));
+        setOpenDuration(config.getLong(OPEN_DURATION, DEFAULT_OPEN_DURATION));
+        setHalfOpenCalls(config.getInteger(HALF_OPEN_CALLS, DEFAULT_HALF_OPEN_CALLS));
+    }
+
+    public int getFailureRate() {
+        return failureRate;
+    }
+
+    /**
+     * Sets the percentage of failed calls in the window that opens the breaker. A call fails when it gets an
+     * exception or a 5xx response.
+     *
+     * @param failureRate - percentage between 1 and 100.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setFailureRate(int failureRate) {
+        this.failureRate = checkRate(failureRate, FAILURE_RATE);
+        return this;
+    }
+
+    public int getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    /**
+     * Sets the percentage of slow calls in the window that opens the breaker.
+     *
+     * @param slowCallRate - percentage between 1 and 100.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setSlowCallRate(int slowCallRate) {
+        this.slowCallRate = checkRate(slowCallRate, SLOW_CALL_RATE);
+        return this;
+    }
+
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    /**
+     * Sets how long a call can take before it counts as slow.
+     *
+     * @param slowCallDuration - duration in milliseconds.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setSlowCallDuration(long slowCallDuration) {
+        if (slowCallDuration < 1L) {
+            throw new IllegalArgumentException("Invalid slow call duration: " + slowCallDuration);
+        }
+        this.slowCallDuration = slowCallDuration;
+        return this;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the number of most recent calls the rates are computed over.
+     *
+     * @param windowSize - number of calls.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setWindowSize(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * Sets the number of calls the window needs before the breaker can open, capped at the window size.
+     *
+     * @param minimumCalls - number of calls.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setMinimumCalls(int minimumCalls) {
+        if (minimumCalls < 1) {
+            throw new IllegalArgumentException("Invalid minimum calls: " + minimumCalls);
+        }
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    /**
+     * Sets how long the breaker stays open before letting trial calls through.
+     *
+     * @param openDuration - duration in milliseconds.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setOpenDuration(long openDuration) {
+        if (openDuration < 1L) {
+            throw new IllegalArgumentException("Invalid open duration: " + openDuration);
+        }
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * Sets the number of trial calls let through when half open, their rates decide whether the breaker closes.
+     *
+     * @param halfOpenCalls - number of calls.
+     * @return - reference to the options.
+     */
+    public CircuitBreakerOptions setHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Invalid half open calls: " + halfOpenCalls);
+        }
+        this.halfOpenCalls = halfOpenCalls;
+        return this;
+    }
+
+    private static int checkRate(int rate, String name) {
+        if (rate < 1 || rate > 100) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + rate);
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,141 @@
+package com.jtruelove.vertx.client;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The headers of a {@link ServiceRequest} as one flat array rather than a hash map. A request only has a handful and
+ * they are read in order when it is sent, so a scan is as quick as hashing without the table and entry objects. It is
+ * cleared rather than thrown away when a pooled request is recycled, keeping the array for the next call.
+ */
+final class CompactHeaders extends AbstractMap<String, String> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // names at even indexes followed by their values
+    private String[] entries = new String[INITIAL_CAPACITY * 2];
+    private int size;
+
+    private int indexOf(Object name) {
+        for (int pos = 0; pos < size * 2; pos += 2) {
+            if (entries[pos].equals(name)) { return pos; }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public String get(Object name) {
+        int pos = indexOf(name);
+        return pos >= 0 ? entries[pos + 1] : null;
+    }
+
+    @Override
+    public String put(String name, String value) {
+        if (name == null) {
+            throw new IllegalArgumentException("Missing header name");
+        }
+
+        int pos = indexOf(name);
+        if (pos >= 0) {
+            String previous = entries[pos + 1];
+            entries[pos + 1] = value;
+            return previous;
+        }
+
+        if (size * 2 == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[size * 2] = name;
+        entries[size * 2 + 1] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object name) {
+        int pos = indexOf(name);
+        if (pos < 0) { return null; }
+
+        String previous = entries[pos + 1];
+        removeAt(pos);
+        return previous;
+    }
+
+    private void removeAt(int pos) {
+        int end = size * 2;
+        System.arraycopy(entries, pos + 2, entries, pos, end - pos - 2);
+        entries[end - 2] = null;
+        entries[end - 1] = null;
+        size--;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(entries, 0, size * 2, null);
+        size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        // no entry objects, this is how the client reads them
+        for (int pos = 0; pos < size * 2; pos += 2) {
+            action.accept(entries[pos], entries[pos + 1]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int pos;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return pos < size * 2;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (!hasNext()) { throw new NoSuchElementException(); }
+
+                        last = pos;
+                        pos += 2;
+                        return new SimpleImmutableEntry<>(entries[last], entries[last + 1]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) { throw new IllegalStateException(); }
+
+                        removeAt(last);
+                        pos = last;
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.jtruelove.vertx.client;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A call was rejected without being sent because the client already has as many calls in flight as its concurrency
+ * limit allows.
+ */
+public class ConcurrencyLimitExceededException extends RejectedExecutionException {
+    private static final long serialVersionUID = 1L;
+
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
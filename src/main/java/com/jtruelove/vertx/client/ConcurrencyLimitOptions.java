@@ -0,0 +1,133 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The configuration of the {@link ConcurrencyLimiter} of a {@link ServiceClient}.
+ */
+public class ConcurrencyLimitOptions {
+
+    // configuration key constants
+    public static final String INITIAL_LIMIT = "initial_limit";
+    public static final String MIN_LIMIT = "min_limit";
+    public static final String MAX_LIMIT = "max_limit";
+    public static final String BACKOFF_RATIO = "backoff_ratio";
+    public static final String MAX_LATENCY = "max_latency";
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 200;
+    public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    public static final long DEFAULT_MAX_LATENCY = 0L;
+
+    private int initialLimit = DEFAULT_INITIAL_LIMIT;
+    private int minLimit = DEFAULT_MIN_LIMIT;
+    private int maxLimit = DEFAULT_MAX_LIMIT;
+    private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+    private long maxLatency = DEFAULT_MAX_LATENCY;
+
+    public ConcurrencyLimitOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public ConcurrencyLimitOptions(JsonObject config) {
+        setInitialLimit(config.getInteger(INITIAL_LIMIT, DEFAULT_INITIAL_LIMIT));
+        setMinLimit(config.getInteger(MIN_LIMIT, DEFAULT_MIN_LIMIT));
+        setMaxLimit(config.getInteger(MAX_LIMIT, DEFAULT_MAX_LIMIT));
+        setBackoffRatio(config.getDouble(BACKOFF_RATIO, DEFAULT_BACKOFF_RATIO));
+        setMaxLatency(config.getLong(MAX_LATENCY, DEFAULT_MAX_LATENCY));
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * Sets the number of calls allowed in flight to start with.
+     *
+     * @param initialLimit - number of calls.
+     * @return - reference to the options.
+     */
+    public ConcurrencyLimitOptions setInitialLimit(int initialLimit) {
+        if (initialLimit < 1) {
+            throw new IllegalArgumentException("Invalid initial limit: " + initialLimit);
+        }
+        this.initialLimit = initialLimit;
+        return this;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Sets the lowest the limit backs off to.
+     *
+     * @param minLimit - number of calls.
+     * @return - reference to the options.
+     */
+    public ConcurrencyLimitOptions setMinLimit(int minLimit) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException("Invalid min limit: " + minLimit);
+        }
+        this.minLimit = minLimit;
+        return this;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Sets the highest the limit grows to.
+     *
+     * @param maxLimit - number of calls.
+     * @return - reference to the options.
+     */
+    public ConcurrencyLimitOptions setMaxLimit(int maxLimit) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("Invalid max limit: " + maxLimit);
+        }
+        this.maxLimit = maxLimit;
+        return this;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * Sets what the limit is multiplied by when a call is dropped.
+     *
+     * @param backoffRatio - ratio between 0.5 and 1, exclusive of 1.
+     * @return - reference to the options.
+     */
+    public ConcurrencyLimitOptions setBackoffRatio(double backoffRatio) {
+        if (backoffRatio < 0.5 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("Invalid backoff ratio: " + backoffRatio);
+        }
+        this.backoffRatio = backoffRatio;
+        return this;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * Sets the round trip time above which a call counts as dropped even though it succeeded.
+     *
+     * @param maxLatency - latency in milliseconds. 0 means only timeouts and overload responses count as drops.
+     * @return - reference to the options.
+     */
+    public ConcurrencyLimitOptions setMaxLatency(long maxLatency) {
+        if (maxLatency < 0L) {
+            throw new IllegalArgumentException("Invalid max latency: " + maxLatency);
+        }
+        this.maxLatency = maxLatency;
+        return this;
+    }
+}
@@ -0,0 +1,107 @@
+package com.jtruelove.vertx.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the calls a {@link ServiceClient} has in flight, adapting the limit to how the service copes.
+ *
+ * The limit follows AIMD, the same scheme TCP uses for its congestion window. Each call that comes back fine while the
+ * limit is being used grows it by 1 / limit, so about one more call per round trip, and each call that is dropped
+ * (a timeout, a 429 or 503 response, or a round trip over the configured max latency) multiplies it by the backoff
+ * ratio. Calls over the limit are rejected straight away instead of queueing for a connection, so a slow service
+ * pushes back on the caller rather than building up an unbounded queue in front of the pool.
+ */
+public class ConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long maxLatencyNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    // guarded by this
+    private double estimate;
+
+    public ConcurrencyLimiter(ConcurrencyLimitOptions options) {
+        if (options.getMinLimit() > options.getMaxLimit()) {
+            throw new IllegalArgumentException("The min limit " + options.getMinLimit() + " is over the max limit "
+                    + options.getMaxLimit());
+        }
+
+        if (options.getInitialLimit() < options.getMinLimit() || options.getInitialLimit() > options.getMaxLimit()) {
+            throw new IllegalArgumentException("The initial limit " + options.getInitialLimit()
+                    + " must be between the min and max limits");
+        }
+
+        minLimit = options.getMinLimit();
+        maxLimit = options.getMaxLimit();
+        backoffRatio = options.getBackoffRatio();
+        maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(options.getMaxLatency());
+        limit = options.getInitialLimit();
+        estimate = limit;
+    }
+
+    /**
+     * Get the number of calls currently allowed in flight.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the number of calls in flight.
+     *
+     * @return the in flight count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Ask to make a call. Every call allowed through must be followed by {@link #onSample(long, boolean)} or
+     * {@link #release()}.
+     *
+     * @return true if the call can go ahead, false if it is over the limit
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) { return false; }
+            if (inFlight.compareAndSet(current, current + 1)) { return true; }
+        }
+    }
+
+    /**
+     * Give back a call without it counting towards the limit, ie it was cancelled by the caller.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Finish a call and adjust the limit from how it went.
+     *
+     * @param rttNanos the round trip time of the call
+     * @param dropped true if the service didn't cope with the call, ie it timed out or was turned away
+     */
+    public void onSample(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        if (maxLatencyNanos > 0 && rttNanos > maxLatencyNanos) {
+            dropped = true;
+        }
+
+        synchronized (this) {
+            if (dropped) {
+                estimate = Math.max(minLimit, estimate * backoffRatio);
+            } else if (current * 2 >= estimate) {
+                // only grow while the limit is actually being used, an idle client proves nothing about the service
+                estimate = Math.min(maxLimit, estimate + 1.0 / estimate);
+            }
+            limit = (int) estimate;
+        }
+    }
+}
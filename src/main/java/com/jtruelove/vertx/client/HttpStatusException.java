@@ -0,0 +1,63 @@
+package com.jtruelove.vertx.client;
+
+/**
+ * A call got a response, but not a 2xx one, reported by the calls that decode the response for the caller.
+ */
+public class HttpStatusException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final int statusCode;
+    private final String statusMessage;
+    private final String body;
+
+    public HttpStatusException(String message, int statusCode, String statusMessage, String body) {
+        super(message);
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.body = body;
+    }
+
+    /**
+     * Get the status of the response.
+     *
+     * @return the http status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the reason phrase of the response.
+     *
+     * @return the status message
+     */
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    /**
+     * Get the body of the response, usually the service's description of the error.
+     *
+     * @return the body or an empty string if there was none
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Did the service reject the request itself, a 4xx?
+     *
+     * @return true if the status is a 4xx, false otherwise
+     */
+    public boolean isClientError() {
+        return statusCode >= 400 && statusCode < 500;
+    }
+
+    /**
+     * Did the service fail to handle the request, a 5xx?
+     *
+     * @return true if the status is a 5xx, false otherwise
+     */
+    public boolean isServerError() {
+        return statusCode >= 500;
+    }
+}
@@ -0,0 +1,15 @@
+package com.jtruelove.vertx.client;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A call was dropped from the {@link RequestQueue} of a {@link ServiceClient} without being sent, because the queue
+ * was full or the call had waited in it for too long.
+ */
+public class LoadSheddingException extends RejectedExecutionException {
+    private static final long serialVersionUID = 1L;
+
+    public LoadSheddingException(String message) {
+        super(message);
+    }
+}
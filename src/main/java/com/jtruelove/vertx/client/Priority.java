@@ -0,0 +1,34 @@
+package com.jtruelove.vertx.client;
+
+/**
+ * How important a call is when a {@link ServiceClient} has to queue calls, see {@link RequestQueue}. Higher priority
+ * calls are sent first, and low priority ones are the first to be shed.
+ */
+public enum Priority {
+    /**
+     * User facing work, never shed for queueing too long.
+     */
+    HIGH,
+    /**
+     * The default.
+     */
+    NORMAL,
+    /**
+     * Background work that can wait, or be dropped.
+     */
+    LOW;
+
+    /**
+     * Parse a priority from configuration.
+     *
+     * @param name - high, normal or low, in any case.
+     * @return the priority
+     */
+    public static Priority parse(String name) {
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown priority: " + name);
+        }
+    }
+}
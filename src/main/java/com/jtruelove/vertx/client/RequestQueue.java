@@ -0,0 +1,463 @@
+package com.jtruelove.vertx.client;
+
+import com.jtruelove.vertx.async.Action;
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import com.jtruelove.vertx.async.TimerWheel;
+import com.jtruelove.vertx.metrics.LatencyHistogram;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded queue in front of the connections of a {@link ServiceClient}, so calls wait in order of their
+ * {@link Priority} rather than first come first served in the unbounded queue of the connection pool.
+ *
+ * Up to max in flight calls are sent straight away. The rest wait, the highest priority first, and the next one is
+ * sent as each call in flight finishes. Shedding follows CoDel: what matters is how long calls wait, not how many are
+ * waiting. While the queue keeps calls under the target delay it is coping, and calls that aren't high priority may
+ * wait up to an interval. Once the delay has been over the target for a whole interval the queue is overloaded, and
+ * calls that aren't high priority are shed as soon as they have waited longer than the target, until it drains. A full
+ * queue makes room for a call by shedding the newest call of a lower priority, and turns the call away when there
+ * isn't one.
+ *
+ * Waiting is measured when a call leaves the queue, a call is only shed for waiting when a call in flight finishes or
+ * it is pushed out by a higher priority call. A call whose timeout or deadline runs out while it waits is failed as
+ * soon as it does, by a timer on the context it was made from, so it doesn't hang on until something finishes.
+ */
+public class RequestQueue {
+
+    private final int maxInFlight;
+    private final int maxSize;
+    private final long targetNanos;
+    private final long intervalNanos;
+
+    // guarded by this, one queue per priority
+    private final ArrayDeque<Waiter>[] queues;
+    private int size;
+    private int inFlight;
+    private boolean closed;
+    // the last time a call got through without waiting longer than the target
+    private long belowTargetAt = System.nanoTime();
+
+    private final LatencyHistogram sojourn = new LatencyHistogram();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public RequestQueue(RequestQueueOptions options, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Invalid max in flight: " + maxInFlight);
+        }
+
+        if (options.getTargetDelay() >= options.getInterval()) {
+            throw new IllegalArgumentException("The target delay " + options.getTargetDelay()
+                    + " must be shorter than the interval " + options.getInterval());
+        }
+
+        this.maxInFlight = maxInFlight;
+        maxSize = options.getMaxSize();
+        targetNanos = TimeUnit.MILLISECONDS.toNanos(options.getTargetDelay());
+        intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getInterval());
+        queues = (ArrayDeque<Waiter>[]) new ArrayDeque<?>[Priority.values().length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Ask to send a call, it is sent right away if there is room or once it gets to the front of the queue. Every call
+     * admitted must be followed by {@link #release()}.
+     *
+     * @param priority - the priority of the call.
+     * @param deadline - the deadline of the call, null for none.
+     * @param timeout - the timeout of the call in milliseconds, 0 for none.
+     * @param signal - the signal that takes the call out of the queue if it is cancelled, null for none.
+     * @param onAdmit - called on the context of the caller when the call can be sent.
+     * @param onReject - called on the context of the caller if the call is shed, times out or is cancelled instead.
+     */
+    void submit(Priority priority, Deadline deadline, long timeout, CancellationSignal signal, Handler<Void> onAdmit,
+                Handler<Throwable> onReject) {
+        Waiter waiter = null;
+        Waiter evicted = null;
+        boolean full = false;
+        boolean refused = false;
+        synchronized (this) {
+            if (closed) {
+                refused = true;
+            } else if (size == 0 && inFlight < maxInFlight) {
+                inFlight++;
+                belowTargetAt = System.nanoTime();
+            } else {
+                if (size == maxSize) {
+                    evicted = evict(priority);
+                    full = evicted == null;
+                }
+
+                if (!full) {
+                    waiter = new Waiter(priority, deadline, signal, onAdmit, onReject);
+                    queues[priority.ordinal()].addLast(waiter);
+                    size++;
+                }
+            }
+        }
+
+        if (refused) {
+            rejected.increment();
+            onReject.handle(new LoadSheddingException("Request queue closed"));
+            return;
+        }
+
+        if (full) {
+            rejected.increment();
+            onReject.handle(new LoadSheddingException("Request queue full with " + maxSize + " calls waiting"));
+            return;
+        }
+
+        if (evicted != null) {
+            rejected.increment();
+            evicted.reject(new LoadSheddingException("Pushed out of the full request queue by a " + priority
+                    + " priority call"));
+        }
+
+        if (waiter == null) {
+            admitted.increment();
+            sojourn.record(0L);
+            onAdmit.handle(null);
+            return;
+        }
+
+        // admitted or rejected before these are set up, they find it out of the queue and do nothing
+        waiter.startTimer(timeout);
+        if (signal != null) {
+            signal.onCancel(waiter);
+        }
+    }
+
+    /**
+     * Take out the newest call of the lowest priority below the one given.
+     */
+    private Waiter evict(Priority priority) {
+        for (int i = queues.length - 1; i > priority.ordinal(); i--) {
+            Waiter waiter = queues[i].pollLast();
+            if (waiter != null) {
+                size--;
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Give back the room of a call that has finished, sending the next call that is waiting.
+     */
+    void release() {
+        Waiter next = null;
+        List<Waiter> dropped = null;
+        List<Throwable> causes = null;
+        synchronized (this) {
+            inFlight--;
+            long now = System.nanoTime();
+            while (size > 0 && inFlight < maxInFlight) {
+                Waiter waiter = poll();
+                long waited = now - waiter.queuedAt;
+                Throwable cause = null;
+                if (waiter.deadline != null && waiter.deadline.isExpired()) {
+                    expired.increment();
+                    cause = new DeadlineExceededException("Deadline exceeded after " + toMillis(waited)
+                            + "ms in the request queue");
+                } else if (waiter.priority != Priority.HIGH
+                        && (waited > intervalNanos || (waited > targetNanos && now - belowTargetAt > intervalNanos))) {
+                    shed.increment();
+                    cause = new LoadSheddingException("Shed after " + toMillis(waited) + "ms in the request queue");
+                }
+
+                if (waited <= targetNanos) {
+                    belowTargetAt = now;
+                }
+
+                if (cause != null) {
+                    if (dropped == null) {
+                        dropped = new ArrayList<>();
+                        causes = new ArrayList<>();
+                    }
+                    dropped.add(waiter);
+                    causes.add(cause);
+                    continue;
+                }
+
+                inFlight++;
+                sojourn.record(TimeUnit.NANOSECONDS.toMicros(waited));
+                next = waiter;
+                break;
+            }
+
+            if (size == 0) {
+                // an empty queue is as good as it gets
+                belowTargetAt = now;
+            }
+        }
+
+        if (dropped != null) {
+            for (int i = 0; i < dropped.size(); i++) {
+                dropped.get(i).reject(causes.get(i));
+            }
+        }
+
+        if (next != null) {
+            admitted.increment();
+            next.admit();
+        }
+    }
+
+    /**
+     * Turn away every call waiting and any submitted from now on, the calls in flight still release their places.
+     */
+    void close() {
+        List<Waiter> waiting = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            Waiter waiter;
+            while ((waiter = poll()) != null) {
+                waiting.add(waiter);
+            }
+        }
+
+        for (Waiter waiter : waiting) {
+            rejected.increment();
+            waiter.reject(new LoadSheddingException("Request queue closed"));
+        }
+    }
+
+    private Waiter poll() {
+        for (ArrayDeque<Waiter> queue : queues) {
+            Waiter waiter = queue.pollFirst();
+            if (waiter != null) {
+                size--;
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private synchronized boolean remove(Waiter waiter) {
+        if (queues[waiter.priority.ordinal()].remove(waiter)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Get the number of calls sent before the rest have to queue.
+     *
+     * @return the max in flight
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Get the number of calls admitted that haven't finished.
+     *
+     * @return the in flight count
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Get the number of calls waiting.
+     *
+     * @return the queue size
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the time calls have waited in the queue, in microseconds. Calls that didn't have to wait count as 0.
+     *
+     * @return the sojourn time histogram
+     */
+    public LatencyHistogram getSojourn() {
+        return sojourn;
+    }
+
+    /**
+     * Get the number of calls that have been sent.
+     *
+     * @return the admitted count
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * Get the number of calls shed for waiting too long.
+     *
+     * @return the shed count
+     */
+    public long getShed() {
+        return shed.sum();
+    }
+
+    /**
+     * Get the number of calls turned away or pushed out by a full queue.
+     *
+     * @return the rejected count
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the number of calls whose timeout or deadline ran out while they waited.
+     *
+     * @return the expired count
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * Take a snapshot of the metrics of the queue.
+     *
+     * @return the metrics as json
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("in_flight", getInFlight())
+                .put("size", size())
+                .put("admitted", getAdmitted())
+                .put("shed", getShed())
+                .put("rejected", getRejected())
+                .put("expired", getExpired())
+                .put("sojourn_us", new JsonObject()
+                        .put("count", sojourn.getCount())
+                        .put("mean", sojourn.getMean())
+                        .put("max", sojourn.getMax())
+                        .put("p50", sojourn.getValueAtPercentile(50.0))
+                        .put("p99", sojourn.getValueAtPercentile(99.0)));
+    }
+
+    /**
+     * A call waiting in the queue, it hears back on the context it was made from. Its timer is on the timer wheel of
+     * that context, or a vertx timer if it isn't an event loop, and a call made off vertx has none.
+     */
+    private class Waiter extends TimerWheel.Timeout implements Action {
+        private static final long NO_TIMER = -1L;
+
+        private final Priority priority;
+        private final Deadline deadline;
+        private final CancellationSignal signal;
+        private final Handler<Void> onAdmit;
+        private final Handler<Throwable> onReject;
+        private final Context context = Vertx.currentContext();
+        private final long queuedAt = System.nanoTime();
+        private volatile long timerId = NO_TIMER;
+
+        Waiter(Priority priority, Deadline deadline, CancellationSignal signal, Handler<Void> onAdmit,
+               Handler<Throwable> onReject) {
+            this.priority = priority;
+            this.deadline = deadline;
+            this.signal = signal;
+            this.onAdmit = onAdmit;
+            this.onReject = onReject;
+        }
+
+        /**
+         * Fire when the timeout or the deadline runs out, whichever is first.
+         */
+        void startTimer(long timeout) {
+            long delay = timeout > 0 ? timeout : Long.MAX_VALUE;
+            if (deadline != null) {
+                delay = Math.min(delay, Math.max(1L, deadline.remaining()));
+            }
+            if (delay == Long.MAX_VALUE || context == null) { return; }
+
+            TimerWheel wheel = TimerWheel.current();
+            if (wheel != null) {
+                wheel.schedule(this, delay);
+            } else {
+                timerId = context.owner().setTimer(delay, theTimerId -> expire());
+            }
+        }
+
+        private void stopTimer() {
+            cancel();
+            long id = timerId;
+            if (id != NO_TIMER) {
+                context.owner().cancelTimer(id);
+            }
+        }
+
+        @Override
+        protected void expire() {
+            if (!remove(this)) { return; }
+
+            if (signal != null) { signal.remove(this); }
+            long waited = toMillis(System.nanoTime() - queuedAt);
+            expired.increment();
+            if (deadline != null && deadline.isExpired()) {
+                onReject.handle(new DeadlineExceededException("Deadline exceeded after " + waited
+                        + "ms in the request queue"));
+            } else {
+                onReject.handle(new TimeoutException("Timed out after " + waited + "ms in the request queue"));
+            }
+        }
+
+        /**
+         * Send the call from a fresh task on its context, never from the stack of the call that released its place.
+         * A call that fails as soon as it is admitted releases the place again, inline that would admit the next one
+         * on the same stack and so on through the whole queue.
+         */
+        void admit() {
+            stopTimer();
+            if (signal != null) { signal.remove(this); }
+            if (context != null) {
+                context.runOnContext(aVoid -> onAdmit.handle(null));
+            } else {
+                onAdmit.handle(null);
+            }
+        }
+
+        void reject(Throwable cause) {
+            stopTimer();
+            if (signal != null) { signal.remove(this); }
+            run(aVoid -> onReject.handle(cause));
+        }
+
+        private void run(Handler<Void> handler) {
+            if (context == null || Vertx.currentContext() == context) {
+                handler.handle(null);
+            } else {
+                context.runOnContext(handler);
+            }
+        }
+
+        @Override
+        public void callback() {
+            if (remove(this)) {
+                stopTimer();
+                run(aVoid -> onReject.handle(new CancellationException("request cancelled while queued")));
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The configuration of the {@link RequestQueue} of a {@link ServiceClient}.
+ */
+public class RequestQueueOptions {
+
+    // configuration key constants
+    public static final String MAX_IN_FLIGHT = "max_in_flight";
+    public static final String MAX_SIZE = "max_size";
+    public static final String TARGET_DELAY = "target_delay";
+    public static final String INTERVAL = "interval";
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 0;
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_TARGET_DELAY = 5L;
+    public static final long DEFAULT_INTERVAL = 100L;
+
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private long targetDelay = DEFAULT_TARGET_DELAY;
+    private long interval = DEFAULT_INTERVAL;
+
+    public RequestQueueOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public RequestQueueOptions(JsonObject config) {
+        setMaxInFlight(config.getInteger(MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT));
+        setMaxSize(config.getInteger(MAX_SIZE, DEFAULT_MAX_SIZE));
+        setTargetDelay(config.getLong(TARGET_DELAY, DEFAULT_TARGET_DELAY));
+        setInterval(config.getLong(INTERVAL, DEFAULT_INTERVAL));
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Sets the number of calls sent before the rest have to queue.
+     *
+     * @param maxInFlight - number of calls, 0 for the number of connections the client has to all its endpoints.
+     * @return - reference to the options.
+     */
+    public RequestQueueOptions setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 0) {
+            throw new IllegalArgumentException("Invalid max in flight: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the number of calls that can queue, once it is full a call only gets in by pushing out one of lower
+     * priority.
+     *
+     * @param maxSize - number of calls.
+     * @return - reference to the options.
+     */
+    public RequestQueueOptions setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public long getTargetDelay() {
+        return targetDelay;
+    }
+
+    /**
+     * Sets the queueing delay the queue aims to stay under. Once calls have waited longer than this for a whole
+     * interval the queue is overloaded, and calls that aren't high priority are shed once they wait longer than it.
+     *
+     * @param targetDelay - time in milliseconds.
+     * @return - reference to the options.
+     */
+    public RequestQueueOptions setTargetDelay(long targetDelay) {
+        if (targetDelay < 1L) {
+            throw new IllegalArgumentException("Invalid target delay: " + targetDelay);
+        }
+        this.targetDelay = targetDelay;
+        return this;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Sets how long the queueing delay can stay over the target before the queue counts as overloaded. It is also
+     * the longest a call that isn't high priority waits when the queue isn't overloaded.
+     *
+     * @param interval - time in milliseconds.
+     * @return - reference to the options.
+     */
+    public RequestQueueOptions setInterval(long interval) {
+        if (interval < 1L) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        this.interval = interval;
+        return this;
+    }
+}
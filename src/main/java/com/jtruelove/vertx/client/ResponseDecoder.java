@@ -0,0 +1,127 @@
+package com.jtruelove.vertx.client;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.jtruelove.vertx.web.HttpHelper;
+import com.jtruelove.vertx.web.JsonUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the body of a response and decodes it from Json into a future, or fails the future with an
+ * {@link HttpStatusException} if the response isn't a 2xx.
+ *
+ * The chunks vertx hands over are kept as they are and read through a composite buffer once the body is complete,
+ * rather than appended into one buffer and copied out to a byte[]. A body over the size limit is abandoned, as soon
+ * as its Content-Length says so or as soon as enough of it has arrived, and its connection closed.
+ */
+class ResponseDecoder<T> implements Handler<HttpClientResponse> {
+    private final HttpMethod method;
+    private final String path;
+    private final ObjectReader reader;
+    private final int maxSize;
+    private final Future<T> future;
+    private HttpClientResponse response;
+    private ByteBuf first;
+    private CompositeByteBuf rest;
+    private int size;
+
+    ResponseDecoder(HttpMethod method, String path, Class<T> type, int maxSize, Future<T> future) {
+        this.method = method;
+        this.path = path;
+        this.reader = JsonUtil.getReader(type);
+        this.maxSize = maxSize;
+        this.future = future;
+    }
+
+    @Override
+    public void handle(HttpClientResponse response) {
+        this.response = response;
+        String length = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (length != null) {
+            try {
+                if (Long.parseLong(length) > maxSize) {
+                    tooLarge();
+                    return;
+                }
+            } catch (NumberFormatException ex) {
+                // leave it to the chunks
+            }
+        }
+
+        response.exceptionHandler(future::tryFail);
+        response.handler(this::chunk);
+        response.endHandler(aVoid -> end());
+    }
+
+    private void chunk(Buffer chunk) {
+        if (future.isComplete()) { return; }
+
+        size += chunk.length();
+        if (size > maxSize) {
+            tooLarge();
+            return;
+        }
+
+        ByteBuf buffer = chunk.getByteBuf();
+        if (first == null) {
+            first = buffer;
+        } else {
+            if (rest == null) {
+                rest = new CompositeByteBuf(UnpooledByteBufAllocator.DEFAULT, false, Integer.MAX_VALUE);
+                rest.addComponent(true, first);
+            }
+            rest.addComponent(true, buffer);
+        }
+    }
+
+    private void end() {
+        if (future.isComplete()) { return; }
+
+        ByteBuf body = rest != null ? rest : first;
+        int status = response.statusCode();
+        if (!HttpHelper.isHttp2XXResponse(status)) {
+            future.fail(new HttpStatusException(method + " " + path + " failed with " + status + " "
+                    + response.statusMessage(), status, response.statusMessage(),
+                    body == null ? "" : body.toString(StandardCharsets.UTF_8)));
+            return;
+        }
+
+        if (body == null) {
+            // ie a 204
+            future.complete(null);
+            return;
+        }
+
+        T value;
+        try {
+            value = body.hasArray() ? reader.readValue(body.array(), body.arrayOffset() + body.readerIndex(),
+                    body.readableBytes()) : reader.readValue(new ByteBufInputStream(body));
+        } catch (IOException ex) {
+            future.fail(ex);
+            return;
+        }
+        future.complete(value);
+    }
+
+    private void tooLarge() {
+        future.tryFail(new ResponseTooLargeException("The response to " + method + " " + path
+                + " is larger than the limit of " + maxSize + " bytes", maxSize));
+        // don't read the rest of it, this closes the connection. A response from the cache has no request.
+        HttpClientRequest request = response.request();
+        if (request != null) {
+            request.reset();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.jtruelove.vertx.client;
+
+/**
+ * A response body was larger than the client is willing to hold in memory, it was abandoned rather than read.
+ */
+public class ResponseTooLargeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final int limit;
+
+    public ResponseTooLargeException(String message, int limit) {
+        super(message);
+        this.limit = limit;
+    }
+
+    /**
+     * Get the most bytes the client would accept.
+     *
+     * @return the limit in bytes
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
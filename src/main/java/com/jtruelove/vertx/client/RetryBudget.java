@@ -0,0 +1,97 @@
+package com.jtruelove.vertx.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that keeps retries to a share of the calls a {@link ServiceClient} makes.
+ *
+ * Every call puts a fraction of a token in the bucket and every retry takes a whole one out, on top of that a few
+ * tokens trickle in every second. When a service is failing outright the retries dry up after a small share of the
+ * traffic instead of multiplying the load on it, while the occasional failure of a healthy service is always
+ * retried.
+ */
+public class RetryBudget {
+
+    // tokens are kept in thousandths so fractional deposits need no floating point
+    private static final long TOKEN = 1000L;
+    private static final long MAX_BALANCE = 100L * TOKEN;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long deposit;
+    private final long refillPerSecond;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+    /**
+     * Create a budget.
+     *
+     * @param ratio the retries allowed for each call, between 0 and 1
+     * @param minRetriesPerSecond the retries allowed every second regardless of the calls made
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond) {
+        if (ratio < 0.0 || ratio > 1.0) {
+            throw new IllegalArgumentException("Invalid budget ratio: " + ratio);
+        }
+
+        deposit = (long) (ratio * TOKEN);
+        refillPerSecond = minRetriesPerSecond * TOKEN;
+        // start with a second's worth of retries
+        balance = new AtomicLong(Math.min(MAX_BALANCE, refillPerSecond));
+    }
+
+    /**
+     * Record a call being made.
+     */
+    public void deposit() {
+        if (deposit > 0) {
+            add(deposit);
+        }
+    }
+
+    /**
+     * Take a token for a retry.
+     *
+     * @return true if the retry is within budget, false if it should not be made
+     */
+    public boolean tryWithdraw() {
+        refill();
+        while (true) {
+            long current = balance.get();
+            if (current < TOKEN) { return false; }
+            if (balance.compareAndSet(current, current - TOKEN)) { return true; }
+        }
+    }
+
+    /**
+     * Get the number of retries currently allowed.
+     *
+     * @return the whole tokens in the bucket
+     */
+    public long getBalance() {
+        return balance.get() / TOKEN;
+    }
+
+    private void refill() {
+        if (refillPerSecond == 0) { return; }
+
+        long last = lastRefill.get();
+        long now = System.nanoTime();
+        long elapsed = now - last;
+        // at a token a second or more a long idle spell fills the bucket, don't let it overflow the sum
+        long tokens = elapsed >= MAX_BALANCE / TOKEN * NANOS_PER_SECOND ? MAX_BALANCE
+                : elapsed * refillPerSecond / NANOS_PER_SECOND;
+        // only the thread that moves the refill time on gets to add the tokens
+        if (tokens > 0 && lastRefill.compareAndSet(last, now)) {
+            add(tokens);
+        }
+    }
+
+    private void add(long tokens) {
+        while (true) {
+            long current = balance.get();
+            if (current >= MAX_BALANCE) { return; }
+            if (balance.compareAndSet(current, Math.min(MAX_BALANCE, current + tokens))) { return; }
+        }
+    }
+}
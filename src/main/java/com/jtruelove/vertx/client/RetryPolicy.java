@@ -0,0 +1,207 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * When and how a {@link ServiceClient} retries idempotent calls.
+ *
+ * A call is retried when it fails to reach the service, ie the connection is refused or drops, or the service answers
+ * with one of the retryable status codes. Timeouts are not retried, the timeout covers every attempt so once it has
+ * passed there is no time left, and neither are calls rejected by the circuit breaker or concurrency limit since those
+ * are shedding load on purpose. The wait before each retry is drawn at random between 0 and an exponentially growing
+ * cap, "full jitter", so clients that failed together don't all come back together.
+ */
+public class RetryPolicy {
+
+    // configuration key constants
+    public static final String MAX_ATTEMPTS = "max_attempts";
+    public static final String BASE_BACKOFF = "base_backoff";
+    public static final String MAX_BACKOFF = "max_backoff";
+    public static final String BUDGET_RATIO = "budget_ratio";
+    public static final String MIN_RETRIES_PER_SECOND = "min_retries_per_second";
+    public static final String RETRYABLE_STATUSES = "retryable_statuses";
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_BACKOFF = 25L;
+    public static final long DEFAULT_MAX_BACKOFF = 1000L;
+    public static final double DEFAULT_BUDGET_RATIO = 0.2;
+    public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long baseBackoff = DEFAULT_BASE_BACKOFF;
+    private long maxBackoff = DEFAULT_MAX_BACKOFF;
+    private double budgetRatio = DEFAULT_BUDGET_RATIO;
+    private int minRetriesPerSecond = DEFAULT_MIN_RETRIES_PER_SECOND;
+    private Set<Integer> retryableStatuses = new HashSet<>(Arrays.asList(502, 503, 504));
+
+    public RetryPolicy() {}
+
+    /**
+     * Creates a policy from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public RetryPolicy(JsonObject config) {
+        setMaxAttempts(config.getInteger(MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS));
+        setBaseBackoff(config.getLong(BASE_BACKOFF, DEFAULT_BASE_BACKOFF));
+        setMaxBackoff(config.getLong(MAX_BACKOFF, DEFAULT_MAX_BACKOFF));
+        setBudgetRatio(config.getDouble(BUDGET_RATIO, DEFAULT_BUDGET_RATIO));
+        setMinRetriesPerSecond(config.getInteger(MIN_RETRIES_PER_SECOND, DEFAULT_MIN_RETRIES_PER_SECOND));
+
+        JsonArray statuses = config.getJsonArray(RETRYABLE_STATUSES);
+        if (statuses != null) {
+            Set<Integer> codes = new HashSet<>();
+            for (int pos = 0; pos < statuses.size(); pos++) {
+                codes.add(statuses.getInteger(pos));
+            }
+            setRetryableStatuses(codes);
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Sets the most times a call is sent, counting the first attempt.
+     *
+     * @param maxAttempts - number of attempts, at least 1.
+     * @return - reference to the policy.
+     */
+    public RetryPolicy setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Invalid max attempts: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public long getBaseBackoff() {
+        return baseBackoff;
+    }
+
+    /**
+     * Sets the cap on the wait before the first retry, it doubles for every retry after that.
+     *
+     * @param baseBackoff - time in milliseconds.
+     * @return - reference to the policy.
+     */
+    public RetryPolicy setBaseBackoff(long baseBackoff) {
+        if (baseBackoff < 1L) {
+            throw new IllegalArgumentException("Invalid base backoff: " + baseBackoff);
+        }
+        this.baseBackoff = baseBackoff;
+        return this;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Sets the most the cap on the wait before a retry grows to.
+     *
+     * @param maxBackoff - time in milliseconds.
+     * @return - reference to the policy.
+     */
+    public RetryPolicy setMaxBackoff(long maxBackoff) {
+        if (maxBackoff < 1L) {
+            throw new IllegalArgumentException("Invalid max backoff: " + maxBackoff);
+        }
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * Sets the retries allowed as a share of the calls made, see {@link RetryBudget}.
+     *
+     * @param budgetRatio - ratio between 0 and 1, ie 0.2 allows one retry for every 5 calls.
+     * @return - reference to the policy.
+     */
+    public RetryPolicy setBudgetRatio(double budgetRatio) {
+        if (budgetRatio < 0.0 || budgetRatio > 1.0) {
+            throw new IllegalArgumentException("Invalid budget ratio: " + budgetRatio);
+        }
+        this.budgetRatio = budgetRatio;
+        return this;
+    }
+
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    /**
+     * Sets the retries allowed every second on top of the budget ratio, so a client making few calls can still retry.
+     *
+     * @param minRetriesPerSecond - number of retries.
+     * @return - reference to the policy.
+     */
+    public RetryPolicy setMinRetriesPerSecond(int minRetriesPerSecond) {
+        if (minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid min retries per second: " + minRetriesPerSecond);
+        }
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        return this;
+    }
+
+    public Set<Integer> getRetryableStatuses() {
+        return retryableStatuses;
+    }
+
+    /**
+     * Sets the response status codes that are retried, 502, 503 and 504 by default.
+     *
+     * @param retryableStatuses - the status codes.
+     * @return - reference to the policy.
+     */
+    public RetryPolicy setRetryableStatuses(Set<Integer> retryableStatuses) {
+        this.retryableStatuses = retryableStatuses;
+        return this;
+    }
+
+    /**
+     * Should a call that got this response be retried?
+     *
+     * @param statusCode the status code of the response
+     * @return true if it can be retried
+     */
+    public boolean isRetryable(int statusCode) {
+        return retryableStatuses.contains(statusCode);
+    }
+
+    /**
+     * Should a call that failed with this error be retried?
+     *
+     * @param cause the error the call failed with
+     * @return true if it can be retried
+     */
+    public boolean isRetryable(Throwable cause) {
+        return !(cause instanceof TimeoutException || cause instanceof CancellationException
+                || cause instanceof RejectedExecutionException);
+    }
+
+    /**
+     * Pick the time to wait before a retry.
+     *
+     * @param retry the number of the retry, 1 for the first one
+     * @return the wait in milliseconds
+     */
+    public long backoff(int retry) {
+        // clamp the shift so the cap can't overflow
+        long cap = Math.min(maxBackoff, baseBackoff << Math.min(retry - 1, 30));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+}
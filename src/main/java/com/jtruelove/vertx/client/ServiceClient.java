@@ -1,21 +1,64 @@
 package com.jtruelove.vertx.client;
 
+import com.jtruelove.vertx.async.Action;
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import com.jtruelove.vertx.async.TimerWheel;
+import com.jtruelove.vertx.async.promise.CancellableAction;
+import com.jtruelove.vertx.client.cache.CacheEntry;
+import com.jtruelove.vertx.client.cache.CachedResponse;
+import com.jtruelove.vertx.client.cache.ResponseCache;
+import com.jtruelove.vertx.client.cache.ResponseCacheOptions;
+import com.jtruelove.vertx.client.lb.Endpoint;
+import com.jtruelove.vertx.client.lb.LoadBalancer;
+import com.jtruelove.vertx.client.lb.LoadBalancingStrategy;
+import com.jtruelove.vertx.client.lb.OutlierDetectionOptions;
+import com.jtruelove.vertx.web.RestApi;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.MultithreadEventLoopGroup;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpConnection;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.impl.ContextImpl;
+import io.vertx.core.impl.VertxInternal;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.Pump;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
 import org.apache.commons.lang.StringUtils;
 
 import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Service client for vertx services.
@@ -36,21 +79,81 @@ public class ServiceClient {
     public static final String TIMEOUT = "timeout";
     public static final String SSL = "ssl";
     public static final String HEADERS = "headers";
+    public static final String METRICS = "metrics";
+    public static final String CIRCUIT_BREAKER = "circuit_breaker";
+    public static final String CONCURRENCY_LIMIT = "concurrency_limit";
+    public static final String ENDPOINTS = "endpoints";
+    public static final String LOAD_BALANCER = "load_balancer";
+    public static final String OUTLIER_DETECTION = "outlier_detection";
+    public static final String RETRY = "retry";
+    public static final String IDEMPOTENT = "idempotent";
+    public static final String MAX_RESPONSE_SIZE = "max_response_size";
+    public static final int DEFAULT_MAX_RESPONSE_SIZE = 10 * 1024 * 1024;
+    public static final String COALESCE = "coalesce";
+    public static final String COALESCE_HEADERS = "coalesce_headers";
+    public static final String RESPONSE_CACHE = "response_cache";
+    public static final String TRANSPORT = "transport";
+    public static final String WARM_UP = "warm_up";
+    public static final String PER_EVENT_LOOP = "per_event_loop";
+    public static final String REQUEST_QUEUE = "request_queue";
+    public static final String PRIORITY = "priority";
     private static final long NO_TIMEOUT = 0L;
 
     // empty request.
     public static final String EMPTY_REQUEST = "";
+    // backed by a buffer with no capacity, so it can be shared without anything being appended to it
+    private static final Buffer EMPTY_PAYLOAD = Buffer.buffer(Unpooled.EMPTY_BUFFER);
+    // encoded once rather than for every request, the string an optimized header holds is made up front
+    private static final CharSequence JSON_CONTENT_TYPE = HttpHeaders.createOptimized(MediaType.APPLICATION_JSON);
+    private static final CharSequence STREAM_CONTENT_TYPE =
+            HttpHeaders.createOptimized(MediaType.APPLICATION_OCTET_STREAM);
+    private static final CharSequence NO_CONTENT_LENGTH = HttpHeaders.createOptimized("0");
+    private static final CharSequence REQUEST_TIMEOUT = HttpHeaders.createOptimized(RestApi.X_REQUEST_TIMEOUT);
 
     private Map<String, Long> apiTimeouts = new HashMap<>();
 
     // http client delegate
     private HttpClient client;
+    // null unless every event loop gets a client of its own, the shared one is for calls made off them
+    private ConcurrentMap<EventLoop, HttpClient> loopClients;
+    private HttpClientOptions loopOptions;
 
     // saving host and port for consumers
     private String host;
     private Integer port;
     private long timeout;
-    private Map<String, String> headers;
+    // the headers sent on every call, pre-encoded names at even indexes followed by their values
+    private CharSequence[] headers;
+    // null unless metrics are enabled
+    private ServiceClientMetrics metrics;
+    // one breaker per api plus one for the default, null unless enabled. With a load balancer every endpoint gets
+    // its own set instead, so one bad replica doesn't turn calls away from the healthy ones
+    private Breakers breakers;
+    private Map<Endpoint, Breakers> endpointBreakers;
+    private ConcurrencyLimiter limiter;
+    // null unless the client has more than one endpoint
+    private LoadBalancer loadBalancer;
+    // null unless retries are enabled
+    private RetryPolicy retryPolicy;
+    private RetryBudget retryBudget;
+    private Set<String> idempotentApis;
+    // null unless calls queue up by priority in front of the connections
+    private RequestQueue queue;
+    private Map<String, Priority> apiPriorities;
+    private Vertx vertx;
+    private int maxResponseSize;
+    // the typed GETs in flight when coalescing, by key
+    private ConcurrentMap<String, Flight<?>> flights;
+    private List<String> coalesceHeaders;
+    private ResponseCache cache;
+    // streams on a HTTP/2 connection are reset on their own, the connection is shared
+    private boolean http2;
+    // so is a HTTP/1.1 connection with requests pipelined on it
+    private boolean pipelining;
+    // completed once the warm up has opened its connections, right away without one
+    private Future<Void> ready;
+    // calls made after the client is closed are refused rather than given a fresh http client
+    private volatile boolean closed;
 
     // private constructor to prohibit creating instances using constructor
     private ServiceClient() {}
@@ -65,22 +168,49 @@ public class ServiceClient {
     public static ServiceClient create(Vertx vertx, JsonObject config) {
         Builder builder = new Builder(vertx);
 
+        // with a list of endpoints the host and port are optional
+        boolean endpoints = config.containsKey(ENDPOINTS);
+        if (endpoints) {
+            JsonArray endpointArray = config.getJsonArray(ENDPOINTS);
+
+            for (int pos = 0; pos < endpointArray.size(); pos++) {
+                JsonObject endpointObject = endpointArray.getJsonObject(pos);
+                builder.addEndpoint(endpointObject.getString(HOST), endpointObject.getInteger(PORT, 0));
+            }
+        }
+
         if (config.containsKey(HOST)) {
             builder.withHost(config.getString(HOST));
-        } else {
+        } else if (!endpoints) {
             throw new IllegalArgumentException("No host key defined in service client configuration");
         }
 
         if (config.containsKey(PORT)) {
             builder.withPort(config.getInteger(PORT));
-        } else {
+        } else if (!endpoints) {
             throw new IllegalArgumentException("No port key defined in service client configuration");
         }
 
+        if (config.containsKey(LOAD_BALANCER)) {
+            builder.withLoadBalancing(LoadBalancingStrategy.create(config.getString(LOAD_BALANCER)));
+        }
+
+        if (config.containsKey(RETRY)) {
+            builder.withRetryPolicy(new RetryPolicy(config.getJsonObject(RETRY)));
+        }
+
+        if (config.containsKey(OUTLIER_DETECTION)) {
+            builder.withOutlierDetection(new OutlierDetectionOptions(config.getJsonObject(OUTLIER_DETECTION)));
+        }
+
         if (config.containsKey(NUM_CONNECTIONS)) {
             builder.withNumConnections(config.getInteger(NUM_CONNECTIONS));
         }
 
+        if (config.containsKey(PER_EVENT_LOOP)) {
+            builder.withPerEventLoop(config.getBoolean(PER_EVENT_LOOP));
+        }
+
         if (config.containsKey(COMPRESSION)) {
             builder.withCompression(config.getBoolean(COMPRESSION));
         }
@@ -93,6 +223,49 @@ public class ServiceClient {
             builder.withSsl(config.getBoolean(SSL));
         }
 
+        if (config.containsKey(METRICS)) {
+            builder.withMetrics(config.getBoolean(METRICS));
+        }
+
+        if (config.containsKey(MAX_RESPONSE_SIZE)) {
+            builder.withMaxResponseSize(config.getInteger(MAX_RESPONSE_SIZE));
+        }
+
+        if (config.containsKey(TRANSPORT)) {
+            builder.withTransport(new TransportOptions(config.getJsonObject(TRANSPORT)));
+        }
+
+        if (config.containsKey(WARM_UP)) {
+            builder.withWarmUp(new WarmUpOptions(config.getJsonObject(WARM_UP)));
+        }
+
+        if (config.containsKey(RESPONSE_CACHE)) {
+            builder.withResponseCache(new ResponseCacheOptions(config.getJsonObject(RESPONSE_CACHE)));
+        }
+
+        if (config.containsKey(COALESCE)) {
+            builder.withCoalescing(config.getBoolean(COALESCE));
+        }
+
+        if (config.containsKey(COALESCE_HEADERS)) {
+            JsonArray headerArray = config.getJsonArray(COALESCE_HEADERS);
+            for (int pos = 0; pos < headerArray.size(); pos++) {
+                builder.addCoalesceHeader(headerArray.getString(pos));
+            }
+        }
+
+        if (config.containsKey(CIRCUIT_BREAKER)) {
+            builder.withCircuitBreaker(new CircuitBreakerOptions(config.getJsonObject(CIRCUIT_BREAKER)));
+        }
+
+        if (config.containsKey(CONCURRENCY_LIMIT)) {
+            builder.withConcurrencyLimit(new ConcurrencyLimitOptions(config.getJsonObject(CONCURRENCY_LIMIT)));
+        }
+
+        if (config.containsKey(REQUEST_QUEUE)) {
+            builder.withRequestQueue(new RequestQueueOptions(config.getJsonObject(REQUEST_QUEUE)));
+        }
+
         if (config.containsKey(HEADERS)) {
             JsonObject headerConfig = config.getJsonObject(HEADERS, null);
 
@@ -113,20 +286,194 @@ public class ServiceClient {
                 String name = apiObject.getString(API_NAME);
                 long timeout = apiObject.getLong(TIMEOUT, NO_TIMEOUT);
                 builder.addApiTimeout(name, timeout);
+                if (apiObject.getBoolean(IDEMPOTENT, false)) {
+                    builder.markIdempotent(name);
+                }
+                if (apiObject.containsKey(PRIORITY)) {
+                    builder.addApiPriority(name, Priority.parse(apiObject.getString(PRIORITY)));
+                }
             }
         }
 
         return builder.build();
     }
 
-    private ServiceClient(HttpClient client, Map<String, Long> apiTimeouts, String host, Integer port, long timeout,
-              Map<String, String> headers) {
+    private ServiceClient(Builder builder, HttpClientOptions options, HttpClient client, LoadBalancer loadBalancer) {
         this.client = client;
-        this.apiTimeouts = apiTimeouts;
-        this.host = host;
-        this.port = port;
-        this.timeout = timeout;
-        this.headers = headers;
+        if (builder.perEventLoop) {
+            loopClients = new ConcurrentHashMap<>();
+            loopOptions = options;
+        }
+        this.vertx = builder.vertx;
+        this.apiTimeouts = builder.apiTimeouts;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.timeout = builder.timeout;
+        this.headers = encode(builder.headers);
+        this.maxResponseSize = builder.maxResponseSize;
+        this.http2 = builder.transport != null && builder.transport.isHttp2();
+        this.pipelining = builder.transport != null && builder.transport.isPipelining();
+        if (builder.cacheOptions != null) {
+            cache = new ResponseCache(builder.cacheOptions);
+        }
+
+        if (builder.coalesce) {
+            flights = new ConcurrentHashMap<>();
+            coalesceHeaders = builder.coalesceHeaders;
+        }
+        if (builder.metrics) {
+            this.metrics = new ServiceClientMetrics(host, port, apiTimeouts.keySet());
+        }
+
+        this.loadBalancer = loadBalancer;
+
+        CircuitBreakerOptions breakerOptions = builder.breakerOptions;
+        if (breakerOptions != null && loadBalancer != null) {
+            endpointBreakers = new HashMap<>();
+            loadBalancer.getEndpoints().forEach(endpoint -> endpointBreakers.put(endpoint,
+                    new Breakers(apiTimeouts.keySet(), breakerOptions)));
+        } else if (breakerOptions != null) {
+            breakers = new Breakers(apiTimeouts.keySet(), breakerOptions);
+        }
+
+        if (builder.limitOptions != null) {
+            limiter = new ConcurrencyLimiter(builder.limitOptions);
+        }
+
+        if (builder.queueOptions != null) {
+            // by default as many calls are sent as there are connections to send them on
+            int maxInFlight = builder.queueOptions.getMaxInFlight() > 0 ? builder.queueOptions.getMaxInFlight()
+                    : builder.numConnections * Math.max(1, builder.endpoints.size());
+            queue = new RequestQueue(builder.queueOptions, maxInFlight);
+            apiPriorities = builder.apiPriorities;
+        }
+
+        if (builder.retryPolicy != null) {
+            retryPolicy = builder.retryPolicy;
+            retryBudget = new RetryBudget(retryPolicy.getBudgetRatio(), retryPolicy.getMinRetriesPerSecond());
+            idempotentApis = builder.idempotentApis;
+        }
+
+        if (builder.warmUp != null) {
+            ready = Future.future();
+            WarmUpOptions warmUp = builder.warmUp;
+            List<JsonObject> endpoints = builder.endpoints.isEmpty()
+                    ? Collections.singletonList(new JsonObject().put(HOST, host).put(PORT, port))
+                    : new ArrayList<>(builder.endpoints);
+            if (loopClients != null) {
+                warmUpLoops(warmUp, endpoints, builder.eventLoops());
+            } else {
+                int connections = warmUpConnections(warmUp.getConnections());
+                AtomicInteger remaining = new AtomicInteger(endpoints.size() * connections);
+                vertx.getOrCreateContext().runOnContext(aVoid -> warmUp(warmUp, endpoints, connections, remaining));
+            }
+        } else {
+            ready = Future.succeededFuture();
+        }
+    }
+
+    /**
+     * Warm up the client of every event loop, each opening its share of the connections. A context is created on
+     * each loop to do it, so the clients belong to contexts that nothing undeploys.
+     */
+    private void warmUpLoops(WarmUpOptions options, List<JsonObject> endpoints, int loops) {
+        // new contexts are handed the event loops in turn, so as many contexts as loops usually covers them all
+        Map<EventLoop, Context> contexts = new HashMap<>();
+        for (int i = 0; i < 2 * loops && contexts.size() < loops; i++) {
+            ContextImpl context = ((VertxInternal) vertx).createEventLoopContext(null, null, new JsonObject(),
+                    Thread.currentThread().getContextClassLoader());
+            contexts.putIfAbsent(context.nettyEventLoop(), context);
+        }
+
+        // the connections are dealt out to the loops the way the pool is sliced, none to spare ones
+        Map<Context, Integer> shares = new HashMap<>();
+        int total = 0;
+        int loop = 0;
+        for (Context context : contexts.values()) {
+            int connections = warmUpConnections(options.getConnections() / contexts.size()
+                    + (loop++ < options.getConnections() % contexts.size() ? 1 : 0));
+            if (connections > 0) {
+                shares.put(context, connections);
+                total += connections;
+            }
+        }
+
+        AtomicInteger remaining = new AtomicInteger(endpoints.size() * total);
+        shares.forEach((context, connections) ->
+                context.runOnContext(aVoid -> warmUp(options, endpoints, connections, remaining)));
+    }
+
+    /**
+     * Gets the number of connections a http client can actually be made to open up front. HTTP/1.1 opens one for
+     * every request sent while the ones it has are busy, pipelined or not, as nothing can be pipelined on a connection
+     * that is still being opened. HTTP/2 only opens another connection once every stream of the ones it has is in
+     * use, which a warm up can't do, so it opens the one.
+     */
+    private int warmUpConnections(int connections) {
+        return http2 ? Math.min(connections, 1) : connections;
+    }
+
+    /**
+     * Open connections of the warm up to every endpoint from the current context. The requests are all sent at once,
+     * so on HTTP/1.1 the pool has to open a connection for each of them rather than reusing the first.
+     */
+    private void warmUp(WarmUpOptions options, List<JsonObject> endpoints, int connections, AtomicInteger remaining) {
+        String path = options.getPath() != null ? options.getPath() : "/";
+        if (closed) {
+            ready.tryFail(new IllegalStateException("Client is closed"));
+            return;
+        }
+
+        for (JsonObject endpoint : endpoints) {
+            String endpointHost = endpoint.getString(HOST);
+            int endpointPort = endpoint.getInteger(PORT);
+            for (int i = 0; i < connections; i++) {
+                HttpClientRequest request = httpClient().get(endpointPort, endpointHost, path, response -> {
+                    int status = response.statusCode();
+                    if (options.getPath() != null && (status < 200 || status >= 300)) {
+                        ready.tryFail(new HttpStatusException("Health check " + path + " of " + endpointHost + ":"
+                                + endpointPort + " failed with status " + status, status, response.statusMessage(),
+                                null));
+                        return;
+                    }
+
+                    response.exceptionHandler(ready::tryFail);
+                    response.endHandler(end -> {
+                        if (remaining.decrementAndGet() == 0) { ready.tryComplete(); }
+                    });
+                }).exceptionHandler(ready::tryFail);
+
+                if (headers != null) {
+                    for (int pos = 0; pos < headers.length; pos += 2) {
+                        request.putHeader(headers[pos], headers[pos + 1]);
+                    }
+                }
+                request.setTimeout(options.getTimeout()).end();
+            }
+        }
+    }
+
+    /**
+     * Gets a future that completes once the warm up has opened the connections to every endpoint, so a verticle can
+     * hold off reporting that it has started until then. It fails if a connection can't be opened or a health check
+     * doesn't pass. Calls made before then work as usual, they open connections of their own if they need them.
+     *
+     * @return the future, already completed if the client was built without a warm up
+     */
+    public Future<Void> ready() {
+        return ready;
+    }
+
+    private static CharSequence[] encode(Map<String, String> headers) {
+        if (headers == null || headers.isEmpty()) { return null; }
+
+        CharSequence[] encoded = new CharSequence[headers.size() * 2];
+        int pos = 0;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            encoded[pos++] = HttpHeaders.createOptimized(header.getKey());
+            encoded[pos++] = HttpHeaders.createOptimized(header.getValue());
+        }
+        return encoded;
     }
 
     /**
@@ -147,6 +494,99 @@ public class ServiceClient {
         return port;
     }
 
+    /**
+     * Gets the per api metrics of the client.
+     *
+     * @return the metrics, or null if the client was built without them
+     */
+    public ServiceClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the circuit breaker of an api.
+     *
+     * @param apiName - api name, calls without a known api name share the breaker of the default api.
+     * @return the circuit breaker, or null if the client was built without them or has a breaker per endpoint, see
+     * {@link #getCircuitBreaker(String, Endpoint)}
+     */
+    public CircuitBreaker getCircuitBreaker(String apiName) {
+        return breakers == null ? null : breakers.get(apiName);
+    }
+
+    /**
+     * Gets the circuit breaker of an api on one endpoint of the load balancer.
+     *
+     * @param apiName - api name, calls without a known api name share the breaker of the default api.
+     * @param endpoint - one of the endpoints of the load balancer.
+     * @return the circuit breaker, or null if the client was built without them
+     */
+    public CircuitBreaker getCircuitBreaker(String apiName, Endpoint endpoint) {
+        if (endpointBreakers == null) { return getCircuitBreaker(apiName); }
+
+        Breakers endpointApis = endpointBreakers.get(endpoint);
+        if (endpointApis == null) {
+            throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        }
+        return endpointApis.get(apiName);
+    }
+
+    /**
+     * Gets the concurrency limiter of the client.
+     *
+     * @return the limiter, or null if the client was built without one
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return limiter;
+    }
+
+    /**
+     * Gets the queue the calls of the client wait in for a connection, with its sojourn time and shedding metrics.
+     *
+     * @return the request queue, or null if the client was built without one
+     */
+    public RequestQueue getRequestQueue() {
+        return queue;
+    }
+
+    /**
+     * Gets the priority calls to an api queue with when they don't set their own.
+     *
+     * @param apiName - api name.
+     * @return the priority of the api, normal if it doesn't have one
+     */
+    public Priority getPriority(String apiName) {
+        Priority priority = apiName == null || apiPriorities == null ? null : apiPriorities.get(apiName);
+        return priority != null ? priority : Priority.NORMAL;
+    }
+
+    /**
+     * Gets the budget capping the retries of the client.
+     *
+     * @return the retry budget, or null if the client was built without retries
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Gets the cache of GET responses, with its hit, miss and eviction metrics.
+     *
+     * @return the cache, or null if the client was built without one
+     */
+    public ResponseCache getResponseCache() {
+        return cache;
+    }
+
+    /**
+     * Gets the load balancer spreading calls over the endpoints of the client.
+     *
+     * @return the load balancer, or null if the client has a single endpoint
+     */
+    public LoadBalancer getLoadBalancer() {
+        return loadBalancer;
+    }
+
     /**
      * Fluent Builder class to create objects of {@link ServiceClient}
      */
@@ -160,6 +600,23 @@ public class ServiceClient {
         private boolean ssl;
         private Map<String, Long> apiTimeouts = new HashMap<>();
         private Map<String, String> headers;
+        private boolean metrics;
+        private CircuitBreakerOptions breakerOptions;
+        private ConcurrencyLimitOptions limitOptions;
+        private RequestQueueOptions queueOptions;
+        private Map<String, Priority> apiPriorities = new HashMap<>();
+        private List<JsonObject> endpoints = new ArrayList<>();
+        private LoadBalancingStrategy strategy;
+        private OutlierDetectionOptions outlierDetection;
+        private RetryPolicy retryPolicy;
+        private Set<String> idempotentApis = new HashSet<>();
+        private int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+        private boolean coalesce;
+        private ResponseCacheOptions cacheOptions;
+        private List<String> coalesceHeaders = new ArrayList<>();
+        private TransportOptions transport;
+        private WarmUpOptions warmUp;
+        private boolean perEventLoop;
 
         public Builder(Vertx vertx) {
             this.vertx = vertx;
@@ -173,6 +630,16 @@ public class ServiceClient {
         public ServiceClient build() {
             HttpClientOptions options = new HttpClientOptions();
 
+            if (!endpoints.isEmpty()) {
+                // the first endpoint stands in for the host and port when they aren't set
+                if (StringUtils.isBlank(host) && port == 0) {
+                    host = endpoints.get(0).getString(HOST);
+                    port = endpoints.get(0).getInteger(PORT);
+                } else if (StringUtils.isNotBlank(host) && port != 0 && !hasEndpoint(host, port)) {
+                    endpoints.add(0, new JsonObject().put(HOST, host).put(PORT, port));
+                }
+            }
+
             if (StringUtils.isNotBlank(host)) {
                 options.setDefaultHost(host);
             } else {
@@ -186,13 +653,51 @@ public class ServiceClient {
             }
 
             options.setTryUseCompression(compression);
-            options.setMaxPoolSize(numConnections);
+            if (perEventLoop) {
+                // each event loop gets its slice of the pool, rounded up so none of them is left without a connection
+                int loops = eventLoops();
+                options.setMaxPoolSize((numConnections + loops - 1) / loops);
+            } else {
+                options.setMaxPoolSize(numConnections);
+            }
             options.setSsl(ssl);
+            if (transport != null) {
+                transport.apply(options, ssl);
+            }
 
             // create the http client;
             HttpClient client = vertx.createHttpClient(options);
 
-            return new ServiceClient(client, apiTimeouts, host, port, timeout, headers);
+            LoadBalancer loadBalancer = null;
+            if (endpoints.size() > 1) {
+                OutlierDetectionOptions detection = outlierDetection != null ? outlierDetection
+                        : new OutlierDetectionOptions();
+                List<Endpoint> replicas = new ArrayList<>();
+                endpoints.forEach(endpoint -> replicas.add(LoadBalancer.endpoint(endpoint.getString(HOST),
+                        endpoint.getInteger(PORT), detection)));
+                loadBalancer = new LoadBalancer(replicas, strategy != null ? strategy
+                        : LoadBalancingStrategy.create(LoadBalancingStrategy.POWER_OF_TWO_CHOICES), detection);
+            }
+
+            return new ServiceClient(this, options, client, loadBalancer);
+        }
+
+        private int eventLoops() {
+            // vertx doesn't expose the size of its event loop pool, the netty group behind it does
+            if (vertx instanceof VertxInternal) {
+                EventLoopGroup group = ((VertxInternal) vertx).getEventLoopGroup();
+                if (group instanceof MultithreadEventLoopGroup) {
+                    return ((MultithreadEventLoopGroup) group).executorCount();
+                }
+            }
+            return VertxOptions.DEFAULT_EVENT_LOOP_POOL_SIZE;
+        }
+
+        private boolean hasEndpoint(String host, int port) {
+            for (JsonObject endpoint : endpoints) {
+                if (host.equals(endpoint.getString(HOST)) && port == endpoint.getInteger(PORT)) { return true; }
+            }
+            return false;
         }
 
         /**
@@ -277,111 +782,555 @@ public class ServiceClient {
         }
 
         /**
-         * Adds the api to the builder
+         * Sets whether the client records per api metrics, see {@link ServiceClient#getMetrics()}.
          *
-         * @param name - api name used for subsequent usage to call api.
-         * @param timeout - timeout in milliseconds. timeout with value 0 means no timeout.
+         * Calls are recorded under the api name set on their {@link ServiceRequest}, the apis are the ones added with
+         * {@link #addApiTimeout(String, long)}.
+         *
+         * @param metrics - metrics enabled?
          * @return - reference to Builder object.
          */
-        public Builder addApiTimeout(String name, long timeout) {
-            if (timeout < 0L) {
-                throw new IllegalArgumentException("Invalid timeout value: " + timeout + " for api: " + name);
-            }
-
-            if (apiTimeouts.containsKey(name)) {
-                throw new IllegalArgumentException("api by name " + name + " already added to builder");
-            }
-
-            apiTimeouts.put(name, timeout);
+        public Builder withMetrics(boolean metrics) {
+            this.metrics = metrics;
             return this;
         }
-    }
-
-    /**
-     * Calls the service api
-     *
-     * @param httpMethod       - HTTP method for the request
-     * @param path             - the absolute URI path
-     * @param payload          - payload sent in the call.
-     * @param timeout          - timeout in millis
-     * @param responseHandler  -  response handler
-     * @param exceptionHandler -  exception handler
-     */
-    public void call(HttpMethod httpMethod, String path, byte[] payload, long timeout, Handler<HttpClientResponse> responseHandler,
-                     Handler<Throwable> exceptionHandler) {
-        HttpClientRequest request = client.request(httpMethod, path, responseHandler)
-                .exceptionHandler(exceptionHandler)
-                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
-                .putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(payload.length))
-                .write(Buffer.buffer(payload))
-                .setTimeout(timeout);
 
-        if (headers != null && headers.size() > 0) {
-            headers.forEach((key, value) -> request.putHeader(key, value));
+        /**
+         * Sets a circuit breaker on every api of the client, see {@link CircuitBreaker}.
+         *
+         * @param options - the breaker configuration, null for no breakers.
+         * @return - reference to Builder object.
+         */
+        public Builder withCircuitBreaker(CircuitBreakerOptions options) {
+            this.breakerOptions = options;
+            return this;
         }
 
-        request.end();
-    }
+        /**
+         * Sets an adaptive limit on the calls the client has in flight, see {@link ConcurrencyLimiter}.
+         *
+         * @param options - the limiter configuration, null for no limit.
+         * @return - reference to Builder object.
+         */
+        public Builder withConcurrencyLimit(ConcurrencyLimitOptions options) {
+            this.limitOptions = options;
+            return this;
+        }
 
-    /**
-     * Calls the service api
-     *
-     * @param httpMethod       - HTTP method for the request
-     * @param path             - the absolute URI path
-     * @param serviceRequest   - service request object
-     * @param responseHandler  -  response handler
-     * @param exceptionHandler -  exception handler
-     */
-    public void call(HttpMethod httpMethod, String path, ServiceRequest serviceRequest, Handler<HttpClientResponse> responseHandler,
-                     Handler<Throwable> exceptionHandler) {
+        /**
+         * Sets a queue in front of the connections, so calls wait in order of priority and are shed once they have
+         * waited too long, see {@link RequestQueue}.
+         *
+         * @param options - the queue configuration, null for no queue.
+         * @return - reference to Builder object.
+         */
+        public Builder withRequestQueue(RequestQueueOptions options) {
+            this.queueOptions = options;
+            return this;
+        }
 
-        HttpClientRequest request = client.request(httpMethod, path, responseHandler)
-                .exceptionHandler(exceptionHandler)
-                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
-                .putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(
-                        serviceRequest.hasPayload() ? serviceRequest.getPayload().length : EMPTY_REQUEST.length()));
+        /**
+         * Adds an endpoint to spread calls over. With more than one endpoint, counting the host and port if they are
+         * set, calls are load balanced across them. The connection pool size applies to each endpoint.
+         *
+         * @param host - hostname of the endpoint.
+         * @param port - port of the endpoint.
+         * @return - reference to Builder object.
+         */
+        public Builder addEndpoint(String host, int port) {
+            if (StringUtils.isBlank(host) || port < 1) {
+                throw new IllegalArgumentException("Invalid endpoint: " + host + ":" + port);
+            }
 
+            if (hasEndpoint(host, port)) {
+                throw new IllegalArgumentException("endpoint " + host + ":" + port + " already added to builder");
+            }
 
-        if (serviceRequest.hasTimeout()) {
-            request.setTimeout(serviceRequest.getTimeout());
+            endpoints.add(new JsonObject().put(HOST, host).put(PORT, port));
+            return this;
         }
 
-        if (headers != null && headers.size() > 0) {
-            headers.forEach((key, value) -> request.putHeader(key, value));
+        /**
+         * Sets how calls are spread over the endpoints, power of two choices by default.
+         *
+         * @param strategy - the load balancing strategy.
+         * @return - reference to Builder object.
+         */
+        public Builder withLoadBalancing(LoadBalancingStrategy strategy) {
+            this.strategy = strategy;
+            return this;
         }
 
-        if (serviceRequest.hasHeaders()) {
-            serviceRequest.getHeaders().forEach((key, value) -> request.putHeader(key, value));
+        /**
+         * Sets when endpoints are ejected for failing and how they are brought back.
+         *
+         * @param options - the outlier detection configuration.
+         * @return - reference to Builder object.
+         */
+        public Builder withOutlierDetection(OutlierDetectionOptions options) {
+            this.outlierDetection = options;
+            return this;
         }
 
-        request.end();
-    }
+        /**
+         * Sets the largest response body the calls that decode the response for the caller will read, larger ones
+         * fail with a {@link ResponseTooLargeException}.
+         *
+         * @param maxResponseSize - the limit in bytes, defaults to 10MB.
+         * @return - reference to Builder object.
+         */
+        public Builder withMaxResponseSize(int maxResponseSize) {
+            if (maxResponseSize < 1) {
+                throw new IllegalArgumentException("Invalid max response size: " + maxResponseSize);
+            }
+            this.maxResponseSize = maxResponseSize;
+            return this;
+        }
 
-    /**
-     * Calls the service api
-     *
-     * @param httpMethod       - HTTP method for the request
-     * @param path             - the absolute URI path
-     * @param payload          - payload sent in the call.
-     * @param responseHandler  -  response handler
-     * @param exceptionHandler -  exception handler
-     */
-    public void call(HttpMethod httpMethod, String path, byte[] payload, Handler<HttpClientResponse> responseHandler,
-                     Handler<Throwable> exceptionHandler) {
-        HttpClientRequest request = client.request(httpMethod, path, responseHandler)
-                .exceptionHandler(exceptionHandler)
-                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
-                .putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(payload.length))
-                .write(Buffer.buffer(payload));
+        /**
+         * Sets the protocol and connection settings, see {@link TransportOptions} for the presets.
+         *
+         * @param options - the transport configuration, null for the Vert.x defaults.
+         * @return - reference to Builder object.
+         */
+        public Builder withTransport(TransportOptions options) {
+            this.transport = options;
+            return this;
+        }
 
-        if (headers != null && headers.size() > 0) {
-            headers.forEach((key, value) -> request.putHeader(key, value));
+        /**
+         * Sets whether every event loop the client is called from gets an http client of its own, with its slice
+         * of the connections, shared by the contexts on the loop. A warm up opens each loop's share. A call then
+         * always stays on the event loop it was made from, rather than hopping to the loop of whichever verticle
+         * opened the connection it is given, and loops don't contend for one pool. Calls from outside an event loop
+         * use a client shared between them.
+         *
+         * @param perEventLoop - true for a client per event loop context.
+         * @return - reference to Builder object.
+         */
+        public Builder withPerEventLoop(boolean perEventLoop) {
+            this.perEventLoop = perEventLoop;
+            return this;
         }
 
-        request.end();
-    }
+        /**
+         * Sets the connections to open when the client is built, see {@link ServiceClient#ready()}.
+         *
+         * @param options - the warm up configuration, null for none.
+         * @return - reference to Builder object.
+         */
+        public Builder withWarmUp(WarmUpOptions options) {
+            this.warmUp = options;
+            return this;
+        }
 
-    /**
+        /**
+         * Sets the cache for GET responses, see {@link ResponseCache}. Every GET without a payload goes through it,
+         * whichever call made it. A response served from the cache is still handed over asynchronously on the
+         * caller's context, but it has no request, {@link HttpClientResponse#request()} is null.
+         *
+         * @param options - the cache configuration, null for no cache.
+         * @return - reference to Builder object.
+         */
+        public Builder withResponseCache(ResponseCacheOptions options) {
+            this.cacheOptions = options;
+            return this;
+        }
+
+        /**
+         * Sets whether identical typed GETs share one call while it is in flight, see
+         * {@link ServiceClient#call(HttpMethod, String, ServiceRequest, Class)}.
+         *
+         * @param coalesce - coalesce calls?
+         * @return - reference to Builder object.
+         */
+        public Builder withCoalescing(boolean coalesce) {
+            this.coalesce = coalesce;
+            return this;
+        }
+
+        /**
+         * Adds a request header that has to match for calls to be coalesced, ie one the response depends on like
+         * Authorization or Accept-Language. Calls are always matched on their path and response type.
+         *
+         * @param name - the header name, matched case insensitively.
+         * @return - reference to Builder object.
+         */
+        public Builder addCoalesceHeader(String name) {
+            if (StringUtils.isEmpty(name)) {
+                throw new IllegalArgumentException("Invalid coalesce header: " + name);
+            }
+
+            coalesceHeaders.add(name);
+            return this;
+        }
+
+        /**
+         * Sets the retries of idempotent calls, see {@link RetryPolicy}. Calls are idempotent if their method is,
+         * GET, HEAD, OPTIONS, PUT, DELETE and TRACE, if their api has been marked idempotent or if their
+         * {@link ServiceRequest} says so.
+         *
+         * @param retryPolicy - the retry policy, null for no retries.
+         * @return - reference to Builder object.
+         */
+        public Builder withRetryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Marks an api as safe to retry whatever the method of its calls, ie a POST that dedupes on a request id.
+         *
+         * @param name - api name added with {@link #addApiTimeout(String, long)}.
+         * @return - reference to Builder object.
+         */
+        public Builder markIdempotent(String name) {
+            if (!apiTimeouts.containsKey(name)) {
+                throw new IllegalArgumentException("api by name " + name + " has not been added to builder");
+            }
+
+            idempotentApis.add(name);
+            return this;
+        }
+
+        /**
+         * Sets the priority calls to an api wait in the request queue with, a call can still set its own on its
+         * {@link ServiceRequest}. Calls are normal priority otherwise.
+         *
+         * @param name - api name added with {@link #addApiTimeout(String, long)}.
+         * @param priority - the priority of the api.
+         * @return - reference to Builder object.
+         */
+        public Builder addApiPriority(String name, Priority priority) {
+            if (!apiTimeouts.containsKey(name)) {
+                throw new IllegalArgumentException("api by name " + name + " has not been added to builder");
+            }
+
+            if (priority == null) {
+                throw new IllegalArgumentException("Missing priority for api " + name);
+            }
+
+            apiPriorities.put(name, priority);
+            return this;
+        }
+
+        /**
+         * Adds the api to the builder
+         *
+         * @param name - api name used for subsequent usage to call api.
+         * @param timeout - timeout in milliseconds. timeout with value 0 means no timeout.
+         * @return - reference to Builder object.
+         */
+        public Builder addApiTimeout(String name, long timeout) {
+            if (timeout < 0L) {
+                throw new IllegalArgumentException("Invalid timeout value: " + timeout + " for api: " + name);
+            }
+
+            if (apiTimeouts.containsKey(name)) {
+                throw new IllegalArgumentException("api by name " + name + " already added to builder");
+            }
+
+            apiTimeouts.put(name, timeout);
+            return this;
+        }
+    }
+
+    /**
+     * Calls the service api
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param timeout          - timeout in millis
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, byte[] payload, long timeout, Handler<HttpClientResponse> responseHandler,
+                     Handler<Throwable> exceptionHandler) {
+        call(httpMethod, path, wrap(payload), timeout, responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Calls the service api with a payload that is sent as is, without being copied. It must not be changed until the
+     * response or exception handler has been called.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param timeout          - timeout in millis
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, Buffer payload, long timeout,
+                     Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        send(httpMethod, path, payload, timeout, null, null, null, null, null, null, responseHandler,
+                exceptionHandler);
+    }
+
+    /**
+     * Calls the service api held to a deadline, ie one taken from a promise context with {@link Deadline#fromContext}.
+     * The client's timeout is capped at the time left, which is forwarded downstream, and a call whose deadline has
+     * passed fails with a {@link DeadlineExceededException} without being sent.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param deadline         - the deadline, null for none
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, byte[] payload, Deadline deadline,
+                     Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        call(httpMethod, path, wrap(payload), deadline, responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Calls the service api held to a deadline with a payload that is sent as is, without being copied, see
+     * {@link #call(HttpMethod, String, byte[], Deadline, Handler, Handler)}. It must not be changed until the
+     * response or exception handler has been called.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param deadline         - the deadline, null for none
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, Buffer payload, Deadline deadline,
+                     Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        send(httpMethod, path, payload, timeout, null, deadline, null, null, null, null, responseHandler,
+                exceptionHandler);
+    }
+
+    /**
+     * Calls the service api with a payload that is sent as is, without being copied. It must not be changed until the
+     * response or exception handler has been called, and stays owned by the caller so it is not released.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param timeout          - timeout in millis
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, ByteBuf payload, long timeout,
+                     Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        call(httpMethod, path, Buffer.buffer(payload), timeout, responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Calls the service api
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param serviceRequest   - service request object
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, ServiceRequest serviceRequest, Handler<HttpClientResponse> responseHandler,
+                     Handler<Throwable> exceptionHandler) {
+        send(httpMethod, path, serviceRequest, serviceRequest.getCancellationSignal(), serviceRequest.getDeadline(),
+                responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Calls the service api and decodes the Json body of a 2xx response into the type given. Any other status fails
+     * the future with an {@link HttpStatusException}, a body larger than the client's max response size with a
+     * {@link ResponseTooLargeException} and a body that isn't valid Json for the type with Jackson's exception.
+     * An empty body, ie a 204, completes it with null.
+     *
+     * When the client coalesces calls, a GET without a payload that is identical to one already in flight joins it
+     * rather than being sent. Identical means the same path, response type and coalesce headers. Everyone who joined
+     * gets the same decoded object, so it must be treated as read only. The call is made with the timeout, deadline
+     * and other headers of whoever started it. Cancelling a call that joined another only drops it from the call,
+     * which is cancelled once nobody is left waiting on it.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param serviceRequest   - service request object
+     * @param responseType     - the class to decode the response body into
+     * @param <T>              - the type of the response body
+     * @return the future that gets the decoded body
+     */
+    public <T> Future<T> call(HttpMethod httpMethod, String path, ServiceRequest serviceRequest, Class<T> responseType) {
+        Future<T> future = Future.future();
+        decode(httpMethod, path, serviceRequest, serviceRequest.getCancellationSignal(), serviceRequest.getDeadline(),
+                responseType, future);
+        return future;
+    }
+
+    /**
+     * Calls the service api without a payload and decodes the Json body of a 2xx response into the type given, see
+     * {@link #call(HttpMethod, String, ServiceRequest, Class)}.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param responseType     - the class to decode the response body into
+     * @param <T>              - the type of the response body
+     * @return the future that gets the decoded body
+     */
+    public <T> Future<T> call(HttpMethod httpMethod, String path, Class<T> responseType) {
+        if (flights != null && httpMethod == HttpMethod.GET) {
+            return call(httpMethod, path, new ServiceRequest(), responseType);
+        }
+
+        Future<T> future = Future.future();
+        call(httpMethod, path, EMPTY_PAYLOAD, new ResponseDecoder<>(httpMethod, path, responseType, maxResponseSize,
+                future), future::tryFail);
+        return future;
+    }
+
+    /**
+     * Creates a promise action that calls the service api and decodes the response, see
+     * {@link #call(HttpMethod, String, ServiceRequest, Class)}. The collector is handed the outcome to put in the
+     * promise's context, and the action succeeds if the call did. Unless the request has a cancellation signal of
+     * its own the call is cancelled along with the promise. Likewise unless the request has a deadline of its own the
+     * call is held to the promise's, taken from a {@link JsonObject} context by {@link Deadline#fromContext}.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param serviceRequest   - service request object, used every time the action is executed so it can't be pooled
+     * @param responseType     - the class to decode the response body into
+     * @param collector        - called with the promise's context and the outcome of the call
+     * @param <C>              - the type of the promise's context
+     * @param <T>              - the type of the response body
+     * @return the action to add to a promise
+     */
+    public <C, T> CancellableAction<C> action(HttpMethod httpMethod, String path, ServiceRequest serviceRequest,
+                                              Class<T> responseType, BiConsumer<C, AsyncResult<T>> collector) {
+        if (serviceRequest.isPooled()) {
+            throw new IllegalArgumentException("A pooled request is recycled after its first call");
+        }
+
+        return (context, onResult, signal) -> {
+            Future<T> future = Future.future();
+            future.setHandler(result -> {
+                collector.accept(context, result);
+                onResult.accept(result.succeeded());
+            });
+
+            CancellationSignal callSignal = serviceRequest.getCancellationSignal();
+            if (callSignal == null && signal != CancellationSignal.NONE) {
+                callSignal = signal;
+            }
+            // the request is shared by every execution of the action so the promise's deadline isn't stored on it
+            Deadline deadline = serviceRequest.getDeadline();
+            if (deadline == null && context instanceof JsonObject) {
+                deadline = Deadline.fromContext((JsonObject) context);
+            }
+            decode(httpMethod, path, serviceRequest, callSignal, deadline, responseType, future);
+        };
+    }
+
+    private <T> void decode(HttpMethod httpMethod, String path, ServiceRequest serviceRequest,
+                            CancellationSignal signal, Deadline deadline, Class<T> responseType, Future<T> future) {
+        if (flights != null && httpMethod == HttpMethod.GET && !serviceRequest.hasPayload()) {
+            join(path, serviceRequest, signal, deadline, responseType, future);
+            return;
+        }
+
+        send(httpMethod, path, serviceRequest, signal, deadline,
+                new ResponseDecoder<>(httpMethod, path, responseType, maxResponseSize, future), future::tryFail);
+    }
+
+    /**
+     * Join the flight for an identical call, or start one if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void join(String path, ServiceRequest serviceRequest, CancellationSignal signal, Deadline deadline,
+                          Class<T> responseType, Future<T> future) {
+        String key = coalesceKey(path, serviceRequest, responseType);
+        while (true) {
+            // the key includes the response type, so the flight decodes into the same one
+            Flight<T> flight = (Flight<T>) flights.get(key);
+            if (flight == null) {
+                flight = new Flight<>(key);
+                if (flights.putIfAbsent(key, flight) == null) {
+                    flight.join(future, signal);
+                    flight.start(path, serviceRequest, deadline, responseType);
+                    return;
+                }
+            } else if (flight.join(future, signal)) {
+                if (metrics != null) {
+                    metrics.api(serviceRequest.getApiName()).coalesced();
+                }
+                // only the request that started the flight is sent
+                if (serviceRequest.isPooled()) {
+                    serviceRequest.recycle();
+                }
+                return;
+            }
+            // the flight landed while we were joining it, go round again
+        }
+    }
+
+    private String coalesceKey(String path, ServiceRequest serviceRequest, Class<?> responseType) {
+        StringBuilder key = new StringBuilder(path).append('\n').append(responseType.getName());
+        Map<String, String> requestHeaders = serviceRequest.hasHeaders() ? serviceRequest.getHeaders() : null;
+        for (String name : coalesceHeaders) {
+            key.append('\n');
+            if (requestHeaders == null) { continue; }
+
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey())) {
+                    key.append(header.getValue());
+                    break;
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private void send(HttpMethod httpMethod, String path, ServiceRequest serviceRequest, CancellationSignal signal,
+                      Deadline deadline, Handler<HttpClientResponse> responseHandler,
+                      Handler<Throwable> exceptionHandler) {
+        // the request's own timeout wins over the one configured for the api, which wins over the client default
+        long timeout = serviceRequest.hasTimeout() ? serviceRequest.getTimeout()
+                : serviceRequest.hasApiName() ? getTimeout(serviceRequest.getApiName()) : this.timeout;
+
+        if (serviceRequest.isPooled()) {
+            Recycling recycling = new Recycling(serviceRequest, responseHandler, exceptionHandler);
+            responseHandler = recycling;
+            exceptionHandler = recycling::fail;
+        }
+
+        send(httpMethod, path, serviceRequest.hasPayload() ? serviceRequest.getPayloadBuffer() : EMPTY_PAYLOAD,
+                timeout, serviceRequest.hasHeaders() ? serviceRequest.getHeaders() : null, deadline, signal,
+                serviceRequest.getApiName(), serviceRequest.getIdempotent(), serviceRequest.getPriority(),
+                responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Calls the service api
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, byte[] payload, Handler<HttpClientResponse> responseHandler,
+                     Handler<Throwable> exceptionHandler) {
+        call(httpMethod, path, wrap(payload), responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Calls the service api with a payload that is sent as is, without being copied. It must not be changed until the
+     * response or exception handler has been called.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param payload          - payload sent in the call.
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void call(HttpMethod httpMethod, String path, Buffer payload, Handler<HttpClientResponse> responseHandler,
+                     Handler<Throwable> exceptionHandler) {
+        send(httpMethod, path, payload, timeout, null, null, null, null, null, null, responseHandler,
+                exceptionHandler);
+    }
+
+    /**
      * Calls the service api
      *
      * @param httpMethod       - HTTP method for the request
@@ -391,7 +1340,7 @@ public class ServiceClient {
      */
     public void call(HttpMethod httpMethod, String path, Handler<HttpClientResponse> responseHandler,
                      Handler<Throwable> exceptionHandler) {
-        call(httpMethod, path, EMPTY_REQUEST.getBytes(), responseHandler, exceptionHandler);
+        call(httpMethod, path, EMPTY_PAYLOAD, responseHandler, exceptionHandler);
     }
 
     /**
@@ -405,15 +1354,503 @@ public class ServiceClient {
      */
     public void call(HttpMethod httpMethod, String path, long timeout, Handler<HttpClientResponse> responseHandler,
                      Handler<Throwable> exceptionHandler) {
-        call(httpMethod, path, EMPTY_REQUEST.getBytes(), timeout, responseHandler, exceptionHandler);
+        call(httpMethod, path, EMPTY_PAYLOAD, timeout, responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Wrap a payload without copying it, which Buffer.buffer(byte[]) would.
+     */
+    private static Buffer wrap(byte[] payload) {
+        return Buffer.buffer(Unpooled.wrappedBuffer(payload));
+    }
+
+    /**
+     * Send a request, through the cache if the client has one.
+     */
+    private void send(HttpMethod httpMethod, String path, Buffer payload, long timeout, Map<String, String> requestHeaders,
+                      Deadline deadline, CancellationSignal signal, String apiName, Boolean idempotent,
+                      Priority priority, Handler<HttpClientResponse> responseHandler,
+                      Handler<Throwable> exceptionHandler) {
+        if (cache != null) {
+            if (httpMethod == HttpMethod.GET && payload.length() == 0) {
+                cached(path, timeout, requestHeaders, deadline, signal, apiName, idempotent, priority,
+                        responseHandler, exceptionHandler);
+                return;
+            }
+
+            if (httpMethod == HttpMethod.POST || httpMethod == HttpMethod.PUT || httpMethod == HttpMethod.DELETE
+                    || httpMethod == HttpMethod.PATCH) {
+                // whatever we had for it is about to be out of date
+                cache.invalidate(path);
+            }
+        }
+
+        dispatch(httpMethod, path, payload, timeout, requestHeaders, deadline, signal, apiName, idempotent, priority,
+                responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Serve a GET from the cache if it can be. Otherwise send it, conditionally if there is a cached response to
+     * revalidate, and cache the response if it says it can be.
+     */
+    private void cached(String path, long timeout, Map<String, String> requestHeaders, Deadline deadline,
+                        CancellationSignal signal, String apiName, Boolean idempotent, Priority priority,
+                        Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        CacheEntry entry = null;
+        Buffer cachedBody = null;
+        if (!ResponseCache.bypasses(requestHeaders)) {
+            entry = cache.lookup(path, requestHeaders);
+            // null if it has just been evicted
+            cachedBody = entry != null ? entry.body() : null;
+        }
+
+        if (cachedBody != null) {
+            if (entry.isFresh()) {
+                hit(entry.response(cachedBody, null), responseHandler);
+                return;
+            }
+
+            if (entry.isStaleUsable()) {
+                if (entry.startRevalidation()) {
+                    revalidate(path, timeout, requestHeaders, apiName, entry);
+                }
+                hit(entry.response(cachedBody, null), responseHandler);
+                return;
+            }
+        }
+
+        CacheEntry stale = cachedBody != null && entry.getETag() != null ? entry : null;
+        Map<String, String> headers = requestHeaders;
+        if (stale != null) {
+            headers = requestHeaders == null ? new HashMap<>() : new HashMap<>(requestHeaders);
+            headers.put(HttpHeaders.IF_NONE_MATCH.toString(), stale.getETag());
+        }
+
+        final Buffer staleBody = cachedBody;
+        dispatch(HttpMethod.GET, path, EMPTY_PAYLOAD, timeout, headers, deadline, signal, apiName, idempotent, priority,
+                response -> {
+                    if (stale != null && response.statusCode() == 304) {
+                        cache.revalidated(stale, response);
+                        stale.response(staleBody, response.request()).deliver(responseHandler);
+                    } else {
+                        store(path, requestHeaders, response, responseHandler, exceptionHandler);
+                    }
+                }, exceptionHandler);
+    }
+
+    /**
+     * Serve a response from the cache the way one from the network would arrive, on the caller's context once the
+     * call has returned rather than from inside it.
+     */
+    private void hit(CachedResponse response, Handler<HttpClientResponse> responseHandler) {
+        vertx.getOrCreateContext().runOnContext(aVoid -> response.deliver(responseHandler));
+    }
+
+    /**
+     * Revalidate a stale response in the background, the caller has already been served it.
+     */
+    private void revalidate(String path, long timeout, Map<String, String> requestHeaders, String apiName,
+                            CacheEntry entry) {
+        // the caller is served before this finishes, and a pooled request's headers are reused once it has been
+        Map<String, String> varyHeaders = requestHeaders == null ? null : new HashMap<>(requestHeaders);
+        Map<String, String> headers = requestHeaders == null ? new HashMap<>() : new HashMap<>(requestHeaders);
+        if (entry.getETag() != null) {
+            headers.put(HttpHeaders.IF_NONE_MATCH.toString(), entry.getETag());
+        }
+
+        // nobody is waiting on it, so it goes behind everything else
+        dispatch(HttpMethod.GET, path, EMPTY_PAYLOAD, timeout, headers, null, null, apiName, null, Priority.LOW,
+                response -> {
+                    if (response.statusCode() == 304) {
+                        cache.revalidated(entry, response);
+                        entry.finishRevalidation();
+                    } else {
+                        store(path, varyHeaders, response, ignored -> entry.finishRevalidation(),
+                                error -> entry.finishRevalidation());
+                    }
+                }, error -> entry.finishRevalidation());
+    }
+
+    /**
+     * Hand a response on, reading it into the cache first if it can be cached.
+     */
+    private void store(String path, Map<String, String> requestHeaders, HttpClientResponse response,
+                       Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        if (!cache.isCacheable(requestHeaders, response)) {
+            if (response.statusCode() == 200) {
+                // the service has changed its mind about caching it
+                cache.invalidate(path);
+            }
+            responseHandler.handle(response);
+            return;
+        }
+
+        response.exceptionHandler(exceptionHandler);
+        response.bodyHandler(body -> {
+            CacheEntry entry = cache.store(path, requestHeaders, response, body);
+            Buffer cachedBody = entry.body();
+            entry.response(cachedBody != null ? cachedBody : body, response.request()).deliver(responseHandler);
+        });
+    }
+
+    /**
+     * Send a request, retrying it if it is idempotent and the client has retries.
+     */
+    private void dispatch(HttpMethod httpMethod, String path, Buffer payload, long timeout,
+                          Map<String, String> requestHeaders, Deadline deadline, CancellationSignal signal,
+                          String apiName, Boolean idempotent, Priority priority,
+                          Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        if (retryPolicy != null) {
+            // every call earns a share of a retry, whether or not it could be retried itself
+            retryBudget.deposit();
+            if (idempotent != null ? idempotent : isIdempotent(httpMethod, apiName)) {
+                new Retry(httpMethod, path, payload, timeout, requestHeaders, deadline, signal, apiName, priority,
+                        responseHandler, exceptionHandler).attempt();
+                return;
+            }
+        }
+
+        attempt(httpMethod, path, payload, null, timeout, requestHeaders, deadline, signal, apiName, priority, false,
+                responseHandler, exceptionHandler);
+    }
+
+    private boolean isIdempotent(HttpMethod httpMethod, String apiName) {
+        switch (httpMethod) {
+            case GET:
+            case HEAD:
+            case OPTIONS:
+            case PUT:
+            case DELETE:
+            case TRACE:
+                return true;
+            default:
+                return apiName != null && idempotentApis.contains(apiName);
+        }
+    }
+
+    /**
+     * Calls the service api with a body that is streamed to it chunked, as the body produces it. The body is paused
+     * until the request is sent, so nothing it produces while the call waits for a connection is lost, and whenever
+     * the connection can't keep up after that, so it is never held in memory. A call with a streamed body is never
+     * retried, the body can't be replayed.
+     *
+     * The timeout covers the call up to the response headers arriving, and then how long the response body can go
+     * without any of it arriving. Use {@link #pipe(HttpClientResponse, WriteStream, Handler)} to stream the response
+     * body on.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param body             - the stream of the body sent in the call.
+     * @param timeout          - timeout in millis
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void stream(HttpMethod httpMethod, String path, ReadStream<Buffer> body, long timeout,
+                       Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        if (body == null) {
+            throw new IllegalArgumentException("A streamed call needs a body to stream");
+        }
+
+        // held until it has somewhere to go, it is resumed once the request is sent
+        body.pause();
+        attempt(httpMethod, path, null, body, timeout, null, null, null, null, null, false, responseHandler,
+                exceptionHandler);
+    }
+
+    /**
+     * Calls the service api with a body that is streamed to it, see
+     * {@link #stream(HttpMethod, String, ReadStream, long, Handler, Handler)}. The payload of the service request is
+     * ignored, everything else about it applies.
+     *
+     * @param httpMethod       - HTTP method for the request
+     * @param path             - the absolute URI path
+     * @param body             - the stream of the body sent in the call.
+     * @param serviceRequest   - service request object
+     * @param responseHandler  -  response handler
+     * @param exceptionHandler -  exception handler
+     */
+    public void stream(HttpMethod httpMethod, String path, ReadStream<Buffer> body, ServiceRequest serviceRequest,
+                       Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        if (body == null) {
+            throw new IllegalArgumentException("A streamed call needs a body to stream");
+        }
+
+        long timeout = serviceRequest.hasTimeout() ? serviceRequest.getTimeout()
+                : serviceRequest.hasApiName() ? getTimeout(serviceRequest.getApiName()) : this.timeout;
+
+        if (serviceRequest.isPooled()) {
+            Recycling recycling = new Recycling(serviceRequest, responseHandler, exceptionHandler);
+            responseHandler = recycling;
+            exceptionHandler = recycling::fail;
+        }
+
+        body.pause();
+        attempt(httpMethod, path, null, body, timeout, serviceRequest.hasHeaders() ? serviceRequest.getHeaders() : null,
+                serviceRequest.getDeadline(), serviceRequest.getCancellationSignal(), serviceRequest.getApiName(),
+                serviceRequest.getPriority(), false, responseHandler, exceptionHandler);
+    }
+
+    /**
+     * Streams the body of a response into a destination, ie a server response or a file, without buffering it. The
+     * response is paused while the destination's write queue is full. The destination is ended once the whole body
+     * has been written to it.
+     *
+     * @param response          - the response to stream the body of, from a response handler
+     * @param destination       - where to write the body
+     * @param completionHandler - called once the body has been written or streaming it failed, may be null
+     */
+    public static void pipe(HttpClientResponse response, WriteStream<Buffer> destination,
+                            Handler<AsyncResult<Void>> completionHandler) {
+        Pump pump = Pump.pump(response, destination);
+        response.exceptionHandler(throwable -> {
+            pump.stop();
+            if (completionHandler != null) {
+                completionHandler.handle(Future.failedFuture(throwable));
+            }
+        });
+        response.endHandler(aVoid -> {
+            destination.end();
+            if (completionHandler != null) {
+                completionHandler.handle(Future.succeededFuture());
+            }
+        });
+        pump.start();
+    }
+
+    /**
+     * Build and send a request, tracking its timeout, cancellation and metrics on an {@link Exchange} when it has any
+     * of them. The request has either a payload or a body to stream. With a request queue the request first waits for
+     * its turn, then comes back through here admitted, holding its place until the exchange finishes.
+     */
+    private void attempt(HttpMethod httpMethod, String path, Buffer payload, ReadStream<Buffer> body, long timeout,
+                         Map<String, String> requestHeaders, Deadline deadline, CancellationSignal signal,
+                         String apiName, Priority priority, boolean admitted,
+                         Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+        ApiMetrics api = metrics != null ? metrics.api(apiName) : null;
+
+        if (closed) {
+            refuse(api, admitted, new RejectedExecutionException("ServiceClient for host " + host + " is closed"),
+                    exceptionHandler);
+            return;
+        }
+
+        if (signal != null && signal.isCancelled()) {
+            // nobody wants the result, don't even take a connection
+            refuse(api, admitted, new CancellationException("request cancelled before it was sent"), exceptionHandler);
+            return;
+        }
+
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                refuse(api, admitted, new DeadlineExceededException("Deadline exceeded before " + httpMethod + " "
+                        + path + " was sent to host " + host), exceptionHandler);
+                return;
+            }
+            // never wait longer than the caller will
+            timeout = Math.max(1L, deadline.cap(timeout));
+        }
+
+        if (queue != null && !admitted) {
+            enqueue(httpMethod, path, payload, body, timeout, requestHeaders, deadline, signal, apiName, priority, api,
+                    responseHandler, exceptionHandler);
+            return;
+        }
+
+        // the endpoint comes first, with a load balancer it has breakers of its own
+        Endpoint endpoint = loadBalancer != null ? loadBalancer.select() : null;
+
+        // fail fast rather than queue behind a service that isn't coping
+        CircuitBreaker breaker = endpoint != null ? getCircuitBreaker(apiName, endpoint) : getCircuitBreaker(apiName);
+        if (breaker != null && !breaker.tryAcquire()) {
+            if (endpoint != null) { loadBalancer.release(endpoint); }
+            refuse(api, admitted, new CircuitBreakerOpenException("Circuit breaker open for api " + breaker.getName()
+                    + " on host " + (endpoint != null ? endpoint : host)), exceptionHandler);
+            return;
+        }
+
+        if (limiter != null && !limiter.tryAcquire()) {
+            if (breaker != null) { breaker.release(); }
+            if (endpoint != null) { loadBalancer.release(endpoint); }
+            refuse(api, admitted, new ConcurrencyLimitExceededException("Concurrency limit of " + limiter.getLimit()
+                    + " reached for host " + host), exceptionHandler);
+            return;
+        }
+
+        // on an event loop the timeout goes on its timer wheel rather than a vertx timer per request
+        TimerWheel wheel = timeout > NO_TIMEOUT ? TimerWheel.current() : null;
+        Exchange exchange = null;
+        // with a timeout the exchange keeps timing the response body once the headers are in
+        if (signal != null || timeout > NO_TIMEOUT || api != null || breaker != null || limiter != null
+                || endpoint != null || body != null || admitted) {
+            exchange = new Exchange(httpMethod, path, timeout, signal, api, breaker, endpoint, admitted,
+                    responseHandler, exceptionHandler);
+            responseHandler = exchange::onResponse;
+            exceptionHandler = exchange::onException;
+        }
+
+        HttpClient client = httpClient();
+        HttpClientRequest request;
+        try {
+            request = endpoint == null ? client.request(httpMethod, path, responseHandler)
+                    : client.request(httpMethod, endpoint.getPort(), endpoint.getHost(), path, responseHandler);
+        } catch (IllegalStateException ex) {
+            // closed since the check above, the exchange gives back what was taken for the call
+            exceptionHandler.handle(ex);
+            return;
+        }
+        request.exceptionHandler(exceptionHandler);
+
+        if (body != null) {
+            request.setChunked(true).putHeader(HttpHeaders.CONTENT_TYPE, STREAM_CONTENT_TYPE);
+        } else {
+            int length = payload.length();
+            request.putHeader(HttpHeaders.CONTENT_TYPE, JSON_CONTENT_TYPE).putHeader(HttpHeaders.CONTENT_LENGTH,
+                    length == 0 ? NO_CONTENT_LENGTH : String.valueOf(length));
+        }
+
+        if (headers != null) {
+            for (int pos = 0; pos < headers.length; pos += 2) {
+                request.putHeader(headers[pos], headers[pos + 1]);
+            }
+        }
+
+        if (requestHeaders != null) {
+            requestHeaders.forEach((key, value) -> request.putHeader(key, value));
+        }
+
+        if (deadline != null) {
+            // let the next hop know how long it has
+            request.putHeader(REQUEST_TIMEOUT, String.valueOf(timeout));
+        }
+
+        if (timeout > NO_TIMEOUT && wheel == null) {
+            request.setTimeout(timeout);
+        }
+
+        if (body != null) {
+            if (api != null) { api.sent(0L); }
+            // vertx queues writes without ever reporting its write queue as full until the pool hands over a
+            // connection, so the body has to wait for one before it starts flowing
+            final Exchange upload = exchange;
+            final long queued = System.nanoTime();
+            request.sendHead(version -> {
+                if (api != null) { api.connected(System.nanoTime() - queued); }
+                upload.stream(body);
+            });
+        } else if (api != null) {
+            api.sent(payload.length());
+            // the head is only written once the pool hands over a connection, so this is the time spent queued for
+            // one. Vertx skips the head callback when the request has already ended by then, so end it from there.
+            final long queued = System.nanoTime();
+            request.sendHead(version -> {
+                api.connected(System.nanoTime() - queued);
+                request.end(payload);
+            });
+        } else {
+            request.end(payload);
+        }
+
+        if (exchange != null) {
+            exchange.watch(request, wheel);
+        }
+    }
+
+    /**
+     * Wait for a place in the request queue, then send the request with what is left of its timeout.
+     */
+    private void enqueue(HttpMethod httpMethod, String path, Buffer payload, ReadStream<Buffer> body, long timeout,
+                         Map<String, String> requestHeaders, Deadline deadline, CancellationSignal signal,
+                         String apiName, Priority priority, ApiMetrics api, Handler<HttpClientResponse> responseHandler,
+                         Handler<Throwable> exceptionHandler) {
+        long queuedAt = System.nanoTime();
+        queue.submit(priority != null ? priority : getPriority(apiName), deadline, timeout, signal, aVoid -> {
+            // the time spent waiting comes out of the timeout
+            long remaining = timeout;
+            if (timeout > NO_TIMEOUT) {
+                remaining = timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt);
+                if (remaining < 1L) {
+                    refuse(api, true, new TimeoutException("The timeout period of " + timeout
+                            + "ms has been exceeded while " + httpMethod + " " + path + " for host " + host
+                            + " was queued"), exceptionHandler);
+                    return;
+                }
+            }
+            attempt(httpMethod, path, payload, body, remaining, requestHeaders, deadline, signal, apiName, priority,
+                    true, responseHandler, exceptionHandler);
+        }, cause -> reject(api, cause, exceptionHandler));
+    }
+
+    /**
+     * Reject a request that may already have been let through the queue, giving its place back.
+     */
+    private void refuse(ApiMetrics api, boolean admitted, Throwable cause, Handler<Throwable> exceptionHandler) {
+        if (admitted) { queue.release(); }
+        reject(api, cause, exceptionHandler);
+    }
+
+    private static void reject(ApiMetrics api, Throwable cause, Handler<Throwable> exceptionHandler) {
+        if (api != null) {
+            api.rejected(cause);
+        }
+        exceptionHandler.handle(cause);
     }
 
     /**
      * Close the client. Closing will close down any pooled connections.
-     * Clients should always be closed after use.
+     * Clients should always be closed after use. Calls waiting in the request queue, and any made from now on, fail
+     * with a {@link RejectedExecutionException}.
      */
     public void close() {
+        closed = true;
+        if (queue != null) {
+            queue.close();
+        }
+
         client.close();
+        if (loopClients != null) {
+            for (Map.Entry<EventLoop, HttpClient> loopClient : loopClients.entrySet()) {
+                if (loopClients.remove(loopClient.getKey(), loopClient.getValue())) {
+                    try {
+                        loopClient.getValue().close();
+                    } catch (IllegalStateException ex) {
+                        // its context is closing and got to it first
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the http client for the context we are on. With per event loop clients the first context on each event loop
+     * to make a call creates the client of the loop, so the connections it opens belong to the loop. Every context on
+     * the loop shares it, which keeps the clients to one per loop and the connections to the pool size. If the context
+     * that created it closes, so does the client, and the next call from the loop creates another.
+     */
+    private HttpClient httpClient() {
+        // a closed client fails the request rather than a new one being made for it
+        if (loopClients == null || closed) { return client; }
+
+        Context context = Vertx.currentContext();
+        if (context == null || !context.isEventLoopContext()) { return client; }
+
+        // only the loop itself adds its client, so there is no race to create it
+        EventLoop loop = ((ContextImpl) context).nettyEventLoop();
+        HttpClient loopClient = loopClients.get(loop);
+        if (loopClient == null) {
+            HttpClient created = vertx.createHttpClient(new HttpClientOptions(loopOptions));
+            loopClients.put(loop, created);
+            // vertx closes a client along with the context it was created on, forget it when that happens
+            context.addCloseHook(completion -> {
+                loopClients.remove(loop, created);
+                completion.handle(Future.succeededFuture());
+            });
+            if (closed && loopClients.remove(loop, created)) {
+                // close went over the clients before this one was added
+                created.close();
+            }
+            loopClient = created;
+        }
+        return loopClient;
     }
 
     /**
@@ -428,8 +1865,514 @@ public class ServiceClient {
         return timeout == null ? this.timeout : timeout;
     }
 
-}
+    /**
+     * The attempts of an idempotent call. Each attempt is a request of its own with what is left of the call's
+     * timeout. A failure that the policy says is worth retrying is retried after a jittered backoff, provided there
+     * are attempts left, the budget allows it and the backoff plus another attempt still fits in the time left.
+     * Otherwise the last outcome goes to the caller.
+     */
+    private class Retry {
+        private final HttpMethod method;
+        private final String path;
+        private final Buffer payload;
+        private final long timeout;
+        private final Map<String, String> requestHeaders;
+        private final Deadline deadline;
+        private final CancellationSignal signal;
+        private final String apiName;
+        private final Priority priority;
+        private final Handler<HttpClientResponse> responseHandler;
+        private final Handler<Throwable> exceptionHandler;
+        private final long start = System.nanoTime();
+        private int attempts;
+
+        Retry(HttpMethod method, String path, Buffer payload, long timeout, Map<String, String> requestHeaders,
+              Deadline deadline, CancellationSignal signal, String apiName, Priority priority,
+              Handler<HttpClientResponse> responseHandler, Handler<Throwable> exceptionHandler) {
+            this.method = method;
+            this.path = path;
+            this.payload = payload;
+            this.timeout = timeout;
+            this.requestHeaders = requestHeaders;
+            this.deadline = deadline;
+            this.signal = signal;
+            this.apiName = apiName;
+            this.priority = priority;
+            this.responseHandler = responseHandler;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+        void attempt() {
+            attempts++;
+            long remaining = timeout;
+            if (timeout > NO_TIMEOUT) {
+                remaining = timeout - elapsed();
+                if (remaining < 1L) {
+                    // the backoff timer fired late and there is nothing left
+                    exceptionHandler.handle(new TimeoutException("The timeout period of " + timeout
+                            + "ms has been exceeded while executing " + method + " " + path + " for host " + host));
+                    return;
+                }
+            }
+
+            ServiceClient.this.attempt(method, path, payload, null, remaining, requestHeaders, deadline, signal, apiName,
+                    priority, false, this::onResponse, this::onException);
+        }
+
+        void onResponse(HttpClientResponse response) {
+            if (!retryPolicy.isRetryable(response.statusCode()) || !retry()) {
+                responseHandler.handle(response);
+            }
+        }
+
+        void onException(Throwable cause) {
+            if (!retryPolicy.isRetryable(cause) || !retry()) {
+                exceptionHandler.handle(cause);
+            }
+        }
+
+        private boolean retry() {
+            if (attempts >= retryPolicy.getMaxAttempts() || (signal != null && signal.isCancelled())) { return false; }
+
+            long backoff = Math.max(1L, retryPolicy.backoff(attempts));
+            // there has to be time for the next attempt after the backoff
+            if (timeout > NO_TIMEOUT && elapsed() + backoff >= timeout) { return false; }
+            if (deadline != null && deadline.remaining() <= backoff) { return false; }
+            if (!retryBudget.tryWithdraw()) { return false; }
+
+            if (metrics != null) {
+                metrics.api(apiName).retried();
+            }
+            vertx.setTimer(backoff, theTimerId -> attempt());
+            return true;
+        }
+
+        private long elapsed() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gives a pooled request back once its call is over. Retries, the request queue and the response cache all read
+     * the request until then, and the handler runs first so it can still look at it.
+     */
+    private static class Recycling implements Handler<HttpClientResponse> {
+        private final ServiceRequest serviceRequest;
+        private final Handler<HttpClientResponse> responseHandler;
+        private final Handler<Throwable> exceptionHandler;
+        private boolean recycled;
+
+        Recycling(ServiceRequest serviceRequest, Handler<HttpClientResponse> responseHandler,
+                  Handler<Throwable> exceptionHandler) {
+            this.serviceRequest = serviceRequest;
+            this.responseHandler = responseHandler;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+        @Override
+        public void handle(HttpClientResponse response) {
+            try {
+                responseHandler.handle(response);
+            } finally {
+                recycle();
+            }
+        }
+
+        void fail(Throwable cause) {
+            try {
+                exceptionHandler.handle(cause);
+            } finally {
+                recycle();
+            }
+        }
+
+        private void recycle() {
+            // vertx can report a failure after the response, the request only goes back once
+            if (recycled) { return; }
+
+            recycled = true;
+            serviceRequest.recycle();
+        }
+    }
+
+    /**
+     * The circuit breakers of a host, one per api plus one for the default.
+     */
+    private static class Breakers {
+        private final Map<String, CircuitBreaker> apis = new HashMap<>();
+        private final CircuitBreaker fallback;
+
+        Breakers(Set<String> apiNames, CircuitBreakerOptions options) {
+            fallback = new CircuitBreaker(ServiceClientMetrics.DEFAULT_API, options);
+            apiNames.forEach(name -> apis.put(name, new CircuitBreaker(name, options)));
+        }
+
+        CircuitBreaker get(String apiName) {
+            CircuitBreaker breaker = apiName == null ? null : apis.get(apiName);
+            return breaker == null ? fallback : breaker;
+        }
+    }
+
+    /**
+     * A typed GET shared by every identical call made while it is in flight. It is made under a cancellation signal
+     * of its own, since no single caller gets to cancel it for the others. Each caller is handed the outcome on the
+     * context it called from.
+     */
+    private class Flight<T> {
+        private final String key;
+        private final CancellationSignal signal = new CancellationSignal();
+        private final List<Waiter> waiters = new ArrayList<>(2);
+        private boolean landed;
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        void start(String path, ServiceRequest serviceRequest, Deadline deadline, Class<T> responseType) {
+            Future<T> result = Future.future();
+            result.setHandler(this::land);
+            send(HttpMethod.GET, path, serviceRequest, signal, deadline,
+                    new ResponseDecoder<>(HttpMethod.GET, path, responseType, maxResponseSize, result),
+                    result::tryFail);
+        }
+
+        /**
+         * @return false if the flight has already landed, true otherwise
+         */
+        boolean join(Future<T> future, CancellationSignal callerSignal) {
+            Waiter waiter = new Waiter(future, callerSignal);
+            synchronized (this) {
+                if (landed) { return false; }
+                waiters.add(waiter);
+            }
+
+            if (callerSignal != null) {
+                callerSignal.onCancel(waiter);
+            }
+            return true;
+        }
+
+        private void leave(Waiter waiter) {
+            boolean abandoned;
+            synchronized (this) {
+                if (landed || !waiters.remove(waiter)) { return; }
+                abandoned = waiters.isEmpty();
+            }
+
+            waiter.deliver(Future.failedFuture(new CancellationException("request cancelled")));
+            if (abandoned) {
+                signal.cancel();
+            }
+        }
+
+        private void land(AsyncResult<T> result) {
+            List<Waiter> landing;
+            synchronized (this) {
+                landed = true;
+                landing = new ArrayList<>(waiters);
+                waiters.clear();
+            }
+
+            // calls from now on need a new flight
+            flights.remove(key, this);
+            for (Waiter waiter : landing) {
+                if (waiter.callerSignal != null) {
+                    waiter.callerSignal.remove(waiter);
+                }
+                waiter.deliver(result);
+            }
+        }
+
+        private class Waiter implements Action {
+            private final Future<T> future;
+            private final CancellationSignal callerSignal;
+            private final Context context = Vertx.currentContext();
+
+            Waiter(Future<T> future, CancellationSignal callerSignal) {
+                this.future = future;
+                this.callerSignal = callerSignal;
+            }
+
+            @Override
+            public void callback() {
+                leave(this);
+            }
 
+            void deliver(AsyncResult<T> result) {
+                if (context == null || Vertx.currentContext() == context) {
+                    complete(result);
+                } else {
+                    context.runOnContext(aVoid -> complete(result));
+                }
+            }
+
+            private void complete(AsyncResult<T> result) {
+                if (result.succeeded()) {
+                    future.tryComplete(result.result());
+                } else {
+                    future.tryFail(result.cause());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tracks a request that has a timeout or a cancellation signal. Timing out or cancelling resets the request and
+     * closes its connection, which gives the slot back to the pool for a fresh connection rather than holding it until
+     * the response finally shows up, and reports the error to the exception handler. A connection shared with other
+     * calls, multiplexed or pipelined, is left open for them. Once the response or an error
+     * arrives the request is unhooked from both. The timeout then carries on over the response body as a
+     * {@link TimedResponse}, which tears the response down if the body stops arriving and tells the response's
+     * exception handler, wherever the call was made from.
+     *
+     * It also records the outcome of the request in the metrics, circuit breaker and concurrency limiter of the
+     * client when it has them, and pumps the body of a streamed request.
+     */
+    private class Exchange extends TimerWheel.Timeout implements Action, TimedResponse.Listener {
+        private final HttpMethod method;
+        private final String path;
+        private final long timeout;
+        private final CancellationSignal signal;
+        private final ApiMetrics api;
+        private final CircuitBreaker breaker;
+        private final Endpoint endpoint;
+        // holds a place let through the request queue
+        private final boolean queued;
+        private final long start = System.nanoTime();
+        private final Handler<HttpClientResponse> responseHandler;
+        private final Handler<Throwable> exceptionHandler;
+        private final Context context = Vertx.currentContext();
+        private HttpClientRequest request;
+        private ReadStream<Buffer> body;
+        private boolean finished;
+        // only touched on the event loop of the request, like the body
+        private boolean aborted;
+        private boolean bodySent;
+
+        Exchange(HttpMethod method, String path, long timeout, CancellationSignal signal, ApiMetrics api,
+                 CircuitBreaker breaker, Endpoint endpoint, boolean queued, Handler<HttpClientResponse> responseHandler,
+                 Handler<Throwable> exceptionHandler) {
+            this.method = method;
+            this.path = path;
+            this.timeout = timeout;
+            this.signal = signal;
+            this.api = api;
+            this.breaker = breaker;
+            this.endpoint = endpoint;
+            this.queued = queued;
+            this.responseHandler = responseHandler;
+            this.exceptionHandler = exceptionHandler;
+        }
+
+        void watch(HttpClientRequest request, TimerWheel wheel) {
+            synchronized (this) {
+                if (finished) { return; }
+                this.request = request;
+            }
+
+            if (wheel != null) {
+                wheel.schedule(this, timeout);
+            }
+
+            if (signal != null) {
+                signal.onCancel(this);
+            }
+        }
+
+        /**
+         * Pump the body into the request, resuming it now that it has handlers. The body keeps flowing after the
+         * response arrives, a service is free to start answering before it has read everything. If the request is
+         * aborted the body is paused and left as is, it belongs to the caller.
+         */
+        void stream(ReadStream<Buffer> body) {
+            if (aborted) { return; }
+
+            this.body = body;
+            request.drainHandler(aVoid -> {
+                if (!aborted) { body.resume(); }
+            });
+            body.exceptionHandler(cause -> {
+                if (aborted) { return; }
+
+                if (isFinished()) {
+                    // the response is already in, all that is left is to stop sending
+                    aborted = true;
+                    request.reset();
+                } else {
+                    abort(cause);
+                }
+            });
+            body.endHandler(aVoid -> {
+                if (aborted) { return; }
+
+                bodySent = true;
+                request.end();
+            });
+            body.handler(chunk -> {
+                if (aborted) { return; }
+
+                if (api != null) { api.wrote(chunk.length()); }
+                request.write(chunk);
+                if (request.writeQueueFull()) {
+                    body.pause();
+                }
+            });
+            body.resume();
+        }
+
+        void onResponse(HttpClientResponse response) {
+            if (finish()) {
+                int status = response.statusCode();
+                long latency = System.nanoTime() - start;
+                if (api != null) {
+                    api.responded(status, latency);
+                }
+
+                if (breaker != null) {
+                    if (status >= 500) {
+                        breaker.onFailure(latency);
+                    } else {
+                        breaker.onSuccess(latency);
+                    }
+                }
+
+                if (limiter != null) {
+                    // the service telling us it is overloaded
+                    limiter.onSample(latency, status == 429 || status == 503);
+                }
+
+                if (endpoint != null) {
+                    if (status >= 500) {
+                        loadBalancer.failed(endpoint);
+                    } else {
+                        loadBalancer.succeeded(endpoint, latency);
+                    }
+                }
+                // watched to time the body, and to count it for the metrics
+                responseHandler.handle(timeout > NO_TIMEOUT || api != null
+                        ? new TimedResponse(response, vertx, timeout, this) : response);
+            }
+        }
+
+        void onException(Throwable throwable) {
+            if (finish()) {
+                failed(throwable);
+                exceptionHandler.handle(throwable);
+            }
+        }
+
+        private void failed(Throwable cause) {
+            if (api != null) { api.failed(cause); }
+
+            long latency = System.nanoTime() - start;
+            // a cancelled call says nothing about the service
+            boolean cancelled = cause instanceof CancellationException;
+            if (breaker != null) {
+                if (cancelled) {
+                    breaker.release();
+                } else {
+                    breaker.onFailure(latency);
+                }
+            }
+
+            if (limiter != null) {
+                if (cancelled) {
+                    limiter.release();
+                } else {
+                    limiter.onSample(latency, cause instanceof TimeoutException);
+                }
+            }
+
+            if (endpoint != null) {
+                if (cancelled) {
+                    loadBalancer.release(endpoint);
+                } else {
+                    loadBalancer.failed(endpoint);
+                }
+            }
+        }
+
+        @Override
+        protected void expire() {
+            // same as the message vertx uses for its own request timeouts
+            abort(new TimeoutException("The timeout period of " + timeout + "ms has been exceeded while executing "
+                    + method + " " + path + " for host " + (endpoint != null ? endpoint.getHost() : host)));
+        }
+
+        @Override
+        public void callback() {
+            // the signal may be cancelled from anywhere, report it on the event loop the request was made from
+            if (context == null || Vertx.currentContext() == context) {
+                abort(new CancellationException("request cancelled"));
+            } else {
+                context.runOnContext(aVoid -> abort(new CancellationException("request cancelled")));
+            }
+        }
+
+        private void abort(Throwable cause) {
+            if (!finish()) { return; }
+
+            aborted = true;
+            if (body != null) {
+                body.pause();
+            }
+            tearDown(request, false);
+            failed(cause);
+            exceptionHandler.handle(cause);
+        }
 
+        @Override
+        public void bodyRead(long bytes) {
+            if (api != null) { api.received(bytes); }
+        }
 
+        @Override
+        public Throwable bodyTimedOut(HttpClientResponse response) {
+            aborted = true;
+            tearDown(response.request(), true);
+            if (api != null) { api.bodyTimedOut(); }
+            return new TimeoutException("The timeout period of " + timeout + "ms has been exceeded while reading the "
+                    + "response to " + method + " " + path + " from host " + (endpoint != null ? endpoint.getHost()
+                    : host));
+        }
 
+        private void tearDown(HttpClientRequest request, boolean responded) {
+            if (pipelining && !responded && (body == null || bodySent) && request.connection() != null) {
+                // vertx unhooks the last request on the connection rather than this one, which may be a call
+                // pipelined behind it. Left alone, the response arrives and is dropped with the calls behind intact.
+                return;
+            }
+
+            request.reset();
+            // resetting a HTTP/1.1 request that has been fully written only takes effect once its response shows up,
+            // closing the connection is what gives the slot back to the pool now. A HTTP/2 reset frees the stream
+            // straight away and closing would fail every other call multiplexed on the connection. The same goes for
+            // the calls pipelined behind this one, so there the response is left to arrive and be dropped.
+            HttpConnection connection = http2 || pipelining ? null : request.connection();
+            if (connection != null) {
+                connection.close();
+            }
+        }
+
+        private boolean finish() {
+            synchronized (this) {
+                if (finished) { return false; }
+                finished = true;
+            }
+
+            cancel();
+            if (signal != null) {
+                signal.remove(this);
+            }
+
+            if (queued) {
+                queue.release();
+            }
+            return true;
+        }
+
+        private synchronized boolean isFinished() {
+            return finished;
+        }
+    }
+}
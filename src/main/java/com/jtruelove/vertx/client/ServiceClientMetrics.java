@@ -0,0 +1,121 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The metrics of a {@link ServiceClient}, kept per api.
+ *
+ * The apis are the ones registered on the client with a timeout, calls that don't name one of them are recorded
+ * under {@link #DEFAULT_API}. The set of apis is fixed when the client is built so looking one up on a call is a
+ * plain map read.
+ */
+public class ServiceClientMetrics {
+
+    /**
+     * The name calls that don't name a registered api are recorded under.
+     */
+    public static final String DEFAULT_API = "default";
+
+    private final String host;
+    private final int port;
+    private final Map<String, ApiMetrics> apis;
+    private final ApiMetrics defaultApi = new ApiMetrics(DEFAULT_API);
+
+    ServiceClientMetrics(String host, int port, Collection<String> apiNames) {
+        this.host = host;
+        this.port = port;
+        Map<String, ApiMetrics> byName = new LinkedHashMap<>();
+        byName.put(DEFAULT_API, defaultApi);
+        for (String name : apiNames) {
+            byName.put(name, new ApiMetrics(name));
+        }
+        apis = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * Get the metrics of an api.
+     *
+     * @param name the api name, or null for calls that don't name one
+     * @return the metrics of the api, or those of the default api if it isn't registered
+     */
+    public ApiMetrics api(String name) {
+        if (name == null) { return defaultApi; }
+
+        ApiMetrics api = apis.get(name);
+        return api == null ? defaultApi : api;
+    }
+
+    /**
+     * Get the metrics of all the apis.
+     *
+     * @return the api metrics by name
+     */
+    public Map<String, ApiMetrics> apis() {
+        return apis;
+    }
+
+    /**
+     * Get the number of calls in flight across all the apis.
+     *
+     * @return the in flight count
+     */
+    public long getInFlight() {
+        long total = 0;
+        for (ApiMetrics api : apis.values()) {
+            total += api.getInFlight();
+        }
+        return total;
+    }
+
+    /**
+     * Clear out everything recorded so far.
+     */
+    public void reset() {
+        apis.values().forEach(ApiMetrics::reset);
+    }
+
+    /**
+     * Take a snapshot of the metrics.
+     *
+     * @return the metrics as json
+     */
+    public JsonObject toJson() {
+        JsonObject byName = new JsonObject();
+        apis.forEach((name, api) -> byName.put(name, api.toJson()));
+
+        return new JsonObject()
+                .put(ServiceClient.HOST, host)
+                .put(ServiceClient.PORT, port)
+                .put("in_flight", getInFlight())
+                .put(ServiceClient.APIS, byName);
+    }
+
+    /**
+     * Publish a snapshot of the metrics on the event bus.
+     *
+     * @param bus the event bus to publish on
+     * @param address the address to publish to
+     */
+    public void publish(EventBus bus, String address) {
+        bus.publish(address, toJson());
+    }
+
+    /**
+     * Publish a snapshot of the metrics on the event bus periodically.
+     *
+     * @param vertx the vertx instance to publish with
+     * @param address the address to publish to
+     * @param interval the time in milliseconds between snapshots
+     * @return the id of the periodic timer, cancel it to stop publishing
+     */
+    public long publishEvery(Vertx vertx, String address, long interval) {
+        return vertx.setPeriodic(interval, timerId -> publish(vertx.eventBus(), address));
+    }
+}
@@ -1,19 +1,104 @@
 package com.jtruelove.vertx.client;
 
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.web.JsonUtil;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Recycler;
+import io.vertx.core.buffer.Buffer;
+
 import java.util.Map;
 
 /**
  * Abstraction for call request object for {@link ServiceClient}
  *
+ * A request from {@link #pooled()} comes out of a pool kept by each thread, so on an event loop each event loop has
+ * its own. The client gives it back once the call is over, after the response or exception handler has run, and it
+ * must not be touched after that.
+ *
  * @author asarda@cyngn.com (Ajay Sarda) 11/17/15.
  */
 public class ServiceRequest {
 
+    private static final Recycler<ServiceRequest> RECYCLER = new Recycler<ServiceRequest>() {
+        @Override
+        protected ServiceRequest newObject(Handle<ServiceRequest> handle) {
+            return new ServiceRequest(handle);
+        }
+    };
+
+    // null unless the request came from the pool
+    private final Recycler.Handle<ServiceRequest> handle;
+    // kept when the request is reset, so once the pool is warm adding headers doesn't allocate
+    private CompactHeaders compactHeaders;
+
     private byte[] payload;
+    private Buffer payloadBuffer;
     private long timeout = 0L;
     private Map<String, String> headers;
+    private CancellationSignal cancellationSignal;
+    private String apiName;
+    private Deadline deadline;
+    private Boolean idempotent;
+    private Priority priority;
+
+    public ServiceRequest() {
+        handle = null;
+    }
+
+    private ServiceRequest(Recycler.Handle<ServiceRequest> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Gets a request from the pool of the current thread. It is given back once the call it is used for is over, see
+     * {@link #recycle()} for one that ends up not being sent.
+     *
+     * @return - an empty request.
+     */
+    public static ServiceRequest pooled() {
+        return RECYCLER.get();
+    }
+
+    /**
+     * Checks if the request came from the pool.
+     *
+     * @return - true if it came from {@link #pooled()}, false otherwise.
+     */
+    public boolean isPooled() {
+        return handle != null;
+    }
+
+    /**
+     * Clears everything set on the request, keeping the storage of its headers.
+     */
+    public void reset() {
+        payload = null;
+        payloadBuffer = null;
+        timeout = 0L;
+        headers = null;
+        if (compactHeaders != null) {
+            compactHeaders.clear();
+        }
+        cancellationSignal = null;
+        apiName = null;
+        deadline = null;
+        idempotent = null;
+        priority = null;
+    }
 
-    public ServiceRequest() {}
+    /**
+     * Resets a pooled request and gives it back to the pool. The client does this once the call is over, so it is
+     * only needed for a request that is never sent.
+     */
+    public void recycle() {
+        if (handle == null) {
+            throw new IllegalStateException("Only a pooled request can be recycled");
+        }
+        reset();
+        handle.recycle(this);
+    }
 
     /*
      * Using setters to set the state of object.
@@ -25,10 +110,10 @@ public class ServiceRequest {
     /**
      * Gets the payload associated with the request
      *
-     * @return - byte array payload
+     * @return - byte array payload, copied out of the buffer if the payload was set as one
      */
     public byte[] getPayload() {
-        return payload;
+        return payload == null && payloadBuffer != null ? payloadBuffer.getBytes() : payload;
     }
 
     /**
@@ -38,6 +123,51 @@ public class ServiceRequest {
      */
     public void setPayload(byte[] payload) {
         this.payload = payload;
+        this.payloadBuffer = null;
+    }
+
+    /**
+     * Gets the payload associated with the request as a buffer.
+     *
+     * @return - buffer payload, wrapping the byte array without a copy if the payload was set as one
+     */
+    public Buffer getPayloadBuffer() {
+        return payloadBuffer == null && payload != null ? Buffer.buffer(Unpooled.wrappedBuffer(payload)) : payloadBuffer;
+    }
+
+    /**
+     * Sets the payload to be associated with the request, it is sent as is without being copied so it must not be
+     * changed until the request has finished.
+     *
+     * @param payload - buffer
+     */
+    public void setPayload(Buffer payload) {
+        this.payloadBuffer = payload;
+        this.payload = null;
+    }
+
+    /**
+     * Sets the payload to be associated with the request, it is sent as is without being copied so it must not be
+     * changed until the request has finished. The buffer stays owned by the caller, it is not released.
+     *
+     * @param payload - netty buffer
+     */
+    public void setPayload(ByteBuf payload) {
+        setPayload(Buffer.buffer(payload));
+    }
+
+    /**
+     * Sets the payload to be associated with the request to the Json for an object, serialized straight into a
+     * buffer.
+     *
+     * @param object - the object to send as Json.
+     */
+    public void setJsonPayload(Object object) {
+        Buffer json = JsonUtil.getJsonBufferForObject(object);
+        if (json == null) {
+            throw new IllegalArgumentException("Can't serialize " + object.getClass().getName() + " to Json");
+        }
+        setPayload(json);
     }
 
     /**
@@ -76,6 +206,120 @@ public class ServiceRequest {
         this.headers = headers;
     }
 
+    /**
+     * Adds a http header to the request, to the map set with {@link #setHeaders(Map)} if there is one. Otherwise the
+     * headers are kept in a flat array that a pooled request reuses from call to call.
+     *
+     * @param name - header name.
+     * @param value - header value.
+     */
+    public void putHeader(String name, String value) {
+        if (headers == null) {
+            if (compactHeaders == null) {
+                compactHeaders = new CompactHeaders();
+            }
+            headers = compactHeaders;
+        }
+        headers.put(name, value);
+    }
+
+    /**
+     * Gets the signal that aborts the request when cancelled.
+     *
+     * @return - the cancellation signal or null if none is set.
+     */
+    public CancellationSignal getCancellationSignal() {
+        return cancellationSignal;
+    }
+
+    /**
+     * Sets the signal that aborts the request when cancelled, ie the one handed to a promise action. A cancelled
+     * request is reset and its connection closed so the pool can replace it right away, and the exception handler
+     * gets a {@link java.util.concurrent.CancellationException}.
+     *
+     * @param cancellationSignal - the signal to abort the request on.
+     */
+    public void setCancellationSignal(CancellationSignal cancellationSignal) {
+        this.cancellationSignal = cancellationSignal;
+    }
+
+    /**
+     * Gets the name of the api being called.
+     *
+     * @return - the api name or null if none is set.
+     */
+    public String getApiName() {
+        return apiName;
+    }
+
+    /**
+     * Sets the name of the api being called, the timeout configured for it on the client is used when the request
+     * doesn't set one of its own.
+     *
+     * @param apiName - the api name as configured on the client.
+     */
+    public void setApiName(String apiName) {
+        this.apiName = apiName;
+    }
+
+    /**
+     * Gets the deadline the request has to finish by.
+     *
+     * @return - the deadline or null if none is set.
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the deadline the request has to finish by, ie the one from the promise context. The timeout is capped at
+     * the time left, the time left is sent downstream, and the request isn't sent at all once the deadline has
+     * passed.
+     *
+     * @param deadline - the deadline for the request.
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Gets whether the request is safe to retry.
+     *
+     * @return - true or false if set, null to go by the method and api of the request.
+     */
+    public Boolean getIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Sets whether the request is safe to retry, overriding the method and api of the request. Only used when the
+     * client has a retry policy.
+     *
+     * @param idempotent - true if the request can be retried, false if it must never be.
+     */
+    public void setIdempotent(Boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Gets the priority the request waits in the request queue with.
+     *
+     * @return - the priority if set, null to go by the api of the request.
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Sets the priority the request waits in the request queue with, overriding the api of the request. Only used
+     * when the client has a request queue.
+     *
+     * @param priority - the priority of the request.
+     */
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
     /**
      * Checks if the {@link ServiceRequest} has timeout value set
      *
@@ -91,7 +335,7 @@ public class ServiceRequest {
      * @return - true if payload is set, false otherwise.
      */
     public boolean hasPayload() {
-        return payload != null;
+        return payload != null || payloadBuffer != null;
     }
 
     /**
@@ -103,4 +347,49 @@ public class ServiceRequest {
         return headers != null && headers.size() > 0;
     }
 
+    /**
+     * Checks if the {@link ServiceRequest} has a cancellation signal set.
+     *
+     * @return - true if a cancellation signal is set, false otherwise.
+     */
+    public boolean hasCancellationSignal() {
+        return cancellationSignal != null;
+    }
+
+    /**
+     * Checks if the {@link ServiceRequest} has an api name set.
+     *
+     * @return - true if an api name is set, false otherwise.
+     */
+    public boolean hasApiName() {
+        return apiName != null;
+    }
+
+    /**
+     * Checks if the {@link ServiceRequest} has a deadline set.
+     *
+     * @return - true if a deadline is set, false otherwise.
+     */
+    public boolean hasDeadline() {
+        return deadline != null;
+    }
+
+    /**
+     * Checks if the {@link ServiceRequest} has idempotency set.
+     *
+     * @return - true if idempotency is set, false otherwise.
+     */
+    public boolean hasIdempotent() {
+        return idempotent != null;
+    }
+
+    /**
+     * Checks if the {@link ServiceRequest} has a priority set.
+     *
+     * @return - true if a priority is set, false otherwise.
+     */
+    public boolean hasPriority() {
+        return priority != null;
+    }
+
 }
@@ -0,0 +1,259 @@
+package com.jtruelove.vertx.client;
+
+import com.jtruelove.vertx.async.TimerWheel;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpFrame;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.net.NetSocket;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for a response while its body is read, so the timeout of the call keeps covering it once the headers are
+ * in. If none of the body arrives for as long as the timeout the response is torn down and its exception handler is
+ * told, time the reader spends with the response paused doesn't count. Otherwise it behaves just like the response.
+ *
+ * It also counts the bytes of body that actually arrive, which unlike the Content-Length works for chunked and
+ * HTTP/2 responses, and hands the count over once the body is done with. A response without a timeout is only
+ * counted.
+ *
+ * It times the body on the timer wheel of the context the response is delivered on, or a vertx timer if the context
+ * isn't an event loop, and the timer is only ever started from there. The reader can pause and resume it from
+ * wherever its destination drains, ie a file on another context, so that only flips a flag the timer checks.
+ */
+class TimedResponse extends TimerWheel.Timeout implements HttpClientResponse {
+    private static final long NO_TIMER = -1L;
+
+    /**
+     * Told how the body went.
+     */
+    interface Listener {
+        /**
+         * The body has ended, failed, timed out or been taken over as a socket.
+         *
+         * @param bytes the bytes of body received
+         */
+        void bodyRead(long bytes);
+
+        /**
+         * Tear down a response whose body has stopped arriving.
+         *
+         * @param response the response
+         * @return the error to report to the reader of the body
+         */
+        Throwable bodyTimedOut(HttpClientResponse response);
+    }
+
+    private final HttpClientResponse response;
+    private final Vertx vertx;
+    private final TimerWheel wheel;
+    private final long timeout;
+    private final Listener listener;
+    private Handler<Buffer> dataHandler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+    private volatile long lastChunk = System.nanoTime();
+    private long bytes;
+    private volatile long timerId = NO_TIMER;
+    private volatile boolean paused;
+    private volatile boolean over;
+
+    TimedResponse(HttpClientResponse response, Vertx vertx, long timeout, Listener listener) {
+        this.response = response;
+        this.vertx = vertx;
+        this.wheel = TimerWheel.current();
+        this.timeout = timeout;
+        this.listener = listener;
+
+        // watched from the start, whether or not the reader ever sets handlers of its own
+        response.handler(this::chunk);
+        response.endHandler(aVoid -> end());
+        response.exceptionHandler(this::fail);
+        if (timeout > 0) {
+            startTimer(timeout);
+        }
+    }
+
+    private void chunk(Buffer chunk) {
+        lastChunk = System.nanoTime();
+        bytes += chunk.length();
+        if (dataHandler != null) { dataHandler.handle(chunk); }
+    }
+
+    private void end() {
+        if (!finish()) { return; }
+
+        if (endHandler != null) { endHandler.handle(null); }
+    }
+
+    private void fail(Throwable cause) {
+        if (!finish()) { return; }
+
+        if (exceptionHandler != null) { exceptionHandler.handle(cause); }
+    }
+
+    private boolean finish() {
+        if (over) { return false; }
+
+        over = true;
+        stopTimer();
+        listener.bodyRead(bytes);
+        return true;
+    }
+
+    @Override
+    protected void expire() {
+        timerId = NO_TIMER;
+        if (over) { return; }
+
+        if (paused) {
+            // the reader is the hold up, look again later
+            startTimer(timeout);
+            return;
+        }
+
+        long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastChunk);
+        if (idle < timeout) {
+            // some of it came in since the timer was started
+            startTimer(timeout - idle);
+            return;
+        }
+
+        // the teardown can make the response fail on its own, that is ignored in favour of the timeout
+        finish();
+        Throwable cause = listener.bodyTimedOut(response);
+        if (exceptionHandler != null) { exceptionHandler.handle(cause); }
+    }
+
+    private void startTimer(long delay) {
+        if (wheel != null) {
+            wheel.schedule(this, delay);
+        } else {
+            timerId = vertx.setTimer(delay, theTimerId -> expire());
+        }
+    }
+
+    private void stopTimer() {
+        if (wheel != null) {
+            cancel();
+        } else if (timerId != NO_TIMER) {
+            vertx.cancelTimer(timerId);
+            timerId = NO_TIMER;
+        }
+    }
+
+    @Override
+    public HttpClientResponse resume() {
+        if (paused) {
+            // start counting again from now
+            lastChunk = System.nanoTime();
+            paused = false;
+        }
+        response.resume();
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse exceptionHandler(Handler<Throwable> handler) {
+        exceptionHandler = handler;
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse handler(Handler<Buffer> handler) {
+        dataHandler = handler;
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse pause() {
+        paused = true;
+        response.pause();
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    @Override
+    public HttpVersion version() {
+        return response.version();
+    }
+
+    @Override
+    public int statusCode() {
+        return response.statusCode();
+    }
+
+    @Override
+    public String statusMessage() {
+        return response.statusMessage();
+    }
+
+    @Override
+    public MultiMap headers() {
+        return response.headers();
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+        return response.getHeader(headerName);
+    }
+
+    @Override
+    public String getHeader(CharSequence headerName) {
+        return response.getHeader(headerName);
+    }
+
+    @Override
+    public String getTrailer(String trailerName) {
+        return response.getTrailer(trailerName);
+    }
+
+    @Override
+    public MultiMap trailers() {
+        return response.trailers();
+    }
+
+    @Override
+    public List<String> cookies() {
+        return response.cookies();
+    }
+
+    @Override
+    public HttpClientResponse bodyHandler(Handler<Buffer> bodyHandler) {
+        if (bodyHandler != null) {
+            Buffer body = Buffer.buffer();
+            handler(body::appendBuffer);
+            endHandler(aVoid -> bodyHandler.handle(body));
+        }
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse customFrameHandler(Handler<HttpFrame> handler) {
+        response.customFrameHandler(handler);
+        return this;
+    }
+
+    @Override
+    public NetSocket netSocket() {
+        // the connection is the reader's from here on
+        finish();
+        return response.netSocket();
+    }
+
+    @Override
+    public HttpClientRequest request() {
+        return response.request();
+    }
+}
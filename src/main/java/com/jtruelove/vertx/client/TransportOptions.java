@@ -0,0 +1,355 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The protocol and connection settings of a {@link ServiceClient}, ie whether it talks HTTP/1.1 or HTTP/2 to its
+ * endpoints, how many requests share a connection and the TCP options of the connections.
+ *
+ * Besides the defaults, which are the same as Vert.x uses, there are two presets for high throughput services:
+ * {@link #multiplexed()} for endpoints that speak HTTP/2 and {@link #pipelined()} for those that only speak HTTP/1.1.
+ * In json the preset is picked with the preset key and anything else set overrides it.
+ */
+public class TransportOptions {
+
+    // configuration key constants
+    public static final String PRESET = "preset";
+    public static final String PROTOCOL = "protocol";
+    public static final String PRIOR_KNOWLEDGE = "prior_knowledge";
+    public static final String HTTP2_MAX_POOL_SIZE = "http2_max_pool_size";
+    public static final String MULTIPLEXING_LIMIT = "multiplexing_limit";
+    public static final String PIPELINING = "pipelining";
+    public static final String PIPELINING_LIMIT = "pipelining_limit";
+    public static final String KEEP_ALIVE = "keep_alive";
+    public static final String IDLE_TIMEOUT = "idle_timeout";
+    public static final String TCP_NO_DELAY = "tcp_no_delay";
+    public static final String TCP_KEEP_ALIVE = "tcp_keep_alive";
+
+    // preset names
+    public static final String DEFAULT = "default";
+    public static final String MULTIPLEXED = "multiplexed";
+    public static final String PIPELINED = "pipelined";
+
+    public static final HttpVersion DEFAULT_PROTOCOL = HttpVersion.HTTP_1_1;
+    public static final boolean DEFAULT_PRIOR_KNOWLEDGE = false;
+    public static final int DEFAULT_HTTP2_MAX_POOL_SIZE = HttpClientOptions.DEFAULT_HTTP2_MAX_POOL_SIZE;
+    public static final int DEFAULT_MULTIPLEXING_LIMIT = HttpClientOptions.DEFAULT_HTTP2_MULTIPLEXING_LIMIT;
+    public static final boolean DEFAULT_PIPELINING = HttpClientOptions.DEFAULT_PIPELINING;
+    public static final int DEFAULT_PIPELINING_LIMIT = HttpClientOptions.DEFAULT_PIPELINING_LIMIT;
+    public static final boolean DEFAULT_KEEP_ALIVE = HttpClientOptions.DEFAULT_KEEP_ALIVE;
+    public static final int DEFAULT_IDLE_TIMEOUT = HttpClientOptions.DEFAULT_IDLE_TIMEOUT;
+    public static final boolean DEFAULT_TCP_NO_DELAY = HttpClientOptions.DEFAULT_TCP_NO_DELAY;
+    public static final boolean DEFAULT_TCP_KEEP_ALIVE = HttpClientOptions.DEFAULT_TCP_KEEP_ALIVE;
+
+    private HttpVersion protocol = DEFAULT_PROTOCOL;
+    private boolean priorKnowledge = DEFAULT_PRIOR_KNOWLEDGE;
+    private int http2MaxPoolSize = DEFAULT_HTTP2_MAX_POOL_SIZE;
+    private int multiplexingLimit = DEFAULT_MULTIPLEXING_LIMIT;
+    private boolean pipelining = DEFAULT_PIPELINING;
+    private int pipeliningLimit = DEFAULT_PIPELINING_LIMIT;
+    private boolean keepAlive = DEFAULT_KEEP_ALIVE;
+    private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private boolean tcpNoDelay = DEFAULT_TCP_NO_DELAY;
+    private boolean tcpKeepAlive = DEFAULT_TCP_KEEP_ALIVE;
+
+    public TransportOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps the value of the preset, or its default
+     * when there is no preset.
+     *
+     * @param config - Json configuration.
+     */
+    public TransportOptions(JsonObject config) {
+        this(preset(config.getString(PRESET, DEFAULT)));
+
+        if (config.containsKey(PROTOCOL)) {
+            setProtocol(protocol(config.getString(PROTOCOL)));
+        }
+        setPriorKnowledge(config.getBoolean(PRIOR_KNOWLEDGE, priorKnowledge));
+        setHttp2MaxPoolSize(config.getInteger(HTTP2_MAX_POOL_SIZE, http2MaxPoolSize));
+        setMultiplexingLimit(config.getInteger(MULTIPLEXING_LIMIT, multiplexingLimit));
+        setPipelining(config.getBoolean(PIPELINING, pipelining));
+        setPipeliningLimit(config.getInteger(PIPELINING_LIMIT, pipeliningLimit));
+        setKeepAlive(config.getBoolean(KEEP_ALIVE, keepAlive));
+        setIdleTimeout(config.getInteger(IDLE_TIMEOUT, idleTimeout));
+        setTcpNoDelay(config.getBoolean(TCP_NO_DELAY, tcpNoDelay));
+        setTcpKeepAlive(config.getBoolean(TCP_KEEP_ALIVE, tcpKeepAlive));
+    }
+
+    private TransportOptions(TransportOptions other) {
+        protocol = other.protocol;
+        priorKnowledge = other.priorKnowledge;
+        http2MaxPoolSize = other.http2MaxPoolSize;
+        multiplexingLimit = other.multiplexingLimit;
+        pipelining = other.pipelining;
+        pipeliningLimit = other.pipeliningLimit;
+        keepAlive = other.keepAlive;
+        idleTimeout = other.idleTimeout;
+        tcpNoDelay = other.tcpNoDelay;
+        tcpKeepAlive = other.tcpKeepAlive;
+    }
+
+    /**
+     * HTTP/2 without the upgrade round trip on cleartext connections, with up to 100 streams on each of 2
+     * connections. Only for endpoints known to speak HTTP/2, a HTTP/1.1 server won't understand the first request.
+     *
+     * @return - the options.
+     */
+    public static TransportOptions multiplexed() {
+        return new TransportOptions()
+                .setProtocol(HttpVersion.HTTP_2)
+                .setPriorKnowledge(true)
+                .setHttp2MaxPoolSize(2)
+                .setMultiplexingLimit(100);
+    }
+
+    /**
+     * HTTP/1.1 with up to 10 requests pipelined on each connection and idle connections closed after a minute.
+     * Responses on a connection come back in order, so a slow call holds up the ones behind it.
+     *
+     * @return - the options.
+     */
+    public static TransportOptions pipelined() {
+        return new TransportOptions()
+                .setPipelining(true)
+                .setPipeliningLimit(10)
+                .setIdleTimeout(60);
+    }
+
+    /**
+     * Gets the options of a preset.
+     *
+     * @param name - the preset, one of default, multiplexed or pipelined.
+     * @return - the options.
+     */
+    public static TransportOptions preset(String name) {
+        switch (name) {
+            case DEFAULT:
+                return new TransportOptions();
+            case MULTIPLEXED:
+                return multiplexed();
+            case PIPELINED:
+                return pipelined();
+            default:
+                throw new IllegalArgumentException("Unknown transport preset: " + name);
+        }
+    }
+
+    private static HttpVersion protocol(String name) {
+        switch (name.toLowerCase()) {
+            case "http/1.1":
+            case "http_1_1":
+                return HttpVersion.HTTP_1_1;
+            case "h2":
+            case "http/2":
+            case "http_2":
+                return HttpVersion.HTTP_2;
+            default:
+                throw new IllegalArgumentException("Unsupported protocol: " + name);
+        }
+    }
+
+    public HttpVersion getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Sets the protocol spoken to the endpoints, in json either http/1.1 or h2.
+     *
+     * @param protocol - HTTP_1_1 or HTTP_2.
+     * @return - reference to the options.
+     */
+    public TransportOptions setProtocol(HttpVersion protocol) {
+        if (protocol != HttpVersion.HTTP_1_1 && protocol != HttpVersion.HTTP_2) {
+            throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+        }
+        this.protocol = protocol;
+        return this;
+    }
+
+    public boolean isPriorKnowledge() {
+        return priorKnowledge;
+    }
+
+    /**
+     * Sets whether cleartext HTTP/2 connections start speaking HTTP/2 right away rather than upgrading from
+     * HTTP/1.1, which saves a round trip on every new connection. TLS connections always negotiate the protocol with
+     * ALPN.
+     *
+     * @param priorKnowledge - true if the endpoints are known to speak HTTP/2.
+     * @return - reference to the options.
+     */
+    public TransportOptions setPriorKnowledge(boolean priorKnowledge) {
+        this.priorKnowledge = priorKnowledge;
+        return this;
+    }
+
+    public int getHttp2MaxPoolSize() {
+        return http2MaxPoolSize;
+    }
+
+    /**
+     * Sets the number of HTTP/2 connections kept to each endpoint, the number of connections of the client only
+     * applies to HTTP/1.1.
+     *
+     * @param http2MaxPoolSize - number of connections.
+     * @return - reference to the options.
+     */
+    public TransportOptions setHttp2MaxPoolSize(int http2MaxPoolSize) {
+        if (http2MaxPoolSize < 1) {
+            throw new IllegalArgumentException("Invalid http2 max pool size: " + http2MaxPoolSize);
+        }
+        this.http2MaxPoolSize = http2MaxPoolSize;
+        return this;
+    }
+
+    public int getMultiplexingLimit() {
+        return multiplexingLimit;
+    }
+
+    /**
+     * Sets the number of requests in flight on each HTTP/2 connection, capped by what the server advertises.
+     *
+     * @param multiplexingLimit - number of streams, -1 for whatever the server allows.
+     * @return - reference to the options.
+     */
+    public TransportOptions setMultiplexingLimit(int multiplexingLimit) {
+        if (multiplexingLimit == 0 || multiplexingLimit < -1) {
+            throw new IllegalArgumentException("Invalid multiplexing limit: " + multiplexingLimit);
+        }
+        this.multiplexingLimit = multiplexingLimit;
+        return this;
+    }
+
+    public boolean isPipelining() {
+        return pipelining;
+    }
+
+    /**
+     * Sets whether HTTP/1.1 requests are sent on a connection before the response to the previous one is in.
+     *
+     * @param pipelining - true to pipeline.
+     * @return - reference to the options.
+     */
+    public TransportOptions setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+        return this;
+    }
+
+    public int getPipeliningLimit() {
+        return pipeliningLimit;
+    }
+
+    /**
+     * Sets the number of HTTP/1.1 requests in flight on each connection when pipelining.
+     *
+     * @param pipeliningLimit - number of requests.
+     * @return - reference to the options.
+     */
+    public TransportOptions setPipeliningLimit(int pipeliningLimit) {
+        if (pipeliningLimit < 1) {
+            throw new IllegalArgumentException("Invalid pipelining limit: " + pipeliningLimit);
+        }
+        this.pipeliningLimit = pipeliningLimit;
+        return this;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Sets whether HTTP/1.1 connections are reused, without it every request opens a new connection.
+     *
+     * @param keepAlive - true to reuse connections.
+     * @return - reference to the options.
+     */
+    public TransportOptions setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long a connection stays open without anything being read or written on it.
+     *
+     * @param idleTimeout - time in seconds, 0 to keep connections open.
+     * @return - reference to the options.
+     */
+    public TransportOptions setIdleTimeout(int idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("Invalid idle timeout: " + idleTimeout);
+        }
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * Sets TCP_NODELAY on the connections, so small requests aren't held back waiting to be batched.
+     *
+     * @param tcpNoDelay - true to disable Nagle's algorithm.
+     * @return - reference to the options.
+     */
+    public TransportOptions setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    public boolean isTcpKeepAlive() {
+        return tcpKeepAlive;
+    }
+
+    /**
+     * Sets SO_KEEPALIVE on the connections, so dead peers are noticed on connections that sit idle.
+     *
+     * @param tcpKeepAlive - true to send TCP keep alive probes.
+     * @return - reference to the options.
+     */
+    public TransportOptions setTcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+        return this;
+    }
+
+    /**
+     * Is the client going to speak HTTP/2?
+     *
+     * @return true if the protocol is HTTP/2, false otherwise
+     */
+    boolean isHttp2() {
+        return protocol == HttpVersion.HTTP_2;
+    }
+
+    /**
+     * Copy the settings onto the options of the http client.
+     *
+     * @param options - the http client options.
+     * @param ssl - whether the connections use TLS.
+     */
+    void apply(HttpClientOptions options, boolean ssl) {
+        options.setProtocolVersion(protocol);
+        options.setHttp2ClearTextUpgrade(!priorKnowledge);
+        options.setHttp2MaxPoolSize(http2MaxPoolSize);
+        options.setHttp2MultiplexingLimit(multiplexingLimit);
+        options.setPipelining(pipelining);
+        options.setPipeliningLimit(pipeliningLimit);
+        options.setKeepAlive(keepAlive);
+        options.setIdleTimeout(idleTimeout);
+        options.setTcpNoDelay(tcpNoDelay);
+        options.setTcpKeepAlive(tcpKeepAlive);
+
+        if (ssl && isHttp2()) {
+            // falls back to HTTP/1.1 when the server doesn't offer h2
+            options.setUseAlpn(true);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The configuration of the warm up a {@link ServiceClient} does when it is built, opening connections to its endpoints
+ * before the first calls need them. See {@link ServiceClient#ready()}.
+ */
+public class WarmUpOptions {
+
+    // configuration key constants
+    public static final String CONNECTIONS = "connections";
+    public static final String PATH = "path";
+    public static final String TIMEOUT = "timeout";
+
+    public static final int DEFAULT_CONNECTIONS = 1;
+    public static final long DEFAULT_TIMEOUT = 5000L;
+
+    private int connections = DEFAULT_CONNECTIONS;
+    private String path;
+    private long timeout = DEFAULT_TIMEOUT;
+
+    public WarmUpOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public WarmUpOptions(JsonObject config) {
+        setConnections(config.getInteger(CONNECTIONS, DEFAULT_CONNECTIONS));
+        setPath(config.getString(PATH));
+        setTimeout(config.getLong(TIMEOUT, DEFAULT_TIMEOUT));
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Sets the number of connections opened to each endpoint, more than the pool size of the client only queues up
+     * behind the ones it has. This holds with pipelining too. On HTTP/2 the client only opens another connection
+     * once every stream of the ones it has is busy, so the warm up opens at most one to each endpoint whatever this
+     * is, or one from each event loop with a client per event loop.
+     *
+     * @param connections - number of connections.
+     * @return - reference to the options.
+     */
+    public WarmUpOptions setConnections(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("Invalid number of connections: " + connections);
+        }
+        this.connections = connections;
+        return this;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Sets the health check the connections are opened with, the warm up fails unless every endpoint answers it with
+     * a 2xx. Without one the connections are opened with a GET of / and any response will do.
+     *
+     * @param path - the health check path, null for none.
+     * @return - reference to the options.
+     */
+    public WarmUpOptions setPath(String path) {
+        if (path != null && !path.startsWith("/")) {
+            throw new IllegalArgumentException("Invalid health check path: " + path);
+        }
+        this.path = path;
+        return this;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets how long each connection has to open and answer before the warm up fails.
+     *
+     * @param timeout - time in milliseconds.
+     * @return - reference to the options.
+     */
+    public WarmUpOptions setTimeout(long timeout) {
+        if (timeout < 1L) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+        this.timeout = timeout;
+        return this;
+    }
+}
@@ -0,0 +1,86 @@
+package com.jtruelove.vertx.client.cache;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The directives of a Cache-Control header that matter to a shared cache.
+ */
+class CacheControl {
+    static final long NONE = -1L;
+
+    boolean noStore;
+    boolean noCache;
+    boolean isPrivate;
+    boolean isPublic;
+    boolean mustRevalidate;
+    long maxAge = NONE;
+    long sharedMaxAge = NONE;
+    long staleWhileRevalidate = NONE;
+
+    static CacheControl parse(String header) {
+        CacheControl control = new CacheControl();
+        if (StringUtils.isEmpty(header)) { return control; }
+
+        for (String directive : header.split(",")) {
+            String name = directive.trim();
+            String value = null;
+            int equals = name.indexOf('=');
+            if (equals > 0) {
+                value = StringUtils.strip(name.substring(equals + 1).trim(), "\"");
+                name = name.substring(0, equals).trim();
+            }
+
+            switch (name.toLowerCase()) {
+                case "no-store":
+                    control.noStore = true;
+                    break;
+                case "no-cache":
+                    control.noCache = true;
+                    break;
+                case "private":
+                    control.isPrivate = true;
+                    break;
+                case "public":
+                    control.isPublic = true;
+                    break;
+                case "must-revalidate":
+                case "proxy-revalidate":
+                    control.mustRevalidate = true;
+                    break;
+                case "max-age":
+                    control.maxAge = seconds(value);
+                    break;
+                case "s-maxage":
+                    control.sharedMaxAge = seconds(value);
+                    break;
+                case "stale-while-revalidate":
+                    control.staleWhileRevalidate = seconds(value);
+                    break;
+                default:
+                    // nothing else changes what we do
+            }
+        }
+        return control;
+    }
+
+    /**
+     * How long a response stays fresh, a shared cache goes by s-maxage over max-age.
+     *
+     * @return the lifetime in seconds or NONE if the response doesn't say
+     */
+    long freshness() {
+        if (noCache) { return 0L; }
+        return sharedMaxAge != NONE ? sharedMaxAge : maxAge;
+    }
+
+    static long seconds(String value) {
+        if (value == null) { return NONE; }
+
+        try {
+            return Math.max(0L, Long.parseLong(value));
+        } catch (NumberFormatException ex) {
+            // a malformed value is treated as already stale
+            return 0L;
+        }
+    }
+}
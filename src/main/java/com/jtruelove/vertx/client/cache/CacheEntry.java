@@ -0,0 +1,152 @@
+package com.jtruelove.vertx.client.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response held by a {@link ResponseCache}, with how long it is fresh for and how long after that it can still be
+ * served while it is revalidated in the background.
+ */
+public class CacheEntry {
+    final String key;
+    final long size;
+    // guarded by the cache
+    boolean hot;
+
+    private final int statusCode;
+    private final String statusMessage;
+    private final MultiMap headers;
+    private final ByteBuf body;
+    private final boolean offHeap;
+    private final Map<String, String> vary;
+    private final String etag;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+    private volatile long freshUntil;
+    private volatile long staleUntil;
+
+    CacheEntry(String key, int statusCode, String statusMessage, MultiMap headers, ByteBuf body, boolean offHeap,
+               Map<String, String> vary, String etag, long size) {
+        this.key = key;
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.headers = headers;
+        this.body = body;
+        this.offHeap = offHeap;
+        this.vary = vary;
+        this.etag = etag;
+        this.size = size;
+    }
+
+    /**
+     * Can the response be served as is?
+     *
+     * @return true if it is within its max-age, false otherwise
+     */
+    public boolean isFresh() {
+        return System.nanoTime() - freshUntil < 0;
+    }
+
+    /**
+     * Can the response be served while it is revalidated?
+     *
+     * @return true if it is past its max-age but within its stale-while-revalidate, false otherwise
+     */
+    public boolean isStaleUsable() {
+        long now = System.nanoTime();
+        return now - freshUntil >= 0 && now - staleUntil < 0;
+    }
+
+    /**
+     * Get the validator to revalidate the response with.
+     *
+     * @return the ETag of the response or null if it had none
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * Claim the background revalidation of the response, so only one is ever in flight.
+     *
+     * @return true if the caller should revalidate it, false if someone already is
+     */
+    public boolean startRevalidation() {
+        return revalidating.compareAndSet(false, true);
+    }
+
+    public void finishRevalidation() {
+        revalidating.set(false);
+    }
+
+    /**
+     * Get the body to serve. On heap it is a read only view of the cached body, off heap it is copied back onto the
+     * heap.
+     *
+     * @return the body or null if the entry has been evicted and its memory released in the meantime
+     */
+    public Buffer body() {
+        if (!offHeap) { return Buffer.buffer(body.duplicate().asReadOnly()); }
+
+        try {
+            body.retain();
+        } catch (IllegalReferenceCountException ex) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = new byte[body.readableBytes()];
+            body.getBytes(body.readerIndex(), bytes);
+            return Buffer.buffer(bytes);
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * Create a response for the entry.
+     *
+     * @param body what {@link #body()} returned
+     * @param request the request the response is for, if one was made
+     * @return the response to deliver
+     */
+    public CachedResponse response(Buffer body, HttpClientRequest request) {
+        return new CachedResponse(statusCode, statusMessage, headers, body, request);
+    }
+
+    void refresh(long freshNanos, long staleNanos) {
+        long now = System.nanoTime();
+        freshUntil = now + freshNanos;
+        staleUntil = freshUntil + staleNanos;
+    }
+
+    /**
+     * Was the response chosen with the same values of the headers it varies on?
+     */
+    boolean matches(Map<String, String> requestHeaders) {
+        if (vary == null) { return true; }
+
+        for (Map.Entry<String, String> header : vary.entrySet()) {
+            String value = ResponseCache.header(requestHeaders, header.getKey());
+            if (value == null ? header.getValue() != null : !value.equals(header.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isUseless() {
+        return !isFresh() && !isStaleUsable() && etag == null;
+    }
+
+    void release() {
+        if (offHeap) {
+            body.release();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.jtruelove.vertx.client.cache;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpFrame;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.net.NetSocket;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A response whose body has already been read, served from the cache or read to be put in it. It behaves like a
+ * response from the network, the body is handed to the handlers set on it once the response handler returns, or
+ * once it is resumed if it was paused.
+ */
+public class CachedResponse implements HttpClientResponse {
+    private static final MultiMap NO_TRAILERS = MultiMap.caseInsensitiveMultiMap();
+
+    private final int statusCode;
+    private final String statusMessage;
+    private final MultiMap headers;
+    private final Buffer body;
+    private final HttpClientRequest request;
+    private Handler<Buffer> dataHandler;
+    private Handler<Buffer> bodyHandler;
+    private Handler<Void> endHandler;
+    private boolean paused;
+    private boolean handed;
+    private boolean ended;
+
+    CachedResponse(int statusCode, String statusMessage, MultiMap headers, Buffer body, HttpClientRequest request) {
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.headers = headers;
+        this.body = body;
+        this.request = request;
+    }
+
+    /**
+     * Hand the response to a response handler and then its body to the handlers it set.
+     *
+     * @param responseHandler the handler for the response
+     */
+    public void deliver(Handler<HttpClientResponse> responseHandler) {
+        responseHandler.handle(this);
+        handed = true;
+        replay();
+    }
+
+    private void replay() {
+        if (paused || ended) { return; }
+
+        ended = true;
+        if (dataHandler != null && body.length() > 0) { dataHandler.handle(body); }
+        if (bodyHandler != null) { bodyHandler.handle(body); }
+        if (endHandler != null) { endHandler.handle(null); }
+    }
+
+    @Override
+    public HttpClientResponse resume() {
+        paused = false;
+        if (handed) { replay(); }
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse exceptionHandler(Handler<Throwable> handler) {
+        // nothing left that can fail
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse handler(Handler<Buffer> handler) {
+        dataHandler = handler;
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse pause() {
+        paused = true;
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    @Override
+    public HttpVersion version() {
+        return HttpVersion.HTTP_1_1;
+    }
+
+    @Override
+    public int statusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String statusMessage() {
+        return statusMessage;
+    }
+
+    @Override
+    public MultiMap headers() {
+        return headers;
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+        return headers.get(headerName);
+    }
+
+    @Override
+    public String getHeader(CharSequence headerName) {
+        return headers.get(headerName);
+    }
+
+    @Override
+    public String getTrailer(String trailerName) {
+        return null;
+    }
+
+    @Override
+    public MultiMap trailers() {
+        return NO_TRAILERS;
+    }
+
+    @Override
+    public List<String> cookies() {
+        // responses that set cookies are never cached
+        return Collections.emptyList();
+    }
+
+    @Override
+    public HttpClientResponse bodyHandler(Handler<Buffer> bodyHandler) {
+        this.bodyHandler = bodyHandler;
+        return this;
+    }
+
+    @Override
+    public HttpClientResponse customFrameHandler(Handler<HttpFrame> handler) {
+        return this;
+    }
+
+    @Override
+    public NetSocket netSocket() {
+        throw new IllegalStateException("A cached response has no connection");
+    }
+
+    /**
+     * Get the request the response was read for.
+     *
+     * @return the request or null if the response was served from the cache without one
+     */
+    @Override
+    public HttpClientRequest request() {
+        return request;
+    }
+}
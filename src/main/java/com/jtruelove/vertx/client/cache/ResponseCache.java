@@ -0,0 +1,393 @@
+package com.jtruelove.vertx.client.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in process cache of GET responses following the http caching rules for a shared cache. Responses are cached
+ * when they say for how long with max-age or s-maxage, and are served without a request for that long. After that
+ * they are served for as long as stale-while-revalidate allows while one request revalidates them in the
+ * background, and once that has run out they are revalidated with If-None-Match before being served again.
+ * Responses that are private, no-store, set cookies or vary on everything are never cached, nor are responses to
+ * requests with an Authorization header unless the response says they can be shared.
+ *
+ * Memory is bounded with a segmented LRU. New responses go into a probationary segment and move to a protected one
+ * the first time they are hit, so a scan of responses that are never asked for again only flushes out other
+ * probationary ones. The protected segment is capped at a share of the cache, its least recently used responses go
+ * back on probation to make room, and responses are evicted from the probationary segment first.
+ *
+ * The cache is shared by every event loop a client is used on, so it is guarded by a lock. The lock is only held
+ * to update the segments, never while a body is copied or served.
+ */
+public class ResponseCache {
+    private static final String VARY = "Vary";
+
+    private final ResponseCacheOptions options;
+    private final long protectedMax;
+    private final LinkedHashMap<String, CacheEntry> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, CacheEntry> hot = new LinkedHashMap<>(16, 0.75f, true);
+    private long probationSize;
+    private long hotSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(ResponseCacheOptions options) {
+        this.options = options;
+        protectedMax = (long) (options.getMaxSize() * options.getProtectedRatio());
+    }
+
+    /**
+     * Does the request ask to skip the cache, with a Cache-Control of no-cache or no-store?
+     *
+     * @param requestHeaders the headers of the request
+     * @return true if the request should go to the service, false otherwise
+     */
+    public static boolean bypasses(Map<String, String> requestHeaders) {
+        String header = header(requestHeaders, HttpHeaders.CACHE_CONTROL.toString());
+        if (header == null) { return false; }
+
+        CacheControl control = CacheControl.parse(header);
+        return control.noCache || control.noStore;
+    }
+
+    /**
+     * Look for the response to a request, recording a hit if it is fresh or stale but usable and a miss otherwise.
+     *
+     * @param key the key of the request, its path
+     * @param requestHeaders the headers of the request
+     * @return the entry, which may need revalidating, or null if there is none
+     */
+    public CacheEntry lookup(String key, Map<String, String> requestHeaders) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = probation.get(key);
+            if (entry != null) {
+                if (entry.isUseless()) {
+                    remove(entry);
+                    entry = null;
+                } else {
+                    promote(entry);
+                }
+            } else {
+                entry = hot.get(key);
+                if (entry != null && entry.isUseless()) {
+                    remove(entry);
+                    entry = null;
+                }
+            }
+        }
+
+        if (entry == null || !entry.matches(requestHeaders)) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isFresh()) {
+            hits.increment();
+        } else if (entry.isStaleUsable()) {
+            staleHits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Can a response be cached? It can only be read into the cache once its headers say yes.
+     *
+     * @param requestHeaders the headers of the request
+     * @param response the response to the request
+     * @return true if the response should be cached, false otherwise
+     */
+    public boolean isCacheable(Map<String, String> requestHeaders, HttpClientResponse response) {
+        if (response.statusCode() != 200) { return false; }
+
+        String length = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        try {
+            // only what we know fits, a body has to be read in full before it can be served from the cache
+            if (length == null || Long.parseLong(length) > options.getMaxEntrySize()) { return false; }
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+
+        CacheControl control = CacheControl.parse(response.getHeader(HttpHeaders.CACHE_CONTROL));
+        if (control.noStore || control.isPrivate) { return false; }
+        if (control.freshness() == CacheControl.NONE) { return false; }
+        // never fresh, so only worth keeping if it can be revalidated or served stale
+        if (control.freshness() == 0 && staleness(control) == 0 && response.getHeader(HttpHeaders.ETAG) == null) {
+            return false;
+        }
+
+        if (response.getHeader(HttpHeaders.SET_COOKIE) != null) { return false; }
+        if ("*".equals(response.getHeader(VARY))) { return false; }
+
+        String requestControl = header(requestHeaders, HttpHeaders.CACHE_CONTROL.toString());
+        if (requestControl != null && CacheControl.parse(requestControl).noStore) { return false; }
+
+        // a response to one user's credentials is only shared if it says so
+        return header(requestHeaders, HttpHeaders.AUTHORIZATION.toString()) == null || control.isPublic
+                || control.sharedMaxAge != CacheControl.NONE || control.mustRevalidate;
+    }
+
+    /**
+     * Cache a response that {@link #isCacheable(Map, HttpClientResponse)} said yes to, replacing any response for
+     * the same key.
+     *
+     * @param key the key of the request, its path
+     * @param requestHeaders the headers of the request
+     * @param response the response to the request
+     * @param body the body of the response
+     * @return the new entry
+     */
+    public CacheEntry store(String key, Map<String, String> requestHeaders, HttpClientResponse response, Buffer body) {
+        Map<String, String> vary = null;
+        String varyHeader = response.getHeader(VARY);
+        if (varyHeader != null) {
+            vary = new HashMap<>();
+            for (String name : varyHeader.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    vary.put(name, header(requestHeaders, name));
+                }
+            }
+        }
+
+        ByteBuf content = body.getByteBuf();
+        if (options.isOffHeap()) {
+            content = Unpooled.directBuffer(content.readableBytes()).writeBytes(content);
+        }
+
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap().addAll(response.headers());
+        long size = content.readableBytes() + estimate(key, headers);
+        CacheEntry entry = new CacheEntry(key, response.statusCode(), response.statusMessage(), headers, content,
+                options.isOffHeap(), vary, response.getHeader(HttpHeaders.ETAG), size);
+        refresh(entry, response);
+
+        synchronized (this) {
+            CacheEntry existing = probation.get(key);
+            if (existing == null) { existing = hot.get(key); }
+            if (existing != null) { remove(existing); }
+
+            probation.put(key, entry);
+            probationSize += size;
+            evict();
+        }
+        return entry;
+    }
+
+    /**
+     * Record that the service said a response is still good with a 304, it is fresh again for as long as the 304
+     * says.
+     *
+     * @param entry the entry that was revalidated
+     * @param notModified the 304 response
+     */
+    public void revalidated(CacheEntry entry, HttpClientResponse notModified) {
+        revalidations.increment();
+        refresh(entry, notModified);
+    }
+
+    /**
+     * Drop the response for a key, ie because it was changed by a POST, PUT or DELETE.
+     *
+     * @param key the key of the request, its path
+     */
+    public synchronized void invalidate(String key) {
+        CacheEntry entry = probation.get(key);
+        if (entry == null) { entry = hot.get(key); }
+        if (entry != null) { remove(entry); }
+    }
+
+    /**
+     * Drop every response.
+     */
+    public synchronized void clear() {
+        probation.values().forEach(CacheEntry::release);
+        hot.values().forEach(CacheEntry::release);
+        probation.clear();
+        hot.clear();
+        probationSize = hotSize = 0L;
+    }
+
+    private void refresh(CacheEntry entry, HttpClientResponse response) {
+        CacheControl control = CacheControl.parse(response.getHeader(HttpHeaders.CACHE_CONTROL));
+        long age = CacheControl.seconds(response.getHeader(HttpHeaders.AGE));
+        long fresh = Math.max(0L, control.freshness() - Math.max(0L, age));
+        entry.refresh(TimeUnit.SECONDS.toNanos(fresh), TimeUnit.SECONDS.toNanos(staleness(control)));
+    }
+
+    /**
+     * How long a response can be served past its max-age while it is revalidated, in seconds.
+     */
+    private static long staleness(CacheControl control) {
+        return control.noCache || control.mustRevalidate || control.staleWhileRevalidate == CacheControl.NONE ? 0L
+                : control.staleWhileRevalidate;
+    }
+
+    private void promote(CacheEntry entry) {
+        probation.remove(entry.key);
+        probationSize -= entry.size;
+        entry.hot = true;
+        hot.put(entry.key, entry);
+        hotSize += entry.size;
+
+        Iterator<CacheEntry> coldest = hot.values().iterator();
+        while (hotSize > protectedMax && coldest.hasNext()) {
+            CacheEntry demoted = coldest.next();
+            if (demoted == entry) { break; }
+
+            coldest.remove();
+            hotSize -= demoted.size;
+            demoted.hot = false;
+            probation.put(demoted.key, demoted);
+            probationSize += demoted.size;
+        }
+    }
+
+    private void evict() {
+        Iterator<CacheEntry> coldest = probation.values().iterator();
+        while (probationSize + hotSize > options.getMaxSize() && coldest.hasNext()) {
+            CacheEntry evicted = coldest.next();
+            coldest.remove();
+            probationSize -= evicted.size;
+            evicted.release();
+            evictions.increment();
+        }
+
+        coldest = hot.values().iterator();
+        while (probationSize + hotSize > options.getMaxSize() && coldest.hasNext()) {
+            CacheEntry evicted = coldest.next();
+            coldest.remove();
+            hotSize -= evicted.size;
+            evicted.release();
+            evictions.increment();
+        }
+    }
+
+    private void remove(CacheEntry entry) {
+        if (entry.hot) {
+            hot.remove(entry.key);
+            hotSize -= entry.size;
+        } else {
+            probation.remove(entry.key);
+            probationSize -= entry.size;
+        }
+        entry.release();
+    }
+
+    private static long estimate(String key, MultiMap headers) {
+        // chars are two bytes, plus a rough allowance for the objects around them
+        long size = 128L + key.length() * 2L;
+        for (Map.Entry<String, String> header : headers) {
+            size += 48L + (header.getKey().length() + header.getValue().length()) * 2L;
+        }
+        return size;
+    }
+
+    static String header(Map<String, String> headers, String name) {
+        if (headers == null) { return null; }
+
+        String value = headers.get(name);
+        if (value != null) { return value; }
+
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) { return header.getValue(); }
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of requests served from the cache without going to the service.
+     *
+     * @return the hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of requests served from the cache past their max-age while they were revalidated.
+     *
+     * @return the stale hit count
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    /**
+     * Get the number of requests that had to go to the service, including ones that revalidated a cached response.
+     *
+     * @return the miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of cached responses the service said were still good with a 304.
+     *
+     * @return the revalidation count
+     */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Get the number of responses evicted to make room for others.
+     *
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of responses cached.
+     *
+     * @return the entry count
+     */
+    public synchronized int getEntries() {
+        return probation.size() + hot.size();
+    }
+
+    /**
+     * Get the memory taken by the cached responses.
+     *
+     * @return the estimated size in bytes
+     */
+    public synchronized long getSize() {
+        return probationSize + hotSize;
+    }
+
+    /**
+     * Take a snapshot of the metrics.
+     *
+     * @return the metrics as json
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("hits", getHits())
+                .put("stale_hits", getStaleHits())
+                .put("misses", getMisses())
+                .put("revalidations", getRevalidations())
+                .put("evictions", getEvictions())
+                .put("entries", getEntries())
+                .put("size", getSize());
+    }
+}
@@ -0,0 +1,110 @@
+package com.jtruelove.vertx.client.cache;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The configuration of a {@link ResponseCache}.
+ */
+public class ResponseCacheOptions {
+
+    // configuration key constants
+    public static final String MAX_SIZE = "max_size";
+    public static final String MAX_ENTRY_SIZE = "max_entry_size";
+    public static final String PROTECTED_RATIO = "protected_ratio";
+    public static final String OFF_HEAP = "off_heap";
+
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+    public static final double DEFAULT_PROTECTED_RATIO = 0.8;
+    public static final boolean DEFAULT_OFF_HEAP = false;
+
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private int maxEntrySize = DEFAULT_MAX_ENTRY_SIZE;
+    private double protectedRatio = DEFAULT_PROTECTED_RATIO;
+    private boolean offHeap = DEFAULT_OFF_HEAP;
+
+    public ResponseCacheOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public ResponseCacheOptions(JsonObject config) {
+        setMaxSize(config.getLong(MAX_SIZE, DEFAULT_MAX_SIZE));
+        setMaxEntrySize(config.getInteger(MAX_ENTRY_SIZE, DEFAULT_MAX_ENTRY_SIZE));
+        setProtectedRatio(config.getDouble(PROTECTED_RATIO, DEFAULT_PROTECTED_RATIO));
+        setOffHeap(config.getBoolean(OFF_HEAP, DEFAULT_OFF_HEAP));
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the most memory the cached responses can take up, bodies and headers together.
+     *
+     * @param maxSize - size in bytes.
+     * @return - reference to the options.
+     */
+    public ResponseCacheOptions setMaxSize(long maxSize) {
+        if (maxSize < 1L) {
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Sets the largest response body that is cached, larger ones are passed through as they are.
+     *
+     * @param maxEntrySize - size in bytes.
+     * @return - reference to the options.
+     */
+    public ResponseCacheOptions setMaxEntrySize(int maxEntrySize) {
+        if (maxEntrySize < 1) {
+            throw new IllegalArgumentException("Invalid max entry size: " + maxEntrySize);
+        }
+        this.maxEntrySize = maxEntrySize;
+        return this;
+    }
+
+    public double getProtectedRatio() {
+        return protectedRatio;
+    }
+
+    /**
+     * Sets the share of the cache kept for responses that have been hit at least once. New responses go into the
+     * rest of it, so a burst of responses that are never asked for again can't flush out the popular ones.
+     *
+     * @param protectedRatio - between 0 and 1.
+     * @return - reference to the options.
+     */
+    public ResponseCacheOptions setProtectedRatio(double protectedRatio) {
+        if (protectedRatio < 0 || protectedRatio >= 1) {
+            throw new IllegalArgumentException("Invalid protected ratio: " + protectedRatio);
+        }
+        this.protectedRatio = protectedRatio;
+        return this;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Sets whether response bodies are kept in direct memory, out of the way of the garbage collector. They are
+     * copied back onto the heap each time they are served.
+     *
+     * @param offHeap - keep bodies off heap?
+     * @return - reference to the options.
+     */
+    public ResponseCacheOptions setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+}
@@ -0,0 +1,154 @@
+package com.jtruelove.vertx.client.lb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One replica of a service a {@link LoadBalancer} spreads calls over, along with what has been seen of it: the calls
+ * outstanding on it, a moving average of its latency and its outlier detection state.
+ */
+public class Endpoint {
+
+    // weight given to the latest sample in the latency average
+    private static final double DECAY = 0.2;
+    private static final long DEFAULT_LATENCY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String host;
+    private final int port;
+    private final long slowStartNanos;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile long latency;
+
+    // outlier detection state, guarded by this
+    private int consecutiveFailures;
+    private int ejections;
+    private volatile boolean ejected;
+    private volatile long ejectedUntil;
+    // when the endpoint came back from its last ejection, 0 once it is back to full weight
+    private volatile long returnedAt;
+
+    Endpoint(String host, int port, long slowStartNanos) {
+        this.host = host;
+        this.port = port;
+        this.slowStartNanos = slowStartNanos;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Get the number of calls sent to the endpoint and still waiting on an outcome.
+     *
+     * @return the outstanding call count
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Get the moving average of the latency of the endpoint, until it has answered a call this is a nominal 1ms so
+     * new endpoints get tried.
+     *
+     * @return the latency in nanoseconds
+     */
+    public long getLatency() {
+        long current = latency;
+        return current == 0 ? DEFAULT_LATENCY : current;
+    }
+
+    /**
+     * Is the endpoint currently ejected by outlier detection?
+     *
+     * @return true if no calls should be sent to it
+     */
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    /**
+     * Get the share of traffic the endpoint should get relative to the others. It is 1 except for an endpoint
+     * recently back from an ejection, which ramps up from a small share over the slow start period.
+     *
+     * @return the weight between 0 and 1
+     */
+    public double getWeight() {
+        long since = returnedAt;
+        if (since == 0) { return 1.0; }
+
+        long elapsed = System.nanoTime() - since;
+        if (elapsed >= slowStartNanos) {
+            returnedAt = 0;
+            return 1.0;
+        }
+        return Math.max(0.1, (double) elapsed / slowStartNanos);
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Record a call that succeeded.
+     */
+    synchronized void succeeded(long latencyNanos) {
+        outstanding.decrementAndGet();
+        long current = latency;
+        latency = current == 0 ? latencyNanos : (long) (current + DECAY * (latencyNanos - current));
+        consecutiveFailures = 0;
+        if (ejections > 0 && getWeight() == 1.0) {
+            // fully back in service, the next ejection starts from the base time again
+            ejections = 0;
+        }
+    }
+
+    /**
+     * Record a call that failed.
+     *
+     * @return the number of failures in a row
+     */
+    synchronized int failed() {
+        outstanding.decrementAndGet();
+        return ++consecutiveFailures;
+    }
+
+    synchronized void eject(long now, long baseEjectionNanos, long maxEjectionNanos) {
+        ejections++;
+        // every ejection in a row keeps it out longer
+        long duration = Math.min(maxEjectionNanos, baseEjectionNanos * ejections);
+        ejectedUntil = now + duration;
+        ejected = true;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Bring the endpoint back if its ejection is over.
+     *
+     * @return true if it is available
+     */
+    synchronized boolean restore(long now) {
+        if (!ejected) { return true; }
+        if (now - ejectedUntil < 0) { return false; }
+
+        ejected = false;
+        returnedAt = slowStartNanos > 0 ? now : 0;
+        return true;
+    }
+
+    long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,26 @@
+package com.jtruelove.vertx.client.lb;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the endpoint with the fewest outstanding calls for its weight. The scan starts at a random endpoint so ties
+ * are spread out rather than all going to the first.
+ */
+public class LeastOutstandingStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public Endpoint select(Endpoint[] endpoints) {
+        int start = endpoints.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(endpoints.length);
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < endpoints.length; i++) {
+            Endpoint endpoint = endpoints[(start + i) % endpoints.length];
+            double score = (endpoint.getOutstanding() + 1) / endpoint.getWeight();
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,141 @@
+package com.jtruelove.vertx.client.lb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads calls over the replicas of a service.
+ *
+ * A strategy picks the endpoint for each call from the ones that are available. Outlier detection ejects an endpoint
+ * after a number of failures in a row, for longer each time it happens again, and once it is back it takes a slow
+ * start period to get its full share of traffic. If every endpoint ends up ejected they are all used, something is
+ * better than nothing.
+ *
+ * Every endpoint handed out by {@link #select()} must be followed by {@link #succeeded(Endpoint, long)},
+ * {@link #failed(Endpoint)} or {@link #release(Endpoint)}.
+ */
+public class LoadBalancer {
+
+    private static final long NONE_EJECTED = Long.MAX_VALUE;
+
+    private final Endpoint[] endpoints;
+    private final LoadBalancingStrategy strategy;
+    private final int consecutiveFailures;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int maxEjected;
+
+    // rebuilt whenever an endpoint is ejected or due back
+    private volatile Endpoint[] available;
+    private volatile long nextReturn = NONE_EJECTED;
+
+    public LoadBalancer(List<Endpoint> endpoints, LoadBalancingStrategy strategy, OutlierDetectionOptions options) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("A load balancer needs at least one endpoint");
+        }
+
+        this.endpoints = endpoints.toArray(new Endpoint[endpoints.size()]);
+        this.strategy = strategy;
+        consecutiveFailures = options.getConsecutiveFailures();
+        baseEjectionNanos = TimeUnit.MILLISECONDS.toNanos(options.getBaseEjectionTime());
+        maxEjectionNanos = TimeUnit.MILLISECONDS.toNanos(options.getMaxEjectionTime());
+        maxEjected = Math.max(1, endpoints.size() * options.getMaxEjectionPercent() / 100);
+        available = this.endpoints;
+    }
+
+    /**
+     * Create an endpoint to hand to the load balancer.
+     *
+     * @param host the host of the endpoint
+     * @param port the port of the endpoint
+     * @param options the outlier detection the endpoint will be under
+     * @return the new endpoint
+     */
+    public static Endpoint endpoint(String host, int port, OutlierDetectionOptions options) {
+        return new Endpoint(host, port, TimeUnit.MILLISECONDS.toNanos(options.getSlowStart()));
+    }
+
+    /**
+     * Get all the endpoints, ejected or not.
+     *
+     * @return the endpoints
+     */
+    public List<Endpoint> getEndpoints() {
+        List<Endpoint> all = new ArrayList<>(endpoints.length);
+        Collections.addAll(all, endpoints);
+        return all;
+    }
+
+    /**
+     * Pick the endpoint for a call.
+     *
+     * @return the endpoint to call
+     */
+    public Endpoint select() {
+        long due = nextReturn;
+        if (due != NONE_EJECTED && System.nanoTime() - due >= 0) {
+            refresh();
+        }
+
+        Endpoint endpoint = strategy.select(available);
+        endpoint.acquire();
+        return endpoint;
+    }
+
+    /**
+     * Record a call that succeeded.
+     *
+     * @param endpoint the endpoint that was called
+     * @param latencyNanos how long the call took
+     */
+    public void succeeded(Endpoint endpoint, long latencyNanos) {
+        endpoint.succeeded(latencyNanos);
+    }
+
+    /**
+     * Record a call that failed, ejecting the endpoint if it has failed too many times in a row.
+     *
+     * @param endpoint the endpoint that was called
+     */
+    public void failed(Endpoint endpoint) {
+        if (endpoint.failed() < consecutiveFailures || endpoint.isEjected()) { return; }
+
+        synchronized (this) {
+            int ejected = 0;
+            for (Endpoint other : endpoints) {
+                if (other.isEjected()) { ejected++; }
+            }
+            if (ejected >= maxEjected) { return; }
+
+            endpoint.eject(System.nanoTime(), baseEjectionNanos, maxEjectionNanos);
+            refresh();
+        }
+    }
+
+    /**
+     * Give back an endpoint for a call whose outcome says nothing about it, ie it was cancelled by the caller.
+     *
+     * @param endpoint the endpoint that was picked
+     */
+    public void release(Endpoint endpoint) {
+        endpoint.release();
+    }
+
+    private synchronized void refresh() {
+        long now = System.nanoTime();
+        List<Endpoint> up = new ArrayList<>(endpoints.length);
+        long soonest = NONE_EJECTED;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.restore(now)) {
+                up.add(endpoint);
+            } else if (soonest == NONE_EJECTED || endpoint.getEjectedUntil() - soonest < 0) {
+                soonest = endpoint.getEjectedUntil();
+            }
+        }
+
+        available = up.isEmpty() ? endpoints : up.toArray(new Endpoint[up.size()]);
+        nextReturn = soonest;
+    }
+}
@@ -0,0 +1,44 @@
+package com.jtruelove.vertx.client.lb;
+
+/**
+ * Picks the endpoint a call goes to.
+ *
+ * Strategies are handed the endpoints that are currently available, never an empty array, and are called from any
+ * event loop so they must be thread safe. They should respect {@link Endpoint#getWeight()} so endpoints coming back
+ * from an ejection are eased back into service.
+ */
+public interface LoadBalancingStrategy {
+
+    // configuration names of the built in strategies
+    String ROUND_ROBIN = "round_robin";
+    String LEAST_OUTSTANDING = "least_outstanding";
+    String POWER_OF_TWO_CHOICES = "power_of_two_choices";
+
+    /**
+     * Pick an endpoint for a call.
+     *
+     * @param endpoints the available endpoints
+     * @return the endpoint to call
+     */
+    Endpoint select(Endpoint[] endpoints);
+
+    /**
+     * Create one of the built in strategies by name.
+     *
+     * @param name the strategy name, one of {@link #ROUND_ROBIN}, {@link #LEAST_OUTSTANDING} or
+     *             {@link #POWER_OF_TWO_CHOICES}
+     * @return the new strategy
+     */
+    static LoadBalancingStrategy create(String name) {
+        switch (name) {
+            case ROUND_ROBIN:
+                return new RoundRobinStrategy();
+            case LEAST_OUTSTANDING:
+                return new LeastOutstandingStrategy();
+            case POWER_OF_TWO_CHOICES:
+                return new PowerOfTwoChoicesStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown load balancing strategy: " + name);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.jtruelove.vertx.client.lb;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The configuration of the outlier detection of a {@link LoadBalancer}.
+ */
+public class OutlierDetectionOptions {
+
+    // configuration key constants
+    public static final String CONSECUTIVE_FAILURES = "consecutive_failures";
+    public static final String BASE_EJECTION_TIME = "base_ejection_time";
+    public static final String MAX_EJECTION_TIME = "max_ejection_time";
+    public static final String MAX_EJECTION_PERCENT = "max_ejection_percent";
+    public static final String SLOW_START = "slow_start";
+
+    public static final int DEFAULT_CONSECUTIVE_FAILURES = 5;
+    public static final long DEFAULT_BASE_EJECTION_TIME = 10000L;
+    public static final long DEFAULT_MAX_EJECTION_TIME = 300000L;
+    public static final int DEFAULT_MAX_EJECTION_PERCENT = 50;
+    public static final long DEFAULT_SLOW_START = 10000L;
+
+    private int consecutiveFailures = DEFAULT_CONSECUTIVE_FAILURES;
+    private long baseEjectionTime = DEFAULT_BASE_EJECTION_TIME;
+    private long maxEjectionTime = DEFAULT_MAX_EJECTION_TIME;
+    private int maxEjectionPercent = DEFAULT_MAX_EJECTION_PERCENT;
+    private long slowStart = DEFAULT_SLOW_START;
+
+    public OutlierDetectionOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public OutlierDetectionOptions(JsonObject config) {
+        setConsecutiveFailures(config.getInteger(CONSECUTIVE_FAILURES, DEFAULT_CONSECUTIVE_FAILURES));
+        setBaseEjectionTime(config.getLong(BASE_EJECTION_TIME, DEFAULT_BASE_EJECTION_TIME));
+        setMaxEjectionTime(config.getLong(MAX_EJECTION_TIME, DEFAULT_MAX_EJECTION_TIME));
+        setMaxEjectionPercent(config.getInteger(MAX_EJECTION_PERCENT, DEFAULT_MAX_EJECTION_PERCENT));
+        setSlowStart(config.getLong(SLOW_START, DEFAULT_SLOW_START));
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Sets the number of failures in a row, exceptions or 5xx responses, that ejects an endpoint.
+     *
+     * @param consecutiveFailures - number of failures.
+     * @return - reference to the options.
+     */
+    public OutlierDetectionOptions setConsecutiveFailures(int consecutiveFailures) {
+        if (consecutiveFailures < 1) {
+            throw new IllegalArgumentException("Invalid consecutive failures: " + consecutiveFailures);
+        }
+        this.consecutiveFailures = consecutiveFailures;
+        return this;
+    }
+
+    public long getBaseEjectionTime() {
+        return baseEjectionTime;
+    }
+
+    /**
+     * Sets how long an endpoint is ejected for the first time, each ejection in a row adds as much again.
+     *
+     * @param baseEjectionTime - time in milliseconds.
+     * @return - reference to the options.
+     */
+    public OutlierDetectionOptions setBaseEjectionTime(long baseEjectionTime) {
+        if (baseEjectionTime < 1L) {
+            throw new IllegalArgumentException("Invalid base ejection time: " + baseEjectionTime);
+        }
+        this.baseEjectionTime = baseEjectionTime;
+        return this;
+    }
+
+    public long getMaxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    /**
+     * Sets the longest an endpoint is ejected for.
+     *
+     * @param maxEjectionTime - time in milliseconds.
+     * @return - reference to the options.
+     */
+    public OutlierDetectionOptions setMaxEjectionTime(long maxEjectionTime) {
+        if (maxEjectionTime < 1L) {
+            throw new IllegalArgumentException("Invalid max ejection time: " + maxEjectionTime);
+        }
+        this.maxEjectionTime = maxEjectionTime;
+        return this;
+    }
+
+    public int getMaxEjectionPercent() {
+        return maxEjectionPercent;
+    }
+
+    /**
+     * Sets the most of the endpoints that can be ejected at once, a single endpoint can always be.
+     *
+     * @param maxEjectionPercent - percentage between 0 and 100.
+     * @return - reference to the options.
+     */
+    public OutlierDetectionOptions setMaxEjectionPercent(int maxEjectionPercent) {
+        if (maxEjectionPercent < 0 || maxEjectionPercent > 100) {
+            throw new IllegalArgumentException("Invalid max ejection percent: " + maxEjectionPercent);
+        }
+        this.maxEjectionPercent = maxEjectionPercent;
+        return this;
+    }
+
+    public long getSlowStart() {
+        return slowStart;
+    }
+
+    /**
+     * Sets how long an endpoint back from an ejection takes to ramp up to its full share of traffic.
+     *
+     * @param slowStart - time in milliseconds, 0 for none.
+     * @return - reference to the options.
+     */
+    public OutlierDetectionOptions setSlowStart(long slowStart) {
+        if (slowStart < 0L) {
+            throw new IllegalArgumentException("Invalid slow start: " + slowStart);
+        }
+        this.slowStart = slowStart;
+        return this;
+    }
+}
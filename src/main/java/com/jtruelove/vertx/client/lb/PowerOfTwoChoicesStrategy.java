@@ -0,0 +1,29 @@
+package com.jtruelove.vertx.client.lb;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks two endpoints at random and sends the call to the one expected to answer first, judged by its outstanding
+ * calls times its average latency, for its weight. Nearly as good as looking at every endpoint, at a fixed cost, and
+ * without the herding onto the single best endpoint that a full scan gets from stale numbers.
+ */
+public class PowerOfTwoChoicesStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public Endpoint select(Endpoint[] endpoints) {
+        if (endpoints.length == 1) { return endpoints[0]; }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(endpoints.length);
+        // a second pick that is never the first
+        int second = (first + 1 + random.nextInt(endpoints.length - 1)) % endpoints.length;
+
+        Endpoint a = endpoints[first];
+        Endpoint b = endpoints[second];
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    private static double cost(Endpoint endpoint) {
+        return (endpoint.getOutstanding() + 1) * (double) endpoint.getLatency() / endpoint.getWeight();
+    }
+}
@@ -0,0 +1,25 @@
+package com.jtruelove.vertx.client.lb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Takes the endpoints in turn. An endpoint in slow start has its turn passed on to the next one in proportion to how
+ * far it is from full weight.
+ */
+public class RoundRobinStrategy implements LoadBalancingStrategy {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public Endpoint select(Endpoint[] endpoints) {
+        int index = Math.floorMod(next.getAndIncrement(), endpoints.length);
+        Endpoint endpoint = endpoints[index];
+
+        double weight = endpoint.getWeight();
+        if (weight < 1.0 && ThreadLocalRandom.current().nextDouble() >= weight) {
+            return endpoints[(index + 1) % endpoints.length];
+        }
+        return endpoint;
+    }
+}
@@ -97,7 +97,14 @@ public class HttpHelper {
      * @param <T> object type to serialize
      */
     public static <T> void processResponse(T value, HttpServerResponse response, int code) {
-        processResponse(Buffer.buffer(JsonUtil.getJsonForObject(value)), response, code, MediaType.APPLICATION_JSON);
+        // serialized straight into the buffer that is written out, no String or byte[] in between
+        Buffer json = JsonUtil.getJsonBufferForObject(value);
+        if (json == null) {
+            processErrorResponse("Failed to generate JSon for response", response,
+                    HttpResponseStatus.INTERNAL_SERVER_ERROR.code());
+            return;
+        }
+        processResponse(json, response, code, MediaType.APPLICATION_JSON);
     }
 
     /**
@@ -145,6 +152,26 @@ public class HttpHelper {
         return result;
     }
 
+    /**
+     * Attempts to parse a json request body to the specified class type without turning it into a string first, see
+     * {@link #attemptToParse(String, Class, HttpServerResponse)}.
+     *
+     * @param body the http body to attempt to parse
+     * @param clazz the class type to hydrate
+     * @param response the associated HTTP response object
+     * @param <T> the desired class type
+     * @return the object successfully parsed or null in the case where the parsing fails.
+     */
+    public static <T> T attemptToParse(Buffer body, Class<T> clazz, HttpServerResponse response){
+        T result = JsonUtil.parseJsonToObject(body, clazz);
+        if (result == null) {
+            HttpHelper.processErrorResponse("Failed to parse JSon to create request", response,
+                    HttpResponseStatus.BAD_REQUEST.code());
+        }
+
+        return result;
+    }
+
     /**
      * Does the response code represent a non-2XX code
      *
@@ -0,0 +1,301 @@
+package com.jtruelove.vertx.web;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.streams.ReadStream;
+
+import java.io.IOException;
+
+/**
+ * Decodes Json from a stream as its chunks arrive, ie a large upload, rather than once the whole body has been
+ * buffered into one byte[].
+ *
+ * An array is decoded one element at a time. Each chunk is scanned for where the elements start and end, and an
+ * element is handed over as soon as its last byte arrives, so only the element being read is held and memory scales
+ * with the size of an element rather than the document. An object has to be read in full before it can be decoded,
+ * its chunks are kept as they are and read through a composite buffer without being copied into one.
+ *
+ * Either way the nesting depth and the bytes held are checked as the chunks arrive, a stream over either limit fails
+ * with a {@link DecodeException} without the rest of it being held. So does Json that isn't what was expected.
+ */
+public class JsonStreamDecoder<T> {
+
+    private final ObjectReader reader;
+    private final int maxDepth;
+    private final int maxSize;
+    // true when streaming the elements of an array, false for a single value
+    private final boolean elements;
+    private final Handler<T> valueHandler;
+    private final Future<Void> done;
+
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    // the array has been opened, and closed
+    private boolean started;
+    private boolean finished;
+    // a comma has been read and no element since
+    private boolean expectElement;
+    private boolean inElement;
+    // the chunks of a value that doesn't fit in the current one
+    private ByteBuf first;
+    private CompositeByteBuf rest;
+
+    private JsonStreamDecoder(Class<T> type, JsonStreamOptions options, boolean elements, Handler<T> valueHandler,
+                              Future<Void> done) {
+        this.reader = JsonUtil.getReader(type);
+        this.maxDepth = options.getMaxDepth();
+        this.maxSize = options.getMaxSize();
+        this.elements = elements;
+        this.valueHandler = valueHandler;
+        this.done = done;
+    }
+
+    /**
+     * Decode a stream holding a single Json value into the type given. An empty stream completes the future with
+     * null.
+     *
+     * @param stream  the stream to read, ie a request
+     * @param type    the class to decode into
+     * @param options the limits of the decoder
+     * @param <T>     the type to decode into
+     * @return the future that gets the decoded value
+     */
+    public static <T> Future<T> decode(ReadStream<Buffer> stream, Class<T> type, JsonStreamOptions options) {
+        Future<T> result = Future.future();
+        Future<Void> done = Future.future();
+        done.setHandler(ended -> {
+            if (ended.failed()) {
+                result.tryFail(ended.cause());
+            } else {
+                result.tryComplete();
+            }
+        });
+        new JsonStreamDecoder<>(type, options, false, result::tryComplete, done).read(stream);
+        return result;
+    }
+
+    /**
+     * Decode a stream holding a Json array, handing each element over as soon as it has been read.
+     *
+     * @param stream         the stream to read, ie a request
+     * @param type           the class to decode each element into
+     * @param options        the limits of the decoder, the size limit applies to each element
+     * @param elementHandler called with each element in order
+     * @param <T>            the type to decode into
+     * @return the future completed once the array has been read, or failed as soon as it can't be
+     */
+    public static <T> Future<Void> decodeArray(ReadStream<Buffer> stream, Class<T> type, JsonStreamOptions options,
+                                               Handler<T> elementHandler) {
+        Future<Void> done = Future.future();
+        new JsonStreamDecoder<>(type, options, true, elementHandler, done).read(stream);
+        return done;
+    }
+
+    private void read(ReadStream<Buffer> stream) {
+        stream.exceptionHandler(done::tryFail);
+        stream.handler(this::chunk);
+        stream.endHandler(aVoid -> end());
+    }
+
+    private void chunk(Buffer chunk) {
+        if (done.isComplete()) { return; }
+
+        ByteBuf buffer = chunk.getByteBuf();
+        try {
+            if (elements) {
+                scanElements(buffer);
+            } else {
+                scanValue(buffer);
+            }
+        } catch (RuntimeException ex) {
+            // a handler that throws stops the decoding too
+            fail(ex);
+        }
+    }
+
+    /**
+     * Check the depth of a single value and keep its chunks until the stream ends.
+     */
+    private void scanValue(ByteBuf buffer) {
+        int end = buffer.writerIndex();
+        for (int pos = buffer.readerIndex(); pos < end; pos++) {
+            byte b = buffer.getByte(pos);
+            if (string(b)) { continue; }
+
+            if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                deeper();
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+        }
+        hold(buffer);
+    }
+
+    /**
+     * Hand over every element of the array that ends in the chunk, keeping what there is of the next one.
+     */
+    private void scanElements(ByteBuf buffer) {
+        int end = buffer.writerIndex();
+        // where the element being read starts in this chunk
+        int start = buffer.readerIndex();
+        for (int pos = start; pos < end; pos++) {
+            byte b = buffer.getByte(pos);
+            if (string(b)) { continue; }
+
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') { continue; }
+
+            if (finished) {
+                throw new DecodeException("Unexpected data after the end of the Json array");
+            }
+
+            if (!started) {
+                if (b != '[') {
+                    throw new DecodeException("Expected a Json array");
+                }
+                started = true;
+                deeper();
+                continue;
+            }
+
+            if (depth == 1 && (b == ',' || b == ']')) {
+                if (inElement) {
+                    element(buffer, start, pos);
+                } else if (b == ',' || expectElement) {
+                    throw new DecodeException("Missing element in the Json array");
+                }
+                expectElement = b == ',';
+                if (b == ']') {
+                    depth = 0;
+                    finished = true;
+                }
+                continue;
+            }
+
+            if (!inElement) {
+                inElement = true;
+                start = pos;
+            }
+
+            if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                deeper();
+            } else if (b == '}') {
+                if (depth == 1) {
+                    throw new DecodeException("Unexpected } in the Json array");
+                }
+                depth--;
+            } else if (b == ']') {
+                depth--;
+            }
+        }
+
+        if (inElement) {
+            hold(buffer.slice(start, end - start));
+        }
+    }
+
+    /**
+     * Track the end of the string a byte is in, the brackets and commas there don't count.
+     *
+     * @return true if the byte is part of a string
+     */
+    private boolean string(byte b) {
+        if (!inString) { return false; }
+
+        if (escaped) {
+            escaped = false;
+        } else if (b == '\\') {
+            escaped = true;
+        } else if (b == '"') {
+            inString = false;
+        }
+        return true;
+    }
+
+    private void deeper() {
+        if (++depth > maxDepth) {
+            throw new DecodeException("Json nested deeper than the limit of " + maxDepth);
+        }
+    }
+
+    private void hold(ByteBuf buffer) {
+        if (first == null) {
+            first = buffer;
+        } else {
+            if (rest == null) {
+                rest = new CompositeByteBuf(UnpooledByteBufAllocator.DEFAULT, false, Integer.MAX_VALUE);
+                rest.addComponent(true, first);
+            }
+            rest.addComponent(true, buffer);
+        }
+
+        if (held().readableBytes() > maxSize) {
+            throw new DecodeException("Json larger than the limit of " + maxSize + " bytes");
+        }
+    }
+
+    private ByteBuf held() {
+        return rest != null ? rest : first;
+    }
+
+    private void element(ByteBuf buffer, int start, int end) {
+        ByteBuf json = buffer.slice(start, end - start);
+        if (first != null) {
+            hold(json);
+            json = held();
+        } else if (json.readableBytes() > maxSize) {
+            throw new DecodeException("Json larger than the limit of " + maxSize + " bytes");
+        }
+
+        T value = parse(json);
+        first = null;
+        rest = null;
+        inElement = false;
+        valueHandler.handle(value);
+    }
+
+    private T parse(ByteBuf json) {
+        try {
+            return json.hasArray() ? reader.readValue(json.array(), json.arrayOffset() + json.readerIndex(),
+                    json.readableBytes()) : reader.readValue(new ByteBufInputStream(json));
+        } catch (IOException ex) {
+            throw new DecodeException("Failed to decode Json: " + ex.getMessage(), ex);
+        }
+    }
+
+    private void end() {
+        if (done.isComplete()) { return; }
+
+        try {
+            if (elements) {
+                if (!finished) {
+                    throw new DecodeException("The stream ended before the Json array did");
+                }
+            } else if (first != null) {
+                valueHandler.handle(parse(held()));
+            }
+        } catch (RuntimeException ex) {
+            fail(ex);
+            return;
+        }
+        done.tryComplete();
+    }
+
+    private void fail(Throwable cause) {
+        // the rest of the stream is ignored
+        first = null;
+        rest = null;
+        done.tryFail(cause);
+    }
+}
@@ -0,0 +1,68 @@
+package com.jtruelove.vertx.web;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The limits of a {@link JsonStreamDecoder}.
+ */
+public class JsonStreamOptions {
+
+    // configuration key constants
+    public static final String MAX_DEPTH = "max_depth";
+    public static final String MAX_SIZE = "max_size";
+
+    public static final int DEFAULT_MAX_DEPTH = 64;
+    public static final int DEFAULT_MAX_SIZE = 10 * 1024 * 1024;
+
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    public JsonStreamOptions() {}
+
+    /**
+     * Creates options from json configuration, anything missing keeps its default.
+     *
+     * @param config - Json configuration.
+     */
+    public JsonStreamOptions(JsonObject config) {
+        setMaxDepth(config.getInteger(MAX_DEPTH, DEFAULT_MAX_DEPTH));
+        setMaxSize(config.getInteger(MAX_SIZE, DEFAULT_MAX_SIZE));
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets how deeply objects and arrays can nest, counting the array being streamed.
+     *
+     * @param maxDepth - number of levels.
+     * @return - reference to the options.
+     */
+    public JsonStreamOptions setMaxDepth(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("Invalid max depth: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the most bytes held at once, the whole document when decoding an object and each element when decoding
+     * an array.
+     *
+     * @param maxSize - size in bytes.
+     * @return - reference to the options.
+     */
+    public JsonStreamOptions setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+}
@@ -1,17 +1,38 @@
 package com.jtruelove.vertx.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Collection of utils for parsing Json and interacting with it.
  *
+ * Parsing and serializing go through a reader and writer cached per class. They come from {@link #mapper}, and are
+ * made again once it is configured differently, say a feature is turned on. In fast mode, see
+ * {@link #setFastMode(boolean)}, they come from a copy of the mapper with Afterburner instead.
+ *
  * @author truelove@cyngn.com (Jeremy Truelove) 10/15/14
  */
 public class JsonUtil {
@@ -21,6 +42,83 @@ public class JsonUtil {
             .registerModule(new JavaTimeModule())//handle Java 8 time objects
             .setTimeZone(TimeZone.getTimeZone("UTC"));//override default of "GMT"
 
+    // Afterburner 2.7 defines its accessors in the packages of the classes it speeds up, which Java 9 and later forbid
+    private final static boolean AFTERBURNER_SUPPORTED = System.getProperty("java.specification.version", "")
+            .startsWith("1.");
+
+    // the readers and writers of the mapper as it is now, replaced when it changes
+    private static volatile Codec codec = new Codec(mapper);
+    // null unless in fast mode
+    private static volatile Codec fast;
+
+    /**
+     * Turn fast mode on or off. Fast mode reads and writes the same Json with a copy of {@link #mapper} taken when it
+     * is turned on, with Afterburner generating bytecode to get and set properties instead of going through
+     * reflection. The only features it changes are the two that flush the output after every value,
+     * FLUSH_AFTER_WRITE_VALUE and FLUSH_PASSED_TO_STREAM. Every other feature changes the Json that is read or
+     * written, so the copy keeps the mapper's settings. Set the mapper up first, changes made to it later aren't seen
+     * in fast mode until it is turned on again.
+     *
+     * Afterburner only works on Java 8, on a later version fast mode stays off.
+     *
+     * @param on true to turn fast mode on
+     * @return true if fast mode is on
+     */
+    public static boolean setFastMode(boolean on) {
+        if (on && !AFTERBURNER_SUPPORTED) {
+            logger.warn("Fast mode needs Java 8, Afterburner can't be used on Java {}",
+                    System.getProperty("java.specification.version"));
+            on = false;
+        }
+
+        fast = on ? new Codec(mapper.copy()
+                .registerModule(new AfterburnerModule())
+                .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false)) : null;
+        return on;
+    }
+
+    /**
+     * @return true if parsing and serializing are in fast mode
+     */
+    public static boolean isFastMode() {
+        return fast != null;
+    }
+
+    /**
+     * Get a reader for a class. Readers are immutable and thread safe, and finding the deserializer for a type is
+     * most of the cost of a small read, so there is one reader per class shared by everyone.
+     *
+     * @param clazz the class to parse json into
+     * @return the reader for the class
+     */
+    public static ObjectReader getReader(Class<?> clazz) {
+        return codec().reader(clazz);
+    }
+
+    /**
+     * Get a writer for a class, cached the same way as the readers.
+     *
+     * @param clazz the class to serialize to json
+     * @return the writer for the class
+     */
+    public static ObjectWriter getWriter(Class<?> clazz) {
+        return codec().writer(clazz);
+    }
+
+    private static Codec codec() {
+        Codec current = fast;
+        if (current != null) { return current; }
+
+        current = codec;
+        if (!current.isCurrent()) {
+            // racing threads may each make one, the last one made stays
+            current = new Codec(mapper);
+            codec = current;
+        }
+        return current;
+    }
+
     /**
      * Parses raw json into a concrete impl of your choosing
      *
@@ -33,7 +131,7 @@ public class JsonUtil {
         if (data == null || "".equals(data)) { return null; }
 
         T obj = null;
-        try { obj = mapper.readValue(data, clazz); }
+        try { obj = getReader(clazz).readValue(data); }
         catch (IOException e) {
             logger.error("Error parsing class: {} error: ", clazz, e);
         }
@@ -56,7 +154,48 @@ public class JsonUtil {
 
         T obj = null;
         try {
-            obj = mapper.readValue(data, clazz);
+            obj = getReader(clazz).readValue(data);
+        } catch (IOException e) {
+            logger.error("Error parsing class: {} error: ", clazz, e);
+        }
+        return obj;
+    }
+
+    /**
+     * Parses json in a {@link Buffer} into a concrete impl of your choosing, without copying it out of the buffer
+     * first. If there is an error parsing then the exception is caught and the result will be null.
+     *
+     * @param data  the json raw data
+     * @param clazz the class to parse the json into
+     * @param <T>   the type of class parameterizing this method
+     * @return the new instance object generated from json or null on failure
+     */
+    public static <T> T parseJsonToObject(Buffer data, Class<T> clazz) {
+        if (data == null) { return null; }
+
+        return parseJsonToObject(data.getByteBuf(), clazz);
+    }
+
+    /**
+     * Parses the readable bytes of a {@link ByteBuf} into a concrete impl of your choosing, without copying them. The
+     * reader index of the buffer is left where it was. If there is an error parsing then the exception is caught and
+     * the result will be null.
+     *
+     * @param data  the json raw data
+     * @param clazz the class to parse the json into
+     * @param <T>   the type of class parameterizing this method
+     * @return the new instance object generated from json or null on failure
+     */
+    public static <T> T parseJsonToObject(ByteBuf data, Class<T> clazz) {
+        if (data == null || !data.isReadable()) { return null; }
+
+        T obj = null;
+        try {
+            // a heap buffer is parsed in place, a direct one is streamed from
+            obj = data.hasArray()
+                    ? getReader(clazz).readValue(data.array(), data.arrayOffset() + data.readerIndex(),
+                            data.readableBytes())
+                    : getReader(clazz).readValue(new ByteBufInputStream(data.duplicate()));
         } catch (IOException e) {
             logger.error("Error parsing class: {} error: ", clazz, e);
         }
@@ -73,10 +212,92 @@ public class JsonUtil {
         if (object == null) { throw new IllegalArgumentException("Can't serialize a null object to Json."); }
 
         String jsonString = null;
-        try { jsonString = mapper.writeValueAsString(object); }
+        try { jsonString = getWriter(object.getClass()).writeValueAsString(object); }
         catch (JsonProcessingException e) {
             logger.error("Error generating JSON class: {} error: ", object.getClass().getName(), e);
         }
         return jsonString;
     }
+
+    /**
+     * Serializes object to raw json in a {@link Buffer}, the bytes are written straight into the buffer without going
+     * through a String or byte[] first.
+     *
+     * The buffer is unpooled, vertx wraps the buffers it is handed so they can never be released, which would leak a
+     * pooled one.
+     *
+     * @param object the object to create Json from
+     * @return the buffer holding the Json for the object passed in or null if we fail to be able to generate it
+     */
+    public static Buffer getJsonBufferForObject(Object object) {
+        if (object == null) { throw new IllegalArgumentException("Can't serialize a null object to Json."); }
+
+        ByteBuf buffer = Unpooled.buffer();
+        return writeJsonForObject(object, buffer) ? Buffer.buffer(buffer) : null;
+    }
+
+    /**
+     * Serializes object to raw json at the end of a {@link ByteBuf}, ie a pooled one the caller releases once it
+     * has been written out. On failure nothing is left in the buffer.
+     *
+     * @param object the object to create Json from
+     * @param buffer the buffer to write the Json to
+     * @return true if the Json was written, false if we fail to be able to generate it
+     */
+    public static boolean writeJsonForObject(Object object, ByteBuf buffer) {
+        if (object == null) { throw new IllegalArgumentException("Can't serialize a null object to Json."); }
+
+        int start = buffer.writerIndex();
+        try { getWriter(object.getClass()).writeValue(new ByteBufOutputStream(buffer), object); }
+        catch (IOException e) {
+            logger.error("Error generating JSON class: {} error: ", object.getClass().getName(), e);
+            buffer.writerIndex(start);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The readers and writers of a mapper, one per class. A mapper's configuration, factories and contexts are
+     * immutable and swapped for new ones when it is changed, so comparing them tells if the readers and writers are
+     * still up to date.
+     */
+    private static class Codec {
+        private final ObjectMapper mapper;
+        private final DeserializationConfig deserializationConfig;
+        private final DeserializationContext deserializationContext;
+        private final SerializationConfig serializationConfig;
+        private final SerializerFactory serializerFactory;
+        private final SerializerProvider serializerProvider;
+        private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+        Codec(ObjectMapper mapper) {
+            this.mapper = mapper;
+            deserializationConfig = mapper.getDeserializationConfig();
+            deserializationContext = mapper.getDeserializationContext();
+            serializationConfig = mapper.getSerializationConfig();
+            serializerFactory = mapper.getSerializerFactory();
+            serializerProvider = mapper.getSerializerProvider();
+        }
+
+        boolean isCurrent() {
+            return deserializationConfig == mapper.getDeserializationConfig()
+                    && deserializationContext == mapper.getDeserializationContext()
+                    && serializationConfig == mapper.getSerializationConfig()
+                    && serializerFactory == mapper.getSerializerFactory()
+                    && serializerProvider == mapper.getSerializerProvider();
+        }
+
+        ObjectReader reader(Class<?> clazz) {
+            ObjectReader reader = readers.get(clazz);
+            // computeIfAbsent locks even when the reader is already there
+            return reader != null ? reader : readers.computeIfAbsent(clazz, mapper::readerFor);
+        }
+
+        ObjectWriter writer(Class<?> clazz) {
+            ObjectWriter writer = writers.get(clazz);
+            return writer != null ? writer : writers.computeIfAbsent(clazz, mapper::writerFor);
+        }
+    }
 }
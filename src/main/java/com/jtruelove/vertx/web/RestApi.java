@@ -23,6 +23,12 @@ public interface RestApi {
      */
     String X_REAL_IP = "x-real-ip";
 
+    /**
+     * The time in milliseconds the caller is willing to wait for a response, passed on to downstream calls as
+     * whatever is left of it
+     */
+    String X_REQUEST_TIMEOUT = "x-request-timeout";
+
     /**
      * Handle adding your APIs to the server's router
      *
@@ -0,0 +1,79 @@
+package com.jtruelove.vertx.web.handler;
+
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.web.HttpHelper;
+import com.jtruelove.vertx.web.RestApi;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Turns the caller's timeout header into a {@link Deadline} for the request, so the handlers can hold their
+ * promises and downstream calls to it. A request that arrives with no time left is answered with a 504 right away.
+ */
+public class DeadlineHandler implements Handler<RoutingContext> {
+
+    private final long defaultTimeout;
+
+    private DeadlineHandler(long defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * Get a DeadlineHandler that only sets a deadline when the caller sends one.
+     *
+     * @return reference to created handler
+     */
+    public static DeadlineHandler create() { return new DeadlineHandler(0L); }
+
+    /**
+     * Get a DeadlineHandler that falls back to a default when the caller doesn't send a timeout.
+     *
+     * @param defaultTimeout the time in milliseconds to allow requests with no timeout header, 0 for no deadline
+     * @return reference to created handler
+     */
+    public static DeadlineHandler create(long defaultTimeout) {
+        if (defaultTimeout < 0L) {
+            throw new IllegalArgumentException("Invalid timeout value: " + defaultTimeout);
+        }
+        return new DeadlineHandler(defaultTimeout);
+    }
+
+    /**
+     * Get the deadline for a request.
+     *
+     * @param ctx the routing context of the request
+     * @return the deadline or null if the request doesn't have one
+     */
+    public static Deadline deadline(RoutingContext ctx) {
+        return ctx.get(Deadline.CONTEXT_KEY);
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        long timeout = defaultTimeout;
+        String header = ctx.request().getHeader(RestApi.X_REQUEST_TIMEOUT);
+        if (StringUtils.isNotEmpty(header)) {
+            try {
+                timeout = Long.parseLong(header.trim());
+            } catch (NumberFormatException ex) {
+                HttpHelper.processErrorResponse("Invalid " + RestApi.X_REQUEST_TIMEOUT + " header: " + header,
+                        ctx.response(), HttpResponseStatus.BAD_REQUEST.code());
+                return;
+            }
+
+            if (timeout <= 0L) {
+                // the caller has already given up
+                HttpHelper.processErrorResponse("Deadline exceeded", ctx.response(),
+                        HttpResponseStatus.GATEWAY_TIMEOUT.code());
+                return;
+            }
+        }
+
+        if (timeout > 0L) {
+            ctx.put(Deadline.CONTEXT_KEY, Deadline.in(timeout));
+        }
+        ctx.next();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jtruelove.vertx.async;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for CancellationSignal
+ */
+public class CancellationSignalTests {
+
+    @Test
+    public void testCancelRunsActions() {
+        List<Integer> calls = new ArrayList<>();
+        CancellationSignal signal = new CancellationSignal();
+        signal.onCancel(() -> calls.add(1)).onCancel(() -> calls.add(2)).onCancel(() -> calls.add(3));
+
+        assertFalse(signal.isCancelled());
+        signal.cancel();
+        assertTrue(signal.isCancelled());
+        assertEquals(3, calls.size());
+
+        // cancelling again does nothing
+        signal.cancel();
+        assertEquals(3, calls.size());
+    }
+
+    @Test
+    public void testActionAfterCancelRunsImmediately() {
+        List<Integer> calls = new ArrayList<>();
+        CancellationSignal signal = new CancellationSignal();
+        signal.cancel();
+
+        signal.onCancel(() -> calls.add(1));
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void testRemove() {
+        List<Integer> calls = new ArrayList<>();
+        CancellationSignal signal = new CancellationSignal();
+        Action action = () -> calls.add(1);
+        signal.onCancel(action).onCancel(() -> calls.add(2));
+
+        assertTrue(signal.remove(action));
+        assertFalse(signal.remove(action));
+        signal.cancel();
+        assertEquals(1, calls.size());
+        assertEquals(2, (int) calls.get(0));
+    }
+
+    @Test
+    public void testFailingActionDoesNotStopOthers() {
+        List<Integer> calls = new ArrayList<>();
+        CancellationSignal signal = new CancellationSignal();
+        signal.onCancel(() -> { throw new RuntimeException("boom"); }).onCancel(() -> calls.add(1));
+
+        signal.cancel();
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void testChild() {
+        CancellationSignal parent = new CancellationSignal();
+        CancellationSignal child = parent.child();
+
+        // cancelling the child leaves the parent alone
+        child.cancel();
+        assertFalse(parent.isCancelled());
+
+        CancellationSignal other = parent.child();
+        parent.cancel();
+        assertTrue(other.isCancelled());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoneCannotBeCancelled() {
+        CancellationSignal.NONE.cancel();
+    }
+}
@@ -0,0 +1,53 @@
+package com.jtruelove.vertx.async;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for Deadline
+ */
+public class DeadlineTests {
+
+    @Test
+    public void testRemaining() {
+        Deadline deadline = Deadline.in(10000);
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remaining() > 9000 && deadline.remaining() <= 10000);
+    }
+
+    @Test
+    public void testExpired() {
+        Deadline deadline = Deadline.at(System.currentTimeMillis() - 1);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remaining());
+    }
+
+    @Test
+    public void testCap() {
+        Deadline deadline = Deadline.in(10000);
+        assertEquals(500, deadline.cap(500));
+        assertTrue(deadline.cap(60000) <= 10000);
+        // no timeout at all gets the remaining time
+        assertTrue(deadline.cap(0) > 9000);
+    }
+
+    @Test
+    public void testContext() {
+        JsonObject context = new JsonObject();
+        assertNull(Deadline.fromContext(context));
+
+        Deadline deadline = Deadline.in(1000);
+        deadline.toContext(context);
+        assertEquals(deadline.epochMillis(), Deadline.fromContext(context).epochMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeBudget() {
+        Deadline.in(-1);
+    }
+}
@@ -0,0 +1,177 @@
+package com.jtruelove.vertx.async;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for TimerWheel
+ */
+@RunWith(VertxUnitRunner.class)
+public class TimerWheelTests {
+
+    private Vertx vertx;
+
+    @Before
+    public void before(TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void after(TestContext context) {
+        vertx.close();
+    }
+
+    private static TimerWheel.Timeout timeout(Action action) {
+        return new TimerWheel.Timeout() {
+            @Override
+            protected void expire() {
+                action.callback();
+            }
+        };
+    }
+
+    @Test
+    public void testFires(TestContext context) {
+        Async async = context.async();
+
+        vertx.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.current();
+            long start = System.currentTimeMillis();
+            wheel.schedule(timeout(() -> {
+                // never early
+                context.assertTrue(System.currentTimeMillis() - start >= 50);
+                context.assertEquals(0, wheel.size());
+                async.complete();
+            }), 50);
+            context.assertEquals(1, wheel.size());
+        });
+    }
+
+    @Test
+    public void testCancel(TestContext context) {
+        Async async = context.async();
+
+        vertx.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.current();
+            TimerWheel.Timeout cancelled = timeout(() -> context.fail("cancelled timeouts don't fire"));
+            wheel.schedule(cancelled, 20);
+            wheel.schedule(timeout(async::complete), 50);
+
+            context.assertTrue(cancelled.isScheduled());
+            context.assertTrue(cancelled.cancel());
+            context.assertFalse(cancelled.isScheduled());
+            context.assertFalse(cancelled.cancel());
+            context.assertEquals(1, wheel.size());
+        });
+    }
+
+    @Test
+    public void testReschedule(TestContext context) {
+        Async async = context.async();
+
+        vertx.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.current();
+            List<Long> fired = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            TimerWheel.Timeout timeout = timeout(() -> fired.add(System.currentTimeMillis() - start));
+            wheel.schedule(timeout, 20);
+            wheel.schedule(timeout, 100);
+            context.assertEquals(1, wheel.size());
+
+            vertx.setTimer(300, timerId -> {
+                context.assertEquals(1, fired.size());
+                context.assertTrue(fired.get(0) >= 100);
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testCancelDuringExpiry(TestContext context) {
+        Async async = context.async();
+
+        vertx.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.current();
+            TimerWheel.Timeout[] timeouts = new TimerWheel.Timeout[2];
+            List<Integer> fired = new ArrayList<>();
+            // both land on the same tick, whichever fires first cancels the other
+            timeouts[0] = timeout(() -> { fired.add(0); timeouts[1].cancel(); });
+            timeouts[1] = timeout(() -> { fired.add(1); timeouts[0].cancel(); });
+            wheel.schedule(timeouts[0], 30);
+            wheel.schedule(timeouts[1], 30);
+
+            vertx.setTimer(200, timerId -> {
+                context.assertEquals(1, fired.size());
+                context.assertEquals(0, wheel.size());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testLongerThanOneRotation(TestContext context) {
+        Async async = context.async();
+
+        Context eventLoop = vertx.getOrCreateContext();
+        eventLoop.runOnContext(aVoid -> {
+            // 8 slots of 5ms, 100ms goes round the wheel a couple of times before it is due
+            TimerWheel wheel = TimerWheel.install(eventLoop, 5, 8);
+            long start = System.currentTimeMillis();
+            wheel.schedule(timeout(() -> {
+                context.assertTrue(System.currentTimeMillis() - start >= 100);
+                async.complete();
+            }), 100);
+        });
+    }
+
+    @Test
+    public void testInstallTwice(TestContext context) {
+        Async async = context.async();
+
+        Context eventLoop = vertx.getOrCreateContext();
+        eventLoop.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.install(eventLoop, 1, 64);
+            context.assertEquals(1L, wheel.getTick());
+            context.assertTrue(wheel == TimerWheel.current());
+            try {
+                TimerWheel.install(eventLoop, 1, 64);
+                context.fail("a context only gets one wheel");
+            } catch (IllegalStateException ex) {
+                async.complete();
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePowerOfTwo(TestContext context) {
+        TimerWheel.install(vertx.getOrCreateContext(), 10, 100);
+    }
+
+    @Test
+    public void testOffContext(TestContext context) {
+        context.assertNull(TimerWheel.current());
+
+        Async async = context.async();
+        vertx.runOnContext(aVoid -> {
+            TimerWheel wheel = TimerWheel.current();
+            new Thread(() -> {
+                try {
+                    wheel.schedule(timeout(() -> {}), 10);
+                    context.fail("only the owning context can schedule");
+                } catch (IllegalStateException ex) {
+                    async.complete();
+                }
+            }).start();
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package com.jtruelove.vertx.async.promise;
 
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
@@ -12,6 +14,7 @@ import org.junit.runner.RunWith;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 /**
  * Tests for PromisesImpl
@@ -252,4 +255,329 @@ public class PromiseImplTests {
         context.assertTrue(p2.isEmpty());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testAllBounded(TestContext context) {
+        PromiseFactory factory = new PromiseFactory(vertx);
+
+        Async async = context.async();
+
+        AtomicInteger inFlight = new AtomicInteger(0);
+        AtomicInteger maxInFlight = new AtomicInteger(0);
+        AtomicInteger completed = new AtomicInteger(0);
+
+        PromiseAction[] actions = new PromiseAction[20];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = (taskContext, onComplete) -> {
+                maxInFlight.set(Math.max(maxInFlight.get(), inFlight.incrementAndGet()));
+                vertx.setTimer(5, timerId -> {
+                    inFlight.decrementAndGet();
+                    completed.incrementAndGet();
+                    onComplete.accept(true);
+                });
+            };
+        }
+
+        factory.createParallel(3, actions).done((taskContext) -> {
+            context.assertEquals(20, completed.get());
+            context.assertEquals(3, maxInFlight.get());
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testAllBoundedLazyStream(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger count = new AtomicInteger(0);
+
+        // actions that complete synchronously must not grow the stack while the next ones are pulled
+        Promise.newInstance(vertx).all(4, IntStream.range(0, 100000).mapToObj(i -> (PromiseAction) (taskContext, onComplete) -> {
+            count.incrementAndGet();
+            onComplete.accept(true);
+        })).done((taskContext) -> {
+            context.assertEquals(100000, count.get());
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testAllBoundedFailureStopsFanOut(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger started = new AtomicInteger(0);
+
+        Promise.newInstance(vertx).all(2, IntStream.range(0, 100).mapToObj(i -> (PromiseAction) (taskContext, onComplete) -> {
+            started.incrementAndGet();
+            onComplete.accept(i != 5);
+        })).done((taskContext) -> {
+            context.fail("shouldn't call done on failure");
+        }).except((taskContext) -> {
+            context.assertEquals(6, started.get());
+            async.complete();
+        }).eval();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAllBoundedInvalidConcurrency(TestContext context) {
+        Promise.newInstance(vertx).all(0, (taskContext, onComplete) -> onComplete.accept(true));
+    }
+
+    @Test
+    public void testAny(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger started = new AtomicInteger(0);
+
+        Promise.newInstance(vertx).any((taskContext, onComplete) -> {
+            started.incrementAndGet();
+            vertx.setTimer(1000, timerId -> onComplete.accept(true));
+        }, (taskContext, onComplete) -> {
+            started.incrementAndGet();
+            onComplete.accept(false);
+        }, (taskContext, onComplete) -> {
+            started.incrementAndGet();
+            vertx.setTimer(10, timerId -> {
+                taskContext.put("winner", 3);
+                onComplete.accept(true);
+            });
+        }).done((taskContext) -> {
+            context.assertEquals(3, started.get());
+            context.assertEquals(3, taskContext.getInteger("winner"));
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testAnyAllFail(TestContext context) {
+        Async async = context.async();
+
+        Promise.newInstance(vertx).any((taskContext, onComplete) -> onComplete.accept(false),
+                (taskContext, onComplete) -> vertx.setTimer(10, timerId -> onComplete.accept(false)))
+        .done((taskContext) -> context.fail("shouldn't call done on failure"))
+        .except((taskContext) -> async.complete())
+        .eval();
+    }
+
+    @Test
+    public void testQuorum(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger succeeded = new AtomicInteger(0);
+        PromiseAction fast = (taskContext, onComplete) -> vertx.setTimer(10, timerId -> {
+            succeeded.incrementAndGet();
+            onComplete.accept(true);
+        });
+        PromiseAction slow = (taskContext, onComplete) -> vertx.setTimer(2000, timerId -> onComplete.accept(true));
+
+        Promise.newInstance(vertx).quorum(2, fast, slow, fast).done((taskContext) -> {
+            context.assertEquals(2, succeeded.get());
+            async.complete();
+        }).timeout(1000).eval();
+    }
+
+    @Test
+    public void testQuorumUnreachable(TestContext context) {
+        Async async = context.async();
+
+        PromiseAction ok = (taskContext, onComplete) -> onComplete.accept(true);
+        PromiseAction fail = (taskContext, onComplete) -> onComplete.accept(false);
+
+        Promise.newInstance(vertx).quorum(2, fail, ok, fail)
+        .done((taskContext) -> context.fail("shouldn't call done on failure"))
+        .except((taskContext) -> async.complete())
+        .eval();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuorumLargerThanActions(TestContext context) {
+        Promise.newInstance(vertx).quorum(2, (taskContext, onComplete) -> onComplete.accept(true));
+    }
+
+    @Test
+    public void testHedge(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger attempts = new AtomicInteger(0);
+
+        Promise.newInstance(vertx).hedge(50, (taskContext, onComplete) -> {
+            // the first attempt hangs, the hedged one is quick
+            long delay = attempts.incrementAndGet() == 1 ? 5000 : 10;
+            vertx.setTimer(delay, timerId -> onComplete.accept(true));
+        }).done((taskContext) -> {
+            context.assertEquals(2, attempts.get());
+            async.complete();
+        }).timeout(1000).eval();
+    }
+
+    @Test
+    public void testHedgeNotSentWhenFast(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger attempts = new AtomicInteger(0);
+
+        Promise.newInstance(vertx).hedge(200, (taskContext, onComplete) -> {
+            attempts.incrementAndGet();
+            vertx.setTimer(10, timerId -> onComplete.accept(true));
+        }).done((taskContext) -> vertx.setTimer(500, timerId -> {
+            context.assertEquals(1, attempts.get());
+            async.complete();
+        })).eval();
+    }
+
+    @Test
+    public void testHedgeWithPolicy(TestContext context) {
+        Async async = context.async();
+
+        HedgePolicy policy = new HedgePolicy(90.0, 5000, 1, 1);
+        context.assertEquals(5000L, policy.delay());
+
+        // a single observed latency of 100ms fills the window and becomes the delay
+        policy.record(100);
+        context.assertTrue(policy.delay() >= 100 && policy.delay() < 110);
+
+        AtomicInteger attempts = new AtomicInteger(0);
+        Promise.newInstance(vertx).hedge(policy, (taskContext, onComplete) -> {
+            long delay = attempts.incrementAndGet() == 1 ? 5000 : 10;
+            vertx.setTimer(delay, timerId -> onComplete.accept(true));
+        }).done((taskContext) -> {
+            context.assertEquals(2, attempts.get());
+            // the hedge won ~110ms after the first attempt started, which is what gets recorded rather than the
+            // ~10ms the hedge itself took
+            context.assertTrue(policy.delay() >= 100 && policy.delay() < 1000);
+            async.complete();
+        }).timeout(1000).eval();
+    }
+
+    @Test
+    public void testTimeoutCancelsInFlightAction(TestContext context) {
+        Async async = context.async();
+
+        Promise.newInstance(vertx).then((CancellablePromiseAction) (taskContext, onComplete, signal) -> {
+            long timerId = vertx.setTimer(5000, theTimerId -> onComplete.accept(true));
+            signal.onCancel(() -> {
+                context.assertTrue(vertx.cancelTimer(timerId));
+                async.complete();
+            });
+        }).done((taskContext) -> context.fail("shouldn't call done on failure"))
+        .timeout(100).eval();
+    }
+
+    @Test
+    public void testSuccessDoesNotCancel(TestContext context) {
+        Async async = context.async();
+
+        CancellationSignal[] seen = new CancellationSignal[1];
+        Promise.newInstance(vertx).then((CancellablePromiseAction) (taskContext, onComplete, signal) -> {
+            seen[0] = signal;
+            onComplete.accept(true);
+        }).done((taskContext) -> {
+            context.assertFalse(seen[0].isCancelled());
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testAllPassesSignalThrough(TestContext context) {
+        Async async = context.async(2);
+
+        CancellablePromiseAction hangs = (taskContext, onComplete, signal) -> signal.onCancel(async::countDown);
+
+        Promise.newInstance(vertx).all(hangs, hangs,
+                (taskContext, onComplete) -> vertx.setTimer(10, timerId -> onComplete.accept(false))).eval();
+    }
+
+    @Test
+    public void testAnyCancelsLosers(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger cancelled = new AtomicInteger(0);
+        CancellablePromiseAction slow = (taskContext, onComplete, signal) -> {
+            long timerId = vertx.setTimer(5000, theTimerId -> onComplete.accept(true));
+            signal.onCancel(() -> {
+                vertx.cancelTimer(timerId);
+                cancelled.incrementAndGet();
+            });
+        };
+
+        Promise.newInstance(vertx).any(slow, (taskContext, onComplete) ->
+                vertx.setTimer(10, timerId -> onComplete.accept(true)), slow)
+        .done((taskContext) -> {
+            context.assertEquals(2, cancelled.get());
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testHedgeCancelsSlowAttempt(TestContext context) {
+        Async async = context.async();
+
+        AtomicInteger attempts = new AtomicInteger(0);
+        AtomicInteger cancelled = new AtomicInteger(0);
+        Promise.newInstance(vertx).hedge(50, (CancellablePromiseAction) (taskContext, onComplete, signal) -> {
+            long delay = attempts.incrementAndGet() == 1 ? 5000 : 10;
+            vertx.setTimer(delay, timerId -> onComplete.accept(true));
+            signal.onCancel(cancelled::incrementAndGet);
+        }).done((taskContext) -> {
+            // both attempts share the signal, what matters is the slow one heard about it
+            context.assertEquals(2, cancelled.get());
+            async.complete();
+        }).timeout(1000).eval();
+    }
+
+    @Test
+    public void testTimeoutOnEventLoop(TestContext context) {
+        Async async = context.async();
+
+        // set from an event loop the timeout is tracked on the timer wheel
+        vertx.runOnContext(aVoid -> Promise.newInstance(vertx).then((taskContext, onComplete) -> {
+            // do nothing, aka don't hit the callback
+        }).done((taskContext) -> context.fail("shouldn't call done on failure"))
+        .timeout(100).except((taskContext) -> {
+            context.assertTrue(taskContext.getString(Promise.CONTEXT_FAILURE_KEY).contains("timed out"));
+            async.complete();
+        }).eval());
+    }
+
+    @Test
+    public void testTimeoutOnEventLoopCancelled(TestContext context) {
+        Async async = context.async();
+
+        vertx.runOnContext(aVoid -> Promise.newInstance(vertx).then((taskContext, onComplete) ->
+                vertx.setTimer(10, timerId -> onComplete.accept(true)))
+        .except((taskContext) -> context.fail("shouldn't time out"))
+        .timeout(200).done((taskContext) -> vertx.setTimer(400, timerId -> async.complete())).eval());
+    }
+
+    @Test
+    public void testDeadlineInContext(TestContext context) {
+        Async async = context.async();
+
+        Deadline deadline = Deadline.in(5000);
+        Promise.newInstance(vertx).then((taskContext, onComplete) -> {
+            context.assertEquals(deadline.epochMillis(), Deadline.fromContext(taskContext).epochMillis());
+            onComplete.accept(true);
+        }).done((taskContext) -> async.complete()).deadline(deadline).eval();
+    }
+
+    @Test
+    public void testDeadlineTimesOut(TestContext context) {
+        Async async = context.async();
+
+        Promise.newInstance(vertx).then((taskContext, onComplete) -> {
+            // do nothing, aka don't hit the callback
+        }).done((taskContext) -> context.fail("shouldn't call done on failure"))
+        .deadline(Deadline.in(100)).except((taskContext) -> async.complete()).eval();
+    }
+
+    @Test
+    public void testExpiredDeadlineStartsNothing(TestContext context) {
+        Async async = context.async();
+
+        Promise.newInstance(vertx).then((taskContext, onComplete) -> context.fail("the deadline has passed"))
+        .deadline(Deadline.at(System.currentTimeMillis() - 1))
+        .except((taskContext) -> {
+            context.assertTrue(taskContext.getString(Promise.CONTEXT_FAILURE_KEY).contains("deadline"));
+            async.complete();
+        }).eval();
+    }
+}
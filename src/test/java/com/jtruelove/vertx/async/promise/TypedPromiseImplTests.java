@@ -0,0 +1,290 @@
+package com.jtruelove.vertx.async.promise;
+
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for TypedPromiseImpl
+ */
+@RunWith(VertxUnitRunner.class)
+public class TypedPromiseImplTests {
+
+    private Vertx vertx;
+
+    @Before
+    public void before(TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void after(TestContext context) {
+        vertx.close();
+    }
+
+    @Test
+    public void testBasic(TestContext context) {
+        PromiseFactory factory = new PromiseFactory(vertx);
+
+        Async async = context.async();
+
+        factory.create(new ArrayList<Integer>()).then((list, onResult) -> {
+            list.add(1);
+            onResult.accept(true);
+        }).then((list, onResult) -> {
+            // finish asynchronously
+            vertx.setTimer(10, timerId -> {
+                list.add(2);
+                onResult.accept(true);
+            });
+        }).then((list, onResult) -> {
+            list.add(3);
+            onResult.accept(true);
+        }).done(list -> {
+            context.assertEquals(3, list.size());
+            context.assertEquals(1, list.get(0));
+            context.assertEquals(3, list.get(2));
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testSynchronousStepsRunInline(TestContext context) {
+        Async async = context.async();
+
+        List<Integer> depths = new ArrayList<>();
+        TypedPromise<List<Integer>> promise = TypedPromise.newInstance(vertx, depths);
+        for (int i = 0; i < 10000; i++) {
+            promise.then((list, onResult) -> {
+                list.add(Thread.currentThread().getStackTrace().length);
+                onResult.accept(true);
+            });
+        }
+
+        promise.done(list -> {
+            context.assertEquals(10000, list.size());
+            // the chain is drained in a loop so the stack never grows with the number of steps
+            context.assertEquals(list.get(0), list.get(list.size() - 1));
+            async.complete();
+        }).eval();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleEval(TestContext context) {
+        TypedPromise.newInstance(vertx, "ctx").then((ctx, onResult) -> onResult.accept(true)).eval().eval();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEvalOnEmptyPromise(TestContext context) {
+        TypedPromise.newInstance(vertx, "ctx").eval();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParallel(TestContext context) {
+        Async async = context.async();
+
+        TypedPromiseAction<ArrayList<Integer>> slow = (list, onResult) -> {
+            vertx.setTimer(500, timerId -> {
+                list.add(1);
+                onResult.accept(true);
+            });
+        };
+        TypedPromiseAction<ArrayList<Integer>> fast = (list, onResult) -> {
+            list.add(2);
+            onResult.accept(true);
+        };
+        TypedPromiseAction<ArrayList<Integer>>[] actions =
+                (TypedPromiseAction<ArrayList<Integer>>[]) new TypedPromiseAction<?>[]{slow, fast};
+
+        TypedPromise.newInstance(vertx, new ArrayList<Integer>()).all(actions).done(list -> {
+            context.assertEquals(2, list.size());
+            context.assertEquals(2, list.get(0));
+            context.assertEquals(1, list.get(1));
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testResultFromAnotherThread(TestContext context) {
+        Async async = context.async();
+        Context evalContext = vertx.getOrCreateContext();
+
+        evalContext.runOnContext(aVoid -> TypedPromise.newInstance(vertx, new ArrayList<Integer>())
+                .then((list, onResult) -> new Thread(() -> onResult.accept(true)).start())
+                .then((list, onResult) -> {
+                    // the chain carries on where it was evaluated
+                    context.assertTrue(Vertx.currentContext() == evalContext);
+                    new Thread(() -> onResult.accept(true)).start();
+                }).done(list -> {
+                    // and finishes there too
+                    context.assertTrue(Vertx.currentContext() == evalContext);
+                    async.complete();
+                }).eval());
+    }
+
+    @Test
+    public void testResultRacingTimeout(TestContext context) {
+        int promises = 50;
+        Async async = context.async(promises);
+        AtomicInteger outcomes = new AtomicInteger();
+
+        // the result lands off the event loop around when the timeout fires, only one of them may decide
+        for (int i = 0; i < promises; i++) {
+            TypedPromise.newInstance(vertx, "ctx").then((ctx, onResult) -> new Thread(() -> {
+                try {
+                    Thread.sleep(20L);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                onResult.accept(true);
+            }).start()).timeout(20L).done(ctx -> {
+                outcomes.incrementAndGet();
+                async.countDown();
+            }).except(ctx -> {
+                outcomes.incrementAndGet();
+                async.countDown();
+            }).eval();
+        }
+
+        async.await(5000L);
+        try {
+            // give a second outcome the chance to show up
+            Thread.sleep(100L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        context.assertEquals(promises, outcomes.get());
+    }
+
+    @Test
+    public void testExcept(TestContext context) {
+        Async async = context.async();
+
+        TypedPromise.newInstance(vertx, new StringBuilder()).then((builder, onResult) -> {
+            builder.append("something bad");
+            onResult.accept(false);
+        }).then((builder, onResult) -> {
+            context.fail("This should never be reached");
+        }).done(builder -> {
+            context.fail("shouldn't call done on failure");
+        }).except(builder -> {
+            context.assertEquals("something bad", builder.toString());
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testExceptionOnCallback(TestContext context) {
+        Async async = context.async();
+
+        TypedPromise<String> promise = TypedPromise.newInstance(vertx, "ctx");
+        promise.then((ctx, onResult) -> {
+            throw new RuntimeException("boom");
+        }).done(ctx -> {
+            context.fail("shouldn't call done on failure");
+        }).except(ctx -> {
+            context.assertFalse(promise.succeeded());
+            context.assertTrue(promise.cause() instanceof RuntimeException);
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testTimeout(TestContext context) {
+        Async async = context.async();
+
+        TypedPromise<String> promise = TypedPromise.newInstance(vertx, "ctx");
+        promise.then((ctx, onResult) -> {
+            // do nothing, aka don't hit the callback
+        }).done(ctx -> {
+            context.fail("shouldn't call done on failure");
+        }).timeout(500).except(ctx -> {
+            context.assertTrue(promise.cause() instanceof TimeoutException);
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testDeadline(TestContext context) {
+        Async async = context.async();
+
+        Deadline deadline = Deadline.in(5000);
+        TypedPromise<JsonObject> promise = TypedPromise.newInstance(vertx, new JsonObject());
+        promise.then((json, onResult) -> {
+            // a json context gets it stored so actions can pass it on
+            context.assertEquals(deadline.epochMillis(), Deadline.fromContext(json).epochMillis());
+            onResult.accept(true);
+        }).done(json -> async.complete()).deadline(deadline).eval();
+        context.assertEquals(deadline, promise.deadline());
+    }
+
+    @Test
+    public void testDeadlineTimesOut(TestContext context) {
+        Async async = context.async();
+
+        TypedPromise<String> promise = TypedPromise.newInstance(vertx, "ctx");
+        promise.then((ctx, onResult) -> {
+            // never finishes
+        }).deadline(Deadline.in(100)).except(ctx -> {
+            context.assertTrue(promise.cause() instanceof TimeoutException);
+            async.complete();
+        }).eval();
+    }
+
+    @Test
+    public void testExpiredDeadlineStartsNothing(TestContext context) {
+        Async async = context.async();
+
+        TypedPromise<String> promise = TypedPromise.newInstance(vertx, "ctx");
+        promise.then((ctx, onResult) -> context.fail("the deadline has passed"))
+                .deadline(Deadline.at(System.currentTimeMillis() - 1))
+                .except(ctx -> {
+                    context.assertTrue(promise.cause() instanceof DeadlineExceededException);
+                    async.complete();
+                }).eval();
+    }
+
+    @Test
+    public void testIsEmpty(TestContext context) {
+        PromiseFactory factory = new PromiseFactory(vertx);
+
+        context.assertFalse(factory.create("ctx").then((ctx, onResult) -> {}).isEmpty());
+        context.assertTrue(factory.create("ctx").isEmpty());
+    }
+
+    @Test
+    public void testAllBounded(TestContext context) {
+        Async async = context.async();
+
+        int[] state = new int[3]; // in flight, max in flight, completed
+        TypedPromise.newInstance(vertx, state).all(2, IntStream.range(0, 10).mapToObj(i ->
+                (TypedPromiseAction<int[]>) (counts, onResult) -> {
+            counts[1] = Math.max(counts[1], ++counts[0]);
+            vertx.setTimer(5, timerId -> {
+                counts[0]--;
+                counts[2]++;
+                onResult.accept(true);
+            });
+        })).done(counts -> {
+            context.assertEquals(2, counts[1]);
+            context.assertEquals(10, counts[2]);
+            async.complete();
+        }).eval();
+    }
+}
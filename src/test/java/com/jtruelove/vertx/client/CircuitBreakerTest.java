@@ -0,0 +1,132 @@
+package com.jtruelove.vertx.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link CircuitBreaker}
+ */
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("api", new CircuitBreakerOptions().setWindowSize(10).setMinimumCalls(4)
+                .setFailureRate(50).setSlowCallRate(75).setSlowCallDuration(1000).setOpenDuration(50)
+                .setHalfOpenCalls(2));
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(breaker.tryAcquire());
+            breaker.onFailure(FAST);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testOpensOnFailureRate() {
+        CircuitBreaker breaker = breaker();
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        breaker.onFailure(FAST);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure(FAST);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testOpensOnSlowCallRate() {
+        CircuitBreaker breaker = breaker();
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(SLOW);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onSuccess(SLOW);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testWindowSlides() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(FAST);
+        }
+        breaker.onFailure(FAST);
+        for (int i = 0; i < 6; i++) {
+            breaker.onSuccess(FAST);
+        }
+
+        // each failure pushes the oldest outcome out of the full window, including the first failure
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(FAST);
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure(FAST);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private CircuitBreaker opened() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(FAST);
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    @Test
+    public void testHalfOpenCloses() throws Exception {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(60);
+
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+        // only the trial calls get through
+        Assert.assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenReopens() throws Exception {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(60);
+
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(FAST);
+        breaker.onFailure(FAST);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testReleaseFreesTrial() throws Exception {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(60);
+
+        Assert.assertTrue(breaker.tryAcquire());
+        Assert.assertTrue(breaker.tryAcquire());
+        breaker.release();
+        Assert.assertTrue(breaker.tryAcquire());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new CircuitBreakerOptions().setFailureRate(0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ConcurrencyLimiter}
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    public void testRejectsOverLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitOptions().setInitialLimit(2));
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(2, limiter.getInFlight());
+
+        limiter.release();
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testBacksOffOnDrop() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitOptions().setInitialLimit(10)
+                .setBackoffRatio(0.5).setMinLimit(2));
+        limiter.tryAcquire();
+        limiter.onSample(RTT, true);
+        Assert.assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.onSample(RTT, true);
+        }
+        Assert.assertEquals(2, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testGrowsWhileBusy() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitOptions().setInitialLimit(4)
+                .setMaxLimit(5));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+        }
+
+        // about a window of successes adds one call
+        for (int i = 0; i < 5; i++) {
+            limiter.onSample(RTT, false);
+            limiter.tryAcquire();
+        }
+        Assert.assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(RTT, false);
+            limiter.tryAcquire();
+        }
+        Assert.assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void testIdleDoesNotGrow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitOptions().setInitialLimit(10));
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.onSample(RTT, false);
+        }
+        Assert.assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testSlowCountsAsDrop() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimitOptions().setInitialLimit(10)
+                .setMaxLatency(1));
+        limiter.tryAcquire();
+        limiter.onSample(RTT, false);
+        Assert.assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testFromJson() {
+        ConcurrencyLimitOptions options = new ConcurrencyLimitOptions(new JsonObject()
+                .put(ConcurrencyLimitOptions.INITIAL_LIMIT, 7).put(ConcurrencyLimitOptions.BACKOFF_RATIO, 0.75));
+        Assert.assertEquals(7, options.getInitialLimit());
+        Assert.assertEquals(0.75, options.getBackoffRatio(), 0.0);
+        Assert.assertEquals(ConcurrencyLimitOptions.DEFAULT_MAX_LIMIT, options.getMaxLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitialOutsideBounds() {
+        new ConcurrencyLimiter(new ConcurrencyLimitOptions().setInitialLimit(5).setMinLimit(10));
+    }
+}
@@ -0,0 +1,176 @@
+package com.jtruelove.vertx.client;
+
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import io.vertx.core.Vertx;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests {@link RequestQueue}
+ */
+public class RequestQueueTest {
+
+    private final List<String> admitted = new ArrayList<>();
+    private final List<Throwable> rejected = new ArrayList<>();
+
+    private void submit(RequestQueue queue, Priority priority, String name) {
+        submit(queue, priority, name, null, null);
+    }
+
+    private void submit(RequestQueue queue, Priority priority, String name, Deadline deadline,
+                        CancellationSignal signal) {
+        queue.submit(priority, deadline, 0L, signal, aVoid -> admitted.add(name), rejected::add);
+    }
+
+    @Test
+    public void testAdmitsByPriority() {
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions().setInterval(60000L), 1);
+        submit(queue, Priority.LOW, "first");
+        submit(queue, Priority.LOW, "low");
+        submit(queue, Priority.NORMAL, "normal");
+        submit(queue, Priority.HIGH, "high");
+        Assert.assertEquals(1, queue.getInFlight());
+        Assert.assertEquals(3, queue.size());
+
+        for (int i = 0; i < 3; i++) {
+            queue.release();
+        }
+        Assert.assertEquals(4, admitted.size());
+        Assert.assertEquals("first", admitted.get(0));
+        Assert.assertEquals("high", admitted.get(1));
+        Assert.assertEquals("normal", admitted.get(2));
+        Assert.assertEquals("low", admitted.get(3));
+        Assert.assertEquals(4L, queue.getAdmitted());
+
+        queue.release();
+        Assert.assertEquals(0, queue.getInFlight());
+        Assert.assertTrue(rejected.isEmpty());
+    }
+
+    @Test
+    public void testFullQueuePushesOutLowerPriority() {
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions().setMaxSize(2), 1);
+        submit(queue, Priority.NORMAL, "first");
+        submit(queue, Priority.LOW, "low");
+        submit(queue, Priority.NORMAL, "normal");
+
+        // a high priority call pushes out the low one
+        submit(queue, Priority.HIGH, "high");
+        Assert.assertEquals(1, rejected.size());
+        Assert.assertTrue(rejected.get(0) instanceof LoadSheddingException);
+        Assert.assertEquals(2, queue.size());
+
+        // with nothing lower left to push out a normal call is turned away
+        submit(queue, Priority.NORMAL, "turned away");
+        Assert.assertEquals(2, rejected.size());
+        Assert.assertEquals(2L, queue.getRejected());
+        Assert.assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testShedsAfterInterval() throws Exception {
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions().setTargetDelay(1L).setInterval(20L), 1);
+        submit(queue, Priority.NORMAL, "first");
+        submit(queue, Priority.NORMAL, "normal");
+        submit(queue, Priority.HIGH, "high");
+        Thread.sleep(50L);
+
+        // high priority calls wait however long it takes
+        queue.release();
+        Assert.assertEquals("high", admitted.get(1));
+
+        queue.release();
+        Assert.assertEquals(2, admitted.size());
+        Assert.assertEquals(1, rejected.size());
+        Assert.assertTrue(rejected.get(0) instanceof LoadSheddingException);
+        Assert.assertEquals(1L, queue.getShed());
+        Assert.assertEquals(0, queue.getInFlight());
+    }
+
+    @Test
+    public void testShedsExpiredDeadline() throws Exception {
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions().setInterval(60000L), 1);
+        submit(queue, Priority.HIGH, "first");
+        submit(queue, Priority.HIGH, "expired", Deadline.in(5L), null);
+        submit(queue, Priority.NORMAL, "next");
+        Thread.sleep(20L);
+
+        queue.release();
+        Assert.assertEquals(1, rejected.size());
+        Assert.assertTrue(rejected.get(0) instanceof DeadlineExceededException);
+        Assert.assertEquals("next", admitted.get(1));
+        Assert.assertEquals(1L, queue.getExpired());
+    }
+
+    @Test
+    public void testTimesOutWhileQueued() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions().setInterval(60000L), 1);
+        CompletableFuture<Throwable> timedOut = new CompletableFuture<>();
+        CompletableFuture<Throwable> expired = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> {
+            queue.submit(Priority.HIGH, null, 0L, null, admit -> {}, rejected::add);
+            queue.submit(Priority.HIGH, null, 50L, null, admit -> timedOut.complete(null), timedOut::complete);
+            queue.submit(Priority.HIGH, Deadline.in(50L), 60000L, null, admit -> expired.complete(null),
+                    expired::complete);
+        });
+
+        // nothing in flight finishes, the calls waiting fail on their own
+        Assert.assertTrue(timedOut.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+        Assert.assertTrue(expired.get(5, TimeUnit.SECONDS) instanceof DeadlineExceededException);
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(2L, queue.getExpired());
+
+        queue.release();
+        Assert.assertEquals(0, queue.getInFlight());
+        vertx.close();
+    }
+
+    @Test
+    public void testCancelledWhileQueued() {
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions(), 1);
+        CancellationSignal signal = new CancellationSignal();
+        submit(queue, Priority.NORMAL, "first");
+        submit(queue, Priority.NORMAL, "cancelled", null, signal);
+
+        signal.cancel();
+        Assert.assertEquals(0, queue.size());
+        Assert.assertTrue(rejected.get(0) instanceof CancellationException);
+
+        queue.release();
+        Assert.assertEquals(1, admitted.size());
+        Assert.assertEquals(0, queue.getInFlight());
+    }
+
+    @Test
+    public void testCloseRejectsWaiting() {
+        RequestQueue queue = new RequestQueue(new RequestQueueOptions(), 1);
+        submit(queue, Priority.NORMAL, "first");
+        submit(queue, Priority.NORMAL, "waiting");
+
+        queue.close();
+        Assert.assertEquals(0, queue.size());
+        Assert.assertTrue(rejected.get(0) instanceof LoadSheddingException);
+
+        submit(queue, Priority.HIGH, "late");
+        Assert.assertTrue(rejected.get(1) instanceof LoadSheddingException);
+        queue.release();
+        Assert.assertEquals(1, admitted.size());
+        Assert.assertEquals(0, queue.getInFlight());
+        Assert.assertEquals(2L, queue.getRejected());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTargetMustBeUnderInterval() {
+        new RequestQueue(new RequestQueueOptions().setTargetDelay(100L).setInterval(100L), 1);
+    }
+}
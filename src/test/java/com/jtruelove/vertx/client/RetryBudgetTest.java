@@ -0,0 +1,76 @@
+package com.jtruelove.vertx.client;
+
+import io.vertx.core.VertxException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests {@link RetryBudget} and {@link RetryPolicy}
+ */
+public class RetryBudgetTest {
+
+    @Test
+    public void testRatio() {
+        RetryBudget budget = new RetryBudget(0.5, 0);
+        Assert.assertFalse(budget.tryWithdraw());
+
+        for (int i = 0; i < 4; i++) {
+            budget.deposit();
+        }
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertTrue(budget.tryWithdraw());
+        Assert.assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void testCapped() {
+        RetryBudget budget = new RetryBudget(1.0, 0);
+        for (int i = 0; i < 1000; i++) {
+            budget.deposit();
+        }
+        Assert.assertEquals(100, budget.getBalance());
+    }
+
+    @Test
+    public void testMinRetriesPerSecond() throws Exception {
+        RetryBudget budget = new RetryBudget(0.0, 100);
+        // starts with a second's worth
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(budget.tryWithdraw());
+        }
+        Assert.assertFalse(budget.tryWithdraw());
+
+        Thread.sleep(50);
+        Assert.assertTrue(budget.tryWithdraw());
+    }
+
+    @Test
+    public void testBackoffJittered() {
+        RetryPolicy policy = new RetryPolicy().setBaseBackoff(10).setMaxBackoff(50);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoff(1);
+            Assert.assertTrue(first >= 0 && first <= 10);
+            long third = policy.backoff(3);
+            Assert.assertTrue(third >= 0 && third <= 40);
+            long capped = policy.backoff(40);
+            Assert.assertTrue(capped >= 0 && capped <= 50);
+        }
+    }
+
+    @Test
+    public void testRetryable() {
+        RetryPolicy policy = new RetryPolicy(new JsonObject().put(RetryPolicy.RETRYABLE_STATUSES,
+                new JsonArray().add(503).add(429)));
+        Assert.assertTrue(policy.isRetryable(429));
+        Assert.assertFalse(policy.isRetryable(500));
+        Assert.assertTrue(policy.isRetryable(new VertxException("Connection was closed")));
+        Assert.assertFalse(policy.isRetryable(new TimeoutException()));
+        Assert.assertFalse(policy.isRetryable(new CancellationException()));
+        Assert.assertFalse(policy.isRetryable(new CircuitBreakerOpenException("open")));
+    }
+}
@@ -0,0 +1,167 @@
+package com.jtruelove.vertx.client;
+
+import com.jtruelove.vertx.async.Deadline;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link ServiceClientMetrics}
+ */
+public class ServiceClientMetricsTest {
+
+    private Vertx vertx;
+    private ServiceClient client;
+
+    @Before
+    public void before() throws Exception {
+        vertx = Vertx.vertx();
+
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        vertx.createHttpServer().requestHandler(request -> {
+            switch (request.path()) {
+                case "/ok":
+                    request.response().end("hello");
+                    break;
+                case "/chunked":
+                    // no Content-Length to go by
+                    request.response().setChunked(true).write("hel").end("lo");
+                    break;
+                case "/missing":
+                    request.response().setStatusCode(404).end();
+                    break;
+                default:
+                    // never answer
+            }
+        }).listen(0, "localhost", result -> listening.complete(result.result()));
+        int port = listening.get(5, TimeUnit.SECONDS).actualPort();
+
+        client = ServiceClient.create(vertx, new JsonObject()
+                .put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, port)
+                .put(ServiceClient.METRICS, true)
+                .put(ServiceClient.APIS, new JsonArray()
+                        .add(new JsonObject().put(ServiceClient.API_NAME, "users"))
+                        .add(new JsonObject().put(ServiceClient.API_NAME, "slow").put(ServiceClient.TIMEOUT, 50L))));
+    }
+
+    @After
+    public void after() {
+        client.close();
+        vertx.close();
+    }
+
+    private void call(String path, ServiceRequest request) throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> client.call(HttpMethod.GET, path, request,
+                response -> response.bodyHandler(body -> done.complete(null)), throwable -> done.complete(null)));
+        done.get(5, TimeUnit.SECONDS);
+    }
+
+    private ServiceRequest api(String name) {
+        ServiceRequest request = new ServiceRequest();
+        request.setApiName(name);
+        return request;
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        ServiceClient plain = new ServiceClient.Builder(vertx).withHost("localhost").withPort(1234).build();
+        Assert.assertNull(plain.getMetrics());
+        plain.close();
+    }
+
+    @Test
+    public void testRecordsPerApi() throws Exception {
+        call("/ok", api("users"));
+        call("/ok", api("users"));
+        call("/missing", api("users"));
+        call("/slow", api("slow"));
+
+        ServiceClientMetrics metrics = client.getMetrics();
+        ApiMetrics users = metrics.api("users");
+        Assert.assertEquals(3, users.getRequests());
+        Assert.assertEquals(2, users.getStatusCount(2));
+        Assert.assertEquals(1, users.getStatusCount(4));
+        Assert.assertEquals(3, users.getLatency().getCount());
+        Assert.assertEquals(3, users.getQueueWait().getCount());
+        Assert.assertEquals(10, users.getBytesIn());
+        Assert.assertEquals(0, users.getInFlight());
+
+        ApiMetrics slow = metrics.api("slow");
+        Assert.assertEquals(1, slow.getRequests());
+        Assert.assertEquals(1, slow.getTimeouts());
+        Assert.assertEquals(0, slow.getLatency().getCount());
+        Assert.assertEquals(0, metrics.getInFlight());
+    }
+
+    @Test
+    public void testBytesInCounted() throws Exception {
+        call("/chunked", api("users"));
+        call("/ok", api("users"));
+
+        Assert.assertEquals(10, client.getMetrics().api("users").getBytesIn());
+    }
+
+    @Test
+    public void testUnknownApiUsesDefault() throws Exception {
+        call("/ok", api("unknown"));
+        call("/ok", new ServiceRequest());
+
+        ServiceClientMetrics metrics = client.getMetrics();
+        Assert.assertSame(metrics.api(ServiceClientMetrics.DEFAULT_API), metrics.api("unknown"));
+        Assert.assertEquals(2, metrics.api(null).getRequests());
+        Assert.assertFalse(metrics.apis().containsKey("unknown"));
+    }
+
+    @Test
+    public void testRejectedCalls() throws Exception {
+        ServiceRequest request = api("users");
+        request.setDeadline(Deadline.at(System.currentTimeMillis() - 1));
+        call("/ok", request);
+
+        ApiMetrics users = client.getMetrics().api("users");
+        Assert.assertEquals(0, users.getRequests());
+        Assert.assertEquals(1, users.getDeadlinesExceeded());
+        Assert.assertEquals(0, users.getTimeouts());
+    }
+
+    @Test
+    public void testSnapshotAndReset() throws Exception {
+        call("/ok", api("users"));
+
+        JsonObject json = client.getMetrics().toJson();
+        JsonObject users = json.getJsonObject(ServiceClient.APIS).getJsonObject("users");
+        Assert.assertEquals(1L, (long) users.getLong("requests"));
+        Assert.assertEquals(1L, (long) users.getJsonObject("status").getLong("2xx"));
+        Assert.assertEquals(1L, (long) users.getJsonObject("latency_us").getLong("count"));
+        Assert.assertTrue(json.getJsonObject(ServiceClient.APIS).containsKey(ServiceClientMetrics.DEFAULT_API));
+
+        client.getMetrics().reset();
+        Assert.assertEquals(0, client.getMetrics().api("users").getRequests());
+        Assert.assertEquals(0, client.getMetrics().api("users").getLatency().getCount());
+    }
+
+    @Test
+    public void testPublish() throws Exception {
+        call("/ok", api("users"));
+
+        CompletableFuture<JsonObject> published = new CompletableFuture<>();
+        vertx.eventBus().<JsonObject>consumer("client.metrics", message -> published.complete(message.body()));
+        long timerId = client.getMetrics().publishEvery(vertx, "client.metrics", 10L);
+
+        JsonObject json = published.get(5, TimeUnit.SECONDS);
+        vertx.cancelTimer(timerId);
+        Assert.assertEquals(1L, (long) json.getJsonObject(ServiceClient.APIS).getJsonObject("users")
+                .getLong("requests"));
+    }
+}
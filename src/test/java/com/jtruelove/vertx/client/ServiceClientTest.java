@@ -1,11 +1,62 @@
 package com.jtruelove.vertx.client;
 
+import com.jtruelove.vertx.async.CancellationSignal;
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.async.DeadlineExceededException;
+import com.jtruelove.vertx.async.promise.TypedPromise;
+import com.jtruelove.vertx.client.cache.ResponseCache;
+import com.jtruelove.vertx.client.cache.ResponseCacheOptions;
+import com.jtruelove.vertx.client.lb.Endpoint;
+import com.jtruelove.vertx.client.lb.LoadBalancingStrategy;
+import com.jtruelove.vertx.client.lb.OutlierDetectionOptions;
+import com.jtruelove.vertx.client.lb.RoundRobinStrategy;
+import com.jtruelove.vertx.web.RestApi;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.Pump;
+import io.vertx.core.streams.ReadStream;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Tests {@link ServiceClient}
  *
@@ -20,6 +71,33 @@ public class ServiceClientTest {
         vertx = Vertx.vertx();
     }
 
+    @After
+    public void after() {
+        // closing vertx takes the servers and clients a test started with it, whether or not the test passed
+        vertx.close();
+    }
+
+    /**
+     * Start a server on a free port.
+     *
+     * @return the port it is listening on
+     */
+    private int listen(Handler<HttpServerRequest> requestHandler) throws Exception {
+        return listen(vertx.createHttpServer(), requestHandler);
+    }
+
+    private int listen(HttpServer server, Handler<HttpServerRequest> requestHandler) throws Exception {
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        server.requestHandler(requestHandler).listen(0, "localhost", result -> {
+            if (result.succeeded()) {
+                listening.complete(result.result());
+            } else {
+                listening.completeExceptionally(result.cause());
+            }
+        });
+        return listening.get(5, TimeUnit.SECONDS).actualPort();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testDuplicationAPIThrowException() {
         ServiceClient.Builder builder = new ServiceClient.Builder(vertx);
@@ -101,4 +179,1363 @@ public class ServiceClientTest {
         ServiceClient.create(vertx, config);
     }
 
-}
\ No newline at end of file
+    private ServiceClient startSingleConnectionServer() throws Exception {
+        int port = listen(request -> {
+            // never answer the slow path, and never finish the stalled one
+            if (request.path().equals("/stalled")) {
+                request.response().setChunked(true).write("partial");
+            } else if (!request.path().equals("/slow")) {
+                // echo back the budget we were given
+                String budget = request.getHeader(RestApi.X_REQUEST_TIMEOUT);
+                request.response().end(budget == null ? "none" : budget);
+            }
+        });
+
+        // a single connection, so a second call only gets through if the first gave it back
+        return new ServiceClient.Builder(vertx).withHost("localhost").withPort(port).withNumConnections(1).build();
+    }
+
+    @Test
+    public void testCancelReleasesConnection() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+        Context callContext = vertx.getOrCreateContext();
+
+        CancellationSignal signal = new CancellationSignal();
+        ServiceRequest slow = new ServiceRequest();
+        slow.setCancellationSignal(signal);
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/slow", slow,
+                response -> failure.completeExceptionally(new AssertionError("unexpected response")),
+                failure::complete));
+        vertx.setTimer(100, timerId -> signal.cancel());
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof CancellationException);
+
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/fast", new ServiceRequest(),
+                response -> status.complete(response.statusCode()), status::completeExceptionally));
+        Assert.assertEquals(200, (int) status.get(5, TimeUnit.SECONDS));
+
+        // a request whose signal is already cancelled is never sent
+        CompletableFuture<Throwable> notSent = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/fast", slow, response -> notSent.complete(null), notSent::complete);
+        Assert.assertTrue(notSent.get(5, TimeUnit.SECONDS) instanceof CancellationException);
+
+        client.close();
+    }
+
+    @Test
+    public void testTimeoutReleasesConnection() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+        Context callContext = vertx.getOrCreateContext();
+
+        // made from an event loop the timeout is tracked on its timer wheel
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/slow", 100L,
+                response -> failure.completeExceptionally(new AssertionError("unexpected response")),
+                failure::complete));
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/fast", 1000L,
+                response -> status.complete(response.statusCode()), status::completeExceptionally));
+        Assert.assertEquals(200, (int) status.get(5, TimeUnit.SECONDS));
+
+        client.close();
+    }
+
+    @Test
+    public void testTimeoutCoversResponseBody() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+        Context callContext = vertx.getOrCreateContext();
+
+        // timed on the timer wheel from an event loop, and a vertx timer from anywhere else
+        for (boolean onLoop : new boolean[]{true, false}) {
+            CompletableFuture<Throwable> failure = new CompletableFuture<>();
+            Runnable call = () -> client.call(HttpMethod.GET, "/stalled", 200L, response -> response
+                    .exceptionHandler(failure::complete)
+                    .bodyHandler(body -> failure.completeExceptionally(new AssertionError("unexpected body"))),
+                    failure::completeExceptionally);
+            if (onLoop) {
+                callContext.runOnContext(aVoid -> call.run());
+            } else {
+                call.run();
+            }
+            Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+
+            // the connection was given back
+            CompletableFuture<Integer> status = new CompletableFuture<>();
+            callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/fast", 1000L,
+                    response -> status.complete(response.statusCode()), status::completeExceptionally));
+            Assert.assertEquals(200, (int) status.get(5, TimeUnit.SECONDS));
+        }
+
+        client.close();
+    }
+
+    @Test
+    public void testPausedResponseNotTimedOut() throws Exception {
+        int port = listen(request -> {
+            request.response().setChunked(true).write("part");
+            vertx.setTimer(600, timerId -> request.response().end("end"));
+        });
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port).build();
+
+        CompletableFuture<HttpClientResponse> paused = new CompletableFuture<>();
+        CompletableFuture<String> body = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> client.call(HttpMethod.GET, "/", 200L, response -> {
+            response.pause();
+            response.exceptionHandler(body::completeExceptionally)
+                    .bodyHandler(content -> body.complete(content.toString()));
+            paused.complete(response);
+        }, body::completeExceptionally));
+
+        // held paused for longer than the timeout, then resumed from another thread as a drained file would
+        HttpClientResponse response = paused.get(5, TimeUnit.SECONDS);
+        Thread.sleep(500);
+        response.resume();
+        Assert.assertEquals("partend", body.get(5, TimeUnit.SECONDS));
+
+        client.close();
+    }
+
+    @Test
+    public void testDeadlineForwardedAndCapped() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+        Context callContext = vertx.getOrCreateContext();
+
+        ServiceRequest request = new ServiceRequest();
+        request.setTimeout(10000L);
+        request.setDeadline(Deadline.in(2000));
+
+        CompletableFuture<String> budget = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/fast", request,
+                response -> response.bodyHandler(body -> budget.complete(body.toString())),
+                budget::completeExceptionally));
+        long forwarded = Long.parseLong(budget.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(forwarded > 0 && forwarded <= 2000);
+
+        client.close();
+    }
+
+    @Test
+    public void testDeadlineFromPromiseContext() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+
+        // the budget the server echoes back is valid Json for a Long
+        CompletableFuture<Long> forwarded = new CompletableFuture<>();
+        TypedPromise.newInstance(vertx, new JsonObject())
+                .then(client.action(HttpMethod.GET, "/fast", new ServiceRequest(), Long.class,
+                        (JsonObject context, AsyncResult<Long> result) -> forwarded.complete(result.result())))
+                .deadline(Deadline.in(2000))
+                .eval();
+        long budget = forwarded.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(budget > 0 && budget <= 2000);
+
+        CompletableFuture<String> payloadBudget = new CompletableFuture<>();
+        client.call(HttpMethod.POST, "/fast", Buffer.buffer("payload"), Deadline.in(2000),
+                response -> response.bodyHandler(body -> payloadBudget.complete(body.toString())),
+                payloadBudget::completeExceptionally);
+        budget = Long.parseLong(payloadBudget.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(budget > 0 && budget <= 2000);
+
+        client.close();
+    }
+
+    @Test
+    public void testExpiredDeadlineNotSent() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+
+        ServiceRequest request = new ServiceRequest();
+        request.setDeadline(Deadline.at(System.currentTimeMillis() - 1));
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/fast", request, response -> failure.complete(null), failure::complete);
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof DeadlineExceededException);
+
+        client.close();
+    }
+
+    @Test
+    public void testApiTimeoutApplied() throws Exception {
+        int port = listen(request -> {});
+
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .addApiTimeout("slow", 100L).build();
+
+        ServiceRequest request = new ServiceRequest();
+        request.setApiName("slow");
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> client.call(HttpMethod.GET, "/slow", request,
+                response -> failure.complete(null), failure::complete));
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+
+        client.close();
+    }
+
+    @Test
+    public void testCircuitBreakerOpens() throws Exception {
+        int port = listen(request -> request.response().setStatusCode(500).end());
+
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject()
+                .put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, port)
+                .put(ServiceClient.CIRCUIT_BREAKER, new JsonObject()
+                        .put(CircuitBreakerOptions.MINIMUM_CALLS, 2)
+                        .put(CircuitBreakerOptions.OPEN_DURATION, 60000L)));
+
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<Integer> status = new CompletableFuture<>();
+            client.call(HttpMethod.GET, "/fail", response -> status.complete(response.statusCode()),
+                    status::completeExceptionally);
+            Assert.assertEquals(500, (int) status.get(5, TimeUnit.SECONDS));
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker(null).getState());
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/fail", response -> failure.complete(null), failure::complete);
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof CircuitBreakerOpenException);
+
+        client.close();
+    }
+
+    @Test
+    public void testConcurrencyLimitRejects() throws Exception {
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject()
+                .put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, startSingleConnectionServer().getPort())
+                .put(ServiceClient.CONCURRENCY_LIMIT, new JsonObject()
+                        .put(ConcurrencyLimitOptions.INITIAL_LIMIT, 1)));
+
+        // the first call sits on the server, so the second is over the limit rather than queued
+        client.call(HttpMethod.GET, "/slow", response -> {}, throwable -> {});
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/fast", response -> failure.complete(null), failure::complete);
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof ConcurrencyLimitExceededException);
+        Assert.assertEquals(1, client.getConcurrencyLimiter().getInFlight());
+
+        client.close();
+    }
+
+    @Test
+    public void testRequestQueuePriority() throws Exception {
+        List<String> served = Collections.synchronizedList(new ArrayList<>());
+        int port = listen(request -> {
+            served.add(request.path());
+            vertx.setTimer(50, timerId -> request.response().end("ok"));
+        });
+
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject()
+                .put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, port)
+                .put(ServiceClient.REQUEST_QUEUE, new JsonObject()
+                        .put(RequestQueueOptions.MAX_IN_FLIGHT, 1)
+                        .put(RequestQueueOptions.INTERVAL, 10000L))
+                .put(ServiceClient.APIS, new JsonArray()
+                        .add(new JsonObject().put(ServiceClient.API_NAME, "background")
+                                .put(ServiceClient.PRIORITY, "low"))));
+        Assert.assertEquals(Priority.LOW, client.getPriority("background"));
+        Context callContext = vertx.getOrCreateContext();
+
+        ServiceRequest background = new ServiceRequest();
+        background.setApiName("background");
+        ServiceRequest urgent = new ServiceRequest();
+        urgent.setPriority(Priority.HIGH);
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(new CompletableFuture<>());
+        }
+        callContext.runOnContext(aVoid -> {
+            client.call(HttpMethod.GET, "/first", response -> results.get(0).complete(response.statusCode()),
+                    results.get(0)::completeExceptionally);
+            client.call(HttpMethod.GET, "/background", background,
+                    response -> results.get(1).complete(response.statusCode()), results.get(1)::completeExceptionally);
+            client.call(HttpMethod.GET, "/normal", response -> results.get(2).complete(response.statusCode()),
+                    results.get(2)::completeExceptionally);
+            client.call(HttpMethod.GET, "/urgent", urgent,
+                    response -> results.get(3).complete(response.statusCode()), results.get(3)::completeExceptionally);
+        });
+
+        for (CompletableFuture<Integer> result : results) {
+            Assert.assertEquals(200, (int) result.get(5, TimeUnit.SECONDS));
+        }
+        // one at a time, the highest priority first
+        Assert.assertEquals(Arrays.asList("/first", "/urgent", "/normal", "/background"), served);
+        Assert.assertEquals(4L, client.getRequestQueue().getAdmitted());
+        Assert.assertEquals(0, client.getRequestQueue().getInFlight());
+
+        client.close();
+    }
+
+    @Test
+    public void testRequestQueueSheds() throws Exception {
+        ServiceClient slowClient = startSingleConnectionServer();
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(slowClient.getPort())
+                .withRequestQueue(new RequestQueueOptions().setMaxInFlight(1).setMaxSize(1)).build();
+        slowClient.close();
+
+        // the first call sits on the server, the second waits and the third finds the queue full
+        client.call(HttpMethod.GET, "/slow", response -> {}, throwable -> {});
+        client.call(HttpMethod.GET, "/slow", response -> {}, throwable -> {});
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/fast", response -> failure.complete(null), failure::complete);
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof LoadSheddingException);
+        Assert.assertEquals(1L, client.getRequestQueue().getRejected());
+        Assert.assertEquals(1, client.getRequestQueue().size());
+
+        client.close();
+    }
+
+    @Test
+    public void testCloseRejectsQueuedCalls() throws Exception {
+        int port = listen(request -> vertx.setTimer(200, timerId -> request.response().end("ok")));
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withRequestQueue(new RequestQueueOptions().setMaxInFlight(1)).build();
+
+        // one call on the server and two waiting behind it when the client is closed
+        List<CompletableFuture<Throwable>> failures = new ArrayList<>();
+        Context callContext = vertx.getOrCreateContext();
+        CompletableFuture<Void> called = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> {
+            for (int i = 0; i < 3; i++) {
+                CompletableFuture<Throwable> failure = new CompletableFuture<>();
+                failures.add(failure);
+                client.call(HttpMethod.GET, "/", response -> failure.complete(null), failure::complete);
+            }
+            called.complete(null);
+        });
+        called.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(2, client.getRequestQueue().size());
+
+        client.close();
+        // everyone hears back, the waiting calls straight away and the call in flight however it ends
+        Assert.assertTrue(failures.get(1).get(5, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+        Assert.assertTrue(failures.get(2).get(5, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+        failures.get(0).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(0, client.getRequestQueue().size());
+        Assert.assertEquals(0, client.getRequestQueue().getInFlight());
+
+        // and calls made after closing are refused
+        CompletableFuture<Throwable> refused = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/", response -> refused.complete(null), refused::complete);
+        Assert.assertTrue(refused.get(5, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+    }
+
+    private int startServer(int status, String body) throws Exception {
+        return listen(request -> request.response().setStatusCode(status).end(body));
+    }
+
+    private String get(ServiceClient client) throws Exception {
+        CompletableFuture<String> body = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/", response -> response.bodyHandler(buffer -> body.complete(buffer.toString())),
+                body::completeExceptionally);
+        return body.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testEndpointsBalanced() throws Exception {
+        int first = startServer(200, "first");
+        int second = startServer(200, "second");
+
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject()
+                .put(ServiceClient.ENDPOINTS, new JsonArray()
+                        .add(new JsonObject().put(ServiceClient.HOST, "localhost").put(ServiceClient.PORT, first))
+                        .add(new JsonObject().put(ServiceClient.HOST, "localhost").put(ServiceClient.PORT, second)))
+                .put(ServiceClient.LOAD_BALANCER, LoadBalancingStrategy.ROUND_ROBIN));
+        Assert.assertEquals(first, (int) client.getPort());
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            seen.add(get(client));
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("first", "second")), seen);
+
+        client.close();
+    }
+
+    @Test
+    public void testFailingEndpointEjected() throws Exception {
+        int healthy = startServer(200, "healthy");
+        int failing = startServer(503, "failing");
+
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(healthy)
+                .addEndpoint("localhost", failing)
+                .withLoadBalancing(new RoundRobinStrategy())
+                .withOutlierDetection(new OutlierDetectionOptions().setConsecutiveFailures(1)).build();
+        Assert.assertEquals(2, client.getLoadBalancer().getEndpoints().size());
+
+        get(client);
+        get(client);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("healthy", get(client));
+        }
+
+        client.close();
+    }
+
+    @Test
+    public void testCircuitBreakerPerEndpoint() throws Exception {
+        int healthy = startServer(200, "healthy");
+        int failing = startServer(500, "failing");
+
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(healthy)
+                .addEndpoint("localhost", failing)
+                .withLoadBalancing(new RoundRobinStrategy())
+                .withOutlierDetection(new OutlierDetectionOptions().setConsecutiveFailures(100))
+                .withCircuitBreaker(new CircuitBreakerOptions().setMinimumCalls(2).setOpenDuration(60000L)).build();
+        Assert.assertNull(client.getCircuitBreaker(null));
+
+        for (int i = 0; i < 4; i++) {
+            get(client);
+        }
+
+        // only the failing endpoint's breaker opened, the healthy one still gets its share
+        for (Endpoint endpoint : client.getLoadBalancer().getEndpoints()) {
+            Assert.assertEquals(endpoint.getPort() == failing ? CircuitBreaker.State.OPEN
+                    : CircuitBreaker.State.CLOSED, client.getCircuitBreaker(null, endpoint).getState());
+        }
+        int answered = 0;
+        for (int i = 0; i < 4; i++) {
+            try {
+                Assert.assertEquals("healthy", get(client));
+                answered++;
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof CircuitBreakerOpenException);
+            }
+        }
+        Assert.assertEquals(2, answered);
+
+        client.close();
+    }
+
+    private ServiceClient startFlakyServer(int failures, RetryPolicy policy) throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        int port = listen(request -> {
+            int count = requests.incrementAndGet();
+            request.response().setStatusCode(count <= failures ? 503 : 200).end(String.valueOf(count));
+        });
+
+        return new ServiceClient.Builder(vertx).withHost("localhost").withPort(port).withMetrics(true)
+                .addApiTimeout("create", 0L).markIdempotent("create").withRetryPolicy(policy).build();
+    }
+
+    private int call(ServiceClient client, HttpMethod method, ServiceRequest request) throws Exception {
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        client.call(method, "/", request, response -> status.complete(response.statusCode()),
+                status::completeExceptionally);
+        return status.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testIdempotentRetried() throws Exception {
+        ServiceClient client = startFlakyServer(2, new RetryPolicy().setBaseBackoff(5));
+
+        Assert.assertEquals(200, call(client, HttpMethod.GET, new ServiceRequest()));
+        Assert.assertEquals(2, client.getMetrics().api(null).getRetries());
+        Assert.assertEquals(3, client.getMetrics().api(null).getRequests());
+
+        client.close();
+    }
+
+    @Test
+    public void testNonIdempotentNotRetried() throws Exception {
+        ServiceClient client = startFlakyServer(1, new RetryPolicy().setBaseBackoff(5));
+
+        Assert.assertEquals(503, call(client, HttpMethod.POST, new ServiceRequest()));
+        Assert.assertEquals(0, client.getMetrics().api(null).getRetries());
+
+        client.close();
+    }
+
+    @Test
+    public void testIdempotentApiRetried() throws Exception {
+        ServiceClient client = startFlakyServer(1, new RetryPolicy().setBaseBackoff(5));
+
+        ServiceRequest request = new ServiceRequest();
+        request.setApiName("create");
+        Assert.assertEquals(200, call(client, HttpMethod.POST, request));
+
+        // and a request can opt out
+        ServiceRequest optOut = new ServiceRequest();
+        optOut.setIdempotent(false);
+        Assert.assertEquals(200, call(client, HttpMethod.GET, optOut));
+        Assert.assertEquals(1, client.getMetrics().api("create").getRetries());
+
+        client.close();
+    }
+
+    @Test
+    public void testRetriesGiveUp() throws Exception {
+        ServiceClient client = startFlakyServer(10, new RetryPolicy().setBaseBackoff(5).setMaxAttempts(3));
+
+        Assert.assertEquals(503, call(client, HttpMethod.GET, new ServiceRequest()));
+        Assert.assertEquals(3, client.getMetrics().api(null).getRequests());
+
+        client.close();
+    }
+
+    @Test
+    public void testRetryRespectsTimeout() throws Exception {
+        ServiceClient client = startFlakyServer(10, new RetryPolicy().setBaseBackoff(10000).setMaxBackoff(10000)
+                .setMaxAttempts(100));
+
+        ServiceRequest request = new ServiceRequest();
+        request.setTimeout(200L);
+        long start = System.currentTimeMillis();
+        int status = call(client, HttpMethod.GET, request);
+        Assert.assertEquals(503, status);
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+
+        client.close();
+    }
+
+    @Test
+    public void testRetryBudgetExhausted() throws Exception {
+        ServiceClient client = startFlakyServer(100, new RetryPolicy().setBaseBackoff(1).setMaxAttempts(10)
+                .setBudgetRatio(0.0).setMinRetriesPerSecond(2));
+
+        Assert.assertEquals(503, call(client, HttpMethod.GET, new ServiceRequest()));
+        // the budget starts with 2 retries and the ratio adds nothing
+        Assert.assertEquals(2, client.getMetrics().api(null).getRetries());
+
+        client.close();
+    }
+
+    private ServiceClient startEchoServer(int failures) throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        int port = listen(request -> request.bodyHandler(body -> {
+            int status = requests.incrementAndGet() <= failures ? 503 : 200;
+            request.response().setStatusCode(status).end(body);
+        }));
+
+        return new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withRetryPolicy(new RetryPolicy().setBaseBackoff(5)).build();
+    }
+
+    private String echo(ServiceClient client, HttpMethod method, ServiceRequest request) throws Exception {
+        CompletableFuture<String> body = new CompletableFuture<>();
+        client.call(method, "/", request, response -> response.bodyHandler(buffer -> body.complete(buffer.toString())),
+                body::completeExceptionally);
+        return body.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBufferPayloads() throws Exception {
+        ServiceClient client = startEchoServer(0);
+
+        CompletableFuture<String> body = new CompletableFuture<>();
+        client.call(HttpMethod.POST, "/", Buffer.buffer("buffer"), 1000L,
+                response -> response.bodyHandler(buffer -> body.complete(buffer.toString())),
+                body::completeExceptionally);
+        Assert.assertEquals("buffer", body.get(5, TimeUnit.SECONDS));
+
+        ServiceRequest request = new ServiceRequest();
+        request.setPayload(Unpooled.copiedBuffer("bytebuf", StandardCharsets.UTF_8));
+        Assert.assertEquals("bytebuf", echo(client, HttpMethod.POST, request));
+
+        request.setJsonPayload(new JsonObject().put("id", 5).getMap());
+        Assert.assertEquals(5, (int) new JsonObject(echo(client, HttpMethod.POST, request)).getInteger("id"));
+        Assert.assertEquals(5, (int) new JsonObject(new String(request.getPayload())).getInteger("id"));
+
+        client.close();
+    }
+
+    @Test
+    public void testBufferPayloadResentOnRetry() throws Exception {
+        ServiceClient client = startEchoServer(1);
+
+        ServiceRequest request = new ServiceRequest();
+        request.setPayload(Buffer.buffer("sent twice"));
+        Assert.assertEquals("sent twice", echo(client, HttpMethod.PUT, request));
+
+        // byte arrays are wrapped rather than copied, and resent the same way
+        request.setPayload("bytes".getBytes());
+        Assert.assertEquals("bytes", echo(client, HttpMethod.PUT, request));
+
+        client.close();
+    }
+
+    @Test
+    public void testStreamedUploadAndDownload() throws Exception {
+        // answers as it reads, so the upload is still going when the response starts
+        int port = listen(request -> {
+            request.response().setChunked(true);
+            Pump.pump(request, request.response()).start();
+            request.endHandler(aVoid -> request.response().end());
+        });
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withMetrics(true).build();
+
+        byte[] content = new byte[4 * 1024 * 1024];
+        new Random(7).nextBytes(content);
+        File source = File.createTempFile("upload", ".bin");
+        File target = File.createTempFile("download", ".bin");
+        source.deleteOnExit();
+        target.deleteOnExit();
+        Files.write(source.toPath(), content);
+
+        AsyncFile in = vertx.fileSystem().openBlocking(source.getPath(), new OpenOptions().setRead(true));
+        AsyncFile out = vertx.fileSystem().openBlocking(target.getPath(), new OpenOptions().setWrite(true));
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> client.stream(HttpMethod.POST, "/", in, 5000L,
+                response -> ServiceClient.pipe(response, out, result -> {
+                    if (result.succeeded()) {
+                        done.complete(null);
+                    } else {
+                        done.completeExceptionally(result.cause());
+                    }
+                }), done::completeExceptionally));
+        done.get(10, TimeUnit.SECONDS);
+
+        // ending the file flushes it in the background
+        long waitUntil = System.currentTimeMillis() + 5000L;
+        while (target.length() < content.length && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        Assert.assertArrayEquals(content, Files.readAllBytes(target.toPath()));
+        Assert.assertEquals(content.length, client.getMetrics().api(ServiceClientMetrics.DEFAULT_API).getBytesOut());
+
+        in.close();
+        client.close();
+    }
+
+    @Test
+    public void testStreamedBodyPausedOnTimeout() throws Exception {
+        ServiceClient client = startSingleConnectionServer();
+        StalledBody body = new StalledBody();
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> client.stream(HttpMethod.POST, "/slow", body, 200L,
+                response -> failure.completeExceptionally(new AssertionError("unexpected response")),
+                failure::complete));
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+        Assert.assertTrue(body.paused);
+
+        // the connection was given back
+        CompletableFuture<Integer> status = new CompletableFuture<>();
+        client.call(HttpMethod.GET, "/fast", 1000L, response -> status.complete(response.statusCode()),
+                status::completeExceptionally);
+        Assert.assertEquals(200, (int) status.get(5, TimeUnit.SECONDS));
+
+        client.close();
+    }
+
+    /**
+     * A body that sends one chunk and then never ends.
+     */
+    private static class StalledBody implements ReadStream<Buffer> {
+        private volatile boolean paused;
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+            handler.handle(Buffer.buffer("partial"));
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            paused = false;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+            return this;
+        }
+    }
+
+    @Test
+    public void testPushedBodyNotLost() throws Exception {
+        int port = listen(request -> {
+            if (request.path().equals("/slow")) {
+                vertx.setTimer(300, timerId -> request.response().end());
+            } else {
+                request.bodyHandler(body -> request.response().end(body));
+            }
+        });
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withNumConnections(1).build();
+
+        // the only connection is busy, so the stream has to wait its turn while the body is already flowing
+        client.call(HttpMethod.GET, "/slow", 5000L, response -> {}, throwable -> {});
+        CompletableFuture<String> echoed = new CompletableFuture<>();
+        // made on the context it pushes from, so no chunk goes out before the stream has its handler
+        vertx.runOnContext(aVoid -> client.stream(HttpMethod.POST, "/", new PushedBody(vertx, 50), 5000L,
+                response -> response.bodyHandler(content -> echoed.complete(content.toString())),
+                echoed::completeExceptionally));
+        Assert.assertEquals(PushedBody.expected(50), echoed.get(5, TimeUnit.SECONDS));
+
+        client.close();
+    }
+
+    /**
+     * A body that pushes a chunk every millisecond unless it is paused, dropping those nobody is there to handle,
+     * the way a HttpServerRequest does.
+     */
+    private static class PushedBody implements ReadStream<Buffer> {
+        private final Vertx vertx;
+        private final int chunks;
+        private final long timerId;
+        private volatile Handler<Buffer> handler;
+        private volatile Handler<Void> endHandler;
+        private volatile boolean paused;
+        private int sent;
+
+        PushedBody(Vertx vertx, int chunks) {
+            this.vertx = vertx;
+            this.chunks = chunks;
+            timerId = vertx.setPeriodic(1, theTimerId -> push());
+        }
+
+        private void push() {
+            if (paused) { return; }
+
+            Handler<Buffer> current = handler;
+            if (current != null) {
+                current.handle(Buffer.buffer(sent + ","));
+            }
+            if (++sent == chunks) {
+                vertx.cancelTimer(timerId);
+                if (endHandler != null) { endHandler.handle(null); }
+            }
+        }
+
+        static String expected(int chunks) {
+            StringBuilder all = new StringBuilder();
+            for (int i = 0; i < chunks; i++) {
+                all.append(i).append(',');
+            }
+            return all.toString();
+        }
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            paused = false;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+    }
+
+    private ServiceClient startJsonServer() throws Exception {
+        int port = listen(request -> {
+            switch (request.path()) {
+                case "/item":
+                    request.response().end("{\"id\":5,\"name\":\"widget\"}");
+                    break;
+                case "/chunked":
+                    request.response().setChunked(true).write("{\"id\":6,").write("\"name\":").end("\"gadget\"}");
+                    break;
+                case "/empty":
+                    request.response().setStatusCode(204).end();
+                    break;
+                case "/big":
+                    request.response().end(Buffer.buffer(new byte[2000]));
+                    break;
+                case "/endless":
+                    request.response().setChunked(true).write(Buffer.buffer(new byte[600]))
+                            .write(Buffer.buffer(new byte[600]));
+                    break;
+                default:
+                    request.response().setStatusCode(404).end("no such item");
+            }
+        });
+
+        return new ServiceClient.Builder(vertx).withHost("localhost").withPort(port).withMaxResponseSize(1000)
+                .build();
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.setHandler(outcome -> {
+            if (outcome.succeeded()) {
+                result.complete(outcome.result());
+            } else {
+                result.completeExceptionally(outcome.cause());
+            }
+        });
+
+        try {
+            return result.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            throw (Exception) ex.getCause();
+        }
+    }
+
+    @Test
+    public void testTypedCall() throws Exception {
+        ServiceClient client = startJsonServer();
+
+        Item item = await(client.call(HttpMethod.GET, "/item", Item.class));
+        Assert.assertEquals(5, item.id);
+        Assert.assertEquals("widget", item.name);
+
+        // decoded from the chunks as they were handed over
+        item = await(client.call(HttpMethod.GET, "/chunked", new ServiceRequest(), Item.class));
+        Assert.assertEquals(6, item.id);
+        Assert.assertEquals("gadget", item.name);
+
+        Assert.assertNull(await(client.call(HttpMethod.DELETE, "/empty", Item.class)));
+
+        try {
+            await(client.call(HttpMethod.GET, "/missing", Item.class));
+            Assert.fail("a 404 should fail the call");
+        } catch (HttpStatusException ex) {
+            Assert.assertEquals(404, ex.getStatusCode());
+            Assert.assertTrue(ex.isClientError());
+            Assert.assertEquals("no such item", ex.getBody());
+        }
+
+        client.close();
+    }
+
+    @Test
+    public void testTypedCallSizeLimit() throws Exception {
+        ServiceClient client = startJsonServer();
+
+        // turned down by its content length
+        try {
+            await(client.call(HttpMethod.GET, "/big", Item.class));
+            Assert.fail("the body is over the limit");
+        } catch (ResponseTooLargeException ex) {
+            Assert.assertEquals(1000, ex.getLimit());
+        }
+
+        // turned down once enough of it has arrived, the server never finishes it
+        try {
+            await(client.call(HttpMethod.GET, "/endless", Item.class));
+            Assert.fail("the body is over the limit");
+        } catch (ResponseTooLargeException ex) {
+            Assert.assertEquals(1000, ex.getLimit());
+        }
+
+        Assert.assertEquals(5, await(client.call(HttpMethod.GET, "/item", Item.class)).id);
+
+        client.close();
+    }
+
+    @Test
+    public void testTypedAction() throws Exception {
+        ServiceClient client = startJsonServer();
+
+        AtomicReference<Item> found = new AtomicReference<>();
+        AtomicReference<Throwable> missing = new AtomicReference<>();
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        TypedPromise.newInstance(vertx, found)
+                .then(client.action(HttpMethod.GET, "/item", new ServiceRequest(), Item.class,
+                        (AtomicReference<Item> context, AsyncResult<Item> result) -> context.set(result.result())))
+                .then(client.action(HttpMethod.GET, "/missing", new ServiceRequest(), Item.class,
+                        (context, result) -> missing.set(result.cause())))
+                .done(context -> done.complete(true))
+                .except(context -> done.complete(false))
+                .eval();
+
+        Assert.assertFalse(done.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("widget", found.get().name);
+        Assert.assertTrue(missing.get() instanceof HttpStatusException);
+
+        client.close();
+    }
+
+    @Test
+    public void testIdenticalGetsCoalesced() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        int port = listen(request -> {
+            requests.incrementAndGet();
+            String language = request.getHeader("Accept-Language");
+            // slow enough that every call is made while the first is in flight
+            vertx.setTimer(200, timerId -> request.response().end("{\"id\":" + requests.get() + ",\"name\":\""
+                    + language + "\"}"));
+        });
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withMetrics(true).withCoalescing(true).addCoalesceHeader("accept-language").build();
+
+        int calls = 10;
+        List<Future<Item>> english = new ArrayList<>();
+        CompletableFuture<Future<Item>> french = new CompletableFuture<>();
+        CancellationSignal signal = new CancellationSignal();
+        CompletableFuture<Future<Item>> cancelled = new CompletableFuture<>();
+        vertx.runOnContext(aVoid -> {
+            for (int i = 0; i < calls; i++) {
+                ServiceRequest request = new ServiceRequest();
+                request.setHeaders(Collections.singletonMap("Accept-Language", "en"));
+                english.add(client.call(HttpMethod.GET, "/item", request, Item.class));
+            }
+
+            ServiceRequest request = new ServiceRequest();
+            request.setHeaders(Collections.singletonMap("Accept-Language", "en"));
+            request.setCancellationSignal(signal);
+            cancelled.complete(client.call(HttpMethod.GET, "/item", request, Item.class));
+
+            request = new ServiceRequest();
+            request.setHeaders(Collections.singletonMap("Accept-Language", "fr"));
+            french.complete(client.call(HttpMethod.GET, "/item", request, Item.class));
+        });
+
+        signal.cancel();
+        try {
+            await(cancelled.get(5, TimeUnit.SECONDS));
+            Assert.fail("the call was cancelled");
+        } catch (CancellationException ex) {
+            // leaving didn't cancel the call for everyone else
+        }
+
+        Item first = await(english.get(0));
+        for (Future<Item> call : english) {
+            Assert.assertSame(first, await(call));
+        }
+        Assert.assertEquals("en", first.name);
+        Assert.assertEquals("fr", await(french.get(5, TimeUnit.SECONDS)).name);
+        Assert.assertEquals(2, requests.get());
+        Assert.assertEquals(calls, client.getMetrics().api(ServiceClientMetrics.DEFAULT_API).getCoalesced());
+
+        // once it has landed the next call goes out again
+        Assert.assertEquals(3, await(client.call(HttpMethod.GET, "/item", Item.class)).id);
+
+        client.close();
+    }
+
+    @Test
+    public void testResponseCache() throws Exception {
+        Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+        int port = listen(request -> {
+            int count = requests.computeIfAbsent(request.path(), path -> new AtomicInteger()).incrementAndGet();
+            switch (request.path()) {
+                case "/fresh":
+                    request.response().putHeader("Cache-Control", "max-age=60");
+                    break;
+                case "/etag":
+                    if ("\"v1\"".equals(request.getHeader("If-None-Match"))) {
+                        request.response().setStatusCode(304).end();
+                        return;
+                    }
+                    request.response().putHeader("Cache-Control", "no-cache").putHeader("ETag", "\"v1\"");
+                    break;
+                case "/stale":
+                    request.response().putHeader("Cache-Control", "max-age=0, stale-while-revalidate=60");
+                    break;
+                default:
+            }
+            request.response().end("{\"id\":" + count + "}");
+        });
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withResponseCache(new ResponseCacheOptions()).build();
+        ResponseCache cache = client.getResponseCache();
+
+        // served from the cache, to callers that read the body any which way
+        Assert.assertEquals(1, await(client.call(HttpMethod.GET, "/fresh", Item.class)).id);
+        Assert.assertEquals("{\"id\":1}", echo(client, HttpMethod.GET, "/fresh"));
+        Assert.assertEquals(1, requests.get("/fresh").get());
+        Assert.assertEquals(1, cache.getHits());
+
+        // a hit arrives like any other response, after the call returns and on the caller's context
+        Context callContext = vertx.getOrCreateContext();
+        CompletableFuture<Boolean> onCallContext = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> {
+            AtomicBoolean returned = new AtomicBoolean();
+            // with no request behind it
+            client.call(HttpMethod.GET, "/fresh", response -> onCallContext.complete(returned.get()
+                    && Vertx.currentContext() == callContext && response.request() == null),
+                    onCallContext::completeExceptionally);
+            returned.set(true);
+        });
+        Assert.assertTrue(onCallContext.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, cache.getHits());
+
+        // changing it drops what we had
+        echo(client, HttpMethod.POST, "/fresh");
+        Assert.assertEquals("{\"id\":3}", echo(client, HttpMethod.GET, "/fresh"));
+
+        // revalidated every time, and a 304 is served the cached body
+        Assert.assertEquals("{\"id\":1}", echo(client, HttpMethod.GET, "/etag"));
+        Assert.assertEquals("{\"id\":1}", echo(client, HttpMethod.GET, "/etag"));
+        Assert.assertEquals(2, requests.get("/etag").get());
+        Assert.assertEquals(1, cache.getRevalidations());
+
+        // past its max-age it is served while a fresh one is fetched in the background
+        Assert.assertEquals("{\"id\":1}", echo(client, HttpMethod.GET, "/stale"));
+        Assert.assertEquals("{\"id\":1}", echo(client, HttpMethod.GET, "/stale"));
+        long waitUntil = System.currentTimeMillis() + 5000L;
+        while (requests.get("/stale").get() < 2 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, cache.getStaleHits());
+        Assert.assertEquals(2, requests.get("/stale").get());
+
+        client.close();
+    }
+
+    @Test
+    public void testDefaultHeadersSent() throws Exception {
+        int port = listen(request -> request.response().end(request.getHeader("X-Client") + " "
+                + request.getHeader(HttpHeaders.CONTENT_TYPE) + " " + request.getHeader(HttpHeaders.CONTENT_LENGTH)));
+
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject().put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, port)
+                .put(ServiceClient.HEADERS, new JsonObject().put("X-Client", "orders")));
+
+        Assert.assertEquals("orders application/json 0", echo(client, HttpMethod.GET, "/"));
+        ServiceRequest request = new ServiceRequest();
+        request.setPayload("{}".getBytes(StandardCharsets.UTF_8));
+        request.setHeaders(Collections.singletonMap("X-Client", "billing"));
+        Assert.assertEquals("billing application/json 2", echo(client, HttpMethod.POST, request));
+
+        client.close();
+    }
+
+    @Test
+    public void testPooledRequestRecycled() throws Exception {
+        int port = listen(request -> request.response().end(request.getHeader("X-Client") + " "
+                + request.getHeader("X-Trace")));
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port).build();
+        Context callContext = vertx.getOrCreateContext();
+
+        CompletableFuture<ServiceRequest> sent = new CompletableFuture<>();
+        CompletableFuture<String> body = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> {
+            ServiceRequest request = ServiceRequest.pooled();
+            request.putHeader("X-Client", "orders");
+            request.putHeader("X-Trace", "abc");
+            request.setTimeout(1000L);
+            sent.complete(request);
+            client.call(HttpMethod.GET, "/", request, response -> {
+                // still ours while the handler runs
+                Assert.assertEquals("orders", request.getHeaders().get("X-Client"));
+                response.bodyHandler(buffer -> body.complete(buffer.toString()));
+            }, body::completeExceptionally);
+        });
+        Assert.assertEquals("orders abc", body.get(5, TimeUnit.SECONDS));
+
+        // back in the pool of the event loop, empty
+        CompletableFuture<ServiceRequest> reused = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> reused.complete(ServiceRequest.pooled()));
+        ServiceRequest request = reused.get(5, TimeUnit.SECONDS);
+        Assert.assertSame(sent.get(), request);
+        Assert.assertTrue(request.isPooled());
+        Assert.assertFalse(request.hasHeaders());
+        Assert.assertFalse(request.hasTimeout());
+
+        client.close();
+    }
+
+    @Test
+    public void testPooledRequestHeaders() {
+        ServiceRequest request = ServiceRequest.pooled();
+        for (int i = 0; i < 10; i++) {
+            request.putHeader("X-Header-" + i, String.valueOf(i));
+        }
+        request.putHeader("X-Header-3", "three");
+        Map<String, String> headers = request.getHeaders();
+        Assert.assertEquals(10, headers.size());
+        Assert.assertEquals("three", headers.get("X-Header-3"));
+        Assert.assertEquals("9", headers.remove("X-Header-9"));
+        Assert.assertNull(headers.get("X-Header-9"));
+
+        headers.entrySet().removeIf(header -> header.getKey().endsWith("0"));
+        Assert.assertEquals(8, headers.size());
+        Assert.assertEquals("1", headers.get("X-Header-1"));
+
+        request.recycle();
+        try {
+            new ServiceRequest().recycle();
+            Assert.fail("only pooled requests can be recycled");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        AtomicInteger checks = new AtomicInteger();
+        HttpServer server = vertx.createHttpServer().connectionHandler(connection -> connections.incrementAndGet());
+        int port = listen(server, request -> {
+            if (request.path().equals("/health")) {
+                checks.incrementAndGet();
+                request.response().end("ok");
+            } else {
+                request.response().setStatusCode(503).end();
+            }
+        });
+
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject().put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, port)
+                .put(ServiceClient.NUM_CONNECTIONS, 4)
+                .put(ServiceClient.WARM_UP, new JsonObject().put(WarmUpOptions.CONNECTIONS, 4)
+                        .put(WarmUpOptions.PATH, "/health")));
+        await(client.ready());
+        Assert.assertEquals(4, connections.get());
+        Assert.assertEquals(4, checks.get());
+        client.close();
+
+        // a health check that doesn't pass fails the warm up
+        ServiceClient unhealthy = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withWarmUp(new WarmUpOptions().setPath("/down")).build();
+        try {
+            await(unhealthy.ready());
+            Assert.fail("expected the warm up to fail");
+        } catch (HttpStatusException ex) {
+            Assert.assertEquals(503, ex.getStatusCode());
+        }
+        unhealthy.close();
+
+        // without a warm up the client is ready right away
+        ServiceClient cold = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port).build();
+        Assert.assertTrue(cold.ready().succeeded());
+        cold.close();
+    }
+
+    @Test
+    public void testWarmUpTransport() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        HttpServer server = vertx.createHttpServer().connectionHandler(connection -> connections.incrementAndGet());
+        int port = listen(server, request -> vertx.setTimer(20, timerId -> request.response().end(
+                request.version().name())));
+
+        // pipelined requests can't share a connection that isn't open yet, so each opens one
+        ServiceClient pipelined = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withNumConnections(4).withTransport(TransportOptions.pipelined())
+                .withWarmUp(new WarmUpOptions().setConnections(4)).build();
+        await(pipelined.ready());
+        Assert.assertEquals(4, connections.get());
+        pipelined.close();
+
+        // HTTP/2 only opens another connection once the streams of the first are used up, the warm up opens the one
+        connections.set(0);
+        ServiceClient multiplexed = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withTransport(TransportOptions.multiplexed().setHttp2MaxPoolSize(4))
+                .withWarmUp(new WarmUpOptions().setConnections(4)).build();
+        await(multiplexed.ready());
+        Assert.assertEquals(1, connections.get());
+
+        // and the calls after it are sent on that connection
+        Assert.assertEquals("HTTP_2", echo(multiplexed, HttpMethod.GET, "/"));
+        Assert.assertEquals(1, connections.get());
+        multiplexed.close();
+    }
+
+    @Test
+    public void testClientPerEventLoop() throws Exception {
+        vertx.close();
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(4));
+        AtomicInteger connections = new AtomicInteger();
+        HttpServer server = vertx.createHttpServer().connectionHandler(connection -> connections.incrementAndGet());
+        int port = listen(server, request -> vertx.setTimer(20, timerId -> request.response().end("ok")));
+
+        // 4 connections over 4 event loops, one each
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withNumConnections(4).withPerEventLoop(true).build();
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (Context callContext : Arrays.asList(vertx.getOrCreateContext(), vertx.getOrCreateContext())) {
+            for (int i = 0; i < 3; i++) {
+                CompletableFuture<Boolean> onCaller = new CompletableFuture<>();
+                results.add(onCaller);
+                callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/",
+                        response -> onCaller.complete(Vertx.currentContext() == callContext),
+                        onCaller::completeExceptionally));
+            }
+        }
+
+        for (CompletableFuture<Boolean> onCaller : results) {
+            Assert.assertTrue(onCaller.get(5, TimeUnit.SECONDS));
+        }
+        // the calls from each context queue for its one connection rather than opening more
+        Assert.assertEquals(2, connections.get());
+
+        client.close();
+    }
+
+    @Test
+    public void testClientPerEventLoopShared() throws Exception {
+        vertx.close();
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(2));
+        AtomicInteger connections = new AtomicInteger();
+        HttpServer server = vertx.createHttpServer().connectionHandler(connection -> connections.incrementAndGet());
+        int port = listen(server, request -> vertx.setTimer(20, timerId -> request.response().end("ok")));
+
+        // the warm up opens the connection of each loop
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withNumConnections(2).withPerEventLoop(true).withWarmUp(new WarmUpOptions().setConnections(2))
+                .build();
+        await(client.ready());
+        Assert.assertEquals(2, connections.get());
+
+        // twice as many contexts as loops, the contexts on a loop share its client and connection
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Context callContext = vertx.getOrCreateContext();
+            for (int j = 0; j < 3; j++) {
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                results.add(done);
+                callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/", response -> done.complete(null),
+                        done::completeExceptionally));
+            }
+        }
+
+        for (CompletableFuture<Void> done : results) {
+            done.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(2, connections.get());
+
+        // a closed client refuses calls rather than making a new http client for the loop
+        client.close();
+        CompletableFuture<Throwable> refused = new CompletableFuture<>();
+        vertx.getOrCreateContext().runOnContext(aVoid -> client.call(HttpMethod.GET, "/",
+                response -> refused.complete(null), refused::complete));
+        Assert.assertTrue(refused.get(5, TimeUnit.SECONDS) instanceof RejectedExecutionException);
+        Assert.assertEquals(2, connections.get());
+    }
+
+    @Test
+    public void testMultiplexedTransport() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        HttpServer server = vertx.createHttpServer().connectionHandler(connection -> connections.incrementAndGet());
+        int port = listen(server, request -> {
+            // never answer the slow path
+            if (!request.path().equals("/slow")) {
+                request.response().end(request.version().name());
+            }
+        });
+
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withTransport(TransportOptions.multiplexed().setHttp2MaxPoolSize(1)).build();
+        Context callContext = vertx.getOrCreateContext();
+
+        // a stream timing out is reset on its own, the calls sharing its connection carry on
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/slow", 100L,
+                response -> failure.completeExceptionally(new AssertionError("unexpected response")),
+                failure::complete));
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CompletableFuture<String> body = new CompletableFuture<>();
+            results.add(body);
+            callContext.runOnContext(aVoid -> client.call(HttpMethod.GET, "/", 1000L,
+                    response -> response.bodyHandler(buffer -> body.complete(buffer.toString())),
+                    body::completeExceptionally));
+        }
+
+        for (CompletableFuture<String> body : results) {
+            Assert.assertEquals("HTTP_2", body.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+        Assert.assertEquals("HTTP_2", echo(client, HttpMethod.GET, "/"));
+        Assert.assertEquals(1, connections.get());
+
+        client.close();
+    }
+
+    @Test
+    public void testPipelinedTimeoutSparesOtherCalls() throws Exception {
+        AtomicInteger connections = new AtomicInteger();
+        HttpServer server = vertx.createHttpServer().connectionHandler(connection -> connections.incrementAndGet());
+        int port = listen(server, request -> {
+            // answered in order, so the slow one holds up the one pipelined behind it
+            long delay = request.path().equals("/slow") ? 300L : 1L;
+            vertx.setTimer(delay, timerId -> request.response().end(request.path()));
+        });
+
+        ServiceClient client = new ServiceClient.Builder(vertx).withHost("localhost").withPort(port)
+                .withNumConnections(1).withTransport(TransportOptions.pipelined()).build();
+        Context callContext = vertx.getOrCreateContext();
+
+        // the slow call times out, the one behind it on the same connection still gets its answer
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        CompletableFuture<String> body = new CompletableFuture<>();
+        callContext.runOnContext(aVoid -> {
+            client.call(HttpMethod.GET, "/slow", 100L,
+                    response -> failure.completeExceptionally(new AssertionError("unexpected response")),
+                    failure::complete);
+            client.call(HttpMethod.GET, "/fast", 5000L,
+                    response -> response.bodyHandler(buffer -> body.complete(buffer.toString())),
+                    body::completeExceptionally);
+        });
+
+        Assert.assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof TimeoutException);
+        Assert.assertEquals("/fast", body.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, connections.get());
+
+        client.close();
+    }
+
+    @Test
+    public void testTransportFromJson() {
+        TransportOptions options = new TransportOptions(new JsonObject()
+                .put(TransportOptions.PRESET, TransportOptions.MULTIPLEXED)
+                .put(TransportOptions.MULTIPLEXING_LIMIT, 50));
+        Assert.assertTrue(options.isHttp2());
+        Assert.assertTrue(options.isPriorKnowledge());
+        Assert.assertEquals(50, options.getMultiplexingLimit());
+
+        options = new TransportOptions(new JsonObject().put(TransportOptions.PRESET, TransportOptions.PIPELINED)
+                .put(TransportOptions.TCP_NO_DELAY, false));
+        Assert.assertFalse(options.isHttp2());
+        Assert.assertTrue(options.isPipelining());
+        Assert.assertFalse(options.isTcpNoDelay());
+
+        options = new TransportOptions(new JsonObject().put(TransportOptions.PROTOCOL, "h2"));
+        Assert.assertTrue(options.isHttp2());
+        Assert.assertFalse(options.isPriorKnowledge());
+
+        try {
+            new TransportOptions(new JsonObject().put(TransportOptions.PRESET, "fastest"));
+            Assert.fail("expected an unknown preset to be rejected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        ServiceClient client = ServiceClient.create(vertx, new JsonObject().put(ServiceClient.HOST, "localhost")
+                .put(ServiceClient.PORT, 1234)
+                .put(ServiceClient.TRANSPORT, new JsonObject()
+                        .put(TransportOptions.PRESET, TransportOptions.PIPELINED)));
+        client.close();
+    }
+
+    private String echo(ServiceClient client, HttpMethod method, String path) throws Exception {
+        CompletableFuture<String> body = new CompletableFuture<>();
+        client.call(method, path, response -> response.bodyHandler(buffer -> body.complete(buffer.toString())),
+                body::completeExceptionally);
+        return body.get(5, TimeUnit.SECONDS);
+    }
+
+    public static class Item {
+        public int id;
+        public String name;
+    }
+}
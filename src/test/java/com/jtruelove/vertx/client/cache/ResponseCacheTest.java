@@ -0,0 +1,135 @@
+package com.jtruelove.vertx.client.cache;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests {@link ResponseCache}
+ */
+public class ResponseCacheTest {
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    private HttpClientResponse response(int size, String... headers) {
+        MultiMap map = MultiMap.caseInsensitiveMultiMap().add("Content-Length", String.valueOf(size));
+        for (int i = 0; i < headers.length; i += 2) {
+            map.add(headers[i], headers[i + 1]);
+        }
+        return new CachedResponse(200, "OK", map, Buffer.buffer(new byte[size]), null);
+    }
+
+    private void store(ResponseCache cache, String key, HttpClientResponse response) {
+        Assert.assertTrue(cache.isCacheable(NO_HEADERS, response));
+        cache.store(key, NO_HEADERS, response, Buffer.buffer(new byte[Integer.parseInt(
+                response.getHeader("Content-Length"))]));
+    }
+
+    @Test
+    public void testFreshness() {
+        ResponseCache cache = new ResponseCache(new ResponseCacheOptions());
+
+        store(cache, "/fresh", response(10, "Cache-Control", "max-age=60"));
+        CacheEntry entry = cache.lookup("/fresh", NO_HEADERS);
+        Assert.assertTrue(entry.isFresh());
+        Assert.assertEquals(10, entry.body().length());
+
+        // already as old as it is allowed to be
+        store(cache, "/aged", response(10, "Cache-Control", "max-age=60, stale-while-revalidate=30", "Age", "60"));
+        entry = cache.lookup("/aged", NO_HEADERS);
+        Assert.assertFalse(entry.isFresh());
+        Assert.assertTrue(entry.isStaleUsable());
+
+        // always revalidated, so only worth keeping with a validator
+        store(cache, "/etag", response(10, "Cache-Control", "no-cache", "ETag", "\"v1\""));
+        entry = cache.lookup("/etag", NO_HEADERS);
+        Assert.assertFalse(entry.isFresh());
+        Assert.assertFalse(entry.isStaleUsable());
+        Assert.assertEquals("\"v1\"", entry.getETag());
+
+        Assert.assertNull(cache.lookup("/missing", NO_HEADERS));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getStaleHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testNotCacheable() {
+        ResponseCache cache = new ResponseCache(new ResponseCacheOptions().setMaxEntrySize(100));
+
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(10)));
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(10, "Cache-Control", "private, max-age=60")));
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(10, "Cache-Control", "no-store")));
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(10, "Cache-Control", "no-cache")));
+        Assert.assertTrue(cache.isCacheable(NO_HEADERS, response(10, "Cache-Control",
+                "max-age=0, stale-while-revalidate=30")));
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(200, "Cache-Control", "max-age=60")));
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(10, "Cache-Control", "max-age=60",
+                "Set-Cookie", "session=1")));
+        Assert.assertFalse(cache.isCacheable(NO_HEADERS, response(10, "Cache-Control", "max-age=60", "Vary", "*")));
+
+        // only shared across credentials when the response says so
+        Map<String, String> authorized = Collections.singletonMap("authorization", "Bearer token");
+        Assert.assertFalse(cache.isCacheable(authorized, response(10, "Cache-Control", "max-age=60")));
+        Assert.assertTrue(cache.isCacheable(authorized, response(10, "Cache-Control", "public, max-age=60")));
+        Assert.assertTrue(cache.isCacheable(authorized, response(10, "Cache-Control", "s-maxage=60")));
+
+        Assert.assertTrue(ResponseCache.bypasses(Collections.singletonMap("Cache-Control", "no-cache")));
+        Assert.assertFalse(ResponseCache.bypasses(NO_HEADERS));
+    }
+
+    @Test
+    public void testVary() {
+        ResponseCache cache = new ResponseCache(new ResponseCacheOptions());
+
+        Map<String, String> english = Collections.singletonMap("Accept-Language", "en");
+        HttpClientResponse response = response(10, "Cache-Control", "max-age=60", "Vary", "accept-language");
+        cache.store("/greeting", english, response, Buffer.buffer(new byte[10]));
+
+        Assert.assertNotNull(cache.lookup("/greeting", english));
+        Assert.assertNull(cache.lookup("/greeting", Collections.singletonMap("accept-language", "fr")));
+        Assert.assertNull(cache.lookup("/greeting", NO_HEADERS));
+    }
+
+    @Test
+    public void testScanResistant() {
+        // room for about three responses
+        ResponseCache cache = new ResponseCache(new ResponseCacheOptions().setMaxSize(4500));
+
+        store(cache, "/popular", response(1000, "Cache-Control", "max-age=60"));
+        Assert.assertNotNull(cache.lookup("/popular", NO_HEADERS));
+
+        // a run of responses nobody asks for again only pushes each other out
+        for (int i = 0; i < 10; i++) {
+            store(cache, "/once/" + i, response(1000, "Cache-Control", "max-age=60"));
+        }
+
+        Assert.assertNotNull(cache.lookup("/popular", NO_HEADERS));
+        Assert.assertNotNull(cache.lookup("/once/9", NO_HEADERS));
+        Assert.assertNull(cache.lookup("/once/0", NO_HEADERS));
+        Assert.assertEquals(3, cache.getEntries());
+        Assert.assertEquals(8, cache.getEvictions());
+        Assert.assertTrue(cache.getSize() <= 4500);
+    }
+
+    @Test
+    public void testOffHeap() {
+        ResponseCache cache = new ResponseCache(new ResponseCacheOptions().setOffHeap(true).setMaxSize(1500));
+
+        HttpClientResponse response = response(5, "Cache-Control", "max-age=60");
+        cache.store("/first", NO_HEADERS, response, Buffer.buffer("hello"));
+        CacheEntry first = cache.lookup("/first", NO_HEADERS);
+        Assert.assertEquals("hello", first.body().toString());
+
+        cache.invalidate("/first");
+        Assert.assertNull(cache.lookup("/first", NO_HEADERS));
+        // its memory has been given back
+        Assert.assertNull(first.body());
+        Assert.assertEquals(0, cache.getSize());
+    }
+}
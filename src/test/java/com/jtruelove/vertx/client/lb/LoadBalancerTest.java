@@ -0,0 +1,147 @@
+package com.jtruelove.vertx.client.lb;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link LoadBalancer}
+ */
+public class LoadBalancerTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private LoadBalancer balancer(int size, LoadBalancingStrategy strategy, OutlierDetectionOptions options) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            endpoints.add(LoadBalancer.endpoint("host" + i, 8080, options));
+        }
+        return new LoadBalancer(endpoints, strategy, options);
+    }
+
+    private Map<String, Integer> spread(LoadBalancer balancer, int calls) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < calls; i++) {
+            Endpoint endpoint = balancer.select();
+            counts.merge(endpoint.getHost(), 1, Integer::sum);
+            balancer.succeeded(endpoint, RTT);
+        }
+        return counts;
+    }
+
+    @Test
+    public void testRoundRobin() {
+        LoadBalancer balancer = balancer(3, new RoundRobinStrategy(), new OutlierDetectionOptions());
+        Map<String, Integer> counts = spread(balancer, 30);
+        Assert.assertEquals(3, counts.size());
+        counts.values().forEach(count -> Assert.assertEquals(10, (int) count));
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        LoadBalancer balancer = balancer(2, new LeastOutstandingStrategy(), new OutlierDetectionOptions());
+        Endpoint busy = balancer.select();
+        balancer.select();
+        // the one that was picked second is freed up, so it has fewer outstanding calls
+        Endpoint other = balancer.getEndpoints().get(0) == busy ? balancer.getEndpoints().get(1)
+                : balancer.getEndpoints().get(0);
+        balancer.succeeded(other, RTT);
+
+        for (int i = 0; i < 10; i++) {
+            Endpoint endpoint = balancer.select();
+            Assert.assertSame(other, endpoint);
+            balancer.succeeded(endpoint, RTT);
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoPrefersFaster() {
+        LoadBalancer balancer = balancer(2, new PowerOfTwoChoicesStrategy(), new OutlierDetectionOptions());
+        Endpoint slow = balancer.getEndpoints().get(0);
+        slow.acquire();
+        balancer.succeeded(slow, TimeUnit.SECONDS.toNanos(1));
+
+        Map<String, Integer> counts = spread(balancer, 100);
+        Assert.assertNull(counts.get(slow.getHost()));
+    }
+
+    @Test
+    public void testEjectsAndRestores() throws Exception {
+        OutlierDetectionOptions options = new OutlierDetectionOptions().setConsecutiveFailures(2)
+                .setBaseEjectionTime(50).setSlowStart(0);
+        LoadBalancer balancer = balancer(2, new RoundRobinStrategy(), options);
+        Endpoint bad = balancer.getEndpoints().get(0);
+
+        bad.acquire();
+        balancer.failed(bad);
+        Assert.assertFalse(bad.isEjected());
+        bad.acquire();
+        balancer.failed(bad);
+        Assert.assertTrue(bad.isEjected());
+
+        Map<String, Integer> counts = spread(balancer, 10);
+        Assert.assertNull(counts.get(bad.getHost()));
+
+        Thread.sleep(60);
+        counts = spread(balancer, 10);
+        Assert.assertEquals(5, (int) counts.get(bad.getHost()));
+        Assert.assertFalse(bad.isEjected());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        OutlierDetectionOptions options = new OutlierDetectionOptions().setConsecutiveFailures(2);
+        LoadBalancer balancer = balancer(2, new RoundRobinStrategy(), options);
+        Endpoint endpoint = balancer.getEndpoints().get(0);
+
+        endpoint.acquire();
+        balancer.failed(endpoint);
+        endpoint.acquire();
+        balancer.succeeded(endpoint, RTT);
+        endpoint.acquire();
+        balancer.failed(endpoint);
+        Assert.assertFalse(endpoint.isEjected());
+        Assert.assertEquals(0, endpoint.getOutstanding());
+    }
+
+    @Test
+    public void testMaxEjectionPercent() {
+        OutlierDetectionOptions options = new OutlierDetectionOptions().setConsecutiveFailures(1)
+                .setMaxEjectionPercent(50);
+        LoadBalancer balancer = balancer(2, new RoundRobinStrategy(), options);
+        for (Endpoint endpoint : balancer.getEndpoints()) {
+            endpoint.acquire();
+            balancer.failed(endpoint);
+        }
+
+        // only one of the two can be out at a time
+        Assert.assertTrue(balancer.getEndpoints().get(0).isEjected());
+        Assert.assertFalse(balancer.getEndpoints().get(1).isEjected());
+    }
+
+    @Test
+    public void testSlowStart() throws Exception {
+        OutlierDetectionOptions options = new OutlierDetectionOptions().setConsecutiveFailures(1)
+                .setBaseEjectionTime(10).setSlowStart(60000);
+        LoadBalancer balancer = balancer(2, new RoundRobinStrategy(), options);
+        Endpoint bad = balancer.getEndpoints().get(0);
+        bad.acquire();
+        balancer.failed(bad);
+
+        Thread.sleep(20);
+        // brought back by the next selection, at a fraction of its share
+        Map<String, Integer> counts = spread(balancer, 1000);
+        Assert.assertTrue(bad.getWeight() < 1.0);
+        Assert.assertTrue(counts.getOrDefault(bad.getHost(), 0) < 150);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStrategy() {
+        LoadBalancingStrategy.create("random");
+    }
+}
@@ -0,0 +1,71 @@
+package com.jtruelove.vertx.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        assertWithin(500, histogram.getValueAtPercentile(50.0));
+        assertWithin(990, histogram.getValueAtPercentile(99.0));
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(100.0));
+        Assert.assertEquals(1, histogram.getValueAtPercentile(0.0));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(31);
+
+        Assert.assertEquals(3, histogram.getValueAtPercentile(10.0));
+        Assert.assertEquals(7, histogram.getValueAtPercentile(50.0));
+        Assert.assertEquals(31, histogram.getValueAtPercentile(99.0));
+    }
+
+    @Test
+    public void testClampsOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50.0));
+        Assert.assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        Assert.assertEquals(LatencyHistogram.MAX_VALUE, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LatencyHistogram().getValueAtPercentile(101.0);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // buckets are at most 1/16th of their power of two range wide
+        Assert.assertTrue("expected ~" + expected + " got " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
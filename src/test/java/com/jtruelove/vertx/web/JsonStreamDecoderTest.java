@@ -0,0 +1,200 @@
+package com.jtruelove.vertx.web;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.streams.ReadStream;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link JsonStreamDecoder}
+ */
+public class JsonStreamDecoderTest {
+
+    static class Item {
+        @JsonProperty
+        public String name;
+
+        @JsonProperty
+        public int count;
+
+        @JsonProperty
+        public List<Integer> tags;
+    }
+
+    private static final String ITEMS = "[ {\"name\":\"a,]}\\\"[\",\"count\":1,\"tags\":[1,2]},\n"
+            + "{\"name\":\"b\",\"count\":2} , {\"name\":\"\\u00e9\\\\\",\"count\":3} ]";
+
+    /**
+     * Hands a document over in chunks of the size given once it has handlers.
+     */
+    private static class ChunkedStream implements ReadStream<Buffer> {
+        private Handler<Buffer> handler;
+        private Handler<Void> endHandler;
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+
+        void send(String json, int chunkSize) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            for (int pos = 0; pos < bytes.length; pos += chunkSize) {
+                handler.handle(Buffer.buffer().appendBytes(bytes, pos, Math.min(chunkSize, bytes.length - pos)));
+            }
+            endHandler.handle(null);
+        }
+    }
+
+    private static Future<Void> decodeArray(String json, int chunkSize, JsonStreamOptions options, List<Item> items) {
+        ChunkedStream stream = new ChunkedStream();
+        Future<Void> done = JsonStreamDecoder.decodeArray(stream, Item.class, options, items::add);
+        stream.send(json, chunkSize);
+        return done;
+    }
+
+    private static Throwable arrayFailure(String json, JsonStreamOptions options) {
+        Future<Void> done = decodeArray(json, 4, options, new ArrayList<>());
+        assertTrue(done.failed());
+        return done.cause();
+    }
+
+    @Test
+    public void testArrayInChunks() {
+        for (int chunkSize : new int[]{1, 2, 7, 64, 1024}) {
+            List<Item> items = new ArrayList<>();
+            Future<Void> done = decodeArray(ITEMS, chunkSize, new JsonStreamOptions(), items);
+
+            assertTrue(done.succeeded());
+            assertEquals(3, items.size());
+            assertEquals("a,]}\"[", items.get(0).name);
+            assertEquals(2, items.get(0).tags.size());
+            assertEquals(2, items.get(1).count);
+            assertEquals("\u00e9\\", items.get(2).name);
+        }
+    }
+
+    @Test
+    public void testEmptyArray() {
+        List<Item> items = new ArrayList<>();
+        assertTrue(decodeArray(" [ ] ", 2, new JsonStreamOptions(), items).succeeded());
+        assertTrue(items.isEmpty());
+    }
+
+    @Test
+    public void testElementsHandedOverAsTheyArrive() {
+        List<Item> items = new ArrayList<>();
+        ChunkedStream stream = new ChunkedStream();
+        JsonStreamDecoder.decodeArray(stream, Item.class, new JsonStreamOptions(), items::add);
+
+        stream.handler.handle(Buffer.buffer("[{\"name\":\"a\"},{\"na"));
+        assertEquals(1, items.size());
+        stream.handler.handle(Buffer.buffer("me\":\"b\"}"));
+        // only the comma or the end of the array says the element is over
+        assertEquals(1, items.size());
+        stream.handler.handle(Buffer.buffer("]"));
+        assertEquals(2, items.size());
+    }
+
+    @Test
+    public void testMalformedArray() {
+        JsonStreamOptions options = new JsonStreamOptions();
+        assertTrue(arrayFailure("{\"name\":\"a\"}", options) instanceof DecodeException);
+        assertTrue(arrayFailure("[{\"name\":\"a\"},,{}]", options) instanceof DecodeException);
+        assertTrue(arrayFailure("[{\"name\":\"a\"},]", options) instanceof DecodeException);
+        assertTrue(arrayFailure("[{\"name\":\"a\"}] {}", options) instanceof DecodeException);
+        assertTrue(arrayFailure("[{\"name\":\"a\"}", options) instanceof DecodeException);
+        assertTrue(arrayFailure("[{\"name\":}]", options) instanceof DecodeException);
+        assertTrue(arrayFailure("", options) instanceof DecodeException);
+    }
+
+    @Test
+    public void testLimits() {
+        Throwable tooDeep = arrayFailure("[{\"tags\":[[[1]]]}]", new JsonStreamOptions().setMaxDepth(3));
+        assertTrue(tooDeep.getMessage().contains("deeper"));
+
+        // the limit is on each element, not the array
+        List<Item> items = new ArrayList<>();
+        assertTrue(decodeArray("[{\"count\":1},{\"count\":2},{\"count\":3}]", 5,
+                new JsonStreamOptions().setMaxSize(12), items).succeeded());
+        assertEquals(3, items.size());
+        Throwable tooLarge = arrayFailure("[{\"count\":1},{\"name\":\"too large\"}]",
+                new JsonStreamOptions().setMaxSize(12));
+        assertTrue(tooLarge.getMessage().contains("larger"));
+    }
+
+    @Test
+    public void testHandlerFailureStops() {
+        ChunkedStream stream = new ChunkedStream();
+        Future<Void> done = JsonStreamDecoder.decodeArray(stream, Item.class, new JsonStreamOptions(), item -> {
+            throw new IllegalStateException("no more");
+        });
+        stream.send(ITEMS, 8);
+        assertTrue(done.cause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testObjectInChunks() {
+        String json = "{\"name\":\"a}\",\"count\":5,\"tags\":[1,2,3]}";
+        for (int chunkSize : new int[]{1, 5, 1024}) {
+            ChunkedStream stream = new ChunkedStream();
+            Future<Item> result = JsonStreamDecoder.decode(stream, Item.class, new JsonStreamOptions());
+            stream.send(json, chunkSize);
+
+            assertTrue(result.succeeded());
+            assertEquals("a}", result.result().name);
+            assertEquals(3, result.result().tags.size());
+        }
+
+        ChunkedStream empty = new ChunkedStream();
+        Future<Item> result = JsonStreamDecoder.decode(empty, Item.class, new JsonStreamOptions());
+        empty.send("", 1);
+        assertTrue(result.succeeded());
+        assertNull(result.result());
+    }
+
+    @Test
+    public void testObjectLimits() {
+        ChunkedStream stream = new ChunkedStream();
+        Future<Item> result = JsonStreamDecoder.decode(stream, Item.class, new JsonStreamOptions().setMaxSize(16));
+        stream.send("{\"name\":\"longer than sixteen bytes\"}", 8);
+        assertTrue(result.cause() instanceof DecodeException);
+
+        stream = new ChunkedStream();
+        result = JsonStreamDecoder.decode(stream, Item.class, new JsonStreamOptions().setMaxDepth(2));
+        stream.send("{\"tags\":[[1]]}", 8);
+        assertTrue(result.cause() instanceof DecodeException);
+    }
+}
@@ -2,14 +2,23 @@ package com.jtruelove.vertx.web;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -69,6 +78,145 @@ public class JsonUtilTest {
         assertEquals(testStr, jsonObject.toString());
     }
 
+    @Test
+    public void testJsonBufferSerialize() {
+        Foo f = new Foo();
+        f.bar = "testStr";
+        f.testField = 5;
+        f.dontTouch = "notMe";
+
+        Buffer buffer = JsonUtil.getJsonBufferForObject(f);
+
+        assertEquals(JsonUtil.getJsonForObject(f), buffer.toString());
+    }
+
+    @Test
+    public void testBufferDeserialize() {
+        String testStr = "{\"bar\":\"testStr\",\"testField\":5}";
+
+        Foo f = JsonUtil.parseJsonToObject(Buffer.buffer(testStr), Foo.class);
+        assertEquals("testStr", f.bar);
+        assertEquals(5, f.testField);
+
+        // a direct buffer with something in front of the json
+        ByteBuf direct = Unpooled.directBuffer();
+        direct.writeByte('x').writeBytes(testStr.getBytes(StandardCharsets.UTF_8)).skipBytes(1);
+        f = JsonUtil.parseJsonToObject(direct, Foo.class);
+        assertEquals("testStr", f.bar);
+        assertEquals(1, direct.readerIndex());
+        direct.release();
+
+        assertNull(JsonUtil.parseJsonToObject(Buffer.buffer(), Foo.class));
+        assertNull(JsonUtil.parseJsonToObject(Buffer.buffer("{[}"), Foo.class));
+    }
+
+    @Test
+    public void testWriteToPooledBuffer() {
+        Foo f = new Foo();
+        f.bar = "testStr";
+        f.testField = 5;
+
+        ByteBuf buffer = PooledByteBufAllocator.DEFAULT.buffer();
+        try {
+            buffer.writeByte('[');
+            assertTrue(JsonUtil.writeJsonForObject(f, buffer));
+            assertEquals("[" + JsonUtil.getJsonForObject(f), buffer.toString(StandardCharsets.UTF_8));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testReaderShared() throws Exception {
+        assertTrue(JsonUtil.getReader(Foo.class) == JsonUtil.getReader(Foo.class));
+
+        Foo f = JsonUtil.getReader(Foo.class).readValue("{\"bar\":\"testStr\",\"testField\":5}");
+        assertEquals("testStr", f.bar);
+    }
+
+    @Test
+    public void testWriterShared() throws Exception {
+        assertTrue(JsonUtil.getWriter(Foo.class) == JsonUtil.getWriter(Foo.class));
+    }
+
+    @Test
+    public void testFastModeReaderShared() {
+        Assume.assumeTrue(JsonUtil.setFastMode(true));
+        try {
+            assertTrue(JsonUtil.getReader(Foo.class) == JsonUtil.getReader(Foo.class));
+            assertTrue(JsonUtil.getWriter(Foo.class) == JsonUtil.getWriter(Foo.class));
+        } finally {
+            JsonUtil.setFastMode(false);
+        }
+    }
+
+    @Test
+    public void testMapperChangesSeen() {
+        Foo f = new Foo();
+        f.bar = "testStr";
+
+        ObjectWriter writer = JsonUtil.getWriter(Foo.class);
+        JsonUtil.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        try {
+            // the cached writer is replaced, and the new one cached in turn
+            assertTrue(JsonUtil.getWriter(Foo.class) != writer);
+            assertTrue(JsonUtil.getWriter(Foo.class) == JsonUtil.getWriter(Foo.class));
+            assertTrue(JsonUtil.getJsonForObject(f).contains("\n"));
+            assertTrue(JsonUtil.getJsonBufferForObject(f).toString().contains("\n"));
+        } finally {
+            JsonUtil.mapper.disable(SerializationFeature.INDENT_OUTPUT);
+        }
+        assertFalse(JsonUtil.getJsonForObject(f).contains("\n"));
+    }
+
+    @Test
+    public void testFastMode() {
+        Foo f = new Foo();
+        f.bar = "testStr";
+        f.testField = 5;
+        f.dontTouch = "notMe";
+        String json = JsonUtil.getJsonForObject(f);
+
+        // only turned on where Afterburner works, everything else behaves the same either way
+        boolean supported = System.getProperty("java.specification.version").startsWith("1.");
+        assertEquals(supported, JsonUtil.setFastMode(true));
+        try {
+            assertEquals(supported, JsonUtil.isFastMode());
+            // the same json either way
+            assertEquals(json, JsonUtil.getJsonForObject(f));
+            assertEquals(json, JsonUtil.getJsonBufferForObject(f).toString());
+
+            Foo parsed = JsonUtil.parseJsonToObject(json.getBytes(), Foo.class);
+            assertEquals("testStr", parsed.bar);
+            assertEquals(5, parsed.testField);
+            assertNull(parsed.dontTouch);
+        } finally {
+            JsonUtil.setFastMode(false);
+        }
+        assertFalse(JsonUtil.isFastMode());
+    }
+
+    @Test
+    public void testFastModeCopiesMapper() {
+        Foo f = new Foo();
+        f.bar = "testStr";
+
+        // the settings of the mapper when fast mode is turned on are kept, changes after that aren't seen
+        JsonUtil.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        try {
+            Assume.assumeTrue(JsonUtil.setFastMode(true));
+        } finally {
+            JsonUtil.mapper.disable(SerializationFeature.INDENT_OUTPUT);
+        }
+        try {
+            assertTrue(JsonUtil.getJsonForObject(f).contains("\n"));
+            assertTrue(JsonUtil.parseJsonToObject("{\"bar\":\"testStr\"}", Foo.class) != null);
+        } finally {
+            JsonUtil.setFastMode(false);
+        }
+        assertFalse(JsonUtil.getJsonForObject(f).contains("\n"));
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void testBadObjectJsonSerialize() {
         String testStr = JsonUtil.getJsonForObject(null);
@@ -0,0 +1,64 @@
+package com.jtruelove.vertx.web.handler;
+
+import com.jtruelove.vertx.async.Deadline;
+import com.jtruelove.vertx.web.RestApi;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.WebTestBase;
+import org.junit.Test;
+
+/**
+ * Tests for DeadlineHandler
+ */
+public class DeadlineHandlerTest extends WebTestBase {
+
+    @Test
+    public void testDeadlineFromHeader() throws Exception {
+        router.route().handler(DeadlineHandler.create());
+        router.route().handler(rc -> {
+            Deadline deadline = DeadlineHandler.deadline(rc);
+            assertNotNull(deadline);
+            assertTrue(deadline.remaining() > 0 && deadline.remaining() <= 5000);
+            rc.response().end();
+        });
+        testRequest(HttpMethod.GET, "/", req -> req.putHeader(RestApi.X_REQUEST_TIMEOUT, "5000"), null,
+                200, "OK", null);
+    }
+
+    @Test
+    public void testNoHeader() throws Exception {
+        router.route().handler(DeadlineHandler.create());
+        router.route().handler(rc -> {
+            assertNull(DeadlineHandler.deadline(rc));
+            rc.response().end();
+        });
+        testRequest(HttpMethod.GET, "/", 200, "OK");
+    }
+
+    @Test
+    public void testDefaultTimeout() throws Exception {
+        router.route().handler(DeadlineHandler.create(2000));
+        router.route().handler(rc -> {
+            Deadline deadline = DeadlineHandler.deadline(rc);
+            assertNotNull(deadline);
+            assertTrue(deadline.remaining() <= 2000);
+            rc.response().end();
+        });
+        testRequest(HttpMethod.GET, "/", 200, "OK");
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+        router.route().handler(DeadlineHandler.create());
+        router.route().handler(rc -> fail("an expired request should not be handled"));
+        testRequest(HttpMethod.GET, "/", req -> req.putHeader(RestApi.X_REQUEST_TIMEOUT, "0"), null,
+                504, "Gateway Timeout", null);
+    }
+
+    @Test
+    public void testInvalidHeader() throws Exception {
+        router.route().handler(DeadlineHandler.create());
+        router.route().handler(rc -> fail("an invalid request should not be handled"));
+        testRequest(HttpMethod.GET, "/", req -> req.putHeader(RestApi.X_REQUEST_TIMEOUT, "soon"), null,
+                400, "Bad Request", null);
+    }
+}